@@ -2,6 +2,8 @@ package edu.utexas.tacc.tapis.notifications.api.resources;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
@@ -21,7 +23,10 @@ import org.slf4j.LoggerFactory;
 
 import edu.utexas.tacc.tapis.notifications.api.requests.ReqEndEventSeries;
 import edu.utexas.tacc.tapis.notifications.api.requests.ReqPostEvent;
+import edu.utexas.tacc.tapis.notifications.api.responses.RespEventPublishResults;
 import edu.utexas.tacc.tapis.notifications.api.utils.ApiUtils;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
 import edu.utexas.tacc.tapis.notifications.service.NotificationsService;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisJSONException;
 import edu.utexas.tacc.tapis.shared.i18n.MsgUtils;
@@ -54,6 +59,7 @@ public class EventResource
   // Json schema resource files.
   public static final String FILE_EVENT_POST_REQUEST = "/edu/utexas/tacc/tapis/notifications/api/jsonschema/EventPostRequest.json";
   public static final String FILE_EVENT_ENDSERIES_REQUEST = "/edu/utexas/tacc/tapis/notifications/api/jsonschema/EventEndSeriesRequest.json";
+  public static final String FILE_EVENT_PUBLISH_BATCH_REQUEST = "/edu/utexas/tacc/tapis/notifications/api/jsonschema/EventPublishBatchRequest.json";
 
   // Message keys
   public static final String INVALID_JSON_INPUT = "NET_INVALID_JSON_INPUT";
@@ -166,6 +172,106 @@ public class EventResource
     return Response.status(Status.OK).entity(TapisRestUtils.createSuccessResponse(msg, PRETTY, resp1)).build();
   }
 
+  /**
+   * Publish a batch of events
+   * All events are validated before any are published. Events that fail validation are not published and
+   *   the reason is reported in the result for that event.
+   * Sequence counts for events in the same series are assigned in the order the events appear in the request.
+   * @param tenant Set the tenant associated with the events. Only for services. By default, oboTenant is used.
+   * @param payloadStream - request body
+   * @param securityContext - user identity
+   * @return response containing a result for each event in the request
+   */
+  @POST
+  @Path("publishBatch")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response publishEventBatch(InputStream payloadStream,
+                                    @QueryParam("tenant") String tenant,
+                                    @Context SecurityContext securityContext)
+  {
+    String opName = "publishEventBatch";
+    String msg;
+    // ------------------------- Retrieve and validate thread context -------------------------
+    TapisThreadContext threadContext = TapisThreadLocal.tapisThreadContext.get();
+    // Check that we have all we need from the context, the jwtTenantId and jwtUserId
+    // Utility method returns null if all OK and appropriate error response if there was a problem.
+    Response resp = ApiUtils.checkContext(threadContext, PRETTY);
+    if (resp != null) return resp;
+
+    // Create a user that collects together tenant, user and request information needed by the service call
+    ResourceRequestUser rUser = new ResourceRequestUser((AuthenticatedUser) securityContext.getUserPrincipal());
+
+    // Trace this request.
+    if (_log.isTraceEnabled()) ApiUtils.logRequest(rUser, className, opName, _request.getRequestURL().toString(),
+                                          "tenant="+tenant);
+
+    // ------------------------- Extract and validate payload -------------------------
+    // Read the payload into a string.
+    String rawJson;
+    try { rawJson = IOUtils.toString(payloadStream, StandardCharsets.UTF_8); }
+    catch (Exception e)
+    {
+      msg = MsgUtils.getMsg(INVALID_JSON_INPUT, opName , e.getMessage());
+      _log.error(msg, e);
+      return Response.status(Status.BAD_REQUEST).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+    }
+    // Create validator specification and validate the json against the schema
+    JsonValidatorSpec spec = new JsonValidatorSpec(rawJson, FILE_EVENT_PUBLISH_BATCH_REQUEST);
+    try { JsonValidator.validate(spec); }
+    catch (TapisJSONException e)
+    {
+      msg = MsgUtils.getMsg(JSON_VALIDATION_ERR, e.getMessage());
+      _log.error(msg, e);
+      return Response.status(Status.BAD_REQUEST).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+    }
+
+    ReqPostEvent[] reqs;
+    // ------------------------- Create Events from the json -------------------------
+    try { reqs = TapisGsonUtils.getGson().fromJson(rawJson, ReqPostEvent[].class); }
+    catch (JsonSyntaxException e)
+    {
+      msg = MsgUtils.getMsg(INVALID_JSON_INPUT, opName, e.getMessage());
+      _log.error(msg, e);
+      return Response.status(Status.BAD_REQUEST).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+    }
+    // If reqs is null that is an unrecoverable error
+    if (reqs == null)
+    {
+      msg = ApiUtils.getMsgAuth("NTFAPI_EVENT_BATCH_REQ_NULL", rUser);
+      _log.error(msg);
+      return Response.status(Status.BAD_REQUEST).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+    }
+    // Service fills in tenant, user, seriesSeqCount, received and uuid.
+    List<Event> events = new ArrayList<>(reqs.length);
+    for (ReqPostEvent req : reqs)
+    {
+      events.add(req == null ? null :
+                 new Event(req.source, req.type, req.subject, req.data, req.seriesId, Event.DEFAULT_SERIES_SEQ_COUNT,
+                           req.timestamp, req.deleteSubscriptionsMatchingSubject, req.endSeries, null, null, null, null));
+    }
+
+    // ---------------------------- Make service call to publish the events -------------------------------
+    List<EventPublishResult> results;
+    try
+    {
+      results = notificationsService.publishEvents(rUser, events, tenant);
+    }
+    catch (Exception e)
+    {
+      msg = ApiUtils.getMsgAuth("NTFAPI_EVENT_BATCH_ERR", rUser, events.size(), tenant, e.getMessage());
+      _log.error(msg);
+      return Response.status(Status.INTERNAL_SERVER_ERROR).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+    }
+
+    // ---------------------------- Success -------------------------------
+    // Success means the batch was processed. Individual events may have failed, see result for each event.
+    int numPublished = (int) results.stream().filter(EventPublishResult::isPublished).count();
+    RespEventPublishResults resp1 = new RespEventPublishResults(results);
+    msg = ApiUtils.getMsgAuth("NTFAPI_EVENT_BATCH_POSTED", rUser, numPublished, results.size() - numPublished);
+    return Response.status(Status.OK).entity(TapisRestUtils.createSuccessResponse(msg, PRETTY, resp1)).build();
+  }
+
   /**
    * @deprecated
    * (DEPRECATED)
@@ -5,11 +5,15 @@ import javax.annotation.security.PermitAll;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -19,9 +23,14 @@ import edu.utexas.tacc.tapis.client.shared.exceptions.TapisClientException;
 import edu.utexas.tacc.tapis.shared.i18n.MsgUtils;
 import edu.utexas.tacc.tapis.shared.security.ServiceContext;
 import edu.utexas.tacc.tapis.shared.security.TenantManager;
+import edu.utexas.tacc.tapis.shared.threadlocal.TapisThreadContext;
+import edu.utexas.tacc.tapis.shared.threadlocal.TapisThreadLocal;
 import edu.utexas.tacc.tapis.shared.utils.CallSiteToggle;
 import edu.utexas.tacc.tapis.shared.utils.TapisUtils;
 import edu.utexas.tacc.tapis.sharedapi.responses.RespBasic;
+import edu.utexas.tacc.tapis.sharedapi.responses.RespChangeCount;
+import edu.utexas.tacc.tapis.sharedapi.security.AuthenticatedUser;
+import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
 import edu.utexas.tacc.tapis.sharedapi.utils.TapisRestUtils;
 import edu.utexas.tacc.tapis.sharedapi.utils.TapisRestUtils.RESPONSE_STATUS;
 
@@ -29,8 +38,9 @@ import edu.utexas.tacc.tapis.notifications.api.NotificationsApplication;
 import edu.utexas.tacc.tapis.notifications.api.utils.ApiUtils;
 import edu.utexas.tacc.tapis.notifications.service.NotificationsServiceImpl;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 
-/* Tapis Notifications general resource endpoints including healthcheck and readycheck
+/* Tapis Notifications general resource endpoints including healthcheck, readycheck, metrics and admin role cache
  *
  *  NOTE: For OpenAPI spec please see file NotificationsAPI.yaml located in repo openapi-notifications
  */
@@ -280,6 +290,68 @@ public class GeneralResource
     return Response.ok(resp).build();
   }
 
+  /**
+   * Report in-process metrics for this api instance, e.g. publisher confirm latency and nack counts.
+   * Only services may retrieve metrics.
+   * @param securityContext - user identity
+   * @return response containing map of metric name to value
+   */
+  @GET
+  @Path("/metrics")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response getMetrics(@Context SecurityContext securityContext)
+  {
+    // ------------------------- Retrieve and validate thread context -------------------------
+    TapisThreadContext threadContext = TapisThreadLocal.tapisThreadContext.get();
+    Response resp = ApiUtils.checkContext(threadContext, true);
+    if (resp != null) return resp;
+    ResourceRequestUser rUser = new ResourceRequestUser((AuthenticatedUser) securityContext.getUserPrincipal());
+    if (!rUser.isServiceRequest())
+    {
+      String msg = ApiUtils.getMsgAuth("NTFAPI_METRICS_UNAUTH", rUser);
+      return Response.status(Status.FORBIDDEN).entity(TapisRestUtils.createErrorResponse(msg, true)).build();
+    }
+    RespBasic resp1 = new RespBasic(NtfMetrics.snapshot());
+    String msg = ApiUtils.getMsgAuth("NTFAPI_METRICS", rUser);
+    return Response.status(Status.OK).entity(TapisRestUtils.createSuccessResponse(msg, true, resp1)).build();
+  }
+
+  /**
+   * Invalidate cached admin role lookups for this api instance, e.g. after a role is granted or revoked in SK.
+   * Each instance has its own cache, so this must be called on each instance. Otherwise entries expire on their own.
+   * Only services may invalidate the cache.
+   * @param tenant - tenant, if not set all entries are removed
+   * @param user - user, if not set all entries for the tenant are removed
+   * @param securityContext - user identity
+   * @return response containing number of entries removed
+   */
+  @POST
+  @Path("/adminRoleCache/invalidate")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response invalidateAdminRoleCache(@QueryParam("tenant") String tenant,
+                                           @QueryParam("user") String user,
+                                           @Context SecurityContext securityContext)
+  {
+    // ------------------------- Retrieve and validate thread context -------------------------
+    TapisThreadContext threadContext = TapisThreadLocal.tapisThreadContext.get();
+    Response resp = ApiUtils.checkContext(threadContext, true);
+    if (resp != null) return resp;
+    ResourceRequestUser rUser = new ResourceRequestUser((AuthenticatedUser) securityContext.getUserPrincipal());
+    if (!rUser.isServiceRequest())
+    {
+      String msg = ApiUtils.getMsgAuth("NTFAPI_ADMINROLE_CACHE_UNAUTH", rUser);
+      return Response.status(Status.FORBIDDEN).entity(TapisRestUtils.createErrorResponse(msg, true)).build();
+    }
+    String tenant1 = StringUtils.isBlank(tenant) ? null : tenant;
+    String user1 = (tenant1 == null || StringUtils.isBlank(user)) ? null : user;
+    int count = svcImpl.invalidateAdminRoleCache(tenant1, user1);
+    RespChangeCount resp1 = new RespChangeCount(count);
+    String msg = ApiUtils.getMsgAuth("NTFAPI_ADMINROLE_CACHE_INVALIDATED", rUser, tenant1, user1, count);
+    return Response.status(Status.OK).entity(TapisRestUtils.createSuccessResponse(msg, true, resp1)).build();
+  }
+
   /* **************************************************************************** */
   /*                                Private Methods                               */
   /* **************************************************************************** */
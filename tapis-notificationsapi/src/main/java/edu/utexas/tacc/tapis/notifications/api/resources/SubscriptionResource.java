@@ -17,6 +17,8 @@ import javax.ws.rs.core.Application;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.SecurityContext;
@@ -58,10 +60,13 @@ import edu.utexas.tacc.tapis.sharedapi.utils.TapisRestUtils;
 import edu.utexas.tacc.tapis.notifications.api.requests.ReqPostSubscription;
 import edu.utexas.tacc.tapis.notifications.api.responses.RespSubscription;
 import edu.utexas.tacc.tapis.notifications.api.responses.RespSubscriptions;
+import edu.utexas.tacc.tapis.notifications.api.responses.RespSubscriptionsStream;
 import edu.utexas.tacc.tapis.notifications.api.utils.ApiUtils;
 import edu.utexas.tacc.tapis.notifications.model.PatchSubscription;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 import edu.utexas.tacc.tapis.notifications.service.NotificationsService;
+import edu.utexas.tacc.tapis.notifications.service.NotificationsService.SubscriptionStream;
 
 import static edu.utexas.tacc.tapis.notifications.model.Subscription.DEFAULT_OWNER;
 import static edu.utexas.tacc.tapis.notifications.model.Subscription.NAME_FIELD;
@@ -106,6 +111,11 @@ public class SubscriptionResource
   // Format strings
   private static final String NTF_CNT_STR = "%d subscriptions";
 
+  // Query parameter for paging with a cursor
+  private static final String CURSOR_PARAM = "cursor";
+  // Query parameter for how the total count is computed when computeTotal=true
+  private static final String COUNT_STRATEGY_PARAM = "countStrategy";
+
   // Operation names
   private static final String OP_ENABLE = "enableSubscription";
   private static final String OP_DISABLE = "disableSubscription";
@@ -688,6 +698,9 @@ public class SubscriptionResource
    *       QueryParametersRequestFilter. No need to use @QueryParam here.
    * @param ownedBy - Use specified user in place of the requesting user. Leave null or blank to use requesting user.
    * @param anyOwner - If true retrieve all subscriptions owned by any user. ownedBy will be ignored.
+   * @param cursor - Page using a cursor rather than skip or startAfter. Empty for the first page, then
+   *                 metadata.nextCursor from the previous page.
+   * @param countStrategy - How the total is computed when computeTotal=true: exact (default), estimated or cached.
    * @param securityContext - user identity
    * @return - list of subscriptions accessible by requester and matching search conditions.
    */
@@ -696,6 +709,8 @@ public class SubscriptionResource
   @Produces(MediaType.APPLICATION_JSON)
   public Response getSubscriptions(@QueryParam("ownedBy") String ownedBy,
                                    @QueryParam("anyOwner") @DefaultValue("false") boolean anyOwner,
+                                   @QueryParam(CURSOR_PARAM) String cursor,
+                                   @QueryParam(COUNT_STRATEGY_PARAM) String countStrategy,
                                    @Context SecurityContext securityContext)
   {
     String opName = "getSubscriptions";
@@ -719,7 +734,7 @@ public class SubscriptionResource
     Response successResponse;
     try
     {
-      successResponse = getSearchResponse(rUser, null, srchParms, ownedBy, anyOwner);
+      successResponse = getSearchResponse(rUser, null, srchParms, ownedBy, anyOwner, cursor, countStrategy);
     }
     catch (Exception e)
     {
@@ -734,6 +749,8 @@ public class SubscriptionResource
    * searchSubscriptionsQueryParameters
    * Dedicated search endpoint for Subscription resource. Search conditions provided as query parameters.
    * @param ownedBy subscription owner
+   * @param cursor - Page using a cursor. Empty for the first page, then metadata.nextCursor from the previous page.
+   * @param countStrategy - How the total is computed when computeTotal=true: exact (default), estimated or cached.
    * @param securityContext - user identity
    * @return - list of subscriptions accessible by requester and matching search conditions.
    */
@@ -742,6 +759,8 @@ public class SubscriptionResource
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_JSON)
   public Response searchSubscriptionsQueryParameters(@QueryParam("ownedBy") String ownedBy,
+                                                     @QueryParam(CURSOR_PARAM) String cursor,
+                                                     @QueryParam(COUNT_STRATEGY_PARAM) String countStrategy,
                                                      @Context SecurityContext securityContext)
   {
     String opName = "searchSubscriptionsGet";
@@ -764,7 +783,11 @@ public class SubscriptionResource
     List<String> searchList;
     try
     {
-      searchList = SearchUtils.buildListFromQueryParms(_uriInfo.getQueryParameters());
+      // The cursor and count strategy are not search conditions
+      MultivaluedMap<String, String> queryParms = new MultivaluedHashMap<>(_uriInfo.getQueryParameters());
+      queryParms.remove(CURSOR_PARAM);
+      queryParms.remove(COUNT_STRATEGY_PARAM);
+      searchList = SearchUtils.buildListFromQueryParms(queryParms);
     }
     catch (Exception e)
     {
@@ -782,7 +805,7 @@ public class SubscriptionResource
     try
     {
       boolean anyOwnerFalse = false;
-      successResponse = getSearchResponse(rUser, null, srchParms, ownedBy, anyOwnerFalse);
+      successResponse = getSearchResponse(rUser, null, srchParms, ownedBy, anyOwnerFalse, cursor, countStrategy);
     }
     catch (Exception e)
     {
@@ -800,6 +823,8 @@ public class SubscriptionResource
    * Dedicated search endpoint for Subscription resource. Search conditions provided in a request body.
    * Request body contains an array of strings that are concatenated to form the full SQL-like search string.
    * @param ownedBy subscription owner
+   * @param cursor - Page using a cursor. Empty for the first page, then metadata.nextCursor from the previous page.
+   * @param countStrategy - How the total is computed when computeTotal=true: exact (default), estimated or cached.
    * @param payloadStream - request body@quer
    * @param securityContext - user identity
    * @return - list of subscriptions accessible by requester and matching search conditions.
@@ -809,6 +834,8 @@ public class SubscriptionResource
   @Consumes(MediaType.APPLICATION_JSON)
   @Produces(MediaType.APPLICATION_JSON)
   public Response searchSubscriptionsRequestBody(@QueryParam("ownedBy") String ownedBy,
+                                                 @QueryParam(CURSOR_PARAM) String cursor,
+                                                 @QueryParam(COUNT_STRATEGY_PARAM) String countStrategy,
                                                  InputStream payloadStream,
                                                  @Context SecurityContext securityContext)
   {
@@ -870,7 +897,8 @@ public class SubscriptionResource
     try
     {
       boolean anyOwnerFalse = false;
-      successResponse = getSearchResponse(rUser, sqlSearchStr, srchParms, ownedBy, anyOwnerFalse);
+      successResponse = getSearchResponse(rUser, sqlSearchStr, srchParms, ownedBy, anyOwnerFalse, cursor,
+                                          countStrategy);
     }
     catch (Exception e)
     {
@@ -1105,9 +1133,12 @@ public class SubscriptionResource
    *  Common method to return a list of subscriptions given a search list and search parameters.
    *  srchParms must be non-null
    *  One of srchParms.searchList or sqlSearchStr must be non-null
+   *  If cursor is non-null, including empty for the first page, page using the cursor and stream the response.
+   *    In that case skip and startAfter are ignored.
+   *  countStrategyStr determines how the total is computed when computeTotal is set. Blank for exact.
    */
   private Response getSearchResponse(ResourceRequestUser rUser, String sqlSearchStr, SearchParameters srchParms,
-                                     String ownedBy, boolean anyOwner)
+                                     String ownedBy, boolean anyOwner, String cursor, String countStrategyStr)
           throws Exception
   {
     RespAbstract resp1;
@@ -1131,6 +1162,33 @@ public class SubscriptionResource
     String orderBy = srchParms.getOrderBy();
     List<OrderBy> orderByList = srchParms.getOrderByList();
 
+    CountStrategy countStrategy = CountStrategy.exact;
+    if (!StringUtils.isBlank(countStrategyStr))
+    {
+      try { countStrategy = CountStrategy.valueOf(countStrategyStr); }
+      catch (IllegalArgumentException e)
+      {
+        String msg = ApiUtils.getMsgAuth("NTFAPI_COUNT_STRATEGY_INVALID", rUser, countStrategyStr);
+        _log.error(msg, e);
+        return Response.status(Status.BAD_REQUEST).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+      }
+    }
+
+    if (cursor != null)
+    {
+      // Inputs and auth are checked now, the subscriptions are read as the response is written.
+      SubscriptionStream subscriptionStream =
+              notificationsService.getSubscriptionStream(rUser, subscrOwner, searchList, sqlSearchStr, limit,
+                                                         orderByList, cursor, anyOwner);
+      if (computeTotal)
+        totalCount = notificationsService.getSubscriptionsTotalCount(rUser, subscrOwner, searchList, orderByList, null,
+                                                                     countStrategy);
+      var streamResp = new RespSubscriptionsStream(subscriptionStream, limit, orderBy, totalCount, selectList, PRETTY,
+              count -> MsgUtils.getMsg(TAPIS_FOUND, NOTIFICATIONS_SVC, String.format(NTF_CNT_STR, count)),
+              e -> createSelectErrorResponse(rUser, e));
+      return Response.status(Status.OK).entity(streamResp).build();
+    }
+
     if (StringUtils.isBlank(sqlSearchStr))
       subscriptions = notificationsService.getSubscriptions(rUser, subscrOwner, searchList, limit, orderByList, skip,
                                                             startAfter, anyOwner);
@@ -1144,7 +1202,8 @@ public class SubscriptionResource
     // If we need the count and there was a limit then we need to make a call
     if (computeTotal && limit > 0)
     {
-      totalCount = notificationsService.getSubscriptionsTotalCount(rUser, subscrOwner, searchList, orderByList, startAfter);
+      totalCount = notificationsService.getSubscriptionsTotalCount(rUser, subscrOwner, searchList, orderByList,
+                                                                   startAfter, countStrategy);
     }
 
     // ---------------------------- Success -------------------------------
@@ -1153,6 +1212,18 @@ public class SubscriptionResource
     return createSuccessResponse(Status.OK, MsgUtils.getMsg(TAPIS_FOUND, NOTIFICATIONS_SVC, itemCountStr), resp1);
   }
 
+  /**
+   * Create an error response for a failed retrieval
+   * @param e - error
+   * @return - Final response to return to client
+   */
+  private static Response createSelectErrorResponse(ResourceRequestUser rUser, Exception e)
+  {
+    String msg = ApiUtils.getMsgAuth(SELECT_ERR, rUser, e.getMessage());
+    _log.error(msg, e);
+    return Response.status(TapisRestUtils.getStatus(e)).entity(TapisRestUtils.createErrorResponse(msg, PRETTY)).build();
+  }
+
   /**
    * Create an OK response given message and base response to put in result
    * @param msg - message for resp.message
@@ -0,0 +1,12 @@
+package edu.utexas.tacc.tapis.notifications.api.responses;
+
+import java.util.List;
+
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
+import edu.utexas.tacc.tapis.sharedapi.responses.RespAbstract;
+
+public final class RespEventPublishResults extends RespAbstract
+{
+  public List<EventPublishResult> result;
+  public RespEventPublishResults(List<EventPublishResult> r) { result = r; }
+}
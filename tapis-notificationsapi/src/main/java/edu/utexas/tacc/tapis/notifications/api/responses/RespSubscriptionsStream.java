@@ -0,0 +1,125 @@
+package edu.utexas.tacc.tapis.notifications.api.responses;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+import edu.utexas.tacc.tapis.sharedapi.utils.TapisRestUtils;
+import edu.utexas.tacc.tapis.notifications.api.responses.results.TapisSubscriptionDTO;
+import edu.utexas.tacc.tapis.notifications.service.NotificationsService.SubscriptionStream;
+
+/*
+  Results from a retrieval of Subscription resources using a cursor, written as the subscriptions are read.
+  Same json as RespSubscriptions, with metadata.nextCursor added when there are more subscriptions.
+  Each subscription is written out as soon as it is read from the DB, so memory use does not depend on the number
+    of subscriptions. The result array is written first since the count is not known until the end.
+  If retrieval fails before anything is written the client gets an error response, after that the response is
+    cut short.
+ */
+public final class RespSubscriptionsStream implements StreamingOutput
+{
+  private static final String RESULT = "result";
+  private static final String METADATA = "metadata";
+  private static final String RECORD_COUNT = "recordCount";
+  private static final String NEXT_CURSOR = "nextCursor";
+  private static final String PRETTY_INDENT = "  ";
+
+  private final SubscriptionStream subscriptionStream;
+  private final int limit;
+  private final String orderBy;
+  private final int totalCount;
+  private final List<String> selectList;
+  private final boolean pretty;
+  // Response message given the number of subscriptions
+  private final IntFunction<String> msgFunction;
+  // Error response for a failure before anything is written
+  private final Function<Exception, Response> errorFunction;
+
+  public RespSubscriptionsStream(SubscriptionStream subscriptionStream1, int limit1, String orderBy1, int totalCount1,
+                                 List<String> selectList1, boolean pretty1, IntFunction<String> msgFunction1,
+                                 Function<Exception, Response> errorFunction1)
+  {
+    subscriptionStream = subscriptionStream1;
+    limit = limit1;
+    orderBy = orderBy1;
+    totalCount = totalCount1;
+    selectList = selectList1;
+    pretty = pretty1;
+    msgFunction = msgFunction1;
+    errorFunction = errorFunction1;
+  }
+
+  @Override
+  public void write(OutputStream outputStream) throws IOException, WebApplicationException
+  {
+    Gson gson = TapisGsonUtils.getGson();
+    JsonWriter[] writer = new JsonWriter[1];
+    int[] count = {0};
+    String nextCursor;
+    try
+    {
+      nextCursor = subscriptionStream.forEach(subscription ->
+      {
+        if (writer[0] == null) writer[0] = beginResult(gson, outputStream);
+        gson.toJson(new TapisSubscriptionDTO(subscription).getDisplayObject(selectList), writer[0]);
+        count[0]++;
+      });
+    }
+    catch (TapisException | RuntimeException e)
+    {
+      if (writer[0] == null) throw new WebApplicationException(e, errorFunction.apply(e));
+      throw new IOException(e);
+    }
+    if (writer[0] == null) writer[0] = beginResult(gson, outputStream);
+    JsonWriter w = writer[0];
+    w.endArray();
+
+    // Rest of the response, as built for a list of subscriptions, with the count and cursor filled in
+    var resp = new RespSubscriptions(Collections.emptyList(), limit, orderBy, 0, null, totalCount, selectList);
+    String respStr = TapisRestUtils.createSuccessResponse(msgFunction.apply(count[0]), pretty, resp);
+    JsonObject respObj = gson.fromJson(respStr, JsonObject.class);
+    respObj.remove(RESULT);
+    JsonObject metadata = respObj.getAsJsonObject(METADATA);
+    if (metadata != null)
+    {
+      metadata.addProperty(RECORD_COUNT, count[0]);
+      if (nextCursor != null) metadata.addProperty(NEXT_CURSOR, nextCursor);
+    }
+    for (Map.Entry<String, JsonElement> entry : respObj.entrySet())
+    {
+      w.name(entry.getKey());
+      gson.toJson(entry.getValue(), w);
+    }
+    w.endObject();
+    w.flush();
+  }
+
+  /*
+   * Start the response object and the result array
+   */
+  private JsonWriter beginResult(Gson gson, OutputStream outputStream) throws IOException
+  {
+    JsonWriter w = gson.newJsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    if (pretty) w.setIndent(PRETTY_INDENT);
+    w.beginObject();
+    w.name(RESULT);
+    w.beginArray();
+    return w;
+  }
+}
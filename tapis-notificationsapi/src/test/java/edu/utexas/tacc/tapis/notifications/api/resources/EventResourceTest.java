@@ -0,0 +1,193 @@
+package edu.utexas.tacc.tapis.notifications.api.resources;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
+import edu.utexas.tacc.tapis.notifications.service.NotificationsService;
+import edu.utexas.tacc.tapis.shared.threadlocal.TapisThreadContext;
+import edu.utexas.tacc.tapis.shared.threadlocal.TapisThreadLocal;
+import edu.utexas.tacc.tapis.sharedapi.security.AuthenticatedUser;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for publishing a batch of events through EventResource.
+ * Uses a stand-in for the notifications service, so no external services are needed.
+ * The stand-in assigns sequence counts in request order within each series and reports events with a series but
+ *   no subject as failed, the same as NotificationsServiceImpl.
+ */
+@Test
+public class EventResourceTest
+{
+  private static final String tenant = "dev";
+  private static final String adminTenant = "admin";
+  private static final String jobsSvc = "jobs";
+  private static final String oboUser = "testuser1";
+
+  // Events and tenant passed to the service by the resource
+  private final List<Event> published = new ArrayList<>();
+  private String publishedTenant;
+
+  private EventResource resource;
+  private SecurityContext securityContext;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    published.clear();
+    publishedTenant = null;
+    resource = new EventResource();
+    Field svcField = EventResource.class.getDeclaredField("notificationsService");
+    svcField.setAccessible(true);
+    svcField.set(resource, fakeService());
+
+    TapisThreadContext threadContext = TapisThreadLocal.tapisThreadContext.get();
+    threadContext.setJwtTenantId(adminTenant);
+    threadContext.setJwtUser(jobsSvc);
+    threadContext.setOboTenantId(tenant);
+    threadContext.setOboUser(oboUser);
+    threadContext.setAccountType(TapisThreadContext.AccountType.service);
+    var user = new AuthenticatedUser(jobsSvc, adminTenant, TapisThreadContext.AccountType.service.name(), null,
+                                     oboUser, tenant, null, null, null);
+    securityContext = makeStub(SecurityContext.class, Map.of("getUserPrincipal", args -> user));
+  }
+
+  @AfterMethod
+  public void tearDown() { TapisThreadLocal.tapisThreadContext.remove(); }
+
+  @Test
+  public void testPublishEventBatch()
+  {
+    // Two series, with an endSeries event in the middle of the first one and an event that is not in a series
+    String json = "[" + eventJson("subj1", "s1", false) + "," + eventJson("subj1", "s2", false) + ","
+                  + eventJson("subj1", "s1", true) + "," + eventJson("subj1", null, false) + ","
+                  + eventJson("subj1", "s1", false) + "]";
+    Response resp = resource.publishEventBatch(toStream(json), tenant, securityContext);
+    Assert.assertEquals(resp.getStatus(), Status.OK.getStatusCode());
+
+    // Resource passes every event to the service in request order, leaving sequence counts to the service
+    Assert.assertEquals(publishedTenant, tenant);
+    Assert.assertEquals(published.size(), 5);
+    for (Event e : published) Assert.assertEquals(e.getSeriesSeqCount(), Event.DEFAULT_SERIES_SEQ_COUNT);
+    Assert.assertTrue(published.get(2).getEndSeries());
+    Assert.assertFalse(published.get(4).getEndSeries());
+
+    // One result for each event, in request order
+    JsonArray results = getResults(resp);
+    Assert.assertEquals(results.size(), 5);
+    long[] expected = {1, 1, 2, Event.DEFAULT_SERIES_SEQ_COUNT, 3};
+    for (int i = 0; i < results.size(); i++)
+    {
+      JsonObject result = results.get(i).getAsJsonObject();
+      Assert.assertEquals(result.get("index").getAsInt(), i);
+      Assert.assertTrue(result.get("published").getAsBoolean());
+      Assert.assertEquals(result.get("seriesSeqCount").getAsLong(), expected[i]);
+    }
+  }
+
+  @Test
+  public void testPublishEventBatchPartialFailure()
+  {
+    String json = "[" + eventJson("subj1", "s1", false) + "," + eventJson(null, "s1", false) + "]";
+    Response resp = resource.publishEventBatch(toStream(json), tenant, securityContext);
+    Assert.assertEquals(resp.getStatus(), Status.OK.getStatusCode());
+    JsonArray results = getResults(resp);
+    Assert.assertTrue(results.get(0).getAsJsonObject().get("published").getAsBoolean());
+    JsonObject failed = results.get(1).getAsJsonObject();
+    Assert.assertFalse(failed.get("published").getAsBoolean());
+    Assert.assertTrue(failed.get("message").getAsString().startsWith("NTFLIB_EVENT_SERIES_NO_SUBJ"));
+  }
+
+  @Test
+  public void testPublishEventBatchInvalidRequest()
+  {
+    // Not json
+    Response resp = resource.publishEventBatch(toStream("[{"), tenant, securityContext);
+    Assert.assertEquals(resp.getStatus(), Status.BAD_REQUEST.getStatusCode());
+    // Empty batch
+    resp = resource.publishEventBatch(toStream("[]"), tenant, securityContext);
+    Assert.assertEquals(resp.getStatus(), Status.BAD_REQUEST.getStatusCode());
+    // Event missing a required attribute
+    resp = resource.publishEventBatch(toStream("[{\"source\": \"Jobs\", \"type\": \"jobs.job.complete\"}]"), tenant,
+                                      securityContext);
+    Assert.assertEquals(resp.getStatus(), Status.BAD_REQUEST.getStatusCode());
+    Assert.assertTrue(published.isEmpty());
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Service that records the events passed to publishEvents and reports each one as published unless it is in a
+   *   series and has no subject. Within a series counts start at 1 and follow the order of the request.
+   */
+  private NotificationsService fakeService()
+  {
+    return makeStub(NotificationsService.class, Map.of("publishEvents", args ->
+      {
+        @SuppressWarnings("unchecked")
+        List<Event> events = (List<Event>) args[1];
+        published.addAll(events);
+        publishedTenant = (String) args[2];
+        var results = new ArrayList<EventPublishResult>();
+        var seriesCounts = new HashMap<String, Long>();
+        for (int i = 0; i < events.size(); i++)
+        {
+          Event e = events.get(i);
+          if (e.getSeriesId() != null && e.getSubject() == null)
+          {
+            results.add(EventPublishResult.failure(i, "NTFLIB_EVENT_SERIES_NO_SUBJ"));
+            continue;
+          }
+          long count = (e.getSeriesId() == null) ? Event.DEFAULT_SERIES_SEQ_COUNT :
+                       seriesCounts.merge(e.getSeriesId(), 1L, Long::sum);
+          results.add(EventPublishResult.success(i, new Event(e.getSource(), e.getType(), e.getSubject(), e.getData(),
+                      e.getSeriesId(), count, e.getTimestamp(), e.getDeleteSubscriptionsMatchingSubject(),
+                      e.getEndSeries(), (String) args[2], oboUser, null, UUID.randomUUID())));
+        }
+        return results;
+      }));
+  }
+
+  private static String eventJson(String subject, String seriesId, boolean endSeries)
+  {
+    var obj = new JsonObject();
+    obj.addProperty("source", "Jobs");
+    obj.addProperty("type", "jobs.job.complete");
+    obj.addProperty("timestamp", "2023-01-01T00:00:00Z");
+    if (subject != null) obj.addProperty("subject", subject);
+    if (seriesId != null) obj.addProperty("seriesId", seriesId);
+    obj.addProperty("endSeries", endSeries);
+    return obj.toString();
+  }
+
+  private static ByteArrayInputStream toStream(String json)
+  {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static JsonArray getResults(Response resp)
+  {
+    return JsonParser.parseString((String) resp.getEntity()).getAsJsonObject().getAsJsonArray("result");
+  }
+}
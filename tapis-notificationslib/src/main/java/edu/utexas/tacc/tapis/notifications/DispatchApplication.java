@@ -78,7 +78,12 @@ public class DispatchApplication
 
     // Start background process to clean up expired subscriptions.
     System.out.println("Starting subscription reaper");
-    dispatchService.startReaper(runParms.getNtfSubscriptionReaperInterval());
+    dispatchService.startReaper(runParms.getNtfSubscriptionReaperInterval(),
+                                runParms.getNtfSubscriptionReaperChunkSize());
+
+    // Start background process to clean up events no longer referenced by notifications.
+    System.out.println("Starting event sweeper");
+    dispatchService.startEventSweeper(runParms.getNtfEventSweepInterval(), runParms.getNtfEventSweepGrace());
 
     // Start message broker consumer and bucket managers.
     // This is the main loop to process events while the service is running.
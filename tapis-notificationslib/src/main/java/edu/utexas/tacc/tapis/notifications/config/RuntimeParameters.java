@@ -2,6 +2,7 @@ package edu.utexas.tacc.tapis.notifications.config;
 
 import java.text.NumberFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 
@@ -20,7 +21,22 @@ import edu.utexas.tacc.tapis.shared.parameters.TapisInput;
 import edu.utexas.tacc.tapis.shared.providers.email.EmailClientParameters;
 import edu.utexas.tacc.tapis.shared.providers.email.enumeration.EmailProviderType;
 import edu.utexas.tacc.tapis.shared.utils.TapisUtils;
+import edu.utexas.tacc.tapis.notifications.dao.EventCache;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDaoImpl;
+import edu.utexas.tacc.tapis.notifications.dao.SubscriptionCountCache;
+import edu.utexas.tacc.tapis.notifications.service.AdminRoleCache;
+import edu.utexas.tacc.tapis.notifications.service.DeliveredNotificationDeleter;
+import edu.utexas.tacc.tapis.notifications.service.DeliveryCircuitBreaker;
+import edu.utexas.tacc.tapis.notifications.service.DeliveryExecutors;
 import edu.utexas.tacc.tapis.notifications.service.DispatchService;
+import edu.utexas.tacc.tapis.notifications.service.EventSweeper;
+import edu.utexas.tacc.tapis.notifications.service.MessageBroker;
+import edu.utexas.tacc.tapis.notifications.service.RetryPolicy;
+import edu.utexas.tacc.tapis.notifications.service.RetryScheduler;
+import edu.utexas.tacc.tapis.notifications.service.SeriesSeqAllocator;
+import edu.utexas.tacc.tapis.notifications.service.SubscriptionReaper;
+import edu.utexas.tacc.tapis.notifications.service.WebhookRateLimiter;
+import edu.utexas.tacc.tapis.notifications.service.WebhookTransport;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
 
 /** This class contains the complete and effective set of runtime parameters
@@ -134,6 +150,237 @@ public final class RuntimeParameters implements EmailClientParameters
   private int ntfDeliveryRecoveryMaxAttempts = DispatchService.DEFAULT_DELIVERY_RCVRY_MAX_ATTEMPTS;
   private int  ntfDeliveryRecoveryRetryInterval = DispatchService.DEFAULT_DELIVERY_RCVRY_RETRY_INTERVAL;
 
+  // TAPIS_NTF_SUBSCR_INDEX_ENABLED
+  // Match events to subscriptions using the dispatcher in-memory index rather than a DB query per event
+  private boolean ntfSubscriptionIndexEnabled = DispatchService.DEFAULT_SUBSCR_INDEX_ENABLED;
+
+  // TAPIS_NTF_PUBLISH_CHANNELS
+  // Number of channels in the pool used to publish events. Each channel uses publisher confirms
+  private int ntfPublishChannels = MessageBroker.DEFAULT_PUBLISH_CHANNELS;
+
+  // TAPIS_NTF_PUBLISH_CONFIRM_TIMEOUT
+  // Time (in milliseconds) to wait for the message broker to confirm a published event
+  private int ntfPublishConfirmTimeout = MessageBroker.DEFAULT_PUBLISH_CONFIRM_TIMEOUT;
+
+  // TAPIS_NTF_SERIES_BLOCK_SIZE
+  // Number of event series sequence counts an api instance leases at a time. 1 disables block allocation
+  // Only for deployments with a single api instance, see SeriesSeqAllocator
+  private int ntfSeriesBlockSize = SeriesSeqAllocator.DEFAULT_BLOCK_SIZE;
+
+  // TAPIS_NTF_CONSUMER_PREFETCH
+  // Max number of unacknowledged events the dispatcher consumer may hold. Bounds memory used during a backlog. 0 = no limit
+  private int ntfConsumerPrefetch = DispatchService.DEFAULT_CONSUMER_PREFETCH;
+
+  // TAPIS_NTF_BUCKET_QUEUE_CAPACITY
+  // Max number of events waiting in each in-memory bucket queue. When full the consumer stops taking events
+  private int ntfBucketQueueCapacity = DispatchService.DEFAULT_BUCKET_QUEUE_CAPACITY;
+
+  // TAPIS_NTF_ACK_BATCH_SIZE
+  // Number of processed events the dispatcher collects before acking them together. 1 = ack each event
+  private int ntfAckBatchSize = MessageBroker.DEFAULT_ACK_BATCH_SIZE;
+
+  // TAPIS_NTF_ACK_FLUSH_INTERVAL
+  // Max time (in milliseconds) the dispatcher holds processed events before acking them
+  private int ntfAckFlushInterval = MessageBroker.DEFAULT_ACK_FLUSH_INTERVAL;
+
+  // TAPIS_NTF_BUCKET_LANES
+  // Number of event series each bucket manager may deliver concurrently. 1 = one series at a time
+  private int ntfBucketLanes = DispatchService.DEFAULT_BUCKET_LANES;
+
+  // TAPIS_NTF_BUCKET_MAX_IN_FLIGHT
+  // Max number of events per bucket that have been persisted but not yet delivered
+  private int ntfBucketMaxInFlight = DispatchService.DEFAULT_BUCKET_MAX_IN_FLIGHT;
+
+  // TAPIS_NTF_DELIVERY_MAX_THREADS
+  // Max number of delivery threads shared by all buckets when the delivery executor mode is SHARED
+  private int ntfDeliveryMaxThreads = DispatchService.DEFAULT_DELIVERY_MAX_THREADS;
+
+  // TAPIS_NTF_DELIVERY_EXECUTOR
+  // Type of executor used to run delivery tasks: FIXED, SHARED or VIRTUAL. See DeliveryExecutors
+  private DeliveryExecutors.Mode ntfDeliveryExecutorMode = DispatchService.DEFAULT_DELIVERY_EXECUTOR_MODE;
+
+  // TAPIS_NTF_WEBHOOK_MAX_REQUESTS
+  // Max number of webhook calls in progress. Calls over the limit wait in a queue
+  private int ntfWebhookMaxRequests = WebhookTransport.DEFAULT_MAX_REQUESTS;
+
+  // TAPIS_NTF_WEBHOOK_MAX_REQUESTS_PER_HOST
+  // Max number of webhook calls in progress to a single host
+  private int ntfWebhookMaxRequestsPerHost = WebhookTransport.DEFAULT_MAX_REQUESTS_PER_HOST;
+
+  // TAPIS_NTF_WEBHOOK_POOL_MAX_IDLE
+  // Max number of idle webhook connections kept for reuse
+  private int ntfWebhookPoolMaxIdle = WebhookTransport.DEFAULT_POOL_MAX_IDLE;
+
+  // TAPIS_NTF_WEBHOOK_KEEPALIVE
+  // Time (in seconds) an idle webhook connection is kept
+  private int ntfWebhookKeepAlive = WebhookTransport.DEFAULT_KEEPALIVE;
+
+  // TAPIS_NTF_WEBHOOK_CONNECT_TIMEOUT
+  // Timeout (in milliseconds) for connecting to a webhook receiver
+  private int ntfWebhookConnectTimeout = WebhookTransport.DEFAULT_CONNECT_TIMEOUT;
+
+  // TAPIS_NTF_WEBHOOK_READ_TIMEOUT
+  // Timeout (in milliseconds) for each read or write on a webhook connection
+  private int ntfWebhookReadTimeout = WebhookTransport.DEFAULT_READ_TIMEOUT;
+
+  // TAPIS_NTF_WEBHOOK_CALL_TIMEOUT
+  // Timeout (in milliseconds) for a complete webhook call
+  private int ntfWebhookCallTimeout = WebhookTransport.DEFAULT_CALL_TIMEOUT;
+
+  // TAPIS_NTF_WEBHOOK_HTTP2_ENABLED
+  // Use HTTP/2 for webhook calls when the receiver supports it
+  private boolean ntfWebhookHttp2Enabled = WebhookTransport.DEFAULT_HTTP2_ENABLED;
+
+  // TAPIS_NTF_DELIVERY_RETRY_BACKOFF
+  // How the wait between delivery attempts changes: FIXED, LINEAR or EXPONENTIAL. See RetryPolicy
+  private RetryPolicy.Backoff ntfDeliveryRetryBackoff = RetryPolicy.DEFAULT_BACKOFF;
+
+  // TAPIS_NTF_DELIVERY_RETRY_MAX_INTERVAL
+  // Max number of seconds to wait between delivery attempts when backoff increases the wait
+  private int ntfDeliveryRetryMaxInterval = RetryPolicy.DEFAULT_MAX_INTERVAL;
+
+  // TAPIS_NTF_DELIVERY_RETRY_JITTER
+  // Percent by which the wait between delivery attempts is randomly increased or decreased
+  private int ntfDeliveryRetryJitter = RetryPolicy.DEFAULT_JITTER_PERCENT;
+
+  // TAPIS_NTF_RETRY_TICK
+  // Number of milliseconds per tick of the retry scheduler timer wheel
+  private int ntfRetryTick = RetryScheduler.DEFAULT_TICK;
+
+  // TAPIS_NTF_RETRY_WHEEL_SIZE
+  // Number of slots in the retry scheduler timer wheel
+  private int ntfRetryWheelSize = RetryScheduler.DEFAULT_WHEEL_SIZE;
+
+  // TAPIS_NTF_WEBHOOK_RATE
+  // Max webhook calls per second to a destination. Less than 1 means no limit
+  private int ntfWebhookRate = WebhookRateLimiter.DEFAULT_RATE;
+
+  // TAPIS_NTF_WEBHOOK_BURST
+  // Number of webhook calls that may be made to a destination at once before the rate applies
+  private int ntfWebhookBurst = WebhookRateLimiter.DEFAULT_BURST;
+
+  // TAPIS_NTF_WEBHOOK_RATE_KEY
+  // Destination used for webhook rate limits: HOST or URL. See WebhookRateLimiter
+  private WebhookRateLimiter.KeyMode ntfWebhookRateKeyMode = WebhookRateLimiter.DEFAULT_KEY_MODE;
+
+  // TAPIS_NTF_WEBHOOK_TENANT_RATES
+  // Webhook rate limits for specific tenants, e.g. "dev=5:20,admin=0:0". Format is tenant=rate:burst
+  private Map<String, WebhookRateLimiter.Limit> ntfWebhookTenantRateLimits = Map.of();
+
+  // TAPIS_NTF_BREAKER_FAILURE_THRESHOLD
+  // Consecutive failed webhook attempts to a destination that open its circuit breaker. Less than 1 disables
+  private int ntfBreakerFailureThreshold = DeliveryCircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+
+  // TAPIS_NTF_BREAKER_OPEN_INTERVAL
+  // Number of seconds a circuit breaker stays open before allowing a probe
+  private int ntfBreakerOpenInterval = DeliveryCircuitBreaker.DEFAULT_OPEN_INTERVAL;
+
+  // TAPIS_NTF_BREAKER_KEY
+  // Destination used for delivery circuit breakers: HOST or URL. See DeliveryCircuitBreaker
+  private WebhookRateLimiter.KeyMode ntfBreakerKeyMode = DeliveryCircuitBreaker.DEFAULT_KEY_MODE;
+
+  // TAPIS_NTF_WEBHOOK_PRETTY_JSON
+  // Pretty print webhook bodies. Default is compact json, the same content with less to send.
+  private boolean ntfWebhookPrettyJson = WebhookTransport.DEFAULT_PRETTY_JSON;
+
+  // TAPIS_NTF_DELIVERY_RCVRY_BACKOFF
+  // How the wait between recovery attempts changes: FIXED, LINEAR or EXPONENTIAL. See RetryPolicy
+  private RetryPolicy.Backoff ntfDeliveryRecoveryBackoff = DispatchService.DEFAULT_DELIVERY_RCVRY_BACKOFF;
+
+  // TAPIS_NTF_DELIVERY_RCVRY_MAX_INTERVAL
+  // Max wait in minutes between recovery attempts
+  private int ntfDeliveryRecoveryMaxInterval = DispatchService.DEFAULT_DELIVERY_RCVRY_MAX_INTERVAL;
+
+  // TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE
+  // Max number of due notifications in recovery fetched at a time by a recovery task
+  private int ntfDeliveryRecoveryPageSize = DispatchService.DEFAULT_DELIVERY_RCVRY_PAGE_SIZE;
+
+  // TAPIS_NTF_DELIVERY_RCVRY_PARALLELISM
+  // Max number of recovery deliveries in progress at a time for each bucket
+  private int ntfDeliveryRecoveryParallelism = DispatchService.DEFAULT_DELIVERY_RCVRY_PARALLELISM;
+
+  // TAPIS_NTF_EVENT_CACHE_SIZE
+  // Max number of events cached by uuid when reading notifications. 0 disables the cache.
+  private int ntfEventCacheSize = EventCache.DEFAULT_SIZE;
+
+  // TAPIS_NTF_EVENT_SWEEP_INTERVAL
+  // Interval in minutes between runs of the sweeper that removes events no longer referenced by notifications
+  private int ntfEventSweepInterval = EventSweeper.DEFAULT_SWEEP_INTERVAL;
+
+  // TAPIS_NTF_EVENT_SWEEP_GRACE
+  // Minutes an unreferenced event is kept after notifications for it were last persisted
+  private int ntfEventSweepGrace = EventSweeper.DEFAULT_SWEEP_GRACE;
+
+  // TAPIS_NTF_DELIVERY_DELETE_BATCH_SIZE
+  // Max number of delivered notifications deleted in one transaction. 1 = delete each on its own
+  private int ntfDeliveryDeleteBatchSize = DeliveredNotificationDeleter.DEFAULT_BATCH_SIZE;
+
+  // TAPIS_NTF_DELIVERY_DELETE_FLUSH_INTERVAL
+  // Max time (in milliseconds) the dispatcher holds deletes of delivered notifications before committing them
+  private int ntfDeliveryDeleteFlushInterval = DeliveredNotificationDeleter.DEFAULT_FLUSH_INTERVAL;
+
+  // TAPIS_NTF_BUCKET_PERSIST_BATCH_SIZE
+  // Max number of queued events a bucket manager persists in one transaction. 1 = persist each event on its own
+  private int ntfBucketPersistBatchSize = DispatchService.DEFAULT_BUCKET_PERSIST_BATCH_SIZE;
+
+  // TAPIS_NTF_BUCKET_PERSIST_LINGER
+  // Max time (in milliseconds) a bucket manager waits for more events to fill a batch
+  private int ntfBucketPersistLinger = DispatchService.DEFAULT_BUCKET_PERSIST_LINGER;
+
+  // TAPIS_NTF_SUBSCR_REAPER_CHUNK_SIZE
+  // Max number of expired subscriptions the reaper deletes in one transaction
+  private int ntfSubscriptionReaperChunkSize = SubscriptionReaper.DEFAULT_REAPER_CHUNK_SIZE;
+
+  // TAPIS_NTF_ADMIN_ROLE_CACHE_SIZE
+  // Max number of (tenant, user) admin role lookups cached. 0 = cache disabled
+  private int ntfAdminRoleCacheSize = AdminRoleCache.DEFAULT_SIZE;
+
+  // TAPIS_NTF_ADMIN_ROLE_CACHE_TTL
+  // Time (in seconds) a user found to have the admin role is cached
+  private int ntfAdminRoleCacheTtl = AdminRoleCache.DEFAULT_TTL;
+
+  // TAPIS_NTF_ADMIN_ROLE_CACHE_NEGATIVE_TTL
+  // Time (in seconds) a user found not to have the admin role is cached
+  private int ntfAdminRoleCacheNegativeTtl = AdminRoleCache.DEFAULT_NEGATIVE_TTL;
+
+  // TAPIS_NTF_SUBSCR_COUNT_CACHE_SIZE
+  // Max number of subscription search counts cached for countStrategy=cached. Less than 1 disables the cache.
+  private int ntfSubscrCountCacheSize = SubscriptionCountCache.DEFAULT_SIZE;
+
+  // TAPIS_NTF_SUBSCR_COUNT_CACHE_TTL
+  // Seconds a cached subscription search count is used
+  private int ntfSubscrCountCacheTtl = SubscriptionCountCache.DEFAULT_TTL;
+
+  // TAPIS_NTF_SUBSCR_COUNT_TIMEOUT
+  // Statement timeout in milliseconds for an exact subscription search count. When exceeded the planner estimate
+  // is used instead. Less than 1 for no timeout.
+  private int ntfSubscrCountTimeout = NotificationsDaoImpl.DEFAULT_COUNT_TIMEOUT;
+
+  // TAPIS_NTF_DISPATCH_LEASES_ENABLED
+  // Indicates if dispatcher replicas share the buckets using leases held in the DB
+  // When false a single dispatcher processes all buckets
+  private boolean ntfDispatchLeasesEnabled = DispatchService.DEFAULT_DISPATCH_LEASES_ENABLED;
+
+  // TAPIS_NTF_DISPATCH_LEASE_TTL
+  // Seconds until a bucket lease expires unless renewed. Buckets of a dispatcher that dies are taken over after this
+  private int ntfDispatchLeaseTtl = DispatchService.DEFAULT_DISPATCH_LEASE_TTL;
+
+  // TAPIS_NTF_DISPATCH_LEASE_HEARTBEAT
+  // Seconds between renewals of bucket leases
+  private int ntfDispatchLeaseHeartbeat = DispatchService.DEFAULT_DISPATCH_LEASE_HEARTBEAT;
+
+  // TAPIS_NTF_DISPATCH_NUM_BUCKETS
+  // Number of buckets events are spread over. Virtual buckets are moved between buckets when it changes.
+  private int ntfDispatchNumBuckets = DispatchService.DEFAULT_NUM_BUCKETS;
+
+  // TAPIS_NTF_BUCKET_PREFETCH
+  // Max number of unacknowledged events delivered to the consumer for each bucket queue. 0 = no limit
+  private int ntfBucketPrefetch = DispatchService.DEFAULT_BUCKET_PREFETCH;
+
+  // TAPIS_NTF_ROUTING_MODE
+  // How publishers route events to the dispatcher: MAIN or PARTITIONED. See MessageBroker.RoutingMode
+  private MessageBroker.RoutingMode ntfRoutingMode = MessageBroker.DEFAULT_ROUTING_MODE;
+
   // TAPIS__LOCAL_TEST
   // Indicates we are running the service in TEST mode on localhost
   private boolean localTest = false;
@@ -538,6 +785,973 @@ public final class RuntimeParameters implements EmailClientParameters
       }
       setNtfDeliveryRecoveryRetryInterval(parmInt);
 
+      // Optional flag indicating if dispatcher should use the in-memory subscription match index
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SUBSCR_INDEX_ENABLED.name());
+      if (StringUtils.isBlank(parm)) setNtfSubscriptionIndexEnabled(DispatchService.DEFAULT_SUBSCR_INDEX_ENABLED);
+      else {
+        try {
+          setNtfSubscriptionIndexEnabled(Boolean.parseBoolean(parm));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfSubscriptionIndexEnabled",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfPublishChannels
+      parm = envMap.get(EnvVar2.TAPIS_NTF_PUBLISH_CHANNELS.name());
+      parmInt = MessageBroker.DEFAULT_PUBLISH_CHANNELS;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_PUBLISH_CHANNELS, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfPublishChannels(parmInt);
+
+      //  ntfPublishConfirmTimeout
+      parm = envMap.get(EnvVar2.TAPIS_NTF_PUBLISH_CONFIRM_TIMEOUT.name());
+      parmInt = MessageBroker.DEFAULT_PUBLISH_CONFIRM_TIMEOUT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_PUBLISH_CONFIRM_TIMEOUT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfPublishConfirmTimeout(parmInt);
+
+      //  ntfSeriesBlockSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SERIES_BLOCK_SIZE.name());
+      parmInt = SeriesSeqAllocator.DEFAULT_BLOCK_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_SERIES_BLOCK_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfSeriesBlockSize(parmInt);
+
+      //  ntfConsumerPrefetch
+      parm = envMap.get(EnvVar2.TAPIS_NTF_CONSUMER_PREFETCH.name());
+      parmInt = DispatchService.DEFAULT_CONSUMER_PREFETCH;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_CONSUMER_PREFETCH, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfConsumerPrefetch(parmInt);
+
+      //  ntfBucketQueueCapacity
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_QUEUE_CAPACITY.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_QUEUE_CAPACITY;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_QUEUE_CAPACITY, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketQueueCapacity(parmInt);
+
+      //  ntfAckBatchSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ACK_BATCH_SIZE.name());
+      parmInt = MessageBroker.DEFAULT_ACK_BATCH_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_ACK_BATCH_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfAckBatchSize(parmInt);
+
+      //  ntfAckFlushInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ACK_FLUSH_INTERVAL.name());
+      parmInt = MessageBroker.DEFAULT_ACK_FLUSH_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_ACK_FLUSH_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfAckFlushInterval(parmInt);
+
+      //  ntfBucketLanes
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_LANES.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_LANES;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_LANES, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketLanes(parmInt);
+
+      //  ntfBucketMaxInFlight
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_MAX_IN_FLIGHT.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_MAX_IN_FLIGHT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_MAX_IN_FLIGHT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketMaxInFlight(parmInt);
+
+      //  ntfDeliveryMaxThreads
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_MAX_THREADS.name());
+      parmInt = DispatchService.DEFAULT_DELIVERY_MAX_THREADS;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_MAX_THREADS, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryMaxThreads(parmInt);
+
+      //  ntfDeliveryExecutorMode
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_EXECUTOR.name());
+      if (StringUtils.isBlank(parm)) setNtfDeliveryExecutorMode(DispatchService.DEFAULT_DELIVERY_EXECUTOR_MODE);
+      else {
+        try {
+          setNtfDeliveryExecutorMode(DeliveryExecutors.Mode.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfDeliveryExecutorMode",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfWebhookMaxRequests
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_MAX_REQUESTS.name());
+      parmInt = WebhookTransport.DEFAULT_MAX_REQUESTS;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_MAX_REQUESTS, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookMaxRequests(parmInt);
+
+      //  ntfWebhookMaxRequestsPerHost
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_MAX_REQUESTS_PER_HOST.name());
+      parmInt = WebhookTransport.DEFAULT_MAX_REQUESTS_PER_HOST;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_MAX_REQUESTS_PER_HOST, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookMaxRequestsPerHost(parmInt);
+
+      //  ntfWebhookPoolMaxIdle
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_POOL_MAX_IDLE.name());
+      parmInt = WebhookTransport.DEFAULT_POOL_MAX_IDLE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_POOL_MAX_IDLE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookPoolMaxIdle(parmInt);
+
+      //  ntfWebhookKeepAlive
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_KEEPALIVE.name());
+      parmInt = WebhookTransport.DEFAULT_KEEPALIVE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_KEEPALIVE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookKeepAlive(parmInt);
+
+      //  ntfWebhookConnectTimeout
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_CONNECT_TIMEOUT.name());
+      parmInt = WebhookTransport.DEFAULT_CONNECT_TIMEOUT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_CONNECT_TIMEOUT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookConnectTimeout(parmInt);
+
+      //  ntfWebhookReadTimeout
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_READ_TIMEOUT.name());
+      parmInt = WebhookTransport.DEFAULT_READ_TIMEOUT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_READ_TIMEOUT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookReadTimeout(parmInt);
+
+      //  ntfWebhookCallTimeout
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_CALL_TIMEOUT.name());
+      parmInt = WebhookTransport.DEFAULT_CALL_TIMEOUT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_CALL_TIMEOUT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookCallTimeout(parmInt);
+
+      // Optional flag: Use HTTP/2 for webhook calls when the receiver supports it
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_HTTP2_ENABLED.name());
+      if (StringUtils.isBlank(parm)) setNtfWebhookHttp2Enabled(WebhookTransport.DEFAULT_HTTP2_ENABLED);
+      else {
+        try {
+          setNtfWebhookHttp2Enabled(Boolean.parseBoolean(parm));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfWebhookHttp2Enabled",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfDeliveryRetryBackoff
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RETRY_BACKOFF.name());
+      if (StringUtils.isBlank(parm)) setNtfDeliveryRetryBackoff(RetryPolicy.DEFAULT_BACKOFF);
+      else {
+        try {
+          setNtfDeliveryRetryBackoff(RetryPolicy.Backoff.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfDeliveryRetryBackoff",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfDeliveryRetryMaxInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RETRY_MAX_INTERVAL.name());
+      parmInt = RetryPolicy.DEFAULT_MAX_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_RETRY_MAX_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryRetryMaxInterval(parmInt);
+
+      //  ntfDeliveryRetryJitter
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RETRY_JITTER.name());
+      parmInt = RetryPolicy.DEFAULT_JITTER_PERCENT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_RETRY_JITTER, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryRetryJitter(parmInt);
+
+      //  ntfRetryTick
+      parm = envMap.get(EnvVar2.TAPIS_NTF_RETRY_TICK.name());
+      parmInt = RetryScheduler.DEFAULT_TICK;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_RETRY_TICK, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfRetryTick(parmInt);
+
+      //  ntfRetryWheelSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_RETRY_WHEEL_SIZE.name());
+      parmInt = RetryScheduler.DEFAULT_WHEEL_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_RETRY_WHEEL_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfRetryWheelSize(parmInt);
+
+      //  ntfWebhookRate
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_RATE.name());
+      parmInt = WebhookRateLimiter.DEFAULT_RATE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_RATE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookRate(parmInt);
+
+      //  ntfWebhookBurst
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_BURST.name());
+      parmInt = WebhookRateLimiter.DEFAULT_BURST;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_WEBHOOK_BURST, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfWebhookBurst(parmInt);
+
+      //  ntfWebhookRateKeyMode
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_RATE_KEY.name());
+      if (StringUtils.isBlank(parm)) setNtfWebhookRateKeyMode(WebhookRateLimiter.DEFAULT_KEY_MODE);
+      else {
+        try {
+          setNtfWebhookRateKeyMode(WebhookRateLimiter.KeyMode.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfWebhookRateKeyMode",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfWebhookTenantRateLimits
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_TENANT_RATES.name());
+      try {
+        setNtfWebhookTenantRateLimits(WebhookRateLimiter.parseTenantLimits(parm));}
+      catch (Exception e) {
+        // Stop on bad input.
+        String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                "ntfWebhookTenantRateLimits",
+                e.getMessage());
+        _log.error(msg, e);
+        throw new TapisRuntimeException(msg, e);
+      }
+
+      //  ntfBreakerFailureThreshold
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BREAKER_FAILURE_THRESHOLD.name());
+      parmInt = DeliveryCircuitBreaker.DEFAULT_FAILURE_THRESHOLD;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BREAKER_FAILURE_THRESHOLD, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBreakerFailureThreshold(parmInt);
+
+      //  ntfBreakerOpenInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BREAKER_OPEN_INTERVAL.name());
+      parmInt = DeliveryCircuitBreaker.DEFAULT_OPEN_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BREAKER_OPEN_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBreakerOpenInterval(parmInt);
+
+      //  ntfBreakerKeyMode
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BREAKER_KEY.name());
+      if (StringUtils.isBlank(parm)) setNtfBreakerKeyMode(DeliveryCircuitBreaker.DEFAULT_KEY_MODE);
+      else {
+        try {
+          setNtfBreakerKeyMode(WebhookRateLimiter.KeyMode.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfBreakerKeyMode",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      // Optional flag: Pretty print webhook bodies. Default is compact json, the same content with less to send.
+      parm = envMap.get(EnvVar2.TAPIS_NTF_WEBHOOK_PRETTY_JSON.name());
+      if (StringUtils.isBlank(parm)) setNtfWebhookPrettyJson(WebhookTransport.DEFAULT_PRETTY_JSON);
+      else {
+        try {
+          setNtfWebhookPrettyJson(Boolean.parseBoolean(parm));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfWebhookPrettyJson",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfDeliveryRecoveryBackoff
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_BACKOFF.name());
+      if (StringUtils.isBlank(parm)) setNtfDeliveryRecoveryBackoff(DispatchService.DEFAULT_DELIVERY_RCVRY_BACKOFF);
+      else {
+        try {
+          setNtfDeliveryRecoveryBackoff(RetryPolicy.Backoff.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfDeliveryRecoveryBackoff",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfDeliveryRecoveryMaxInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_MAX_INTERVAL.name());
+      parmInt = DispatchService.DEFAULT_DELIVERY_RCVRY_MAX_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_MAX_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryRecoveryMaxInterval(parmInt);
+
+      //  ntfDeliveryRecoveryPageSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE.name());
+      parmInt = DispatchService.DEFAULT_DELIVERY_RCVRY_PAGE_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryRecoveryPageSize(parmInt);
+
+      //  ntfDeliveryRecoveryParallelism
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_PARALLELISM.name());
+      parmInt = DispatchService.DEFAULT_DELIVERY_RCVRY_PARALLELISM;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_RCVRY_PARALLELISM, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryRecoveryParallelism(parmInt);
+
+      //  ntfEventCacheSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_EVENT_CACHE_SIZE.name());
+      parmInt = EventCache.DEFAULT_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_EVENT_CACHE_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfEventCacheSize(parmInt);
+
+      //  ntfEventSweepInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_EVENT_SWEEP_INTERVAL.name());
+      parmInt = EventSweeper.DEFAULT_SWEEP_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_EVENT_SWEEP_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfEventSweepInterval(parmInt);
+
+      //  ntfEventSweepGrace
+      parm = envMap.get(EnvVar2.TAPIS_NTF_EVENT_SWEEP_GRACE.name());
+      parmInt = EventSweeper.DEFAULT_SWEEP_GRACE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_EVENT_SWEEP_GRACE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfEventSweepGrace(parmInt);
+
+      //  ntfDeliveryDeleteBatchSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_DELETE_BATCH_SIZE.name());
+      parmInt = DeliveredNotificationDeleter.DEFAULT_BATCH_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_DELETE_BATCH_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryDeleteBatchSize(parmInt);
+
+      //  ntfDeliveryDeleteFlushInterval
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DELIVERY_DELETE_FLUSH_INTERVAL.name());
+      parmInt = DeliveredNotificationDeleter.DEFAULT_FLUSH_INTERVAL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DELIVERY_DELETE_FLUSH_INTERVAL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDeliveryDeleteFlushInterval(parmInt);
+
+      //  ntfBucketPersistBatchSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_PERSIST_BATCH_SIZE.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_PERSIST_BATCH_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_PERSIST_BATCH_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketPersistBatchSize(parmInt);
+
+      //  ntfBucketPersistLinger
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_PERSIST_LINGER.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_PERSIST_LINGER;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_PERSIST_LINGER, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketPersistLinger(parmInt);
+
+      //  ntfSubscriptionReaperChunkSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SUBSCR_REAPER_CHUNK_SIZE.name());
+      parmInt = SubscriptionReaper.DEFAULT_REAPER_CHUNK_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_SUBSCR_REAPER_CHUNK_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfSubscriptionReaperChunkSize(parmInt);
+
+      //  ntfAdminRoleCacheSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_SIZE.name());
+      parmInt = AdminRoleCache.DEFAULT_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfAdminRoleCacheSize(parmInt);
+
+      //  ntfAdminRoleCacheTtl
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_TTL.name());
+      parmInt = AdminRoleCache.DEFAULT_TTL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_TTL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfAdminRoleCacheTtl(parmInt);
+
+      //  ntfAdminRoleCacheNegativeTtl
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_NEGATIVE_TTL.name());
+      parmInt = AdminRoleCache.DEFAULT_NEGATIVE_TTL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_ADMIN_ROLE_CACHE_NEGATIVE_TTL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfAdminRoleCacheNegativeTtl(parmInt);
+
+      //  ntfSubscrCountCacheSize
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SUBSCR_COUNT_CACHE_SIZE.name());
+      parmInt = SubscriptionCountCache.DEFAULT_SIZE;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_SUBSCR_COUNT_CACHE_SIZE, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfSubscrCountCacheSize(parmInt);
+
+      //  ntfSubscrCountCacheTtl
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SUBSCR_COUNT_CACHE_TTL.name());
+      parmInt = SubscriptionCountCache.DEFAULT_TTL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_SUBSCR_COUNT_CACHE_TTL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfSubscrCountCacheTtl(parmInt);
+
+      //  ntfSubscrCountTimeout
+      parm = envMap.get(EnvVar2.TAPIS_NTF_SUBSCR_COUNT_TIMEOUT.name());
+      parmInt = NotificationsDaoImpl.DEFAULT_COUNT_TIMEOUT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_SUBSCR_COUNT_TIMEOUT, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfSubscrCountTimeout(parmInt);
+
+      // Optional flag: Indicates if dispatcher replicas share the buckets using leases held in the DB
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DISPATCH_LEASES_ENABLED.name());
+      if (StringUtils.isBlank(parm)) setNtfDispatchLeasesEnabled(DispatchService.DEFAULT_DISPATCH_LEASES_ENABLED);
+      else {
+        try {
+          setNtfDispatchLeasesEnabled(Boolean.parseBoolean(parm));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfDispatchLeasesEnabled",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
+      //  ntfDispatchLeaseTtl
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DISPATCH_LEASE_TTL.name());
+      parmInt = DispatchService.DEFAULT_DISPATCH_LEASE_TTL;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DISPATCH_LEASE_TTL, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDispatchLeaseTtl(parmInt);
+
+      //  ntfDispatchLeaseHeartbeat
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DISPATCH_LEASE_HEARTBEAT.name());
+      parmInt = DispatchService.DEFAULT_DISPATCH_LEASE_HEARTBEAT;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DISPATCH_LEASE_HEARTBEAT,
+                                       parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDispatchLeaseHeartbeat(parmInt);
+
+      //  ntfDispatchNumBuckets
+      parm = envMap.get(EnvVar2.TAPIS_NTF_DISPATCH_NUM_BUCKETS.name());
+      parmInt = DispatchService.DEFAULT_NUM_BUCKETS;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_DISPATCH_NUM_BUCKETS, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfDispatchNumBuckets(parmInt);
+
+      //  ntfBucketPrefetch
+      parm = envMap.get(EnvVar2.TAPIS_NTF_BUCKET_PREFETCH.name());
+      parmInt = DispatchService.DEFAULT_BUCKET_PREFETCH;
+      // If parameter is set attempt to parse it as an integer
+      if (!StringUtils.isBlank(parm))
+      {
+        try { parmInt = Integer.parseInt(parm); }
+        catch (NumberFormatException e)
+        {
+          // Log error and stop
+          String msg = LibUtils.getMsg("NTFLIB_RUNTIME_NUM_PARSE_FAIL", EnvVar2.TAPIS_NTF_BUCKET_PREFETCH, parm);
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+      setNtfBucketPrefetch(parmInt);
+
+      //  ntfRoutingMode
+      parm = envMap.get(EnvVar2.TAPIS_NTF_ROUTING_MODE.name());
+      if (StringUtils.isBlank(parm)) setNtfRoutingMode(MessageBroker.DEFAULT_ROUTING_MODE);
+      else {
+        try {
+          setNtfRoutingMode(MessageBroker.RoutingMode.valueOf(parm.trim().toUpperCase()));}
+        catch (Exception e) {
+          // Stop on bad input.
+          String msg = MsgUtils.getMsg("TAPIS_SERVICE_PARM_INITIALIZATION_FAILED",
+                  TapisConstants.SERVICE_NAME_NOTIFICATIONS,
+                  "ntfRoutingMode",
+                  e.getMessage());
+          _log.error(msg, e);
+          throw new TapisRuntimeException(msg, e);
+        }
+      }
+
       // Optional flag indicating we are running in local test mode
       parm = envMap.get(EnvVar2.TAPIS_LOCAL_TEST.name());
       if (StringUtils.isBlank(parm)) setLocalTest(false);
@@ -670,6 +1884,63 @@ public final class RuntimeParameters implements EmailClientParameters
     buf.append("\ntapis.ntf.delivery.retry.interval: ").append(getNtfDeliveryRetryInterval());
     buf.append("\ntapis.ntf.delivery.rcvry.attempts: ").append(getNtfDeliveryRecoveryMaxAttempts());
     buf.append("\ntapis.ntf.delivery.rcvry.retry.interval: ").append(getNtfDeliveryRecoveryRetryInterval());
+    buf.append("\ntapis.ntf.subscription.index.enabled: ").append(isNtfSubscriptionIndexEnabled());
+    buf.append("\ntapis.ntf.publish.channels: ").append(getNtfPublishChannels());
+    buf.append("\ntapis.ntf.publish.confirm.timeout: ").append(getNtfPublishConfirmTimeout());
+    buf.append("\ntapis.ntf.series.block.size: ").append(getNtfSeriesBlockSize());
+    buf.append("\ntapis.ntf.consumer.prefetch: ").append(getNtfConsumerPrefetch());
+    buf.append("\ntapis.ntf.bucket.queue.capacity: ").append(getNtfBucketQueueCapacity());
+    buf.append("\ntapis.ntf.ack.batch.size: ").append(getNtfAckBatchSize());
+    buf.append("\ntapis.ntf.ack.flush.interval: ").append(getNtfAckFlushInterval());
+    buf.append("\ntapis.ntf.bucket.lanes: ").append(getNtfBucketLanes());
+    buf.append("\ntapis.ntf.bucket.max.in.flight: ").append(getNtfBucketMaxInFlight());
+    buf.append("\ntapis.ntf.delivery.max.threads: ").append(getNtfDeliveryMaxThreads());
+    buf.append("\ntapis.ntf.delivery.executor: ").append(getNtfDeliveryExecutorMode());
+    buf.append("\ntapis.ntf.webhook.max.requests: ").append(getNtfWebhookMaxRequests());
+    buf.append("\ntapis.ntf.webhook.max.requests.per.host: ").append(getNtfWebhookMaxRequestsPerHost());
+    buf.append("\ntapis.ntf.webhook.pool.max.idle: ").append(getNtfWebhookPoolMaxIdle());
+    buf.append("\ntapis.ntf.webhook.keepalive: ").append(getNtfWebhookKeepAlive());
+    buf.append("\ntapis.ntf.webhook.connect.timeout: ").append(getNtfWebhookConnectTimeout());
+    buf.append("\ntapis.ntf.webhook.read.timeout: ").append(getNtfWebhookReadTimeout());
+    buf.append("\ntapis.ntf.webhook.call.timeout: ").append(getNtfWebhookCallTimeout());
+    buf.append("\ntapis.ntf.webhook.http2.enabled: ").append(isNtfWebhookHttp2Enabled());
+    buf.append("\ntapis.ntf.delivery.retry.backoff: ").append(getNtfDeliveryRetryBackoff());
+    buf.append("\ntapis.ntf.delivery.retry.max.interval: ").append(getNtfDeliveryRetryMaxInterval());
+    buf.append("\ntapis.ntf.delivery.retry.jitter: ").append(getNtfDeliveryRetryJitter());
+    buf.append("\ntapis.ntf.retry.tick: ").append(getNtfRetryTick());
+    buf.append("\ntapis.ntf.retry.wheel.size: ").append(getNtfRetryWheelSize());
+    buf.append("\ntapis.ntf.webhook.rate: ").append(getNtfWebhookRate());
+    buf.append("\ntapis.ntf.webhook.burst: ").append(getNtfWebhookBurst());
+    buf.append("\ntapis.ntf.webhook.rate.key: ").append(getNtfWebhookRateKeyMode());
+    buf.append("\ntapis.ntf.webhook.tenant.rates: ").append(getNtfWebhookTenantRateLimits());
+    buf.append("\ntapis.ntf.breaker.failure.threshold: ").append(getNtfBreakerFailureThreshold());
+    buf.append("\ntapis.ntf.breaker.open.interval: ").append(getNtfBreakerOpenInterval());
+    buf.append("\ntapis.ntf.breaker.key: ").append(getNtfBreakerKeyMode());
+    buf.append("\ntapis.ntf.webhook.pretty.json: ").append(isNtfWebhookPrettyJson());
+    buf.append("\ntapis.ntf.delivery.rcvry.backoff: ").append(getNtfDeliveryRecoveryBackoff());
+    buf.append("\ntapis.ntf.delivery.rcvry.max.interval: ").append(getNtfDeliveryRecoveryMaxInterval());
+    buf.append("\ntapis.ntf.delivery.rcvry.page.size: ").append(getNtfDeliveryRecoveryPageSize());
+    buf.append("\ntapis.ntf.delivery.rcvry.parallelism: ").append(getNtfDeliveryRecoveryParallelism());
+    buf.append("\ntapis.ntf.event.cache.size: ").append(getNtfEventCacheSize());
+    buf.append("\ntapis.ntf.event.sweep.interval: ").append(getNtfEventSweepInterval());
+    buf.append("\ntapis.ntf.event.sweep.grace: ").append(getNtfEventSweepGrace());
+    buf.append("\ntapis.ntf.delivery.delete.batch.size: ").append(getNtfDeliveryDeleteBatchSize());
+    buf.append("\ntapis.ntf.delivery.delete.flush.interval: ").append(getNtfDeliveryDeleteFlushInterval());
+    buf.append("\ntapis.ntf.bucket.persist.batch.size: ").append(getNtfBucketPersistBatchSize());
+    buf.append("\ntapis.ntf.bucket.persist.linger: ").append(getNtfBucketPersistLinger());
+    buf.append("\ntapis.ntf.subscription.reaper.chunk.size: ").append(getNtfSubscriptionReaperChunkSize());
+    buf.append("\ntapis.ntf.admin.role.cache.size: ").append(getNtfAdminRoleCacheSize());
+    buf.append("\ntapis.ntf.admin.role.cache.ttl: ").append(getNtfAdminRoleCacheTtl());
+    buf.append("\ntapis.ntf.admin.role.cache.negative.ttl: ").append(getNtfAdminRoleCacheNegativeTtl());
+    buf.append("\ntapis.ntf.subscr.count.cache.size: ").append(getNtfSubscrCountCacheSize());
+    buf.append("\ntapis.ntf.subscr.count.cache.ttl: ").append(getNtfSubscrCountCacheTtl());
+    buf.append("\ntapis.ntf.subscr.count.timeout: ").append(getNtfSubscrCountTimeout());
+    buf.append("\ntapis.ntf.dispatch.leases.enabled: ").append(isNtfDispatchLeasesEnabled());
+    buf.append("\ntapis.ntf.dispatch.lease.ttl: ").append(getNtfDispatchLeaseTtl());
+    buf.append("\ntapis.ntf.dispatch.lease.heartbeat: ").append(getNtfDispatchLeaseHeartbeat());
+    buf.append("\ntapis.ntf.dispatch.num.buckets: ").append(getNtfDispatchNumBuckets());
+    buf.append("\ntapis.ntf.bucket.prefetch: ").append(getNtfBucketPrefetch());
+    buf.append("\ntapis.ntf.routing.mode: ").append(getNtfRoutingMode());
     buf.append("\ntapis.local.test: ").append(isLocalTest());
     buf.append("\n------- Logging -----------------------------------");
     buf.append("\ntapis.log.directory: ");
@@ -1096,6 +2367,178 @@ public final class RuntimeParameters implements EmailClientParameters
   // property TAPIS_NTF_DELIVERY_RCVRY_RETRY_INTERVAL
   public int getNtfDeliveryRecoveryRetryInterval() { return ntfDeliveryRecoveryRetryInterval; }
   private void setNtfDeliveryRecoveryRetryInterval(int i) { ntfDeliveryRecoveryRetryInterval = i; }
+  // property TAPIS_NTF_SUBSCR_INDEX_ENABLED
+  public boolean isNtfSubscriptionIndexEnabled() { return ntfSubscriptionIndexEnabled; }
+  private void setNtfSubscriptionIndexEnabled(boolean b) { ntfSubscriptionIndexEnabled = b; }
+  // property TAPIS_NTF_PUBLISH_CHANNELS
+  public int getNtfPublishChannels() { return ntfPublishChannels; }
+  private void setNtfPublishChannels(int i) { ntfPublishChannels = i; }
+  // property TAPIS_NTF_PUBLISH_CONFIRM_TIMEOUT
+  public int getNtfPublishConfirmTimeout() { return ntfPublishConfirmTimeout; }
+  private void setNtfPublishConfirmTimeout(int i) { ntfPublishConfirmTimeout = i; }
+  // property TAPIS_NTF_SERIES_BLOCK_SIZE
+  public int getNtfSeriesBlockSize() { return ntfSeriesBlockSize; }
+  private void setNtfSeriesBlockSize(int i) { ntfSeriesBlockSize = i; }
+  // property TAPIS_NTF_CONSUMER_PREFETCH
+  public int getNtfConsumerPrefetch() { return ntfConsumerPrefetch; }
+  private void setNtfConsumerPrefetch(int i) { ntfConsumerPrefetch = i; }
+  // property TAPIS_NTF_BUCKET_QUEUE_CAPACITY
+  public int getNtfBucketQueueCapacity() { return ntfBucketQueueCapacity; }
+  private void setNtfBucketQueueCapacity(int i) { ntfBucketQueueCapacity = i; }
+  // property TAPIS_NTF_ACK_BATCH_SIZE
+  public int getNtfAckBatchSize() { return ntfAckBatchSize; }
+  private void setNtfAckBatchSize(int i) { ntfAckBatchSize = i; }
+  // property TAPIS_NTF_ACK_FLUSH_INTERVAL
+  public int getNtfAckFlushInterval() { return ntfAckFlushInterval; }
+  private void setNtfAckFlushInterval(int i) { ntfAckFlushInterval = i; }
+  // property TAPIS_NTF_BUCKET_LANES
+  public int getNtfBucketLanes() { return ntfBucketLanes; }
+  private void setNtfBucketLanes(int i) { ntfBucketLanes = i; }
+  // property TAPIS_NTF_BUCKET_MAX_IN_FLIGHT
+  public int getNtfBucketMaxInFlight() { return ntfBucketMaxInFlight; }
+  private void setNtfBucketMaxInFlight(int i) { ntfBucketMaxInFlight = i; }
+  // property TAPIS_NTF_DELIVERY_MAX_THREADS
+  public int getNtfDeliveryMaxThreads() { return ntfDeliveryMaxThreads; }
+  private void setNtfDeliveryMaxThreads(int i) { ntfDeliveryMaxThreads = i; }
+  // property TAPIS_NTF_DELIVERY_EXECUTOR
+  public DeliveryExecutors.Mode getNtfDeliveryExecutorMode() { return ntfDeliveryExecutorMode; }
+  private void setNtfDeliveryExecutorMode(DeliveryExecutors.Mode m) { ntfDeliveryExecutorMode = m; }
+  // property TAPIS_NTF_WEBHOOK_MAX_REQUESTS
+  public int getNtfWebhookMaxRequests() { return ntfWebhookMaxRequests; }
+  private void setNtfWebhookMaxRequests(int i) { ntfWebhookMaxRequests = i; }
+  // property TAPIS_NTF_WEBHOOK_MAX_REQUESTS_PER_HOST
+  public int getNtfWebhookMaxRequestsPerHost() { return ntfWebhookMaxRequestsPerHost; }
+  private void setNtfWebhookMaxRequestsPerHost(int i) { ntfWebhookMaxRequestsPerHost = i; }
+  // property TAPIS_NTF_WEBHOOK_POOL_MAX_IDLE
+  public int getNtfWebhookPoolMaxIdle() { return ntfWebhookPoolMaxIdle; }
+  private void setNtfWebhookPoolMaxIdle(int i) { ntfWebhookPoolMaxIdle = i; }
+  // property TAPIS_NTF_WEBHOOK_KEEPALIVE
+  public int getNtfWebhookKeepAlive() { return ntfWebhookKeepAlive; }
+  private void setNtfWebhookKeepAlive(int i) { ntfWebhookKeepAlive = i; }
+  // property TAPIS_NTF_WEBHOOK_CONNECT_TIMEOUT
+  public int getNtfWebhookConnectTimeout() { return ntfWebhookConnectTimeout; }
+  private void setNtfWebhookConnectTimeout(int i) { ntfWebhookConnectTimeout = i; }
+  // property TAPIS_NTF_WEBHOOK_READ_TIMEOUT
+  public int getNtfWebhookReadTimeout() { return ntfWebhookReadTimeout; }
+  private void setNtfWebhookReadTimeout(int i) { ntfWebhookReadTimeout = i; }
+  // property TAPIS_NTF_WEBHOOK_CALL_TIMEOUT
+  public int getNtfWebhookCallTimeout() { return ntfWebhookCallTimeout; }
+  private void setNtfWebhookCallTimeout(int i) { ntfWebhookCallTimeout = i; }
+  // property TAPIS_NTF_WEBHOOK_HTTP2_ENABLED
+  public boolean isNtfWebhookHttp2Enabled() { return ntfWebhookHttp2Enabled; }
+  private void setNtfWebhookHttp2Enabled(boolean b) { ntfWebhookHttp2Enabled = b; }
+  // property TAPIS_NTF_DELIVERY_RETRY_BACKOFF
+  public RetryPolicy.Backoff getNtfDeliveryRetryBackoff() { return ntfDeliveryRetryBackoff; }
+  private void setNtfDeliveryRetryBackoff(RetryPolicy.Backoff b) { ntfDeliveryRetryBackoff = b; }
+
+  // property TAPIS_NTF_DELIVERY_RETRY_MAX_INTERVAL
+  public int getNtfDeliveryRetryMaxInterval() { return ntfDeliveryRetryMaxInterval; }
+  private void setNtfDeliveryRetryMaxInterval(int i) { ntfDeliveryRetryMaxInterval = i; }
+  // property TAPIS_NTF_DELIVERY_RETRY_JITTER
+  public int getNtfDeliveryRetryJitter() { return ntfDeliveryRetryJitter; }
+  private void setNtfDeliveryRetryJitter(int i) { ntfDeliveryRetryJitter = i; }
+  // property TAPIS_NTF_RETRY_TICK
+  public int getNtfRetryTick() { return ntfRetryTick; }
+  private void setNtfRetryTick(int i) { ntfRetryTick = i; }
+  // property TAPIS_NTF_RETRY_WHEEL_SIZE
+  public int getNtfRetryWheelSize() { return ntfRetryWheelSize; }
+  private void setNtfRetryWheelSize(int i) { ntfRetryWheelSize = i; }
+  // property TAPIS_NTF_WEBHOOK_RATE
+  public int getNtfWebhookRate() { return ntfWebhookRate; }
+  private void setNtfWebhookRate(int i) { ntfWebhookRate = i; }
+  // property TAPIS_NTF_WEBHOOK_BURST
+  public int getNtfWebhookBurst() { return ntfWebhookBurst; }
+  private void setNtfWebhookBurst(int i) { ntfWebhookBurst = i; }
+  // property TAPIS_NTF_WEBHOOK_RATE_KEY
+  public WebhookRateLimiter.KeyMode getNtfWebhookRateKeyMode() { return ntfWebhookRateKeyMode; }
+  private void setNtfWebhookRateKeyMode(WebhookRateLimiter.KeyMode m) { ntfWebhookRateKeyMode = m; }
+  // property TAPIS_NTF_WEBHOOK_TENANT_RATES
+  public Map<String, WebhookRateLimiter.Limit> getNtfWebhookTenantRateLimits() { return ntfWebhookTenantRateLimits; }
+  private void setNtfWebhookTenantRateLimits(Map<String, WebhookRateLimiter.Limit> m) { ntfWebhookTenantRateLimits = m; }
+  // property TAPIS_NTF_BREAKER_FAILURE_THRESHOLD
+  public int getNtfBreakerFailureThreshold() { return ntfBreakerFailureThreshold; }
+  private void setNtfBreakerFailureThreshold(int i) { ntfBreakerFailureThreshold = i; }
+  // property TAPIS_NTF_BREAKER_OPEN_INTERVAL
+  public int getNtfBreakerOpenInterval() { return ntfBreakerOpenInterval; }
+  private void setNtfBreakerOpenInterval(int i) { ntfBreakerOpenInterval = i; }
+  // property TAPIS_NTF_BREAKER_KEY
+  public WebhookRateLimiter.KeyMode getNtfBreakerKeyMode() { return ntfBreakerKeyMode; }
+  private void setNtfBreakerKeyMode(WebhookRateLimiter.KeyMode m) { ntfBreakerKeyMode = m; }
+  // property TAPIS_NTF_WEBHOOK_PRETTY_JSON
+  public boolean isNtfWebhookPrettyJson() { return ntfWebhookPrettyJson; }
+  private void setNtfWebhookPrettyJson(boolean b) { ntfWebhookPrettyJson = b; }
+  // property TAPIS_NTF_DELIVERY_RCVRY_BACKOFF
+  public RetryPolicy.Backoff getNtfDeliveryRecoveryBackoff() { return ntfDeliveryRecoveryBackoff; }
+  private void setNtfDeliveryRecoveryBackoff(RetryPolicy.Backoff b) { ntfDeliveryRecoveryBackoff = b; }
+  // property TAPIS_NTF_DELIVERY_RCVRY_MAX_INTERVAL
+  public int getNtfDeliveryRecoveryMaxInterval() { return ntfDeliveryRecoveryMaxInterval; }
+  private void setNtfDeliveryRecoveryMaxInterval(int i) { ntfDeliveryRecoveryMaxInterval = i; }
+  // property TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE
+  public int getNtfDeliveryRecoveryPageSize() { return ntfDeliveryRecoveryPageSize; }
+  private void setNtfDeliveryRecoveryPageSize(int i) { ntfDeliveryRecoveryPageSize = i; }
+  // property TAPIS_NTF_DELIVERY_RCVRY_PARALLELISM
+  public int getNtfDeliveryRecoveryParallelism() { return ntfDeliveryRecoveryParallelism; }
+  private void setNtfDeliveryRecoveryParallelism(int i) { ntfDeliveryRecoveryParallelism = i; }
+  // property TAPIS_NTF_EVENT_CACHE_SIZE
+  public int getNtfEventCacheSize() { return ntfEventCacheSize; }
+  private void setNtfEventCacheSize(int i) { ntfEventCacheSize = i; }
+  // property TAPIS_NTF_EVENT_SWEEP_INTERVAL
+  public int getNtfEventSweepInterval() { return ntfEventSweepInterval; }
+  private void setNtfEventSweepInterval(int i) { ntfEventSweepInterval = i; }
+  // property TAPIS_NTF_EVENT_SWEEP_GRACE
+  public int getNtfEventSweepGrace() { return ntfEventSweepGrace; }
+  private void setNtfEventSweepGrace(int i) { ntfEventSweepGrace = i; }
+  // property TAPIS_NTF_DELIVERY_DELETE_BATCH_SIZE
+  public int getNtfDeliveryDeleteBatchSize() { return ntfDeliveryDeleteBatchSize; }
+  private void setNtfDeliveryDeleteBatchSize(int i) { ntfDeliveryDeleteBatchSize = i; }
+  // property TAPIS_NTF_DELIVERY_DELETE_FLUSH_INTERVAL
+  public int getNtfDeliveryDeleteFlushInterval() { return ntfDeliveryDeleteFlushInterval; }
+  private void setNtfDeliveryDeleteFlushInterval(int i) { ntfDeliveryDeleteFlushInterval = i; }
+  // property TAPIS_NTF_BUCKET_PERSIST_BATCH_SIZE
+  public int getNtfBucketPersistBatchSize() { return ntfBucketPersistBatchSize; }
+  private void setNtfBucketPersistBatchSize(int i) { ntfBucketPersistBatchSize = i; }
+  // property TAPIS_NTF_BUCKET_PERSIST_LINGER
+  public int getNtfBucketPersistLinger() { return ntfBucketPersistLinger; }
+  private void setNtfBucketPersistLinger(int i) { ntfBucketPersistLinger = i; }
+  // property TAPIS_NTF_SUBSCR_REAPER_CHUNK_SIZE
+  public int getNtfSubscriptionReaperChunkSize() { return ntfSubscriptionReaperChunkSize; }
+  private void setNtfSubscriptionReaperChunkSize(int i) { ntfSubscriptionReaperChunkSize = i; }
+  // property TAPIS_NTF_ADMIN_ROLE_CACHE_SIZE
+  public int getNtfAdminRoleCacheSize() { return ntfAdminRoleCacheSize; }
+  private void setNtfAdminRoleCacheSize(int i) { ntfAdminRoleCacheSize = i; }
+  // property TAPIS_NTF_ADMIN_ROLE_CACHE_TTL
+  public int getNtfAdminRoleCacheTtl() { return ntfAdminRoleCacheTtl; }
+  private void setNtfAdminRoleCacheTtl(int i) { ntfAdminRoleCacheTtl = i; }
+  // property TAPIS_NTF_ADMIN_ROLE_CACHE_NEGATIVE_TTL
+  public int getNtfAdminRoleCacheNegativeTtl() { return ntfAdminRoleCacheNegativeTtl; }
+  private void setNtfAdminRoleCacheNegativeTtl(int i) { ntfAdminRoleCacheNegativeTtl = i; }
+  // property TAPIS_NTF_SUBSCR_COUNT_CACHE_SIZE
+  public int getNtfSubscrCountCacheSize() { return ntfSubscrCountCacheSize; }
+  private void setNtfSubscrCountCacheSize(int i) { ntfSubscrCountCacheSize = i; }
+  // property TAPIS_NTF_SUBSCR_COUNT_CACHE_TTL
+  public int getNtfSubscrCountCacheTtl() { return ntfSubscrCountCacheTtl; }
+  private void setNtfSubscrCountCacheTtl(int i) { ntfSubscrCountCacheTtl = i; }
+  // property TAPIS_NTF_SUBSCR_COUNT_TIMEOUT
+  public int getNtfSubscrCountTimeout() { return ntfSubscrCountTimeout; }
+  private void setNtfSubscrCountTimeout(int i) { ntfSubscrCountTimeout = i; }
+  // property TAPIS_NTF_DISPATCH_LEASES_ENABLED
+  public boolean isNtfDispatchLeasesEnabled() { return ntfDispatchLeasesEnabled; }
+  private void setNtfDispatchLeasesEnabled(boolean b) { ntfDispatchLeasesEnabled = b; }
+  // property TAPIS_NTF_DISPATCH_LEASE_TTL
+  public int getNtfDispatchLeaseTtl() { return ntfDispatchLeaseTtl; }
+  private void setNtfDispatchLeaseTtl(int i) { ntfDispatchLeaseTtl = i; }
+  // property TAPIS_NTF_DISPATCH_LEASE_HEARTBEAT
+  public int getNtfDispatchLeaseHeartbeat() { return ntfDispatchLeaseHeartbeat; }
+  private void setNtfDispatchLeaseHeartbeat(int i) { ntfDispatchLeaseHeartbeat = i; }
+  // property TAPIS_NTF_DISPATCH_NUM_BUCKETS
+  public int getNtfDispatchNumBuckets() { return ntfDispatchNumBuckets; }
+  private void setNtfDispatchNumBuckets(int i) { ntfDispatchNumBuckets = i; }
+  // property TAPIS_NTF_BUCKET_PREFETCH
+  public int getNtfBucketPrefetch() { return ntfBucketPrefetch; }
+  private void setNtfBucketPrefetch(int i) { ntfBucketPrefetch = i; }
+  // property TAPIS_NTF_ROUTING_MODE
+  public MessageBroker.RoutingMode getNtfRoutingMode() { return ntfRoutingMode; }
+  private void setNtfRoutingMode(MessageBroker.RoutingMode m) { ntfRoutingMode = m; }
 
   // property TAPIS_NTF_LOCAL_TEST_FLAG
   // Indicates we are running the service in TEST mode on localhost
@@ -1115,5 +2558,62 @@ public final class RuntimeParameters implements EmailClientParameters
     TAPIS_NTF_DELIVERY_RETRY_INTERVAL,
     TAPIS_NTF_DELIVERY_RCVRY_ATTEMPTS,
     TAPIS_NTF_DELIVERY_RCVRY_RETRY_INTERVAL,
+    TAPIS_NTF_SUBSCR_INDEX_ENABLED,
+    TAPIS_NTF_PUBLISH_CHANNELS,
+    TAPIS_NTF_PUBLISH_CONFIRM_TIMEOUT,
+    TAPIS_NTF_SERIES_BLOCK_SIZE,
+    TAPIS_NTF_CONSUMER_PREFETCH,
+    TAPIS_NTF_BUCKET_QUEUE_CAPACITY,
+    TAPIS_NTF_ACK_BATCH_SIZE,
+    TAPIS_NTF_ACK_FLUSH_INTERVAL,
+    TAPIS_NTF_BUCKET_LANES,
+    TAPIS_NTF_BUCKET_MAX_IN_FLIGHT,
+    TAPIS_NTF_DELIVERY_MAX_THREADS,
+    TAPIS_NTF_DELIVERY_EXECUTOR,
+    TAPIS_NTF_WEBHOOK_MAX_REQUESTS,
+    TAPIS_NTF_WEBHOOK_MAX_REQUESTS_PER_HOST,
+    TAPIS_NTF_WEBHOOK_POOL_MAX_IDLE,
+    TAPIS_NTF_WEBHOOK_KEEPALIVE,
+    TAPIS_NTF_WEBHOOK_CONNECT_TIMEOUT,
+    TAPIS_NTF_WEBHOOK_READ_TIMEOUT,
+    TAPIS_NTF_WEBHOOK_CALL_TIMEOUT,
+    TAPIS_NTF_WEBHOOK_HTTP2_ENABLED,
+    TAPIS_NTF_DELIVERY_RETRY_BACKOFF,
+    TAPIS_NTF_DELIVERY_RETRY_MAX_INTERVAL,
+    TAPIS_NTF_DELIVERY_RETRY_JITTER,
+    TAPIS_NTF_RETRY_TICK,
+    TAPIS_NTF_RETRY_WHEEL_SIZE,
+    TAPIS_NTF_WEBHOOK_RATE,
+    TAPIS_NTF_WEBHOOK_BURST,
+    TAPIS_NTF_WEBHOOK_RATE_KEY,
+    TAPIS_NTF_WEBHOOK_TENANT_RATES,
+    TAPIS_NTF_BREAKER_FAILURE_THRESHOLD,
+    TAPIS_NTF_BREAKER_OPEN_INTERVAL,
+    TAPIS_NTF_BREAKER_KEY,
+    TAPIS_NTF_WEBHOOK_PRETTY_JSON,
+    TAPIS_NTF_DELIVERY_RCVRY_BACKOFF,
+    TAPIS_NTF_DELIVERY_RCVRY_MAX_INTERVAL,
+    TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE,
+    TAPIS_NTF_DELIVERY_RCVRY_PARALLELISM,
+    TAPIS_NTF_EVENT_CACHE_SIZE,
+    TAPIS_NTF_EVENT_SWEEP_INTERVAL,
+    TAPIS_NTF_EVENT_SWEEP_GRACE,
+    TAPIS_NTF_DELIVERY_DELETE_BATCH_SIZE,
+    TAPIS_NTF_DELIVERY_DELETE_FLUSH_INTERVAL,
+    TAPIS_NTF_BUCKET_PERSIST_BATCH_SIZE,
+    TAPIS_NTF_BUCKET_PERSIST_LINGER,
+    TAPIS_NTF_SUBSCR_REAPER_CHUNK_SIZE,
+    TAPIS_NTF_ADMIN_ROLE_CACHE_SIZE,
+    TAPIS_NTF_ADMIN_ROLE_CACHE_TTL,
+    TAPIS_NTF_ADMIN_ROLE_CACHE_NEGATIVE_TTL,
+    TAPIS_NTF_SUBSCR_COUNT_CACHE_SIZE,
+    TAPIS_NTF_SUBSCR_COUNT_CACHE_TTL,
+    TAPIS_NTF_SUBSCR_COUNT_TIMEOUT,
+    TAPIS_NTF_DISPATCH_LEASES_ENABLED,
+    TAPIS_NTF_DISPATCH_LEASE_TTL,
+    TAPIS_NTF_DISPATCH_LEASE_HEARTBEAT,
+    TAPIS_NTF_DISPATCH_NUM_BUCKETS,
+    TAPIS_NTF_BUCKET_PREFETCH,
+    TAPIS_NTF_ROUTING_MODE,
     TAPIS_LOCAL_TEST}
 }
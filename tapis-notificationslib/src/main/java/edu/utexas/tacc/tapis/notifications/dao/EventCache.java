@@ -0,0 +1,99 @@
+package edu.utexas.tacc.tapis.notifications.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Small LRU cache of events by event uuid.
+ * Notifications reference their event by uuid. When notifications are read for delivery or recovery the event
+ *   is taken from here if present, so the payload is not fetched and parsed again for each notification.
+ * Events are immutable, so entries never go stale. An entry for an event that has since been removed from the
+ *   events table is harmless and ages out.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ * A size less than 1 disables the cache.
+ */
+public final class EventCache
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Default. Can be changed via runtime parameters.
+  public static final int DEFAULT_SIZE = 1000;
+
+  // Metric names
+  static final String METRIC_HITS = "ntf.eventcache.hits";
+  static final String METRIC_MISSES = "ntf.eventcache.misses";
+  static final String METRIC_SIZE = "ntf.eventcache.size";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static EventCache instance;
+
+  private final int maxSize;
+  // Guarded by this. Iteration order is least recently used first.
+  private final LinkedHashMap<UUID, Event> events;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  EventCache(int maxSize1)
+  {
+    maxSize = maxSize1;
+    events = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<UUID, Event> eldest) { return size() > maxSize; }
+    };
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static EventCache getInstance()
+  {
+    if (instance == null)
+    {
+      instance = new EventCache(RuntimeParameters.getInstance().getNtfEventCacheSize());
+      NtfMetrics.registerGauge(METRIC_SIZE, instance::size);
+    }
+    return instance;
+  }
+
+  /**
+   * Get an event
+   * @param eventUuid - uuid of event
+   * @return event or null if not cached
+   */
+  public Event get(UUID eventUuid)
+  {
+    if (maxSize < 1 || eventUuid == null) return null;
+    Event event;
+    synchronized (this) { event = events.get(eventUuid); }
+    NtfMetrics.increment(event == null ? METRIC_MISSES : METRIC_HITS);
+    return event;
+  }
+
+  /**
+   * Add an event
+   * @param event - event, ignored if null
+   */
+  public void put(Event event)
+  {
+    if (maxSize < 1 || event == null || event.getUuid() == null) return;
+    synchronized (this) { events.put(event.getUuid(), event); }
+  }
+
+  public synchronized int size() { return events.size(); }
+}
@@ -1,16 +1,24 @@
 package edu.utexas.tacc.tapis.notifications.dao;
 
 import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.model.NotificationRecoveryRecord;
+import edu.utexas.tacc.tapis.notifications.model.SeriesSeqLease;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 import edu.utexas.tacc.tapis.notifications.model.TestSequence;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
 import edu.utexas.tacc.tapis.search.parser.ASTNode;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
 import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -27,6 +35,10 @@ public interface NotificationsDao
   long getNextSeriesSeqCount(ResourceRequestUser rUser, String tenant, String source, String subject, String seriesId)
           throws TapisException;
 
+  Map<EventSeriesKey, SeriesSeqLease> getNextSeriesSeqCounts(ResourceRequestUser rUser,
+                                                             Map<EventSeriesKey, Integer> seriesCounts)
+          throws TapisException;
+
   // -----------------------------------------------------------------------
   // ------------------------- Subscriptions -------------------------------
   // -----------------------------------------------------------------------
@@ -57,7 +69,8 @@ public interface NotificationsDao
   Subscription getSubscriptionByUuid(String tenant, UUID uuid) throws TapisException;
 
   int getSubscriptionsCount(String tenant, String owner, List<String> searchList, ASTNode searchAST,
-                            Set<String> setOfIDs, List<OrderBy> orderByList, String startAfter)
+                            Set<String> setOfIDs, List<OrderBy> orderByList, String startAfter,
+                            CountStrategy countStrategy)
           throws TapisException;
 
   List<Subscription> getSubscriptions(String tenant, String owner, List<String> searchList, ASTNode searchAST,
@@ -65,13 +78,22 @@ public interface NotificationsDao
                                       String startAfter, boolean anyOwner)
           throws TapisException;
 
+  SubscriptionCursor streamSubscriptions(String tenant, String owner, List<String> searchList, ASTNode searchAST,
+                                         Set<String> names, int limit, List<OrderBy> orderByList,
+                                         SubscriptionCursor after, boolean anyOwner, SubscriptionHandler handler)
+          throws TapisException;
+
   List<Subscription> getSubscriptionsForEvent(Event event) throws TapisException;
 
   Set<String> getSubscriptionNamesByOwner(String tenant, String owner) throws TapisException;
 
   Set<String> getSubscriptionIDs(String tenant) throws TapisException;
 
-  List<Subscription> getExpiredSubscriptions() throws TapisException;
+  int deleteExpiredSubscriptions(int limit) throws TapisException;
+
+  List<Subscription> getEnabledSubscriptions() throws TapisException;
+
+  List<Subscription> getSubscriptionsBySeqIds(Collection<Integer> seqIds) throws TapisException;
 
   // -----------------------------------------------------------------------
   // -------------------- Notifications ------------------------------------
@@ -80,6 +102,9 @@ public interface NotificationsDao
   boolean persistNotificationsAndUpdateLastEvent(String tenant, Event event, int bucketNum, List<Notification> notifications)
           throws TapisException;
 
+  boolean persistNotificationsAndUpdateLastEvent(int bucketNum, List<Event> events, List<Notification> notifications)
+          throws TapisException;
+
   List<Notification> getNotificationsForEvent(String tenant, Event event, int bucketNum) throws TapisException;
 
   List<Notification> getNotifications(int bucketNum) throws TapisException;
@@ -88,19 +113,21 @@ public interface NotificationsDao
 
   void deleteNotificationAndAddToRecovery(String tenant, Notification notification) throws TapisException;
 
-  void deleteNotificationsByDeliveryTarget(String tenant, Notification notification) throws TapisException;
+  int deleteNotificationsByUuid(Map<String, ? extends Collection<UUID>> uuidsByTenant) throws TapisException;
 
   UUID getLastEventUUID(int bucketNum) throws TapisException;
 
-  boolean checkForLastEvent(UUID eventUuid, int bucketNum) throws TapisException;
+  Set<UUID> getLastBatchEventUUIDs(int bucketNum) throws TapisException;
 
   List<Notification> getNotificationsInRecovery(int bucketNum) throws TapisException;
 
   void deleteNotificationFromRecovery(Notification notification) throws TapisException;
 
-  int getNotificationRecoveryAttemptCount(Notification notification) throws TapisException;
+  List<NotificationRecoveryRecord> claimDueNotificationsInRecovery(int bucketNum, int limit, Instant leaseUntil)
+          throws TapisException;
 
-  void setNotificationRecoveryAttemptCount(Notification notification, int attemptCount) throws TapisException;
+  void updateNotificationRecoveryAttempt(Notification notification, int attemptCount, Instant nextAttemptAt)
+          throws TapisException;
 
   // -----------------------------------------------------------------------
   // -------------------- Events -------------------------------------------
@@ -108,6 +135,31 @@ public interface NotificationsDao
 
   int deleteEventSeries(String source, String subject, String seriesId, String tenant) throws TapisException;
 
+  int deleteUnreferencedEvents(Instant olderThan, int limit) throws TapisException;
+
+  // -----------------------------------------------------------------------
+  // -------------------- Leases -------------------------------------------
+  // -----------------------------------------------------------------------
+
+  Set<String> acquireLeases(String owner, Collection<String> names, int ttlSeconds) throws TapisException;
+
+  int releaseLeases(String owner, Collection<String> names) throws TapisException;
+
+  Map<String, String> getLeaseOwners() throws TapisException;
+
+  int deleteExpiredLeases() throws TapisException;
+
+  // -----------------------------------------------------------------------
+  // -------------------- Virtual Buckets ----------------------------------
+  // -----------------------------------------------------------------------
+  List<VirtualBucket> getVirtualBuckets() throws TapisException;
+
+  VirtualBucket getVirtualBucket(int vbucket) throws TapisException;
+
+  boolean startVirtualBucketMove(int vbucket, int fromBucket, int toBucket) throws TapisException;
+
+  boolean moveVirtualBucket(int vbucket, int fromBucket, int toBucket) throws TapisException;
+
   // -----------------------------------------------------------------------
   // --------------------- Test Sequences ----------------------------------
   // -----------------------------------------------------------------------
@@ -120,4 +172,13 @@ public interface NotificationsDao
           throws TapisException, IllegalStateException;
 
   boolean checkForTestSequence(String tenant, String owner, String name) throws TapisException;
+
+  /*
+   * Receives subscriptions as they are read from the DB
+   */
+  @FunctionalInterface
+  interface SubscriptionHandler
+  {
+    void accept(Subscription subscription) throws IOException;
+  }
 }
@@ -7,10 +7,17 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.regex.Pattern;
 import javax.sql.DataSource;
@@ -23,13 +30,25 @@ import org.slf4j.LoggerFactory;
 
 import org.flywaydb.core.Flyway;
 import org.jooq.BatchBindStep;
+import org.jooq.Comparator;
 import org.jooq.Condition;
+import org.jooq.DatePart;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.OrderField;
+import org.jooq.Query;
 import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.Record3;
 import org.jooq.Result;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 
 import edu.utexas.tacc.tapis.search.parser.ASTBinaryExpression;
 import edu.utexas.tacc.tapis.search.parser.ASTLeaf;
@@ -50,17 +69,24 @@ import edu.utexas.tacc.tapis.shareddb.datasource.TapisDataSource;
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.model.NotificationRecoveryRecord;
+import edu.utexas.tacc.tapis.notifications.model.SeriesSeqLease;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 import edu.utexas.tacc.tapis.notifications.model.Subscription.SubscriptionOperation;
 import edu.utexas.tacc.tapis.notifications.model.TestSequence;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
 import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.EventsRecord;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsRecord;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsTestsRecord;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.SubscriptionsRecord;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsLastEventRecord;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsRecoveryRecord;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsVbucketsRecord;
 
 import static edu.utexas.tacc.tapis.notifications.gen.jooq.Tables.*;
 import static edu.utexas.tacc.tapis.shared.threadlocal.OrderBy.DEFAULT_ORDERBY_DIRECTION;
@@ -89,6 +115,17 @@ public class NotificationsDaoImpl implements NotificationsDao
   private static final Pattern DOT_SPLIT = Pattern.compile("\\.");
   private static final Pattern DOLLAR_SPLIT = Pattern.compile("\\$");
 
+  // Number of rows fetched at a time when streaming subscriptions
+  private static final int SUBSCRIPTIONS_FETCH_SIZE = 500;
+
+  // Default statement timeout in milliseconds for an exact count. Can be changed via runtime parameters.
+  public static final int DEFAULT_COUNT_TIMEOUT = 2000;
+  // SQL state reported by postgres when a statement is cancelled due to statement_timeout
+  private static final String QUERY_CANCELED_STATE = "57014";
+
+  // Current UTC time according to the DB. Used for leases so that all dispatchers share one clock.
+  private static final Field<LocalDateTime> DB_NOW_UTC = DSL.field("timezone('utc', now())", SQLDataType.LOCALDATETIME);
+
   /* ********************************************************************** */
   /*                             Public Methods                             */
   /* ********************************************************************** */
@@ -188,6 +225,42 @@ public class NotificationsDaoImpl implements NotificationsDao
     return 1;
   }
 
+  /**
+   * Delete stored events that are no longer referenced by any notification or notification in recovery.
+   * Only events not persisted since the given time are considered. At most limit events are deleted.
+   * Rows locked by a concurrent persist of the same event are skipped. If the persist is waiting on a row
+   *   locked here it inserts the event again once this commits.
+   * @param olderThan - only consider events last persisted before this time
+   * @param limit - max number of events to delete
+   * @return number of events deleted
+   * @throws TapisException - on error
+   */
+  @Override
+  public int deleteUnreferencedEvents(Instant olderThan, int limit) throws TapisException
+  {
+    if (limit < 1) return 0;
+    int numDeleted = 0;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      numDeleted = deleteUnreferencedEventsQuery(db, LocalDateTime.ofInstant(olderThan, ZoneOffset.UTC), limit)
+                     .execute();
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_DELETE_FAILURE", "events");
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return numDeleted;
+  }
+
   /*
    * getNextSeriesSeqCount
    * Determine next sequence id for the specified series.
@@ -245,6 +318,86 @@ public class NotificationsDaoImpl implements NotificationsDao
     return nextSeqId;
   }
 
+  /**
+   * getNextSeriesSeqCounts
+   * Reserve a block of sequence counts for each of a set of series using a single statement.
+   * For each series the caller passes in how many counts are needed. The returned map contains, for each series,
+   *   the first count in the block. The block for a series is (first, first + n - 1).
+   * Series are written in a consistent order so that concurrent batches do not deadlock.
+   * The epoch of the row each block came from is returned along with it, see SeriesSeqLease.
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param seriesCounts - map of series to number of counts needed. Counts must be positive.
+   * @return - map of series to first count allocated and epoch
+   * @throws TapisException - on error
+   */
+  @Override
+  public Map<EventSeriesKey, SeriesSeqLease> getNextSeriesSeqCounts(ResourceRequestUser rUser,
+                                                                    Map<EventSeriesKey, Integer> seriesCounts)
+          throws TapisException
+  {
+    String opName = "getNextSeriesSeqCounts";
+    Map<EventSeriesKey, SeriesSeqLease> retMap = new HashMap<>();
+    if (seriesCounts == null || seriesCounts.isEmpty()) return retMap;
+
+    // Sort to get a consistent order for row locks
+    var sortedCounts = new TreeMap<>(seriesCounts);
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      // Get a database connection.
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+
+      // Multi-row version of the upsert in getNextSeriesSeqCount
+      // INSERT INTO event_series (tenant,source,subject,series_id,seq_count)
+      //   VALUES (<tenant>,<source>,<subject>,<seriesId>,<n>), ...
+      //   ON CONFLICT(tenant,source,subject,series_id)
+      //   DO UPDATE SET seq_count = (event_series.seq_count + EXCLUDED.seq_count)
+      //   RETURNING tenant,source,subject,series_id,seq_count,epoch;
+      var insertStep = db.insertInto(EVENT_SERIES, EVENT_SERIES.TENANT, EVENT_SERIES.SOURCE, EVENT_SERIES.SUBJECT,
+                                     EVENT_SERIES.SERIES_ID, EVENT_SERIES.SEQ_COUNT);
+      for (Map.Entry<EventSeriesKey, Integer> entry : sortedCounts.entrySet())
+      {
+        EventSeriesKey k = entry.getKey();
+        insertStep = insertStep.values(k.tenant(), k.source(), k.subject(), k.seriesId(), entry.getValue().longValue());
+      }
+      Result<?> results =
+              insertStep.onConflict(EVENT_SERIES.TENANT,EVENT_SERIES.SOURCE, EVENT_SERIES.SUBJECT, EVENT_SERIES.SERIES_ID)
+                        .doUpdate()
+                          .set(EVENT_SERIES.SEQ_COUNT, EVENT_SERIES.SEQ_COUNT.plus(DSL.excluded(EVENT_SERIES.SEQ_COUNT)))
+                          .set(EVENT_SERIES.UPDATED, TapisUtils.getUTCTimeNow())
+                        .returningResult(EVENT_SERIES.TENANT, EVENT_SERIES.SOURCE, EVENT_SERIES.SUBJECT,
+                                         EVENT_SERIES.SERIES_ID, EVENT_SERIES.SEQ_COUNT, EVENT_SERIES.EPOCH)
+                        .fetch();
+      // There must be one result for each series
+      if (results == null || results.size() != sortedCounts.size())
+      {
+        throw new TapisException(LibUtils.getMsgAuth("NTFLIB_DB_NULL_RESULT", rUser, null, null, opName));
+      }
+      for (Record r : results)
+      {
+        var k = new EventSeriesKey(r.get(EVENT_SERIES.TENANT), r.get(EVENT_SERIES.SOURCE), r.get(EVENT_SERIES.SUBJECT),
+                                   r.get(EVENT_SERIES.SERIES_ID));
+        long lastCount = r.get(EVENT_SERIES.SEQ_COUNT);
+        retMap.put(k, new SeriesSeqLease(lastCount - sortedCounts.get(k) + 1, r.get(EVENT_SERIES.EPOCH)));
+      }
+      // Close out and commit
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      // Rollback transaction and throw an exception
+      LibUtils.rollbackDB(conn, e,"DB_INSERT_FAILURE", "event_series");
+    }
+    finally
+    {
+      // Always return the connection back to the connection pool.
+      LibUtils.finalCloseDB(conn);
+    }
+    return retMap;
+  }
+
   // -----------------------------------------------------------------------
   // ------------------------- Subscriptions -------------------------------
   // -----------------------------------------------------------------------
@@ -323,6 +476,7 @@ public class NotificationsDaoImpl implements NotificationsDao
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(subscr.getTenant());
     }
     catch (Exception e)
     {
@@ -396,6 +550,7 @@ public class NotificationsDaoImpl implements NotificationsDao
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -437,6 +592,7 @@ public class NotificationsDaoImpl implements NotificationsDao
               .execute();
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -481,6 +637,7 @@ public class NotificationsDaoImpl implements NotificationsDao
               .execute();
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -513,6 +670,7 @@ public class NotificationsDaoImpl implements NotificationsDao
       DSLContext db = DSL.using(conn);
       db.deleteFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.TENANT.eq(tenant),SUBSCRIPTIONS.OWNER.eq(owner),SUBSCRIPTIONS.NAME.eq(name)).execute();
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -544,6 +702,7 @@ public class NotificationsDaoImpl implements NotificationsDao
       DSLContext db = DSL.using(conn);
       db.deleteFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.TENANT.eq(tenant),SUBSCRIPTIONS.UUID.eq(uuid)).execute();
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -576,15 +735,9 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
 
-      // Construct where condition
-      Condition whereCondition;
-      if (anyOwner) whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant);
-      else whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant).and(SUBSCRIPTIONS.OWNER.eq(owner));
-      whereCondition = whereCondition.and(SUBSCRIPTIONS.SUBJECT_FILTER.eq(subject));
-
-      // Execute
-      count = db.deleteFrom(SUBSCRIPTIONS).where(whereCondition).execute();
+      count = deleteSubscriptionsBySubjectQuery(db, tenant, owner, subject, anyOwner).execute();
       LibUtils.closeAndCommitDB(conn, null, null);
+      SubscriptionCountCache.getInstance().invalidate(tenant);
     }
     catch (Exception e)
     {
@@ -734,7 +887,7 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
       SubscriptionsRecord r;
-      r = db.selectFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.TENANT.eq(tenant),SUBSCRIPTIONS.UUID.eq(uuid)).fetchOne();
+      r = subscriptionByUuidQuery(db, tenant, uuid).fetchOne();
       if (r == null) return null;
       else result = getSubscriptionFromRecord(r);
 
@@ -767,12 +920,15 @@ public class NotificationsDaoImpl implements NotificationsDao
    * @param setOfNames - list of subscription names to consider. null indicates no restriction.
    * @param orderByList - orderBy entries for sorting, e.g. orderBy=created(desc).
    * @param startAfter - where to start when sorting, e.g. orderBy=id(asc)&startAfter=101 (may not be used with skip)
+   * @param countStrategy - exact, estimated from the query plan or cached. null for exact.
+   *                        An exact count that exceeds the count timeout falls back to the estimate.
    * @return - count of Subscription objects
    * @throws TapisException - on error
    */
   @Override
   public int getSubscriptionsCount(String tenant, String owner, List<String> searchList, ASTNode searchAST,
-                                   Set<String> setOfNames, List<OrderBy> orderByList, String startAfter)
+                                   Set<String> setOfNames, List<OrderBy> orderByList, String startAfter,
+                                   CountStrategy countStrategy)
           throws TapisException
   {
     // If no IDs in list then we are done.
@@ -840,8 +996,21 @@ public class NotificationsDaoImpl implements NotificationsDao
     // Add IN condition for list of IDs
     if (setOfNames != null && !setOfNames.isEmpty()) whereCondition = whereCondition.and(SUBSCRIPTIONS.NAME.in(setOfNames));
 
+    // Use a cached count if requested and present
+    SubscriptionCountCache countCache = SubscriptionCountCache.getInstance();
+    String predicate = null;
+    long cacheGeneration = 0;
+    if (countStrategy == CountStrategy.cached)
+    {
+      predicate = DSL.using(SQLDialect.POSTGRES).renderInlined(whereCondition);
+      Integer cachedCount = countCache.get(tenant, owner, predicate);
+      if (cachedCount != null) return cachedCount;
+      cacheGeneration = countCache.generation();
+    }
+
     // ------------------------- Build and execute SQL ----------------------------
     int count = 0;
+    boolean estimated = false;
     Connection conn = null;
     try
     {
@@ -852,8 +1021,30 @@ public class NotificationsDaoImpl implements NotificationsDao
       // Execute the select including startAfter
       // NOTE: This is much simpler than the same section in getSubscriptions() because we are not ordering since
       //       we only want the count and we are not limiting (we want a count of all records).
-      Integer countInt = db.selectCount().from(SUBSCRIPTIONS).where(whereCondition).fetchOne(0,Integer.class);
-      count = (countInt == null) ? 0 : countInt;
+      Integer countInt = null;
+      if (countStrategy != CountStrategy.estimated)
+      {
+        try
+        {
+          // Limit the time spent counting. SET LOCAL lasts until the end of the transaction.
+          int timeout = RuntimeParameters.getInstance().getNtfSubscrCountTimeout();
+          if (timeout > 0) db.execute("SET LOCAL statement_timeout = " + timeout);
+          countInt = db.selectCount().from(SUBSCRIPTIONS).where(whereCondition).fetchOne(0,Integer.class);
+        }
+        catch (DataAccessException e)
+        {
+          if (!QUERY_CANCELED_STATE.equals(e.sqlState())) throw e;
+          // Too slow, use the estimate. The transaction is aborted so start a new one.
+          _log.warn(LibUtils.getMsg("NTFLIB_DB_COUNT_TIMEOUT", SUBSCRIPTIONS.getName(), tenant, owner));
+          conn.rollback();
+        }
+      }
+      if (countInt == null)
+      {
+        countInt = estimateCount(db, db.selectFrom(SUBSCRIPTIONS).where(whereCondition));
+        estimated = true;
+      }
+      count = countInt;
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -868,6 +1059,11 @@ public class NotificationsDaoImpl implements NotificationsDao
       // Always return the connection back to the connection pool.
       LibUtils.finalCloseDB(conn);
     }
+    // Only exact counts are cached
+    if (countStrategy == CountStrategy.cached && !estimated)
+    {
+      countCache.put(tenant, owner, predicate, count, cacheGeneration);
+    }
     return count;
   }
 
@@ -1118,6 +1314,116 @@ public class NotificationsDaoImpl implements NotificationsDao
     return retList;
   }
 
+  /**
+   * streamSubscriptions
+   * Retrieve a page of Subscriptions matching various search criteria, passing each one to a handler as it is read.
+   * Same search as getSubscriptions() but pages using a continuation cursor rather than skip or startAfter.
+   *   Each page starts after the last subscription of the previous page, using the sort keys plus seq_id, so the
+   *   cost of a page does not grow with its depth.
+   * Rows are read from a DB cursor a block at a time, so memory use does not grow with the size of the page.
+   *   The connection is held until all subscriptions have been passed to the handler.
+   * Sort columns must be non-null and not json, else keyset comparison is not well defined.
+   * @param tenant - tenant name
+   * @param owner - owner for matching. Ignored if anyOwner == true
+   * @param searchList - optional list of conditions used for searching
+   * @param searchAST - AST containing search conditions
+   * @param setOfNames - list of subscription names to consider. null indicates no restriction.
+   * @param limit - indicates maximum number of results to be included, -1 for unlimited
+   * @param orderByList - orderBy entries for sorting. If null or empty use the order of the cursor or the default.
+   * @param after - cursor returned with the previous page, null for the first page
+   * @param anyOwner - do not include owner in filtering
+   * @param handler - called for each subscription in order
+   * @return - cursor for the next page, null if there are no more subscriptions
+   * @throws TapisException - on error
+   */
+  @Override
+  public SubscriptionCursor streamSubscriptions(String tenant, String owner, List<String> searchList,
+                                                ASTNode searchAST, Set<String> setOfNames, int limit,
+                                                List<OrderBy> orderByList, SubscriptionCursor after,
+                                                boolean anyOwner, SubscriptionHandler handler)
+          throws TapisException
+  {
+    // If no IDs in list then we are done.
+    if (setOfNames != null && setOfNames.isEmpty()) return null;
+
+    // Use the sort order of the cursor if none given. A cursor may only be used with the order it was created for.
+    List<OrderBy> tmpOrderByList;
+    if (orderByList == null || orderByList.isEmpty())
+      tmpOrderByList = (after == null) ? getOrderByList(null) : after.getOrderByList();
+    else tmpOrderByList = orderByList;
+    if (after != null && !after.isSortedBy(tmpOrderByList))
+    {
+      throw new TapisException(LibUtils.getMsg("NTFLIB_DB_CURSOR_SORT", SUBSCRIPTIONS.getName()));
+    }
+
+    // Determine and check orderBy columns
+    List<Field<?>> sortFields = getCursorSortFields(tmpOrderByList);
+
+    // Begin where condition for the query.
+    Condition whereCondition;
+    if (anyOwner) whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant);
+    else whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant).and(SUBSCRIPTIONS.OWNER.eq(owner));
+
+    // Add searchList or searchAST to where condition
+    if (searchList != null)
+    {
+      whereCondition = addSearchListToWhere(whereCondition, searchList);
+    }
+    else if (searchAST != null)
+    {
+      Condition astCondition = createConditionFromAst(searchAST);
+      if (astCondition != null) whereCondition = whereCondition.and(astCondition);
+    }
+
+    // Add IN condition for list of IDs
+    if (setOfNames != null) whereCondition = whereCondition.and(SUBSCRIPTIONS.NAME.in(setOfNames));
+
+    // ------------------------- Build and execute SQL ----------------------------
+    SubscriptionCursor nextCursor = null;
+    Connection conn = null;
+    try
+    {
+      // Get a database connection.
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+
+      // Read one more than the limit to find out if there is another page.
+      // NOTE: The fetch size only takes effect when auto-commit is off, which is the default for our connections.
+      ResultQuery<SubscriptionsRecord> resultQuery =
+              streamSubscriptionsQuery(db, whereCondition, tmpOrderByList, after, limit);
+      try (Cursor<SubscriptionsRecord> cursor = resultQuery.fetchSize(SUBSCRIPTIONS_FETCH_SIZE).fetchLazy())
+      {
+        int count = 0;
+        SubscriptionsRecord lastRecord = null;
+        for (SubscriptionsRecord r : cursor)
+        {
+          if (limit >= 0 && count >= limit)
+          {
+            nextCursor = (lastRecord == null) ? after : getSubscriptionCursor(lastRecord, sortFields, tmpOrderByList);
+            break;
+          }
+          handler.accept(getSubscriptionFromRecord(r));
+          lastRecord = r;
+          count++;
+        }
+      }
+
+      // Close out and commit
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      // Rollback transaction and throw an exception
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "subscriptions", e.getMessage());
+    }
+    finally
+    {
+      // Always return the connection back to the connection pool.
+      LibUtils.finalCloseDB(conn);
+    }
+    return nextCursor;
+  }
+
   /**
    * getSubscriptionsForEvent
    * Retrieve all Subscriptions matching an event.
@@ -1143,7 +1449,6 @@ public class NotificationsDaoImpl implements NotificationsDao
     event.setTypeFields();
 
     String tenant = event.getTenant();
-    String wildcard = Subscription.FILTER_WILDCARD;
 
     // Log details of what we are trying to match
     _log.debug(LibUtils.getMsg("NTFLIB_DB_EVENT_SUBSCR", tenant, event.getType(), event.getType1(), event.getType2(),
@@ -1159,23 +1464,8 @@ public class NotificationsDaoImpl implements NotificationsDao
 
       Result<SubscriptionsRecord> results;
 
-      // Build up the WHERE clause.
-      // WHERE tenant = '<tenant>'
-      //    AND (type_filter1 = '<typeFilter1>' OR type_filter1 = '*')
-      //    AND (type_filter2 = '<typeFilter2>' OR type_filter2 = '*')
-      //    AND (type_filter3 = '<typeFilter3>' OR type_filter3 = '*')
-      //    AND (subject_filter = '<subjectFilter>' OR subject_filter = '*')
-      Condition whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant).and(SUBSCRIPTIONS.ENABLED.eq(true));
-      Condition tmpCond = SUBSCRIPTIONS.TYPE_FILTER1.eq(event.getType1()).or(SUBSCRIPTIONS.TYPE_FILTER1.eq(wildcard));
-      whereCondition = whereCondition.and(tmpCond);
-      tmpCond = SUBSCRIPTIONS.TYPE_FILTER2.eq(event.getType2()).or(SUBSCRIPTIONS.TYPE_FILTER2.eq(wildcard));
-      whereCondition = whereCondition.and(tmpCond);
-      tmpCond = SUBSCRIPTIONS.TYPE_FILTER3.eq(event.getType3()).or(SUBSCRIPTIONS.TYPE_FILTER3.eq(wildcard));
-      whereCondition = whereCondition.and(tmpCond);
-      tmpCond = SUBSCRIPTIONS.SUBJECT_FILTER.eq(event.getSubject()).or(SUBSCRIPTIONS.SUBJECT_FILTER.eq(wildcard));
-      whereCondition = whereCondition.and(tmpCond);
-
-      results = db.selectFrom(SUBSCRIPTIONS).where(whereCondition).fetch();
+      results = subscriptionsForEventQuery(db, tenant, event.getType1(), event.getType2(), event.getType3(),
+                                           event.getSubject()).fetch();
 
       if (results.isEmpty()) return retList;
 
@@ -1198,15 +1488,50 @@ public class NotificationsDaoImpl implements NotificationsDao
   }
 
   /**
-   * getExpiredSubscriptions
-   * Retrieve all Subscriptions passed their expiry.
+   * deleteExpiredSubscriptions
+   * Delete a chunk of Subscriptions passed their expiry in a single transaction.
    * This is for all tenants
+   * Rows are located using the expiry index and deleted by physical row id (ctid), so the chunk is bounded and
+   *   rows locked by another transaction, e.g. a concurrent update, are skipped until the next chunk.
+   * @param limit - max number of subscriptions to delete
+   * @return - number of subscriptions deleted
+   * @throws TapisException - on error
+   */
+  @Override
+  public int deleteExpiredSubscriptions(int limit) throws TapisException
+  {
+    if (limit < 1) return 0;
+    int numDeleted = 0;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      numDeleted = deleteExpiredSubscriptionsQuery(db, TapisUtils.getUTCTimeNow(), limit).execute();
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_DELETE_FAILURE", "subscriptions");
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return numDeleted;
+  }
+
+  /**
+   * getEnabledSubscriptions
+   * Retrieve all enabled Subscriptions across all tenants.
+   * Used by the dispatcher to do a full load of the in-memory subscription match index.
    * If no subscriptions are found an empty list is returned
-   * @return - list of expired Subscriptions across all tenants
+   * @return - list of enabled Subscriptions across all tenants
    * @throws TapisException - on error
    */
   @Override
-  public List<Subscription> getExpiredSubscriptions() throws TapisException
+  public List<Subscription> getEnabledSubscriptions() throws TapisException
   {
     // The result list should always be non-null.
     List<Subscription> retList = new ArrayList<>();
@@ -1220,14 +1545,52 @@ public class NotificationsDaoImpl implements NotificationsDao
       DSLContext db = DSL.using(conn);
 
       Result<SubscriptionsRecord> results;
+      results = db.selectFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.ENABLED.eq(true)).fetch();
 
-      // Build up the WHERE clause.
-      // Look for where the expiry timestamp is before the current timestamp
-      LocalDateTime now = TapisUtils.getUTCTimeNow();
-      Condition whereCondition = SUBSCRIPTIONS.EXPIRY.lt(now);
-      results = db.selectFrom(SUBSCRIPTIONS).where(whereCondition).fetch();
+      for (Record r : results) { Subscription s = getSubscriptionFromRecord(r); retList.add(s); }
 
-      if (results.isEmpty()) return retList;
+      // Close out and commit
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      // Rollback transaction and throw an exception
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "subscriptions", e.getMessage());
+    }
+    finally
+    {
+      // Always return the connection back to the connection pool.
+      LibUtils.finalCloseDB(conn);
+    }
+    return retList;
+  }
+
+  /**
+   * getSubscriptionsBySeqIds
+   * Retrieve Subscriptions given a collection of sequence ids. This is for all tenants.
+   * Ids that no longer exist are not included in the result.
+   * Used by the dispatcher to apply incremental changes to the in-memory subscription match index.
+   * @param seqIds - sequence ids of subscriptions to retrieve
+   * @return - list of Subscriptions found
+   * @throws TapisException - on error
+   */
+  @Override
+  public List<Subscription> getSubscriptionsBySeqIds(Collection<Integer> seqIds) throws TapisException
+  {
+    // The result list should always be non-null.
+    List<Subscription> retList = new ArrayList<>();
+    if (seqIds == null || seqIds.isEmpty()) return retList;
+
+    // ------------------------- Build and execute SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      // Get a database connection.
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+
+      Result<SubscriptionsRecord> results;
+      results = db.selectFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.SEQ_ID.in(seqIds)).fetch();
 
       for (Record r : results) { Subscription s = getSubscriptionFromRecord(r); retList.add(s); }
 
@@ -1269,10 +1632,39 @@ public class NotificationsDaoImpl implements NotificationsDao
     if (StringUtils.isBlank(tenant)) LibUtils.logAndThrowNullParmException(opName, "tenant");
     if (event == null) LibUtils.logAndThrowNullParmException(opName, "event");
     if (notifications == null || notifications.isEmpty()) return true;
+    return persistNotificationsAndUpdateLastEvent(bucketNum, List.of(event), notifications);
+  }
 
-    // Event is same for all items.
-    UUID eventUUID = event.getUuid();
-    JsonElement eventJson = TapisGsonUtils.getGson().toJsonTree(event);
+  /**
+   * Persist notifications for several events processed by a bucket in a single transaction.
+   * Each event is stored once. The last_event table is updated to the last event in the list and the last_batch
+   *   table to all events in the list, see getLastBatchEventUUIDs().
+   * Used by the bucket manager to persist consecutive events from its queue together.
+   * @param bucketNum - Bucket associated with the events
+   * @param events - Events in the order processed, newest last
+   * @param notifications - Notifications for the events. Each references its event by uuid.
+   * @return true on success
+   * @throws TapisException - on error
+   */
+  @Override
+  public boolean persistNotificationsAndUpdateLastEvent(int bucketNum, List<Event> events,
+                                                        List<Notification> notifications)
+          throws TapisException
+  {
+    String opName = "persistNotificationsForEvents";
+    // ------------------------- Check Input -------------------------
+    if (events == null) LibUtils.logAndThrowNullParmException(opName, "events");
+    if (notifications == null) LibUtils.logAndThrowNullParmException(opName, "notifications");
+    if (events.isEmpty()) return true;
+
+    // Only events with notifications need to be stored. An event may appear more than once, e.g. redelivered by
+    //   the message broker, so key by uuid.
+    var eventUuids = new HashSet<UUID>();
+    for (Notification n : notifications) eventUuids.add(n.getEventUuid());
+    var eventsToStore = new LinkedHashMap<UUID, Event>();
+    for (Event e : events) if (eventUuids.contains(e.getUuid())) eventsToStore.putIfAbsent(e.getUuid(), e);
+    UUID lastEventUUID = events.get(events.size() - 1).getUuid();
+    LocalDateTime now = TapisUtils.getUTCTimeNow();
 
     // ------------------------- Call SQL ----------------------------
     Connection conn = null;
@@ -1282,37 +1674,65 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
 
-      // Create template for inserts
-      BatchBindStep batch = db.batch(db.insertInto(NOTIFICATIONS,
-              NOTIFICATIONS.UUID,
-              NOTIFICATIONS.SUBSCR_SEQ_ID,
-              NOTIFICATIONS.TENANT,
-              NOTIFICATIONS.SUBSCR_NAME,
-              NOTIFICATIONS.BUCKET_NUMBER,
-              NOTIFICATIONS.EVENT_UUID,
-              NOTIFICATIONS.EVENT,
-              NOTIFICATIONS.CREATED,
-              NOTIFICATIONS.DELIVERY_METHOD,
-              NOTIFICATIONS.DELIVERY_ADDRESS).values((UUID) null, null, null, null, null, null, null, null, null, null));
-
-      // Put together all the records we will be inserting.
-      for (Notification n : notifications)
+      // Store the events. If already stored, e.g. an event is being re-processed, mark it as in use so the
+      //   event sweeper leaves it alone.
+      if (!eventsToStore.isEmpty())
       {
-        DeliveryTarget dm =  n.getDeliveryTarget();
-        batch.bind(n.getUuid(), n.getSubscrSeqId(), tenant, n.getSubscriptionName(), bucketNum, eventUUID, eventJson,
-                   n.getCreated(), dm.getDeliveryMethod().name(), dm.getDeliveryAddress());
+        var insertEvents = db.insertInto(EVENTS, EVENTS.EVENT_UUID, EVENTS.TENANT, EVENTS.EVENT, EVENTS.CREATED,
+                                         EVENTS.UPDATED);
+        for (Event e : eventsToStore.values())
+        {
+          insertEvents = insertEvents.values(e.getUuid(), e.getTenant(), TapisGsonUtils.getGson().toJsonTree(e),
+                                             now, now);
+        }
+        insertEvents.onConflict(EVENTS.EVENT_UUID).doUpdate().set(EVENTS.UPDATED, now).execute();
       }
 
-      // Now execute the final batch statement
-      batch.execute();
+      // Create template for inserts
+      if (!notifications.isEmpty())
+      {
+        BatchBindStep batch = db.batch(db.insertInto(NOTIFICATIONS,
+                NOTIFICATIONS.UUID,
+                NOTIFICATIONS.SUBSCR_SEQ_ID,
+                NOTIFICATIONS.TENANT,
+                NOTIFICATIONS.SUBSCR_NAME,
+                NOTIFICATIONS.BUCKET_NUMBER,
+                NOTIFICATIONS.EVENT_UUID,
+                NOTIFICATIONS.CREATED,
+                NOTIFICATIONS.DELIVERY_METHOD,
+                NOTIFICATIONS.DELIVERY_ADDRESS,
+                NOTIFICATIONS.VBUCKET).values((UUID) null, null, null, null, null, null, null, null, null, null));
+
+        // Put together all the records we will be inserting.
+        for (Notification n : notifications)
+        {
+          DeliveryTarget dm =  n.getDeliveryTarget();
+          batch.bind(n.getUuid(), n.getSubscrSeqId(), n.getTenant(), n.getSubscriptionName(), bucketNum,
+                     n.getEventUuid(), n.getCreated(), dm.getDeliveryMethod().name(), dm.getDeliveryAddress(),
+                     EventSeriesKey.of(n.getEvent()).virtualBucket());
+        }
+
+        // Now execute the final batch statement
+        batch.execute();
+      }
 
       // Update/create row in last_event table
-      db.insertInto(NOTIFICATIONS_LAST_EVENT).values(bucketNum, eventUUID).onDuplicateKeyUpdate()
-              .set(NOTIFICATIONS_LAST_EVENT.EVENT_UUID, eventUUID)
+      db.insertInto(NOTIFICATIONS_LAST_EVENT).values(bucketNum, lastEventUUID).onDuplicateKeyUpdate()
+              .set(NOTIFICATIONS_LAST_EVENT.EVENT_UUID, lastEventUUID)
               .execute();
 
+      // Replace rows in last_batch table with the events in this batch
+      db.deleteFrom(NOTIFICATIONS_LAST_BATCH).where(NOTIFICATIONS_LAST_BATCH.BUCKET_NUMBER.eq(bucketNum)).execute();
+      var insertBatch = db.insertInto(NOTIFICATIONS_LAST_BATCH, NOTIFICATIONS_LAST_BATCH.BUCKET_NUMBER,
+                                      NOTIFICATIONS_LAST_BATCH.EVENT_UUID);
+      for (Event e : events) insertBatch = insertBatch.values(bucketNum, e.getUuid());
+      insertBatch.onConflictDoNothing().execute();
+
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+
+      // Notifications for the events are read back for delivery right away
+      for (Event e : eventsToStore.values()) EventCache.getInstance().put(e);
     }
     catch (Exception e)
     {
@@ -1351,16 +1771,14 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
 
-      Result<NotificationsRecord> results = db.selectFrom(NOTIFICATIONS)
-                       .where(NOTIFICATIONS.TENANT.eq(tenant),
-                              NOTIFICATIONS.BUCKET_NUMBER.eq(bucketNum),
-                              NOTIFICATIONS.EVENT_UUID.eq(event.getUuid()))
-                       .orderBy(NOTIFICATIONS.SEQ_ID)
-                       .fetch();
+      Result<NotificationsRecord> results =
+              notificationsForEventQuery(db, tenant, bucketNum, event.getUuid()).fetch();
 
       if (results == null || results.isEmpty()) return retList;
 
-      for (Record r : results) { retList.add(getNotificationFromRecord(r)); }
+      // All notifications reference the event we were given
+      Map<UUID, Event> events = Map.of(event.getUuid(), event);
+      for (Record r : results) { retList.add(getNotificationFromRecord(r, events)); }
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -1399,14 +1817,12 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
 
-      Result<NotificationsRecord> results = db.selectFrom(NOTIFICATIONS)
-              .where(NOTIFICATIONS.BUCKET_NUMBER.eq(bucketNum))
-              .orderBy(NOTIFICATIONS.SEQ_ID)
-              .fetch();
+      Result<NotificationsRecord> results = notificationsForBucketQuery(db, bucketNum).fetch();
 
       if (results == null || results.isEmpty()) return retList;
 
-      for (Record r : results) { retList.add(getNotificationFromRecord(r)); }
+      Map<UUID, Event> events = getEvents(db, results, NOTIFICATIONS.EVENT_UUID, NOTIFICATIONS.EVENT);
+      for (Record r : results) { retList.add(getNotificationFromRecord(r, events)); }
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -1424,17 +1840,18 @@ public class NotificationsDaoImpl implements NotificationsDao
     return retList;
   }
   /**
-   * checkForLastEvent
-   * @param eventUuid -
-   * @param bucketNum -
-   * @return true if found else false
+   * Get UUIDs of all events in the last batch persisted by the bucket manager.
+   * The events in a batch are acked after the transaction commits. If the bucket manager stops in between, all
+   *   of them are redelivered, and these are the ones it must not process again.
+   * @param bucketNum - bucket manager
+   * @return set of uuids, empty if the bucket has not persisted any notifications
    * @throws TapisException - on error
    */
   @Override
-  public boolean checkForLastEvent(UUID eventUuid, int bucketNum) throws TapisException
+  public Set<UUID> getLastBatchEventUUIDs(int bucketNum) throws TapisException
   {
     // Initialize result.
-    boolean result = false;
+    var result = new HashSet<UUID>();
 
     // ------------------------- Call SQL ----------------------------
     Connection conn = null;
@@ -1444,15 +1861,16 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
       // Run the sql
-      result = db.fetchExists(NOTIFICATIONS_LAST_EVENT,NOTIFICATIONS_LAST_EVENT.BUCKET_NUMBER.eq(bucketNum),
-                              NOTIFICATIONS_LAST_EVENT.EVENT_UUID.eq(eventUuid));
+      result.addAll(db.select(NOTIFICATIONS_LAST_BATCH.EVENT_UUID).from(NOTIFICATIONS_LAST_BATCH)
+                      .where(NOTIFICATIONS_LAST_BATCH.BUCKET_NUMBER.eq(bucketNum))
+                      .fetch(NOTIFICATIONS_LAST_BATCH.EVENT_UUID));
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
     }
     catch (Exception e)
     {
       // Rollback transaction and throw an exception
-      LibUtils.rollbackDB(conn, e,"DB_SELECT_UUID_ERROR", "notifications_last_event", eventUuid, e.getMessage());
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "notifications_last_batch", e.getMessage());
     }
     finally
     {
@@ -1483,9 +1901,10 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
       NotificationsRecord r;
-      r = db.selectFrom(NOTIFICATIONS).where(NOTIFICATIONS.TENANT.eq(tenant),NOTIFICATIONS.UUID.eq(uuid)).fetchOne();
+      r = notificationByUuidQuery(db, tenant, uuid).fetchOne();
       if (r == null) return null;
-      else result = getNotificationFromRecord(r);
+      else result = getNotificationFromRecord(r, getEvents(db, List.of(r), NOTIFICATIONS.EVENT_UUID,
+                                                           NOTIFICATIONS.EVENT));
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -1515,8 +1934,6 @@ public class NotificationsDaoImpl implements NotificationsDao
     if (StringUtils.isBlank(tenant)) LibUtils.logAndThrowNullParmException(opName, "tenant");
     if (notification == null) LibUtils.logAndThrowNullParmException(opName, "notification");
 
-    JsonElement eventJson = TapisGsonUtils.getGson().toJsonTree(notification.getEvent());
-
     // ------------------------- Call SQL ----------------------------
     Connection conn = null;
     try
@@ -1530,8 +1947,12 @@ public class NotificationsDaoImpl implements NotificationsDao
               .execute();
 
       // Add it to the recovery table initializing recovery attempts to 0
+      // The event stays in the events table and is referenced by uuid
+      // First recovery attempt is due after the recovery retry interval
       // Let created and updated default to now()
       // Insert the record
+      LocalDateTime nextAttemptAt =
+              TapisUtils.getUTCTimeNow().plusMinutes(RuntimeParameters.getInstance().getNtfDeliveryRecoveryRetryInterval());
       db.insertInto(NOTIFICATIONS_RECOVERY)
               .set(NOTIFICATIONS_RECOVERY.UUID, notification.getUuid())
               .set(NOTIFICATIONS_RECOVERY.SUBSCR_SEQ_ID, notification.getSubscrSeqId())
@@ -1539,10 +1960,11 @@ public class NotificationsDaoImpl implements NotificationsDao
               .set(NOTIFICATIONS_RECOVERY.SUBSCR_NAME, notification.getSubscriptionName())
               .set(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, notification.getBucketNum())
               .set(NOTIFICATIONS_RECOVERY.EVENT_UUID, notification.getEvent().getUuid())
-              .set(NOTIFICATIONS_RECOVERY.EVENT, eventJson)
               .set(NOTIFICATIONS_RECOVERY.DELIVERY_METHOD, notification.getDeliveryTarget().getDeliveryMethod().name())
               .set(NOTIFICATIONS_RECOVERY.DELIVERY_ADDRESS,notification.getDeliveryTarget().getDeliveryAddress())
               .set(NOTIFICATIONS_RECOVERY.ATTEMPT_COUNT, 0)
+              .set(NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT, nextAttemptAt)
+              .set(NOTIFICATIONS_RECOVERY.VBUCKET, EventSeriesKey.of(notification.getEvent()).virtualBucket())
               .execute();
 
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -1558,29 +1980,32 @@ public class NotificationsDaoImpl implements NotificationsDao
   }
 
   /**
-   * Delete notifications from the main NOTIFICATIONS table
-   * Entries are considered matching based on (eventUuid, deliveryTarget)
+   * Delete notifications from the main NOTIFICATIONS table by uuid in a single transaction.
+   * Used to remove delivered notifications in batches. One statement per tenant using uuid = ANY(?)
+   * @param uuidsByTenant - uuids of notifications to delete keyed by tenant
+   * @return number of notifications deleted
+   * @throws TapisException on error
    */
   @Override
-  public void deleteNotificationsByDeliveryTarget(String tenant, Notification notification) throws TapisException
+  public int deleteNotificationsByUuid(Map<String, ? extends Collection<UUID>> uuidsByTenant) throws TapisException
   {
-    String opName = "deleteNotification";
+    String opName = "deleteNotificationsByUuid";
     // ------------------------- Check Input -------------------------
-    if (StringUtils.isBlank(tenant)) LibUtils.logAndThrowNullParmException(opName, "tenant");
-    if (notification == null) LibUtils.logAndThrowNullParmException(opName, "notification");
+    if (uuidsByTenant == null) LibUtils.logAndThrowNullParmException(opName, "uuidsByTenant");
+    if (uuidsByTenant.isEmpty()) return 0;
 
     // ------------------------- Call SQL ----------------------------
+    int numDeleted = 0;
     Connection conn = null;
     try
     {
       conn = getConnection();
       DSLContext db = DSL.using(conn);
-      db.deleteFrom(NOTIFICATIONS)
-            .where(NOTIFICATIONS.TENANT.eq(tenant),
-                   NOTIFICATIONS.EVENT_UUID.eq(notification.getEventUuid()),
-                   NOTIFICATIONS.DELIVERY_METHOD.eq(notification.getDeliveryTarget().getDeliveryMethod().name()),
-                   NOTIFICATIONS.DELIVERY_ADDRESS.eq(notification.getDeliveryTarget().getDeliveryAddress()))
-            .execute();
+      for (var entry : uuidsByTenant.entrySet())
+      {
+        if (entry.getValue() == null || entry.getValue().isEmpty()) continue;
+        numDeleted += deleteNotificationsByUuidQuery(db, entry.getKey(), entry.getValue()).execute();
+      }
       LibUtils.closeAndCommitDB(conn, null, null);
     }
     catch (Exception e)
@@ -1591,6 +2016,7 @@ public class NotificationsDaoImpl implements NotificationsDao
     {
       LibUtils.finalCloseDB(conn);
     }
+    return numDeleted;
   }
 
   /**
@@ -1655,15 +2081,13 @@ public class NotificationsDaoImpl implements NotificationsDao
       conn = getConnection();
       DSLContext db = DSL.using(conn);
 
-      Result<NotificationsRecoveryRecord> results =
-              db.selectFrom(NOTIFICATIONS_RECOVERY)
-                      .where(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER.eq(bucketNum))
-                      .orderBy(NOTIFICATIONS_RECOVERY.SEQ_ID)
-                      .fetch();
+      Result<NotificationsRecoveryRecord> results = notificationsInRecoveryQuery(db, bucketNum).fetch();
 
       if (results == null || results.isEmpty()) return retList;
 
-      for (Record r : results) { retList.add(getNotificationFromRecoveryRecord(r)); }
+      Map<UUID, Event> events = getEvents(db, results, NOTIFICATIONS_RECOVERY.EVENT_UUID,
+                                          NOTIFICATIONS_RECOVERY.EVENT);
+      for (Record r : results) { retList.add(getNotificationFromRecoveryRecord(r, events)); }
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
@@ -1697,9 +2121,7 @@ public class NotificationsDaoImpl implements NotificationsDao
     {
       conn = getConnection();
       DSLContext db = DSL.using(conn);
-      db.deleteFrom(NOTIFICATIONS_RECOVERY)
-              .where(NOTIFICATIONS_RECOVERY.UUID.eq(notification.getUuid()))
-              .execute();
+      deleteNotificationFromRecoveryQuery(db, notification.getUuid()).execute();
       LibUtils.closeAndCommitDB(conn, null, null);
     }
     catch (Exception e)
@@ -1713,53 +2135,75 @@ public class NotificationsDaoImpl implements NotificationsDao
   }
 
   /**
-   * Get attempt count for a notification in the recovery table
-   * @param notification - the notification
-   * @return the number of attempts so far
-   * @throws TapisException on error
+   * Claim a page of notifications in recovery that are due for an attempt.
+   * Due rows are selected with FOR UPDATE SKIP LOCKED and their next attempt time is moved to leaseUntil in the
+   *   same statement, so concurrent callers never claim the same row. If the caller does not record an outcome
+   *   before the lease expires the row becomes due again.
+   *
+   * @param bucketNum - Bucket associated with the notifications
+   * @param limit - max number of notifications to claim
+   * @param leaseUntil - time when claimed notifications become due again if no outcome is recorded
+   * @return - list of claimed notifications in the order they were added to recovery
+   * @throws TapisException - on error
    */
-  public int getNotificationRecoveryAttemptCount(Notification notification) throws TapisException
+  @Override
+  public List<NotificationRecoveryRecord> claimDueNotificationsInRecovery(int bucketNum, int limit,
+                                                                          Instant leaseUntil)
+          throws TapisException
   {
-    Integer attemptCount = null;
-    // ------------------------- Call SQL ----------------------------
+    // The result list should always be non-null.
+    List<NotificationRecoveryRecord> retList = new ArrayList<>();
+    if (limit < 1) return retList;
+
+    // ------------------------- Build and execute SQL ----------------------------
     Connection conn = null;
     try
     {
       // Get a database connection.
       conn = getConnection();
       DSLContext db = DSL.using(conn);
-      attemptCount = db.selectFrom(NOTIFICATIONS_RECOVERY)
-                       .where(NOTIFICATIONS_RECOVERY.UUID.eq(notification.getUuid()))
-                       .fetchOne(NOTIFICATIONS_RECOVERY.ATTEMPT_COUNT);
+
+      // Due rows for the bucket, skipping any claimed by another transaction
+      var dueRows = dueRecoveryRowsQuery(db, bucketNum, TapisUtils.getUTCTimeNow(), limit);
+      Result<NotificationsRecoveryRecord> results =
+              db.update(NOTIFICATIONS_RECOVERY)
+                      .set(NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT, LocalDateTime.ofInstant(leaseUntil, ZoneOffset.UTC))
+                      .where(NOTIFICATIONS_RECOVERY.SEQ_ID.in(dueRows))
+                      .returning()
+                      .fetch();
+
+      Map<UUID, Event> events = getEvents(db, results, NOTIFICATIONS_RECOVERY.EVENT_UUID,
+                                          NOTIFICATIONS_RECOVERY.EVENT);
 
       // Close out and commit
       LibUtils.closeAndCommitDB(conn, null, null);
+
+      // Returned rows are in no particular order
+      for (NotificationsRecoveryRecord r : results.sortAsc(NOTIFICATIONS_RECOVERY.SEQ_ID))
+      {
+        retList.add(getRecoveryRecordFromRecord(r, events));
+      }
     }
     catch (Exception e)
     {
       // Rollback transaction and throw an exception
-      LibUtils.rollbackDB(conn, e, "NTFLIB_DB_SELECT_ERROR", "Notifications_Recovery", "N/A", "<recoveryAttempt>",
-                          e.getMessage());
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "notifications_recovery", e.getMessage());
     }
     finally
     {
       // Always return the connection back to the connection pool.
       LibUtils.finalCloseDB(conn);
     }
-    if (attemptCount == null)
-    {
-      String msg = LibUtils.getMsg("NTFLIB_DB_SELECT_ERROR", "Notifications_Recovery", "N/A", "<recoveryAttempt>",
-                                   "null result");
-      throw new TapisException(msg);
-    }
-    return attemptCount;
+    return retList;
   }
 
   /**
-   * Update attempt count for a notification in recovery
+   * Record a recovery attempt for a notification that remains in recovery, setting the attempt count and
+   *   when the next attempt is due in a single statement.
    */
   @Override
-  public void setNotificationRecoveryAttemptCount(Notification notification, int attemptCount) throws TapisException
+  public void updateNotificationRecoveryAttempt(Notification notification, int attemptCount, Instant nextAttemptAt)
+          throws TapisException
   {
     // ------------------------- Call SQL ----------------------------
     Connection conn = null;
@@ -1767,8 +2211,12 @@ public class NotificationsDaoImpl implements NotificationsDao
     {
       conn = getConnection();
       DSLContext db = DSL.using(conn);
+      LocalDateTime now = TapisUtils.getUTCTimeNow();
       db.update(NOTIFICATIONS_RECOVERY)
               .set(NOTIFICATIONS_RECOVERY.ATTEMPT_COUNT, attemptCount)
+              .set(NOTIFICATIONS_RECOVERY.LAST_ATTEMPT, now)
+              .set(NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT, LocalDateTime.ofInstant(nextAttemptAt, ZoneOffset.UTC))
+              .set(NOTIFICATIONS_RECOVERY.UPDATED, now)
               .where(NOTIFICATIONS_RECOVERY.UUID.eq(notification.getUuid())).execute();
       LibUtils.closeAndCommitDB(conn, null, null);
     }
@@ -1783,15 +2231,339 @@ public class NotificationsDaoImpl implements NotificationsDao
   }
 
   // -----------------------------------------------------------------------
-  // ------------------------- Test Sequences ------------------------------
+  // ------------------------- Leases --------------------------------------
   // -----------------------------------------------------------------------
 
   /**
-   * Create a test sequence record
-   * NOTE: For a test sequence oboUser is always the owner of the subscription.
-   *
-   * @param rUser - ResourceRequestUser containing tenant, user and request info
-   * @param name - name of the subscription
+   * Acquire or renew leases for a dispatcher.
+   * A lease is acquired if no one holds it, renewed if owner already holds it and taken over if it has expired.
+   * Times come from the DB clock, so dispatchers agree on when a lease has expired regardless of their own clocks.
+   * @param owner - dispatcher acquiring the leases
+   * @param names - names of the leases
+   * @param ttlSeconds - number of seconds until the leases expire unless renewed
+   * @return names of the leases now held by owner
+   * @throws TapisException - on error
+   */
+  @Override
+  public Set<String> acquireLeases(String owner, Collection<String> names, int ttlSeconds) throws TapisException
+  {
+    var heldNames = new HashSet<String>();
+    if (names == null || names.isEmpty()) return heldNames;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      Field<LocalDateTime> expires = DSL.localDateTimeAdd(DB_NOW_UTC, ttlSeconds, DatePart.SECOND);
+      var insert = db.insertInto(NOTIFICATIONS_LEASES, NOTIFICATIONS_LEASES.NAME, NOTIFICATIONS_LEASES.OWNER,
+                                 NOTIFICATIONS_LEASES.EXPIRES, NOTIFICATIONS_LEASES.ACQUIRED);
+      // Rows are locked in name order so that dispatchers acquiring the same leases do not deadlock
+      for (String name : new TreeSet<>(names))
+      {
+        insert = insert.values(DSL.val(name), DSL.val(owner), expires, DB_NOW_UTC);
+      }
+      Result<Record1<String>> result =
+              insert.onConflict(NOTIFICATIONS_LEASES.NAME)
+                    .doUpdate()
+                      .set(NOTIFICATIONS_LEASES.OWNER, DSL.excluded(NOTIFICATIONS_LEASES.OWNER))
+                      .set(NOTIFICATIONS_LEASES.EXPIRES, DSL.excluded(NOTIFICATIONS_LEASES.EXPIRES))
+                      // A renewal keeps the time the lease was acquired
+                      .set(NOTIFICATIONS_LEASES.ACQUIRED,
+                           DSL.when(NOTIFICATIONS_LEASES.OWNER.eq(owner), NOTIFICATIONS_LEASES.ACQUIRED)
+                              .otherwise(DSL.excluded(NOTIFICATIONS_LEASES.ACQUIRED)))
+                      .where(NOTIFICATIONS_LEASES.OWNER.eq(owner).or(NOTIFICATIONS_LEASES.EXPIRES.le(DB_NOW_UTC)))
+                    .returningResult(NOTIFICATIONS_LEASES.NAME)
+                    .fetch();
+      for (Record1<String> r : result) heldNames.add(r.value1());
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_UPDATE_FAILURE", "notifications_leases", owner);
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return heldNames;
+  }
+
+  /**
+   * Release leases held by a dispatcher, so that other dispatchers may acquire them right away.
+   * Leases not held by owner are left alone.
+   * @param owner - dispatcher releasing the leases
+   * @param names - names of the leases
+   * @return number of leases released
+   * @throws TapisException - on error
+   */
+  @Override
+  public int releaseLeases(String owner, Collection<String> names) throws TapisException
+  {
+    if (names == null || names.isEmpty()) return 0;
+    int numDeleted = 0;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      numDeleted = db.deleteFrom(NOTIFICATIONS_LEASES)
+                     .where(NOTIFICATIONS_LEASES.OWNER.eq(owner), NOTIFICATIONS_LEASES.NAME.in(names))
+                     .execute();
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_DELETE_FAILURE", "notifications_leases");
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return numDeleted;
+  }
+
+  /**
+   * Get the owner of each lease that has not expired
+   * @return map of lease name to owner
+   * @throws TapisException - on error
+   */
+  @Override
+  public Map<String, String> getLeaseOwners() throws TapisException
+  {
+    var owners = new HashMap<String, String>();
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      db.select(NOTIFICATIONS_LEASES.NAME, NOTIFICATIONS_LEASES.OWNER).from(NOTIFICATIONS_LEASES)
+        .where(NOTIFICATIONS_LEASES.EXPIRES.gt(DB_NOW_UTC))
+        .fetch()
+        .forEach(r -> owners.put(r.value1(), r.value2()));
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "notifications_leases", e.getMessage());
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return owners;
+  }
+
+  /**
+   * Delete expired leases, e.g. the membership leases of dispatchers that have stopped.
+   * An expired lease is free to be acquired, so removing it changes nothing else.
+   * @return number of leases deleted
+   * @throws TapisException - on error
+   */
+  @Override
+  public int deleteExpiredLeases() throws TapisException
+  {
+    int numDeleted = 0;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      numDeleted = db.deleteFrom(NOTIFICATIONS_LEASES).where(NOTIFICATIONS_LEASES.EXPIRES.le(DB_NOW_UTC)).execute();
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_DELETE_FAILURE", "notifications_leases");
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return numDeleted;
+  }
+
+  // -----------------------------------------------------------------------
+  // ------------------------- Virtual Buckets -----------------------------
+  // -----------------------------------------------------------------------
+
+  /**
+   * Get the assignment of all virtual buckets to buckets, including any moves in progress
+   * @return - list of virtual buckets ordered by virtual bucket
+   * @throws TapisException - on error
+   */
+  @Override
+  public List<VirtualBucket> getVirtualBuckets() throws TapisException
+  {
+    List<VirtualBucket> retList = new ArrayList<>();
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      Result<NotificationsVbucketsRecord> results =
+              db.selectFrom(NOTIFICATIONS_VBUCKETS).orderBy(NOTIFICATIONS_VBUCKETS.VBUCKET).fetch();
+      for (NotificationsVbucketsRecord r : results) retList.add(getVirtualBucketFromRecord(r));
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "notifications_vbuckets", e.getMessage());
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return retList;
+  }
+
+  /**
+   * Get the assignment of a virtual bucket
+   * @param vbucket - virtual bucket
+   * @return - virtual bucket or null if not found
+   * @throws TapisException - on error
+   */
+  @Override
+  public VirtualBucket getVirtualBucket(int vbucket) throws TapisException
+  {
+    VirtualBucket result = null;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      NotificationsVbucketsRecord r =
+              db.selectFrom(NOTIFICATIONS_VBUCKETS).where(NOTIFICATIONS_VBUCKETS.VBUCKET.eq(vbucket)).fetchOne();
+      if (r != null) result = getVirtualBucketFromRecord(r);
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_QUERY_ERROR", "notifications_vbuckets", e.getMessage());
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return result;
+  }
+
+  /**
+   * Record that a virtual bucket is being moved to another bucket.
+   * The move is completed by moveVirtualBucket once the virtual bucket has been drained from its current bucket.
+   * @param vbucket - virtual bucket
+   * @param fromBucket - bucket currently processing the virtual bucket
+   * @param toBucket - bucket the virtual bucket is moving to
+   * @return true if recorded, false if the virtual bucket is not in fromBucket or is already being moved
+   * @throws TapisException - on error
+   */
+  @Override
+  public boolean startVirtualBucketMove(int vbucket, int fromBucket, int toBucket) throws TapisException
+  {
+    int numUpdated = 0;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      numUpdated = db.update(NOTIFICATIONS_VBUCKETS)
+                     .set(NOTIFICATIONS_VBUCKETS.TARGET_BUCKET, toBucket)
+                     .set(NOTIFICATIONS_VBUCKETS.UPDATED, DB_NOW_UTC)
+                     .where(NOTIFICATIONS_VBUCKETS.VBUCKET.eq(vbucket),
+                            NOTIFICATIONS_VBUCKETS.BUCKET_NUMBER.eq(fromBucket),
+                            NOTIFICATIONS_VBUCKETS.TARGET_BUCKET.isNull())
+                     .execute();
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_UPDATE_FAILURE", "notifications_vbuckets", vbucket);
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return numUpdated == 1;
+  }
+
+  /**
+   * Complete the move of a virtual bucket to another bucket.
+   * Called by the manager for fromBucket once it has processed all events in the virtual bucket handed to it.
+   * In a single transaction, moves the notifications and notifications in recovery for events in the virtual bucket
+   *   and assigns the virtual bucket to toBucket.
+   * The last event for fromBucket is not moved. It is only used to skip an event redelivered after a crash, and the
+   *   bucket manager acks its events before calling this, so no event in the virtual bucket can be redelivered to it.
+   * Rows are selected by the virtual bucket stored with them. Rows written before it was stored are given one from
+   *   their event the first time a virtual bucket is moved out of their bucket. Rows whose event can no longer be
+   *   found are left in fromBucket.
+   * @param vbucket - virtual bucket
+   * @param fromBucket - bucket currently processing the virtual bucket
+   * @param toBucket - bucket the virtual bucket is moving to
+   * @return true if moved, false if no such move is in progress, e.g. it has already been completed
+   * @throws TapisException - on error
+   */
+  @Override
+  public boolean moveVirtualBucket(int vbucket, int fromBucket, int toBucket) throws TapisException
+  {
+    boolean moved = false;
+    // ------------------------- Call SQL ----------------------------
+    Connection conn = null;
+    try
+    {
+      conn = getConnection();
+      DSLContext db = DSL.using(conn);
+      // Lock the assignment, so the move is only done once
+      NotificationsVbucketsRecord r = db.selectFrom(NOTIFICATIONS_VBUCKETS)
+                                        .where(NOTIFICATIONS_VBUCKETS.VBUCKET.eq(vbucket))
+                                        .forUpdate()
+                                        .fetchOne();
+      if (r != null && r.getBucketNumber() == fromBucket && Objects.equals(r.getTargetBucket(), toBucket))
+      {
+        // Rows written before the virtual bucket was recorded with them are given one first
+        setMissingVirtualBuckets(db, NOTIFICATIONS, fromBucket, NOTIFICATIONS.SEQ_ID, NOTIFICATIONS.EVENT_UUID,
+                                 NOTIFICATIONS.EVENT, NOTIFICATIONS.BUCKET_NUMBER, NOTIFICATIONS.VBUCKET);
+        setMissingVirtualBuckets(db, NOTIFICATIONS_RECOVERY, fromBucket, NOTIFICATIONS_RECOVERY.SEQ_ID,
+                                 NOTIFICATIONS_RECOVERY.EVENT_UUID, NOTIFICATIONS_RECOVERY.EVENT,
+                                 NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, NOTIFICATIONS_RECOVERY.VBUCKET);
+        moveVirtualBucketNotificationsQuery(db, vbucket, fromBucket, toBucket).execute();
+        moveVirtualBucketRecoveryQuery(db, vbucket, fromBucket, toBucket).execute();
+        db.update(NOTIFICATIONS_VBUCKETS)
+          .set(NOTIFICATIONS_VBUCKETS.BUCKET_NUMBER, toBucket)
+          .setNull(NOTIFICATIONS_VBUCKETS.TARGET_BUCKET)
+          .set(NOTIFICATIONS_VBUCKETS.UPDATED, DB_NOW_UTC)
+          .where(NOTIFICATIONS_VBUCKETS.VBUCKET.eq(vbucket))
+          .execute();
+        moved = true;
+      }
+      LibUtils.closeAndCommitDB(conn, null, null);
+    }
+    catch (Exception e)
+    {
+      LibUtils.rollbackDB(conn, e,"DB_UPDATE_FAILURE", "notifications_vbuckets", vbucket);
+    }
+    finally
+    {
+      LibUtils.finalCloseDB(conn);
+    }
+    return moved;
+  }
+
+  // -----------------------------------------------------------------------
+  // ------------------------- Test Sequences ------------------------------
+  // -----------------------------------------------------------------------
+
+  /**
+   * Create a test sequence record
+   * NOTE: For a test sequence oboUser is always the owner of the subscription.
+   *
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param name - name of the subscription
    * @param startCount - number events sent as part of beginTestSequence
    * @return true if created, false if subscription does not exist
    * @throws IllegalStateException - if resource already exists
@@ -1990,6 +2762,188 @@ public class NotificationsDaoImpl implements NotificationsDao
     return result;
   }
 
+  /* ********************************************************************** */
+  /*                             Query Builders                             */
+  /* ********************************************************************** */
+  // Hot path queries are built here so that QueryPlanTest checks the plans of the same queries the DAO runs.
+
+  /*
+   * Enabled subscriptions whose filters match an event, given the parts of the event type and the subject.
+   * WHERE tenant = '<tenant>' AND enabled
+   *    AND type_filter1 IN ('<typeFilter1>', '*')
+   *    AND type_filter2 IN ('<typeFilter2>', '*')
+   *    AND type_filter3 IN ('<typeFilter3>', '*')
+   *    AND subject_filter IN ('<subjectFilter>', '*')
+   * Use IN rather than OR so that every column is an index condition on the partial index subscr_enabled_filters_idx
+   */
+  static ResultQuery<SubscriptionsRecord> subscriptionsForEventQuery(DSLContext db, String tenant, String type1,
+                                                                     String type2, String type3, String subject)
+  {
+    String wildcard = Subscription.FILTER_WILDCARD;
+    return db.selectFrom(SUBSCRIPTIONS)
+             .where(SUBSCRIPTIONS.TENANT.eq(tenant).and(SUBSCRIPTIONS.ENABLED.eq(true))
+                    .and(SUBSCRIPTIONS.TYPE_FILTER1.in(type1, wildcard))
+                    .and(SUBSCRIPTIONS.TYPE_FILTER2.in(type2, wildcard))
+                    .and(SUBSCRIPTIONS.TYPE_FILTER3.in(type3, wildcard))
+                    .and(SUBSCRIPTIONS.SUBJECT_FILTER.in(subject, wildcard)));
+  }
+
+  /*
+   * Delete up to limit subscriptions whose expiry is before now, skipping locked rows.
+   * ctid = ANY(ARRAY(...)) rather than IN (...) so the rows are fetched directly using a TID scan
+   */
+  static Query deleteExpiredSubscriptionsQuery(DSLContext db, LocalDateTime now, int limit)
+  {
+    Field<Object> ctid = DSL.field(DSL.name("ctid"));
+    var expiredRows = db.select(ctid).from(SUBSCRIPTIONS)
+                        .where(SUBSCRIPTIONS.EXPIRY.lt(now))
+                        .limit(limit)
+                        .forUpdate().skipLocked();
+    return db.deleteFrom(SUBSCRIPTIONS).where(ctid.eq(DSL.any(DSL.array(expiredRows))));
+  }
+
+  /*
+   * Delete subscriptions with a subject filter, for one owner or any owner
+   */
+  static Query deleteSubscriptionsBySubjectQuery(DSLContext db, String tenant, String owner, String subject,
+                                                 boolean anyOwner)
+  {
+    Condition whereCondition;
+    if (anyOwner) whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant);
+    else whereCondition = SUBSCRIPTIONS.TENANT.eq(tenant).and(SUBSCRIPTIONS.OWNER.eq(owner));
+    whereCondition = whereCondition.and(SUBSCRIPTIONS.SUBJECT_FILTER.eq(subject));
+    return db.deleteFrom(SUBSCRIPTIONS).where(whereCondition);
+  }
+
+  static ResultQuery<SubscriptionsRecord> subscriptionByUuidQuery(DSLContext db, String tenant, UUID uuid)
+  {
+    return db.selectFrom(SUBSCRIPTIONS).where(SUBSCRIPTIONS.TENANT.eq(tenant), SUBSCRIPTIONS.UUID.eq(uuid));
+  }
+
+  /*
+   * One page of subscriptions matching a condition, in the given order with seq_id breaking ties, starting after
+   *   the cursor if there is one. One more than the limit is read to find out if there is another page.
+   *   A negative limit means no limit.
+   */
+  static ResultQuery<SubscriptionsRecord> streamSubscriptionsQuery(DSLContext db, Condition whereCondition,
+                                                                   List<OrderBy> orderByList, SubscriptionCursor after,
+                                                                   int limit)
+          throws TapisException
+  {
+    List<Field<?>> sortFields = getCursorSortFields(orderByList);
+    List<OrderField<?>> orderFieldList = new ArrayList<>();
+    for (int i = 0; i < sortFields.size(); i++)
+    {
+      if (orderByList.get(i).getOrderByDir() == OrderByDir.DESC) orderFieldList.add(sortFields.get(i).desc());
+      else orderFieldList.add(sortFields.get(i).asc());
+    }
+    // seq_id breaks ties, in the direction of the primary sort
+    boolean sortAsc = orderByList.get(0).getOrderByDir() != OrderByDir.DESC;
+    orderFieldList.add(sortAsc ? SUBSCRIPTIONS.SEQ_ID.asc() : SUBSCRIPTIONS.SEQ_ID.desc());
+
+    // Start after the cursor
+    if (after != null) whereCondition = whereCondition.and(getKeysetCondition(sortFields, orderByList, after));
+    var query = db.selectFrom(SUBSCRIPTIONS).where(whereCondition).orderBy(orderFieldList);
+    return (limit >= 0) ? query.limit(limit + 1) : query;
+  }
+
+  static ResultQuery<NotificationsRecord> notificationsForBucketQuery(DSLContext db, int bucketNum)
+  {
+    return db.selectFrom(NOTIFICATIONS).where(NOTIFICATIONS.BUCKET_NUMBER.eq(bucketNum)).orderBy(NOTIFICATIONS.SEQ_ID);
+  }
+
+  static ResultQuery<NotificationsRecord> notificationsForEventQuery(DSLContext db, String tenant, int bucketNum,
+                                                                     UUID eventUuid)
+  {
+    return db.selectFrom(NOTIFICATIONS)
+             .where(NOTIFICATIONS.TENANT.eq(tenant),
+                    NOTIFICATIONS.BUCKET_NUMBER.eq(bucketNum),
+                    NOTIFICATIONS.EVENT_UUID.eq(eventUuid))
+             .orderBy(NOTIFICATIONS.SEQ_ID);
+  }
+
+  static ResultQuery<NotificationsRecord> notificationByUuidQuery(DSLContext db, String tenant, UUID uuid)
+  {
+    return db.selectFrom(NOTIFICATIONS).where(NOTIFICATIONS.TENANT.eq(tenant), NOTIFICATIONS.UUID.eq(uuid));
+  }
+
+  /*
+   * Delete notifications in a tenant by uuid using uuid = ANY(?)
+   */
+  static Query deleteNotificationsByUuidQuery(DSLContext db, String tenant, Collection<UUID> uuids)
+  {
+    return db.deleteFrom(NOTIFICATIONS)
+             .where(NOTIFICATIONS.TENANT.eq(tenant), NOTIFICATIONS.UUID.eq(DSL.any(uuids.toArray(new UUID[0]))));
+  }
+
+  static ResultQuery<NotificationsRecoveryRecord> notificationsInRecoveryQuery(DSLContext db, int bucketNum)
+  {
+    return db.selectFrom(NOTIFICATIONS_RECOVERY)
+             .where(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER.eq(bucketNum))
+             .orderBy(NOTIFICATIONS_RECOVERY.SEQ_ID);
+  }
+
+  /*
+   * seq_id of up to limit notifications in recovery due for an attempt, oldest due first, skipping locked rows
+   */
+  static Select<Record1<Integer>> dueRecoveryRowsQuery(DSLContext db, int bucketNum, LocalDateTime now, int limit)
+  {
+    return db.select(NOTIFICATIONS_RECOVERY.SEQ_ID).from(NOTIFICATIONS_RECOVERY)
+             .where(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER.eq(bucketNum),
+                    NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT.le(now))
+             .orderBy(NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT, NOTIFICATIONS_RECOVERY.SEQ_ID)
+             .limit(limit)
+             .forUpdate().skipLocked();
+  }
+
+  static Query deleteNotificationFromRecoveryQuery(DSLContext db, UUID uuid)
+  {
+    return db.deleteFrom(NOTIFICATIONS_RECOVERY).where(NOTIFICATIONS_RECOVERY.UUID.eq(uuid));
+  }
+
+  /*
+   * Move the notifications for events in a virtual bucket to another bucket
+   */
+  static Query moveVirtualBucketNotificationsQuery(DSLContext db, int vbucket, int fromBucket, int toBucket)
+  {
+    return db.update(NOTIFICATIONS).set(NOTIFICATIONS.BUCKET_NUMBER, toBucket)
+             .where(NOTIFICATIONS.BUCKET_NUMBER.eq(fromBucket), NOTIFICATIONS.VBUCKET.eq(vbucket));
+  }
+
+  /*
+   * Move the notifications in recovery for events in a virtual bucket to another bucket
+   */
+  static Query moveVirtualBucketRecoveryQuery(DSLContext db, int vbucket, int fromBucket, int toBucket)
+  {
+    return db.update(NOTIFICATIONS_RECOVERY).set(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, toBucket)
+             .where(NOTIFICATIONS_RECOVERY.BUCKET_NUMBER.eq(fromBucket), NOTIFICATIONS_RECOVERY.VBUCKET.eq(vbucket));
+  }
+
+  static ResultQuery<EventsRecord> eventsQuery(DSLContext db, Collection<UUID> eventUuids)
+  {
+    return db.selectFrom(EVENTS).where(EVENTS.EVENT_UUID.in(eventUuids));
+  }
+
+  /*
+   * Delete up to limit stored events last persisted before olderThan that no notification or notification in
+   *   recovery refers to, skipping locked rows
+   */
+  static Query deleteUnreferencedEventsQuery(DSLContext db, LocalDateTime olderThan, int limit)
+  {
+    var unreferencedEvents =
+            db.select(EVENTS.EVENT_UUID).from(EVENTS)
+                    .where(EVENTS.UPDATED.lt(olderThan),
+                           DSL.notExists(db.selectOne().from(NOTIFICATIONS)
+                                   .where(NOTIFICATIONS.TENANT.eq(EVENTS.TENANT),
+                                          NOTIFICATIONS.EVENT_UUID.eq(EVENTS.EVENT_UUID))),
+                           DSL.notExists(db.selectOne().from(NOTIFICATIONS_RECOVERY)
+                                   .where(NOTIFICATIONS_RECOVERY.TENANT.eq(EVENTS.TENANT),
+                                          NOTIFICATIONS_RECOVERY.EVENT_UUID.eq(EVENTS.EVENT_UUID))))
+                    .limit(limit)
+                    .forUpdate().skipLocked();
+    return db.deleteFrom(EVENTS).where(EVENTS.EVENT_UUID.in(unreferencedEvents));
+  }
+
   /* ********************************************************************** */
   /*                             Private Methods                            */
   /* ********************************************************************** */
@@ -2345,6 +3299,120 @@ public class NotificationsDaoImpl implements NotificationsDao
     }
   }
 
+  /*
+   * Estimate the number of rows a query returns using the planner row estimate. Runs EXPLAIN, which does not
+   *   execute the query. The estimate is from table statistics so it may be off, e.g. for a recently changed table.
+   */
+  private static int estimateCount(DSLContext db, Select<?> select)
+  {
+    return (int) Math.min(Math.round(db.explain(select).rows()), Integer.MAX_VALUE);
+  }
+
+  /*
+   * Build the condition for rows after a cursor, i.e. rows that sort after the last row of the previous page.
+   * When all sort keys have the same direction use a row comparison, e.g. (created, name, seq_id) > (?, ?, ?),
+   *   which postgres can satisfy with an index range scan. Otherwise expand it to
+   *   (k1 > v1) OR (k1 = v1 AND k2 < v2) OR ...
+   */
+  private static Condition getKeysetCondition(List<Field<?>> sortFields, List<OrderBy> orderByList,
+                                              SubscriptionCursor after)
+          throws TapisException
+  {
+    // seq_id is the final key, in the direction of the primary sort
+    List<Field<?>> keys = new ArrayList<>(sortFields);
+    keys.add(SUBSCRIPTIONS.SEQ_ID);
+    List<Boolean> ascList = new ArrayList<>();
+    for (OrderBy orderBy : orderByList) ascList.add(orderBy.getOrderByDir() != OrderByDir.DESC);
+    ascList.add(ascList.get(0));
+
+    // Values of the keys for the last row, typed to match the columns
+    List<Field<?>> values = new ArrayList<>();
+    try
+    {
+      for (int i = 0; i < sortFields.size(); i++) values.add(getSortValue(sortFields.get(i), after.getValues().get(i)));
+    }
+    catch (RuntimeException e)
+    {
+      throw new TapisException(LibUtils.getMsg("NTFLIB_DB_CURSOR_VALUE", SUBSCRIPTIONS.getName(), e.getMessage()), e);
+    }
+    values.add(DSL.val(after.getSeqId(), SUBSCRIPTIONS.SEQ_ID));
+
+    if (!ascList.contains(!ascList.get(0)))
+    {
+      if (ascList.get(0)) return DSL.row(keys).gt(DSL.row(values));
+      else return DSL.row(keys).lt(DSL.row(values));
+    }
+    Condition keysetCondition = DSL.falseCondition();
+    Condition equalCondition = DSL.trueCondition();
+    for (int i = 0; i < keys.size(); i++)
+    {
+      Comparator comparator = ascList.get(i) ? Comparator.GREATER : Comparator.LESS;
+      keysetCondition = keysetCondition.or(equalCondition.and(compareKey(keys.get(i), comparator, values.get(i))));
+      equalCondition = equalCondition.and(compareKey(keys.get(i), Comparator.EQUALS, values.get(i)));
+    }
+    return keysetCondition;
+  }
+
+  /*
+   * Columns for a cursor sort order. Each must be a non-null column that can be compared.
+   */
+  private static List<Field<?>> getCursorSortFields(List<OrderBy> orderByList) throws TapisException
+  {
+    List<Field<?>> sortFields = new ArrayList<>();
+    for (OrderBy orderBy : orderByList)
+    {
+      String orderByStr = orderBy.getOrderByAttr();
+      Field<?> colOrderBy = StringUtils.isBlank(orderByStr) ? null :
+              SUBSCRIPTIONS.field(DSL.name(SearchUtils.camelCaseToSnakeCase(orderByStr)));
+      if (colOrderBy == null)
+      {
+        String msg = LibUtils.getMsg("NTFLIB_DB_NO_COLUMN_SORT", SUBSCRIPTIONS.getName(), DSL.name(orderByStr));
+        throw new TapisException(msg);
+      }
+      if (colOrderBy.getDataType().nullable() || colOrderBy.getType() == JsonElement.class)
+      {
+        throw new TapisException(LibUtils.getMsg("NTFLIB_DB_CURSOR_NO_SORT", SUBSCRIPTIONS.getName(), orderByStr));
+      }
+      sortFields.add(colOrderBy);
+    }
+    return sortFields;
+  }
+
+  /*
+   * Compare a sort key to a value created for it by getSortValue()
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> Condition compareKey(Field<T> key, Comparator comparator, Field<?> value)
+  {
+    return key.compare(comparator, (Field<T>) value);
+  }
+
+  /*
+   * Convert a sort value from a cursor to a bind value of the column type
+   */
+  private static Field<?> getSortValue(Field<?> field, String value)
+  {
+    Class<?> type = field.getType();
+    Object sortValue;
+    if (type == LocalDateTime.class) sortValue = LocalDateTime.parse(value);
+    else if (type == Integer.class) sortValue = Integer.valueOf(value);
+    else if (type == Boolean.class) sortValue = Boolean.valueOf(value);
+    else if (type == UUID.class) sortValue = UUID.fromString(value);
+    else sortValue = value;
+    return DSL.val(sortValue, field);
+  }
+
+  /*
+   * Create the cursor for the page that follows a record
+   */
+  private static SubscriptionCursor getSubscriptionCursor(SubscriptionsRecord r, List<Field<?>> sortFields,
+                                                          List<OrderBy> orderByList)
+  {
+    List<String> values = new ArrayList<>();
+    for (Field<?> field : sortFields) values.add(r.get(field).toString());
+    return new SubscriptionCursor(orderByList, values, r.get(SUBSCRIPTIONS.SEQ_ID));
+  }
+
   /*
    * Given a record from a select, create a subscription object
    */
@@ -2372,15 +3440,16 @@ public class NotificationsDaoImpl implements NotificationsDao
   /**
    * Given a record from a select, create a Notification object
    */
-  private static Notification getNotificationFromRecord(Record r)
+  private static Notification getNotificationFromRecord(Record r, Map<UUID, Event> events)
   {
     Notification ntf;
     // Convert LocalDateTime to Instant. Note that although "Local" is in the type, timestamps from the DB are in UTC.
     Instant created = r.get(NOTIFICATIONS.CREATED).toInstant(ZoneOffset.UTC);
 
-    // Convert JSONB columns to native types
-    JsonElement eventJson = r.get(NOTIFICATIONS.EVENT);
-    Event event = TapisGsonUtils.getGson().fromJson(eventJson, Event.class);
+    Event event = events.get(r.get(NOTIFICATIONS.EVENT_UUID));
+    if (event == null)
+      _log.warn(LibUtils.getMsg("NTFLIB_DB_EVENT_MISSING", "notifications", r.get(NOTIFICATIONS.UUID),
+                                r.get(NOTIFICATIONS.EVENT_UUID)));
 
     // Build a DeliveryTarget based on 2 columns
     DeliveryTarget dt = new DeliveryTarget(DeliveryMethod.valueOf(r.get(NOTIFICATIONS.DELIVERY_METHOD)),
@@ -2395,7 +3464,7 @@ public class NotificationsDaoImpl implements NotificationsDao
   /**
    * Given a recovery record from a select, create a Notification object
    */
-  private static Notification getNotificationFromRecoveryRecord(Record r)
+  private static Notification getNotificationFromRecoveryRecord(Record r, Map<UUID, Event> events)
   {
     Notification ntf;
     // Convert LocalDateTime to Instant. Note that although "Local" is in the type, timestamps from the DB are in UTC.
@@ -2405,9 +3474,10 @@ public class NotificationsDaoImpl implements NotificationsDao
     DeliveryTarget dt = new DeliveryTarget(DeliveryMethod.valueOf(r.get(NOTIFICATIONS_RECOVERY.DELIVERY_METHOD)),
                                            r.get(NOTIFICATIONS_RECOVERY.DELIVERY_ADDRESS));
 
-    // Convert JSONB columns to native types
-    JsonElement eventJson = r.get(NOTIFICATIONS_RECOVERY.EVENT);
-    Event event = TapisGsonUtils.getGson().fromJson(eventJson, Event.class);
+    Event event = events.get(r.get(NOTIFICATIONS_RECOVERY.EVENT_UUID));
+    if (event == null)
+      _log.warn(LibUtils.getMsg("NTFLIB_DB_EVENT_MISSING", "notifications_recovery", r.get(NOTIFICATIONS_RECOVERY.UUID),
+                                r.get(NOTIFICATIONS_RECOVERY.EVENT_UUID)));
 
     ntf = new Notification(r.get(NOTIFICATIONS_RECOVERY.UUID), r.get(NOTIFICATIONS_RECOVERY.SUBSCR_SEQ_ID),
             r.get(NOTIFICATIONS_RECOVERY.TENANT), r.get(NOTIFICATIONS_RECOVERY.SUBSCR_NAME),
@@ -2415,6 +3485,100 @@ public class NotificationsDaoImpl implements NotificationsDao
     return ntf;
   }
 
+  /**
+   * Given a recovery record, create a NotificationRecoveryRecord
+   */
+  private static NotificationRecoveryRecord getRecoveryRecordFromRecord(NotificationsRecoveryRecord r,
+                                                                       Map<UUID, Event> events)
+  {
+    return new NotificationRecoveryRecord(getNotificationFromRecoveryRecord(r, events), r.getAttemptCount(),
+                                          r.getLastAttempt().toInstant(ZoneOffset.UTC), null,
+                                          r.getCreated().toInstant(ZoneOffset.UTC),
+                                          r.getUpdated().toInstant(ZoneOffset.UTC));
+  }
+
+  /**
+   * Get the events referenced by notification records, keyed by event uuid.
+   * Events are taken from the event cache if present, the rest are fetched from the events table in one query.
+   * Rows written before events were stored separately carry the event in their own event column.
+   * @param db - jooq context
+   * @param records - notification or recovery records
+   * @param eventUuidField - event uuid column of the records
+   * @param eventField - event column of the records
+   * @return - events found
+   */
+  private static Map<UUID, Event> getEvents(DSLContext db, Collection<? extends Record> records,
+                                            Field<UUID> eventUuidField, Field<JsonElement> eventField)
+  {
+    EventCache eventCache = EventCache.getInstance();
+    Map<UUID, Event> events = new HashMap<>();
+    Set<UUID> eventUuidsToFetch = new HashSet<>();
+    for (Record r : records)
+    {
+      UUID eventUuid = r.get(eventUuidField);
+      if (events.containsKey(eventUuid) || eventUuidsToFetch.contains(eventUuid)) continue;
+      JsonElement eventJson = r.get(eventField);
+      Event event = (eventJson == null) ? eventCache.get(eventUuid)
+                                        : TapisGsonUtils.getGson().fromJson(eventJson, Event.class);
+      if (event == null) eventUuidsToFetch.add(eventUuid);
+      else events.put(eventUuid, event);
+    }
+    if (eventUuidsToFetch.isEmpty()) return events;
+
+    Result<EventsRecord> results = eventsQuery(db, eventUuidsToFetch).fetch();
+    for (EventsRecord r : results)
+    {
+      Event event = TapisGsonUtils.getGson().fromJson(r.getEvent(), Event.class);
+      events.put(r.getEventUuid(), event);
+      eventCache.put(event);
+    }
+    return events;
+  }
+
+  /**
+   * Set the virtual bucket of the rows in a bucket written before it was recorded with them.
+   * The virtual bucket is computed from the event of each row, so the rows are locked and checked in Java.
+   * Rows whose event can no longer be found are left without a virtual bucket.
+   * @param db - jooq context
+   * @param table - notifications or notifications_recovery
+   * @param bucketNum - bucket number
+   * @param seqIdField - seq_id column of the table
+   * @param eventUuidField - event uuid column of the table
+   * @param eventField - event column of the table
+   * @param bucketField - bucket_number column of the table
+   * @param vbucketField - vbucket column of the table
+   */
+  private static void setMissingVirtualBuckets(DSLContext db, Table<?> table, int bucketNum, Field<Integer> seqIdField,
+                                               Field<UUID> eventUuidField, Field<JsonElement> eventField,
+                                               Field<Integer> bucketField, Field<Integer> vbucketField)
+  {
+    Result<Record3<Integer, UUID, JsonElement>> records =
+            db.select(seqIdField, eventUuidField, eventField)
+              .from(table)
+              .where(bucketField.eq(bucketNum), vbucketField.isNull())
+              .forUpdate()
+              .fetch();
+    if (records.isEmpty()) return;
+    Map<UUID, Event> events = getEvents(db, records, eventUuidField, eventField);
+    var seqIdsByVbucket = new HashMap<Integer, List<Integer>>();
+    for (Record r : records)
+    {
+      Event event = events.get(r.get(eventUuidField));
+      if (event == null) continue;
+      seqIdsByVbucket.computeIfAbsent(EventSeriesKey.of(event).virtualBucket(), k -> new ArrayList<>())
+                     .add(r.get(seqIdField));
+    }
+    for (Map.Entry<Integer, List<Integer>> entry : seqIdsByVbucket.entrySet())
+    {
+      db.update(table).set(vbucketField, entry.getKey()).where(seqIdField.in(entry.getValue())).execute();
+    }
+  }
+
+  private static VirtualBucket getVirtualBucketFromRecord(NotificationsVbucketsRecord r)
+  {
+    return new VirtualBucket(r.getVbucket(), r.getBucketNumber(), r.getTargetBucket());
+  }
+
   /**
    * Given an sql connection check to see if specified TestSequence exists
    * @param db - jooq context
@@ -0,0 +1,169 @@
+package edu.utexas.tacc.tapis.notifications.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Small LRU cache of subscription search counts, used for searches with countStrategy=cached.
+ * UIs that poll a subscription list with computeTotal=true would otherwise run a full count on every request.
+ * Keyed by tenant, owner and a hash of the search predicate, i.e. the rendered where clause including search
+ *   conditions, startAfter and the list of names the requester may see.
+ * Entries expire after the TTL. All entries for a tenant are removed when this process changes a subscription in
+ *   the tenant. In the api, SubscriptionCountListener also removes them when a subscription in the tenant is
+ *   changed by another process, such as another api instance or the dispatcher's reaper. While the listener is
+ *   not connected such changes are seen within the TTL.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ * A size less than 1 disables the cache.
+ */
+public final class SubscriptionCountCache
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_SIZE = 1000;
+  public static final int DEFAULT_TTL = 30; // seconds
+
+  // Metric names
+  static final String METRIC_HITS = "ntf.subscrcount.hits";
+  static final String METRIC_MISSES = "ntf.subscrcount.misses";
+  static final String METRIC_SIZE = "ntf.subscrcount.size";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static SubscriptionCountCache instance;
+
+  private final int maxSize;
+  private final long ttlNanos;
+  // Guarded by this. Iteration order is least recently used first.
+  private final LinkedHashMap<Key, Entry> counts;
+  // Guarded by this. Incremented on each invalidation.
+  private long generation;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  SubscriptionCountCache(int maxSize1, long ttlSeconds)
+  {
+    maxSize = maxSize1;
+    ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, ttlSeconds));
+    counts = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) { return size() > maxSize; }
+    };
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static SubscriptionCountCache getInstance()
+  {
+    if (instance == null)
+    {
+      RuntimeParameters parms = RuntimeParameters.getInstance();
+      instance = new SubscriptionCountCache(parms.getNtfSubscrCountCacheSize(), parms.getNtfSubscrCountCacheTtl());
+      NtfMetrics.registerGauge(METRIC_SIZE, instance::size);
+    }
+    return instance;
+  }
+
+  /**
+   * Get a count
+   * @param tenant - tenant of the search
+   * @param owner - owner of the search
+   * @param predicate - rendered where clause of the search
+   * @return count or null if not cached or expired
+   */
+  public Integer get(String tenant, String owner, String predicate)
+  {
+    if (maxSize < 1) return null;
+    var key = new Key(tenant, owner, hash(predicate));
+    Entry entry;
+    synchronized (this) { entry = counts.get(key); }
+    if (entry == null || entry.expiresAtNanos() - System.nanoTime() <= 0)
+    {
+      NtfMetrics.increment(METRIC_MISSES);
+      return null;
+    }
+    NtfMetrics.increment(METRIC_HITS);
+    return entry.count();
+  }
+
+  /**
+   * Add a count
+   * @param tenant - tenant of the search
+   * @param owner - owner of the search
+   * @param predicate - rendered where clause of the search
+   * @param count - count of matching subscriptions
+   * @param generation - value of generation() read before counting. If the tenant has been invalidated since
+   *                     then the count may be stale and is not added.
+   */
+  public void put(String tenant, String owner, String predicate, int count, long generation)
+  {
+    if (maxSize < 1) return;
+    var key = new Key(tenant, owner, hash(predicate));
+    synchronized (this)
+    {
+      if (generation == this.generation) counts.put(key, new Entry(count, System.nanoTime() + ttlNanos));
+    }
+  }
+
+  /**
+   * Remove all counts for a tenant
+   * @param tenant - tenant, null for all tenants
+   */
+  public synchronized void invalidate(String tenant)
+  {
+    generation++;
+    if (tenant == null) counts.clear();
+    else counts.keySet().removeIf(k -> k.tenant().equals(tenant));
+  }
+
+  /*
+   * Incremented on each invalidation. Read before counting and pass to put().
+   */
+  public synchronized long generation() { return generation; }
+
+  public synchronized int size() { return counts.size(); }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * SHA-256 of the predicate, so long predicates such as large IN lists are not held in memory
+   */
+  private static String hash(String predicate)
+  {
+    try
+    {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(predicate.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // Every JVM is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private record Key(String tenant, String owner, String predicateHash) {}
+
+  private record Entry(int count, long expiresAtNanos) {}
+}
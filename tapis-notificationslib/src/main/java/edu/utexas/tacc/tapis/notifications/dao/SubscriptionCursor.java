@@ -0,0 +1,128 @@
+package edu.utexas.tacc.tapis.notifications.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.apache.commons.lang3.StringUtils;
+
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy.OrderByDir;
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+
+/*
+ * Continuation cursor for keyset pagination of subscriptions.
+ * Records the sort order of a page along with the sort key values and seq_id of the last subscription on the page.
+ *   The next page starts strictly after that subscription, so a deep page costs the same as the first one and
+ *   subscriptions created or deleted between requests do not cause others to be repeated or skipped.
+ * seq_id is unique and is always the final sort key, so the order is total.
+ *
+ * Clients should treat the encoded form as opaque. It is base64url encoded json.
+ */
+public final class SubscriptionCursor
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  private static final String ORDER_BY_KEY = "o";
+  private static final String VALUES_KEY = "v";
+  private static final String SEQ_ID_KEY = "s";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final List<OrderBy> orderByList;
+  private final List<String> values;
+  private final int seqId;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  SubscriptionCursor(List<OrderBy> orderByList1, List<String> values1, int seqId1)
+  {
+    orderByList = List.copyOf(orderByList1);
+    values = List.copyOf(values1);
+    seqId = seqId1;
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Decode a cursor returned with a previous page
+   * @param cursorStr - encoded cursor
+   * @return cursor or null if cursorStr is blank, i.e. the first page
+   * @throws IllegalArgumentException - if the cursor is not valid
+   */
+  public static SubscriptionCursor decode(String cursorStr)
+  {
+    if (StringUtils.isBlank(cursorStr)) return null;
+    try
+    {
+      String json = new String(Base64.getUrlDecoder().decode(cursorStr), StandardCharsets.UTF_8);
+      JsonObject obj = TapisGsonUtils.getGson().fromJson(json, JsonObject.class);
+      var orderByList = new ArrayList<OrderBy>();
+      var values = new ArrayList<String>();
+      for (JsonElement e : obj.getAsJsonArray(ORDER_BY_KEY))
+      {
+        JsonArray orderBy = e.getAsJsonArray();
+        orderByList.add(new OrderBy(orderBy.get(0).getAsString(), OrderByDir.valueOf(orderBy.get(1).getAsString())));
+      }
+      for (JsonElement e : obj.getAsJsonArray(VALUES_KEY)) values.add(e.getAsString());
+      if (orderByList.isEmpty() || orderByList.size() != values.size()) throw new IllegalStateException(json);
+      return new SubscriptionCursor(orderByList, values, obj.get(SEQ_ID_KEY).getAsInt());
+    }
+    catch (RuntimeException e)
+    {
+      throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_CURSOR_INVALID", cursorStr), e);
+    }
+  }
+
+  /**
+   * Encode the cursor for return to a client
+   * @return encoded cursor
+   */
+  public String encode()
+  {
+    var orderByArray = new JsonArray();
+    for (OrderBy orderBy : orderByList)
+    {
+      var a = new JsonArray();
+      a.add(orderBy.getOrderByAttr());
+      a.add(orderBy.getOrderByDir().name());
+      orderByArray.add(a);
+    }
+    var valuesArray = new JsonArray();
+    values.forEach(valuesArray::add);
+    var obj = new JsonObject();
+    obj.add(ORDER_BY_KEY, orderByArray);
+    obj.add(VALUES_KEY, valuesArray);
+    obj.addProperty(SEQ_ID_KEY, seqId);
+    byte[] bytes = obj.toString().getBytes(StandardCharsets.UTF_8);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /*
+   * Check if the cursor was created for the given sort order
+   */
+  boolean isSortedBy(List<OrderBy> orderByList1)
+  {
+    if (orderByList1.size() != orderByList.size()) return false;
+    for (int i = 0; i < orderByList.size(); i++)
+    {
+      if (!orderByList.get(i).getOrderByAttr().equals(orderByList1.get(i).getOrderByAttr()) ||
+          orderByList.get(i).getOrderByDir() != orderByList1.get(i).getOrderByDir()) return false;
+    }
+    return true;
+  }
+
+  List<OrderBy> getOrderByList() { return orderByList; }
+  List<String> getValues() { return values; }
+  int getSeqId() { return seqId; }
+}
@@ -4,7 +4,11 @@
 package edu.utexas.tacc.tapis.notifications.gen.jooq;
 
 
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Events;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.FlywaySchemaHistory;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Notifications;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsRecovery;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Subscriptions;
 
 import org.jooq.Index;
 import org.jooq.OrderField;
@@ -22,5 +26,21 @@ public class Indexes {
     // INDEX definitions
     // -------------------------------------------------------------------------
 
+    public static final Index EVENTS_UPDATED_IDX = Internal.createIndex(DSL.name("events_updated_idx"), Events.EVENTS, new OrderField[] { Events.EVENTS.UPDATED }, false);
     public static final Index FLYWAY_SCHEMA_HISTORY_S_IDX = Internal.createIndex(DSL.name("flyway_schema_history_s_idx"), FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY, new OrderField[] { FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY.SUCCESS }, false);
+    public static final Index NTF_BUCKET_SEQ_IDX = Internal.createIndex(DSL.name("ntf_bucket_seq_idx"), Notifications.NOTIFICATIONS, new OrderField[] { Notifications.NOTIFICATIONS.BUCKET_NUMBER, Notifications.NOTIFICATIONS.SEQ_ID }, false);
+    public static final Index NTF_BUCKET_VBUCKET_IDX = Internal.createIndex(DSL.name("ntf_bucket_vbucket_idx"), Notifications.NOTIFICATIONS, new OrderField[] { Notifications.NOTIFICATIONS.BUCKET_NUMBER, Notifications.NOTIFICATIONS.VBUCKET }, false);
+    public static final Index NTF_EVENT_TARGET_IDX = Internal.createIndex(DSL.name("ntf_event_target_idx"), Notifications.NOTIFICATIONS, new OrderField[] { Notifications.NOTIFICATIONS.TENANT, Notifications.NOTIFICATIONS.EVENT_UUID, Notifications.NOTIFICATIONS.DELIVERY_METHOD, Notifications.NOTIFICATIONS.DELIVERY_ADDRESS }, false);
+    public static final Index NTF_RCVRY_BUCKET_NEXT_IDX = Internal.createIndex(DSL.name("ntf_rcvry_bucket_next_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, NotificationsRecovery.NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT, NotificationsRecovery.NOTIFICATIONS_RECOVERY.SEQ_ID }, false);
+    public static final Index NTF_RCVRY_BUCKET_SEQ_IDX = Internal.createIndex(DSL.name("ntf_rcvry_bucket_seq_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, NotificationsRecovery.NOTIFICATIONS_RECOVERY.SEQ_ID }, false);
+    public static final Index NTF_RCVRY_BUCKET_VBUCKET_IDX = Internal.createIndex(DSL.name("ntf_rcvry_bucket_vbucket_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.BUCKET_NUMBER, NotificationsRecovery.NOTIFICATIONS_RECOVERY.VBUCKET }, false);
+    public static final Index NTF_RCVRY_EVENT_IDX = Internal.createIndex(DSL.name("ntf_rcvry_event_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.TENANT, NotificationsRecovery.NOTIFICATIONS_RECOVERY.EVENT_UUID }, false);
+    public static final Index NTF_RCVRY_SUBSCR_SEQ_ID_IDX = Internal.createIndex(DSL.name("ntf_rcvry_subscr_seq_id_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.SUBSCR_SEQ_ID }, false);
+    public static final Index NTF_RCVRY_UUID_IDX = Internal.createIndex(DSL.name("ntf_rcvry_uuid_idx"), NotificationsRecovery.NOTIFICATIONS_RECOVERY, new OrderField[] { NotificationsRecovery.NOTIFICATIONS_RECOVERY.UUID }, false);
+    public static final Index NTF_SUBSCR_SEQ_ID_IDX = Internal.createIndex(DSL.name("ntf_subscr_seq_id_idx"), Notifications.NOTIFICATIONS, new OrderField[] { Notifications.NOTIFICATIONS.SUBSCR_SEQ_ID }, false);
+    public static final Index NTF_TENANT_UUID_IDX = Internal.createIndex(DSL.name("ntf_tenant_uuid_idx"), Notifications.NOTIFICATIONS, new OrderField[] { Notifications.NOTIFICATIONS.TENANT, Notifications.NOTIFICATIONS.UUID }, false);
+    public static final Index SUBSCR_ENABLED_FILTERS_IDX = Internal.createIndex(DSL.name("subscr_enabled_filters_idx"), Subscriptions.SUBSCRIPTIONS, new OrderField[] { Subscriptions.SUBSCRIPTIONS.TENANT, Subscriptions.SUBSCRIPTIONS.TYPE_FILTER1, Subscriptions.SUBSCRIPTIONS.TYPE_FILTER2, Subscriptions.SUBSCRIPTIONS.TYPE_FILTER3, Subscriptions.SUBSCRIPTIONS.SUBJECT_FILTER }, false);
+    public static final Index SUBSCR_EXPIRY_IDX = Internal.createIndex(DSL.name("subscr_expiry_idx"), Subscriptions.SUBSCRIPTIONS, new OrderField[] { Subscriptions.SUBSCRIPTIONS.EXPIRY }, false);
+    public static final Index SUBSCR_TENANT_SUBJECT_IDX = Internal.createIndex(DSL.name("subscr_tenant_subject_idx"), Subscriptions.SUBSCRIPTIONS, new OrderField[] { Subscriptions.SUBSCRIPTIONS.TENANT, Subscriptions.SUBSCRIPTIONS.SUBJECT_FILTER }, false);
+    public static final Index SUBSCR_TENANT_UUID_IDX = Internal.createIndex(DSL.name("subscr_tenant_uuid_idx"), Subscriptions.SUBSCRIPTIONS, new OrderField[] { Subscriptions.SUBSCRIPTIONS.TENANT, Subscriptions.SUBSCRIPTIONS.UUID }, false);
 }
@@ -5,11 +5,15 @@ package edu.utexas.tacc.tapis.notifications.gen.jooq;
 
 
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.EventSeries;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Events;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.FlywaySchemaHistory;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Notifications;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLastBatch;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLastEvent;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLeases;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsRecovery;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsTests;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsVbuckets;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Subscriptions;
 
 
@@ -24,6 +28,11 @@ public class Tables {
      */
     public static final EventSeries EVENT_SERIES = EventSeries.EVENT_SERIES;
 
+    /**
+     * The table <code>tapis_ntf.events</code>.
+     */
+    public static final Events EVENTS = Events.EVENTS;
+
     /**
      * The table <code>tapis_ntf.flyway_schema_history</code>.
      */
@@ -34,11 +43,21 @@ public class Tables {
      */
     public static final Notifications NOTIFICATIONS = Notifications.NOTIFICATIONS;
 
+    /**
+     * The table <code>tapis_ntf.notifications_last_batch</code>.
+     */
+    public static final NotificationsLastBatch NOTIFICATIONS_LAST_BATCH = NotificationsLastBatch.NOTIFICATIONS_LAST_BATCH;
+
     /**
      * The table <code>tapis_ntf.notifications_last_event</code>.
      */
     public static final NotificationsLastEvent NOTIFICATIONS_LAST_EVENT = NotificationsLastEvent.NOTIFICATIONS_LAST_EVENT;
 
+    /**
+     * The table <code>tapis_ntf.notifications_leases</code>.
+     */
+    public static final NotificationsLeases NOTIFICATIONS_LEASES = NotificationsLeases.NOTIFICATIONS_LEASES;
+
     /**
      * The table <code>tapis_ntf.notifications_recovery</code>.
      */
@@ -49,6 +68,11 @@ public class Tables {
      */
     public static final NotificationsTests NOTIFICATIONS_TESTS = NotificationsTests.NOTIFICATIONS_TESTS;
 
+    /**
+     * The table <code>tapis_ntf.notifications_vbuckets</code>.
+     */
+    public static final NotificationsVbuckets NOTIFICATIONS_VBUCKETS = NotificationsVbuckets.NOTIFICATIONS_VBUCKETS;
+
     /**
      * The table <code>tapis_ntf.subscriptions</code>.
      */
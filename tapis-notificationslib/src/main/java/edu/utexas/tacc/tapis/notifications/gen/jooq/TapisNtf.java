@@ -5,11 +5,15 @@ package edu.utexas.tacc.tapis.notifications.gen.jooq;
 
 
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.EventSeries;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Events;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.FlywaySchemaHistory;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Notifications;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLastBatch;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLastEvent;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsLeases;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsRecovery;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsTests;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.NotificationsVbuckets;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.Subscriptions;
 
 import java.util.Arrays;
@@ -38,6 +42,11 @@ public class TapisNtf extends SchemaImpl {
      */
     public final EventSeries EVENT_SERIES = EventSeries.EVENT_SERIES;
 
+    /**
+     * The table <code>tapis_ntf.events</code>.
+     */
+    public final Events EVENTS = Events.EVENTS;
+
     /**
      * The table <code>tapis_ntf.flyway_schema_history</code>.
      */
@@ -48,11 +57,21 @@ public class TapisNtf extends SchemaImpl {
      */
     public final Notifications NOTIFICATIONS = Notifications.NOTIFICATIONS;
 
+    /**
+     * The table <code>tapis_ntf.notifications_last_batch</code>.
+     */
+    public final NotificationsLastBatch NOTIFICATIONS_LAST_BATCH = NotificationsLastBatch.NOTIFICATIONS_LAST_BATCH;
+
     /**
      * The table <code>tapis_ntf.notifications_last_event</code>.
      */
     public final NotificationsLastEvent NOTIFICATIONS_LAST_EVENT = NotificationsLastEvent.NOTIFICATIONS_LAST_EVENT;
 
+    /**
+     * The table <code>tapis_ntf.notifications_leases</code>.
+     */
+    public final NotificationsLeases NOTIFICATIONS_LEASES = NotificationsLeases.NOTIFICATIONS_LEASES;
+
     /**
      * The table <code>tapis_ntf.notifications_recovery</code>.
      */
@@ -63,6 +82,11 @@ public class TapisNtf extends SchemaImpl {
      */
     public final NotificationsTests NOTIFICATIONS_TESTS = NotificationsTests.NOTIFICATIONS_TESTS;
 
+    /**
+     * The table <code>tapis_ntf.notifications_vbuckets</code>.
+     */
+    public final NotificationsVbuckets NOTIFICATIONS_VBUCKETS = NotificationsVbuckets.NOTIFICATIONS_VBUCKETS;
+
     /**
      * The table <code>tapis_ntf.subscriptions</code>.
      */
@@ -85,11 +109,15 @@ public class TapisNtf extends SchemaImpl {
     public final List<Table<?>> getTables() {
         return Arrays.asList(
             EventSeries.EVENT_SERIES,
+            Events.EVENTS,
             FlywaySchemaHistory.FLYWAY_SCHEMA_HISTORY,
             Notifications.NOTIFICATIONS,
+            NotificationsLastBatch.NOTIFICATIONS_LAST_BATCH,
             NotificationsLastEvent.NOTIFICATIONS_LAST_EVENT,
+            NotificationsLeases.NOTIFICATIONS_LEASES,
             NotificationsRecovery.NOTIFICATIONS_RECOVERY,
             NotificationsTests.NOTIFICATIONS_TESTS,
+            NotificationsVbuckets.NOTIFICATIONS_VBUCKETS,
             Subscriptions.SUBSCRIPTIONS
         );
     }
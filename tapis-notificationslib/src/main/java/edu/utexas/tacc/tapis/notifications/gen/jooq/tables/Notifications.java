@@ -7,6 +7,7 @@ package edu.utexas.tacc.tapis.notifications.gen.jooq.tables;
 import com.google.gson.JsonElement;
 
 import edu.utexas.tacc.tapis.notifications.dao.JSONBToJsonElementBinding;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.Indexes;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.Keys;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.TapisNtf;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsRecord;
@@ -18,12 +19,13 @@ import java.util.function.Function;
 
 import org.jooq.Field;
 import org.jooq.ForeignKey;
-import org.jooq.Function11;
+import org.jooq.Function12;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.Records;
-import org.jooq.Row11;
+import org.jooq.Row12;
 import org.jooq.Schema;
 import org.jooq.SelectField;
 import org.jooq.Table;
@@ -99,7 +101,7 @@ public class Notifications extends TableImpl<NotificationsRecord> {
     /**
      * The column <code>tapis_ntf.notifications.event</code>.
      */
-    public final TableField<NotificationsRecord, JsonElement> EVENT = createField(DSL.name("event"), SQLDataType.JSONB.nullable(false), this, "", new JSONBToJsonElementBinding());
+    public final TableField<NotificationsRecord, JsonElement> EVENT = createField(DSL.name("event"), SQLDataType.JSONB, this, "", new JSONBToJsonElementBinding());
 
     /**
      * The column <code>tapis_ntf.notifications.bucket_number</code>.
@@ -111,6 +113,11 @@ public class Notifications extends TableImpl<NotificationsRecord> {
      */
     public final TableField<NotificationsRecord, LocalDateTime> CREATED = createField(DSL.name("created"), SQLDataType.LOCALDATETIME(6).nullable(false).defaultValue(DSL.field("timezone('utc'::text, now())", SQLDataType.LOCALDATETIME)), this, "");
 
+    /**
+     * The column <code>tapis_ntf.notifications.vbucket</code>.
+     */
+    public final TableField<NotificationsRecord, Integer> VBUCKET = createField(DSL.name("vbucket"), SQLDataType.INTEGER, this, "");
+
     private Notifications(Name alias, Table<NotificationsRecord> aliased) {
         this(alias, aliased, null);
     }
@@ -149,6 +156,11 @@ public class Notifications extends TableImpl<NotificationsRecord> {
         return aliased() ? null : TapisNtf.TAPIS_NTF;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.NTF_BUCKET_SEQ_IDX, Indexes.NTF_BUCKET_VBUCKET_IDX, Indexes.NTF_EVENT_TARGET_IDX, Indexes.NTF_SUBSCR_SEQ_ID_IDX, Indexes.NTF_TENANT_UUID_IDX);
+    }
+
     @Override
     public Identity<NotificationsRecord, Integer> getIdentity() {
         return (Identity<NotificationsRecord, Integer>) super.getIdentity();
@@ -217,18 +229,18 @@ public class Notifications extends TableImpl<NotificationsRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row11 type methods
+    // Row12 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row11<Integer, Integer, java.util.UUID, String, String, String, String, java.util.UUID, JsonElement, Integer, LocalDateTime> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row12<Integer, Integer, java.util.UUID, String, String, String, String, java.util.UUID, JsonElement, Integer, LocalDateTime, Integer> fieldsRow() {
+        return (Row12) super.fieldsRow();
     }
 
     /**
      * Convenience mapping calling {@link SelectField#convertFrom(Function)}.
      */
-    public <U> SelectField<U> mapping(Function11<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super LocalDateTime, ? extends U> from) {
+    public <U> SelectField<U> mapping(Function12<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super LocalDateTime, ? super Integer, ? extends U> from) {
         return convertFrom(Records.mapping(from));
     }
 
@@ -236,7 +248,7 @@ public class Notifications extends TableImpl<NotificationsRecord> {
      * Convenience mapping calling {@link SelectField#convertFrom(Class,
      * Function)}.
      */
-    public <U> SelectField<U> mapping(Class<U> toType, Function11<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super LocalDateTime, ? extends U> from) {
+    public <U> SelectField<U> mapping(Class<U> toType, Function12<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super LocalDateTime, ? super Integer, ? extends U> from) {
         return convertFrom(toType, Records.mapping(from));
     }
 }
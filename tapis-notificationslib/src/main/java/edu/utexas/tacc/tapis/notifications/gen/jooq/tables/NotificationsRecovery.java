@@ -7,6 +7,7 @@ package edu.utexas.tacc.tapis.notifications.gen.jooq.tables;
 import com.google.gson.JsonElement;
 
 import edu.utexas.tacc.tapis.notifications.dao.JSONBToJsonElementBinding;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.Indexes;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.Keys;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.TapisNtf;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.NotificationsRecoveryRecord;
@@ -18,12 +19,13 @@ import java.util.function.Function;
 
 import org.jooq.Field;
 import org.jooq.ForeignKey;
-import org.jooq.Function14;
+import org.jooq.Function16;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.Records;
-import org.jooq.Row14;
+import org.jooq.Row16;
 import org.jooq.Schema;
 import org.jooq.SelectField;
 import org.jooq.Table;
@@ -100,7 +102,7 @@ public class NotificationsRecovery extends TableImpl<NotificationsRecoveryRecord
     /**
      * The column <code>tapis_ntf.notifications_recovery.event</code>.
      */
-    public final TableField<NotificationsRecoveryRecord, JsonElement> EVENT = createField(DSL.name("event"), SQLDataType.JSONB.nullable(false), this, "", new JSONBToJsonElementBinding());
+    public final TableField<NotificationsRecoveryRecord, JsonElement> EVENT = createField(DSL.name("event"), SQLDataType.JSONB, this, "", new JSONBToJsonElementBinding());
 
     /**
      * The column <code>tapis_ntf.notifications_recovery.bucket_number</code>.
@@ -127,6 +129,16 @@ public class NotificationsRecovery extends TableImpl<NotificationsRecoveryRecord
      */
     public final TableField<NotificationsRecoveryRecord, LocalDateTime> UPDATED = createField(DSL.name("updated"), SQLDataType.LOCALDATETIME(6).nullable(false).defaultValue(DSL.field("timezone('utc'::text, now())", SQLDataType.LOCALDATETIME)), this, "");
 
+    /**
+     * The column <code>tapis_ntf.notifications_recovery.next_attempt_at</code>.
+     */
+    public final TableField<NotificationsRecoveryRecord, LocalDateTime> NEXT_ATTEMPT_AT = createField(DSL.name("next_attempt_at"), SQLDataType.LOCALDATETIME(6).nullable(false).defaultValue(DSL.field("timezone('utc'::text, now())", SQLDataType.LOCALDATETIME)), this, "");
+
+    /**
+     * The column <code>tapis_ntf.notifications_recovery.vbucket</code>.
+     */
+    public final TableField<NotificationsRecoveryRecord, Integer> VBUCKET = createField(DSL.name("vbucket"), SQLDataType.INTEGER, this, "");
+
     private NotificationsRecovery(Name alias, Table<NotificationsRecoveryRecord> aliased) {
         this(alias, aliased, null);
     }
@@ -167,6 +179,11 @@ public class NotificationsRecovery extends TableImpl<NotificationsRecoveryRecord
         return aliased() ? null : TapisNtf.TAPIS_NTF;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.NTF_RCVRY_BUCKET_NEXT_IDX, Indexes.NTF_RCVRY_BUCKET_SEQ_IDX, Indexes.NTF_RCVRY_BUCKET_VBUCKET_IDX, Indexes.NTF_RCVRY_EVENT_IDX, Indexes.NTF_RCVRY_SUBSCR_SEQ_ID_IDX, Indexes.NTF_RCVRY_UUID_IDX);
+    }
+
     @Override
     public Identity<NotificationsRecoveryRecord, Integer> getIdentity() {
         return (Identity<NotificationsRecoveryRecord, Integer>) super.getIdentity();
@@ -235,18 +252,18 @@ public class NotificationsRecovery extends TableImpl<NotificationsRecoveryRecord
     }
 
     // -------------------------------------------------------------------------
-    // Row14 type methods
+    // Row16 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row14<Integer, Integer, java.util.UUID, String, String, String, String, java.util.UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime> fieldsRow() {
-        return (Row14) super.fieldsRow();
+    public Row16<Integer, Integer, java.util.UUID, String, String, String, String, java.util.UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime, Integer> fieldsRow() {
+        return (Row16) super.fieldsRow();
     }
 
     /**
      * Convenience mapping calling {@link SelectField#convertFrom(Function)}.
      */
-    public <U> SelectField<U> mapping(Function14<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super Integer, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? extends U> from) {
+    public <U> SelectField<U> mapping(Function16<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super Integer, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? super Integer, ? extends U> from) {
         return convertFrom(Records.mapping(from));
     }
 
@@ -254,7 +271,7 @@ public class NotificationsRecovery extends TableImpl<NotificationsRecoveryRecord
      * Convenience mapping calling {@link SelectField#convertFrom(Class,
      * Function)}.
      */
-    public <U> SelectField<U> mapping(Class<U> toType, Function14<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super Integer, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? extends U> from) {
+    public <U> SelectField<U> mapping(Class<U> toType, Function16<? super Integer, ? super Integer, ? super java.util.UUID, ? super String, ? super String, ? super String, ? super String, ? super java.util.UUID, ? super JsonElement, ? super Integer, ? super Integer, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? super LocalDateTime, ? super Integer, ? extends U> from) {
         return convertFrom(toType, Records.mapping(from));
     }
 }
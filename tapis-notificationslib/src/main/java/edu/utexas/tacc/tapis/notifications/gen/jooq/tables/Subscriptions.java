@@ -7,6 +7,7 @@ package edu.utexas.tacc.tapis.notifications.gen.jooq.tables;
 import com.google.gson.JsonElement;
 
 import edu.utexas.tacc.tapis.notifications.dao.JSONBToJsonElementBinding;
+import edu.utexas.tacc.tapis.notifications.gen.jooq.Indexes;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.Keys;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.TapisNtf;
 import edu.utexas.tacc.tapis.notifications.gen.jooq.tables.records.SubscriptionsRecord;
@@ -20,6 +21,7 @@ import org.jooq.Field;
 import org.jooq.ForeignKey;
 import org.jooq.Function17;
 import org.jooq.Identity;
+import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
 import org.jooq.Records;
@@ -185,6 +187,11 @@ public class Subscriptions extends TableImpl<SubscriptionsRecord> {
         return aliased() ? null : TapisNtf.TAPIS_NTF;
     }
 
+    @Override
+    public List<Index> getIndexes() {
+        return Arrays.asList(Indexes.SUBSCR_ENABLED_FILTERS_IDX, Indexes.SUBSCR_EXPIRY_IDX, Indexes.SUBSCR_TENANT_SUBJECT_IDX, Indexes.SUBSCR_TENANT_UUID_IDX);
+    }
+
     @Override
     public Identity<SubscriptionsRecord, Integer> getIdentity() {
         return (Identity<SubscriptionsRecord, Integer>) super.getIdentity();
@@ -10,8 +10,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record4;
-import org.jooq.Record7;
-import org.jooq.Row7;
+import org.jooq.Record8;
+import org.jooq.Row8;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -19,7 +19,7 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> implements Record7<String, String, String, String, Long, LocalDateTime, LocalDateTime> {
+public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> implements Record8<String, String, String, String, Long, LocalDateTime, LocalDateTime, Long> {
 
     private static final long serialVersionUID = 1L;
 
@@ -121,6 +121,20 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         return (LocalDateTime) get(6);
     }
 
+    /**
+     * Setter for <code>tapis_ntf.event_series.epoch</code>.
+     */
+    public void setEpoch(Long value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>tapis_ntf.event_series.epoch</code>.
+     */
+    public Long getEpoch() {
+        return (Long) get(7);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -131,17 +145,17 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
     }
 
     // -------------------------------------------------------------------------
-    // Record7 type implementation
+    // Record8 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row7<String, String, String, String, Long, LocalDateTime, LocalDateTime> fieldsRow() {
-        return (Row7) super.fieldsRow();
+    public Row8<String, String, String, String, Long, LocalDateTime, LocalDateTime, Long> fieldsRow() {
+        return (Row8) super.fieldsRow();
     }
 
     @Override
-    public Row7<String, String, String, String, Long, LocalDateTime, LocalDateTime> valuesRow() {
-        return (Row7) super.valuesRow();
+    public Row8<String, String, String, String, Long, LocalDateTime, LocalDateTime, Long> valuesRow() {
+        return (Row8) super.valuesRow();
     }
 
     @Override
@@ -179,6 +193,11 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         return EventSeries.EVENT_SERIES.UPDATED;
     }
 
+    @Override
+    public Field<Long> field8() {
+        return EventSeries.EVENT_SERIES.EPOCH;
+    }
+
     @Override
     public String component1() {
         return getTenant();
@@ -214,6 +233,11 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         return getUpdated();
     }
 
+    @Override
+    public Long component8() {
+        return getEpoch();
+    }
+
     @Override
     public String value1() {
         return getTenant();
@@ -249,6 +273,11 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         return getUpdated();
     }
 
+    @Override
+    public Long value8() {
+        return getEpoch();
+    }
+
     @Override
     public EventSeriesRecord value1(String value) {
         setTenant(value);
@@ -292,7 +321,13 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
     }
 
     @Override
-    public EventSeriesRecord values(String value1, String value2, String value3, String value4, Long value5, LocalDateTime value6, LocalDateTime value7) {
+    public EventSeriesRecord value8(Long value) {
+        setEpoch(value);
+        return this;
+    }
+
+    @Override
+    public EventSeriesRecord values(String value1, String value2, String value3, String value4, Long value5, LocalDateTime value6, LocalDateTime value7, Long value8) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -300,6 +335,7 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         value5(value5);
         value6(value6);
         value7(value7);
+        value8(value8);
         return this;
     }
 
@@ -317,7 +353,7 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
     /**
      * Create a detached, initialised EventSeriesRecord
      */
-    public EventSeriesRecord(String tenant, String source, String subject, String seriesId, Long seqCount, LocalDateTime created, LocalDateTime updated) {
+    public EventSeriesRecord(String tenant, String source, String subject, String seriesId, Long seqCount, LocalDateTime created, LocalDateTime updated, Long epoch) {
         super(EventSeries.EVENT_SERIES);
 
         setTenant(tenant);
@@ -327,5 +363,6 @@ public class EventSeriesRecord extends UpdatableRecordImpl<EventSeriesRecord> im
         setSeqCount(seqCount);
         setCreated(created);
         setUpdated(updated);
+        setEpoch(epoch);
     }
 }
@@ -13,8 +13,8 @@ import java.util.UUID;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record11;
-import org.jooq.Row11;
+import org.jooq.Record12;
+import org.jooq.Row12;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -22,7 +22,7 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord> implements Record11<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime> {
+public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord> implements Record12<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime, Integer> {
 
     private static final long serialVersionUID = 1L;
 
@@ -180,6 +180,20 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         return (LocalDateTime) get(10);
     }
 
+    /**
+     * Setter for <code>tapis_ntf.notifications.vbucket</code>.
+     */
+    public void setVbucket(Integer value) {
+        set(11, value);
+    }
+
+    /**
+     * Getter for <code>tapis_ntf.notifications.vbucket</code>.
+     */
+    public Integer getVbucket() {
+        return (Integer) get(11);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -190,17 +204,17 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
     }
 
     // -------------------------------------------------------------------------
-    // Record11 type implementation
+    // Record12 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row11<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime> fieldsRow() {
-        return (Row11) super.fieldsRow();
+    public Row12<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime, Integer> fieldsRow() {
+        return (Row12) super.fieldsRow();
     }
 
     @Override
-    public Row11<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime> valuesRow() {
-        return (Row11) super.valuesRow();
+    public Row12<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, LocalDateTime, Integer> valuesRow() {
+        return (Row12) super.valuesRow();
     }
 
     @Override
@@ -258,6 +272,11 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         return Notifications.NOTIFICATIONS.CREATED;
     }
 
+    @Override
+    public Field<Integer> field12() {
+        return Notifications.NOTIFICATIONS.VBUCKET;
+    }
+
     @Override
     public Integer component1() {
         return getSeqId();
@@ -313,6 +332,11 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         return getCreated();
     }
 
+    @Override
+    public Integer component12() {
+        return getVbucket();
+    }
+
     @Override
     public Integer value1() {
         return getSeqId();
@@ -368,6 +392,11 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         return getCreated();
     }
 
+    @Override
+    public Integer value12() {
+        return getVbucket();
+    }
+
     @Override
     public NotificationsRecord value1(Integer value) {
         setSeqId(value);
@@ -435,7 +464,13 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
     }
 
     @Override
-    public NotificationsRecord values(Integer value1, Integer value2, UUID value3, String value4, String value5, String value6, String value7, UUID value8, JsonElement value9, Integer value10, LocalDateTime value11) {
+    public NotificationsRecord value12(Integer value) {
+        setVbucket(value);
+        return this;
+    }
+
+    @Override
+    public NotificationsRecord values(Integer value1, Integer value2, UUID value3, String value4, String value5, String value6, String value7, UUID value8, JsonElement value9, Integer value10, LocalDateTime value11, Integer value12) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -447,6 +482,7 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         value9(value9);
         value10(value10);
         value11(value11);
+        value12(value12);
         return this;
     }
 
@@ -464,7 +500,7 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
     /**
      * Create a detached, initialised NotificationsRecord
      */
-    public NotificationsRecord(Integer seqId, Integer subscrSeqId, UUID uuid, String tenant, String subscrName, String deliveryMethod, String deliveryAddress, UUID eventUuid, JsonElement event, Integer bucketNumber, LocalDateTime created) {
+    public NotificationsRecord(Integer seqId, Integer subscrSeqId, UUID uuid, String tenant, String subscrName, String deliveryMethod, String deliveryAddress, UUID eventUuid, JsonElement event, Integer bucketNumber, LocalDateTime created, Integer vbucket) {
         super(Notifications.NOTIFICATIONS);
 
         setSeqId(seqId);
@@ -478,5 +514,6 @@ public class NotificationsRecord extends UpdatableRecordImpl<NotificationsRecord
         setEvent(event);
         setBucketNumber(bucketNumber);
         setCreated(created);
+        setVbucket(vbucket);
     }
 }
@@ -13,8 +13,8 @@ import java.util.UUID;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record14;
-import org.jooq.Row14;
+import org.jooq.Record16;
+import org.jooq.Row16;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -22,7 +22,7 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class NotificationsRecoveryRecord extends UpdatableRecordImpl<NotificationsRecoveryRecord> implements Record14<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime> {
+public class NotificationsRecoveryRecord extends UpdatableRecordImpl<NotificationsRecoveryRecord> implements Record16<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime, Integer> {
 
     private static final long serialVersionUID = 1L;
 
@@ -224,6 +224,34 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         return (LocalDateTime) get(13);
     }
 
+    /**
+     * Setter for <code>tapis_ntf.notifications_recovery.next_attempt_at</code>.
+     */
+    public void setNextAttemptAt(LocalDateTime value) {
+        set(14, value);
+    }
+
+    /**
+     * Getter for <code>tapis_ntf.notifications_recovery.next_attempt_at</code>.
+     */
+    public LocalDateTime getNextAttemptAt() {
+        return (LocalDateTime) get(14);
+    }
+
+    /**
+     * Setter for <code>tapis_ntf.notifications_recovery.vbucket</code>.
+     */
+    public void setVbucket(Integer value) {
+        set(15, value);
+    }
+
+    /**
+     * Getter for <code>tapis_ntf.notifications_recovery.vbucket</code>.
+     */
+    public Integer getVbucket() {
+        return (Integer) get(15);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -234,17 +262,17 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
     }
 
     // -------------------------------------------------------------------------
-    // Record14 type implementation
+    // Record16 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row14<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime> fieldsRow() {
-        return (Row14) super.fieldsRow();
+    public Row16<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime, Integer> fieldsRow() {
+        return (Row16) super.fieldsRow();
     }
 
     @Override
-    public Row14<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime> valuesRow() {
-        return (Row14) super.valuesRow();
+    public Row16<Integer, Integer, UUID, String, String, String, String, UUID, JsonElement, Integer, Integer, LocalDateTime, LocalDateTime, LocalDateTime, LocalDateTime, Integer> valuesRow() {
+        return (Row16) super.valuesRow();
     }
 
     @Override
@@ -317,6 +345,16 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         return NotificationsRecovery.NOTIFICATIONS_RECOVERY.UPDATED;
     }
 
+    @Override
+    public Field<LocalDateTime> field15() {
+        return NotificationsRecovery.NOTIFICATIONS_RECOVERY.NEXT_ATTEMPT_AT;
+    }
+
+    @Override
+    public Field<Integer> field16() {
+        return NotificationsRecovery.NOTIFICATIONS_RECOVERY.VBUCKET;
+    }
+
     @Override
     public Integer component1() {
         return getSeqId();
@@ -387,6 +425,16 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         return getUpdated();
     }
 
+    @Override
+    public LocalDateTime component15() {
+        return getNextAttemptAt();
+    }
+
+    @Override
+    public Integer component16() {
+        return getVbucket();
+    }
+
     @Override
     public Integer value1() {
         return getSeqId();
@@ -457,6 +505,16 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         return getUpdated();
     }
 
+    @Override
+    public LocalDateTime value15() {
+        return getNextAttemptAt();
+    }
+
+    @Override
+    public Integer value16() {
+        return getVbucket();
+    }
+
     @Override
     public NotificationsRecoveryRecord value1(Integer value) {
         setSeqId(value);
@@ -542,7 +600,19 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
     }
 
     @Override
-    public NotificationsRecoveryRecord values(Integer value1, Integer value2, UUID value3, String value4, String value5, String value6, String value7, UUID value8, JsonElement value9, Integer value10, Integer value11, LocalDateTime value12, LocalDateTime value13, LocalDateTime value14) {
+    public NotificationsRecoveryRecord value15(LocalDateTime value) {
+        setNextAttemptAt(value);
+        return this;
+    }
+
+    @Override
+    public NotificationsRecoveryRecord value16(Integer value) {
+        setVbucket(value);
+        return this;
+    }
+
+    @Override
+    public NotificationsRecoveryRecord values(Integer value1, Integer value2, UUID value3, String value4, String value5, String value6, String value7, UUID value8, JsonElement value9, Integer value10, Integer value11, LocalDateTime value12, LocalDateTime value13, LocalDateTime value14, LocalDateTime value15, Integer value16) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -557,6 +627,8 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         value12(value12);
         value13(value13);
         value14(value14);
+        value15(value15);
+        value16(value16);
         return this;
     }
 
@@ -574,7 +646,7 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
     /**
      * Create a detached, initialised NotificationsRecoveryRecord
      */
-    public NotificationsRecoveryRecord(Integer seqId, Integer subscrSeqId, UUID uuid, String tenant, String subscrName, String deliveryMethod, String deliveryAddress, UUID eventUuid, JsonElement event, Integer bucketNumber, Integer attemptCount, LocalDateTime lastAttempt, LocalDateTime created, LocalDateTime updated) {
+    public NotificationsRecoveryRecord(Integer seqId, Integer subscrSeqId, UUID uuid, String tenant, String subscrName, String deliveryMethod, String deliveryAddress, UUID eventUuid, JsonElement event, Integer bucketNumber, Integer attemptCount, LocalDateTime lastAttempt, LocalDateTime created, LocalDateTime updated, LocalDateTime nextAttemptAt, Integer vbucket) {
         super(NotificationsRecovery.NOTIFICATIONS_RECOVERY);
 
         setSeqId(seqId);
@@ -591,5 +663,7 @@ public class NotificationsRecoveryRecord extends UpdatableRecordImpl<Notificatio
         setLastAttempt(lastAttempt);
         setCreated(created);
         setUpdated(updated);
+        setNextAttemptAt(nextAttemptAt);
+        setVbucket(vbucket);
     }
 }
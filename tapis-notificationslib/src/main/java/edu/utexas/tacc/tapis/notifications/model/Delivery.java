@@ -6,6 +6,15 @@ package edu.utexas.tacc.tapis.notifications.model;
  * It contains the Event being processed and the message broker tag (rabbitmq deliveryTag).
  * The deliveryTag is used to acknowledge the message once all notifications have been generated and persisted.
  *
+ * A Delivery may instead be a marker for moving a virtual bucket to another bucket, in which case the event is null.
+ * The marker follows the last event in the virtual bucket handed to the bucket it is moving from.
+ * A marker not received from the message broker has a deliveryTag of 0.
+ * A marker received by the bucket the virtual bucket is moving to is a fence. It follows every event for the virtual
+ *   bucket forwarded to that bucket through the main queue.
+ *
+ * An event is direct if the publisher sent it straight to the bucket queue rather than through the main queue,
+ *   see MessageBroker.RoutingMode.
+ *
  * This class is intended to represent an immutable object.
  * Please keep it immutable.
  *
@@ -14,14 +23,37 @@ public final class Delivery
 {
   private final Event event;
   private final long deliveryTag;
+  private final VirtualBucket remap;
+  private final boolean direct;
 
   public Delivery(Event event1, long deliveryTag1)
+  {
+    this(event1, deliveryTag1, false);
+  }
+
+  public Delivery(Event event1, long deliveryTag1, boolean direct1)
   {
     event = event1;
     deliveryTag = deliveryTag1;
+    remap = null;
+    direct = direct1;
+  }
+
+  public Delivery(VirtualBucket remap1, long deliveryTag1)
+  {
+    event = null;
+    deliveryTag = deliveryTag1;
+    remap = remap1;
+    direct = false;
   }
 
   public Event getEvent() { return event; }
 
   public long getDeliveryTag() { return deliveryTag; }
+
+  public VirtualBucket getRemap() { return remap; }
+
+  public boolean isRemap() { return remap != null; }
+
+  public boolean isDirect() { return direct; }
 }
@@ -64,6 +64,8 @@ public final class Event
   private final String data; // Data associated with the event.
   private final String seriesId; // Optional Id for grouping events from same source.
   private final long seriesSeqCount; // Sequence counter associated with seriesId for ordering of events from same source.
+                                     //   Unique within the series. With block leasing enabled it follows publish
+                                     //   order only within one api instance, see SeriesSeqAllocator.
   private final String timestamp; // Timestamp of when the occurrence happened. RFC 3339 (ISO 8601)
   private final boolean deleteSubscriptionsMatchingSubject;  // Indicates all subscriptions associated with subject
                                                              //   should be removed after deliveries are complete.
@@ -0,0 +1,55 @@
+package edu.utexas.tacc.tapis.notifications.model;
+
+import java.util.UUID;
+
+/*
+ * Result of publishing a single event as part of a batch publish request.
+ * Index is the position of the event in the request.
+ * If the event was published then uuid and seriesSeqCount are set, else message contains the reason for failure.
+ *
+ * This class is intended to represent an immutable object.
+ * Please keep it immutable.
+ */
+public final class EventPublishResult
+{
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+
+  private final int index; // Position of event in the request
+  private final boolean published; // Indicates if event was placed on the queue
+  private final UUID uuid; // UUID assigned to the event. Null if not published.
+  private final long seriesSeqCount; // Sequence count assigned to the event
+  private final String message; // Reason for failure. Null if published.
+
+  /* ********************************************************************** */
+  /*                           Constructors                                 */
+  /* ********************************************************************** */
+  private EventPublishResult(int index1, boolean published1, UUID uuid1, long seriesSeqCount1, String message1)
+  {
+    index = index1;
+    published = published1;
+    uuid = uuid1;
+    seriesSeqCount = seriesSeqCount1;
+    message = message1;
+  }
+
+  public static EventPublishResult success(int index1, Event event)
+  {
+    return new EventPublishResult(index1, true, event.getUuid(), event.getSeriesSeqCount(), null);
+  }
+
+  public static EventPublishResult failure(int index1, String message1)
+  {
+    return new EventPublishResult(index1, false, null, Event.DEFAULT_SERIES_SEQ_COUNT, message1);
+  }
+
+  /* ********************************************************************** */
+  /*                               Accessors                                */
+  /* ********************************************************************** */
+  public int getIndex() { return index; }
+  public boolean isPublished() { return published; }
+  public UUID getUuid() { return uuid; }
+  public long getSeriesSeqCount() { return seriesSeqCount; }
+  public String getMessage() { return message; }
+}
@@ -0,0 +1,62 @@
+package edu.utexas.tacc.tapis.notifications.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/*
+ * Key identifying an event series. A series is unique in the context of tenant, source, subject and seriesId.
+ * See EventSeries for a description of series.
+ *
+ * Ordering is defined so that callers can process a set of series in a consistent order,
+ *   e.g. to lock rows in the same order across transactions.
+ *
+ * Each series hashes to one of a fixed number of virtual buckets. Virtual buckets are assigned to the buckets
+ *   processed by the dispatcher, see VirtualBucket.
+ */
+public record EventSeriesKey(String tenant, String source, String subject, String seriesId)
+        implements Comparable<EventSeriesKey>
+{
+  // Number of virtual buckets. Must never change, since it determines the virtual bucket of every series.
+  // A multiple of 23, the number of buckets when the bucket was computed from the hash directly, so that with the
+  //   initial assignment of virtual bucket v to bucket v % 23 every series stays in the bucket it had before.
+  public static final int NUM_VIRTUAL_BUCKETS = 23 * 64;
+
+  private static final Comparator<EventSeriesKey> ORDER =
+          Comparator.comparing(EventSeriesKey::tenant, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(EventSeriesKey::source, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(EventSeriesKey::subject, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(EventSeriesKey::seriesId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  public static EventSeriesKey of(Event event)
+  {
+    return new EventSeriesKey(event.getTenant(), event.getSource(), event.getSubject(), event.getSeriesId());
+  }
+
+  /*
+   * Virtual bucket from 0 to NUM_VIRTUAL_BUCKETS-1 based on hash of tenant, source, subject and seriesId.
+   * Why we use tenant, source, subject and seriesId:
+   *   Each series is intended to sequentially track events of various types coming from
+   *   a given tenant, source and subject.
+   *   For example, the Jobs service (the source) sends out events with the jobUuid as the subject and
+   *   sets the seriesId to the jobUuid. That way a subscription can be created to follow (in order) all
+   *   events of various types related to the job.
+   * So all events in a series are in the same virtual bucket and are processed by the same bucket manager,
+   *   which sends out their notifications in order.
+   * NOTE that we clear the top 4 bits of the hash so that we always have a positive integer
+   */
+  public int virtualBucket()
+  {
+    Object[] hashObjects = {tenant, source, subject, seriesId};
+    int hash = (Arrays.hashCode(hashObjects) & 0xfffffff);
+    return hash % NUM_VIRTUAL_BUCKETS;
+  }
+
+  @Override
+  public int compareTo(EventSeriesKey other) { return ORDER.compare(this, other); }
+
+  @Override
+  public String toString()
+  {
+    return "Tenant: %s Source: %s Subject: %s SeriesId: %s".formatted(tenant, source, subject, seriesId);
+  }
+}
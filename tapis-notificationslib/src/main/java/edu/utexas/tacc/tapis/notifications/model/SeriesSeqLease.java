@@ -0,0 +1,10 @@
+package edu.utexas.tacc.tapis.notifications.model;
+
+/*
+ * Block of sequence counts leased for an event series, starting at firstCount.
+ * epoch identifies the tracking row the counts were leased from. A series is reset by deleting its row, so a row
+ *   created again after a reset has a different epoch.
+ */
+public record SeriesSeqLease(long firstCount, long epoch)
+{
+}
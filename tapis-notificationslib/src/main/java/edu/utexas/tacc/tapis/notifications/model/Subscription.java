@@ -95,6 +95,9 @@ public final class Subscription
   // ************************************************************************
   public enum SubscriptionOperation {create, read, modify, delete, changeOwner, enable, disable, updateTTL,
                                      getPerms, grantPerms, revokePerms}
+  // How the total count for a search is computed.
+  //   exact - count matching rows, estimated - planner row estimate, cached - exact count cached for a short time
+  public enum CountStrategy {exact, estimated, cached}
 
   // ************************************************************************
   // *********************** Fields *****************************************
@@ -0,0 +1,19 @@
+package edu.utexas.tacc.tapis.notifications.model;
+
+/*
+ * Assignment of a virtual bucket to the bucket whose manager processes its events, notifications and recovery.
+ * Every event series hashes to a virtual bucket, see EventSeriesKey. The number of virtual buckets is fixed, while
+ *   the number of buckets is configurable. When the number of buckets changes, virtual buckets are moved between
+ *   buckets without stopping the dispatcher.
+ *
+ * targetBucket is the bucket a virtual bucket is being moved to, or null if no move is in progress.
+ * A Delivery for a move marker carries the virtual bucket with the bucket it is moving from and to.
+ */
+public record VirtualBucket(int vbucket, int bucketNum, Integer targetBucket)
+{
+  @Override
+  public String toString()
+  {
+    return "VirtualBucket: %d Bucket: %d TargetBucket: %s".formatted(vbucket, bucketNum, targetBucket);
+  }
+}
@@ -0,0 +1,271 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.Channel;
+
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Coalesces acknowledgements for events delivered to the dispatcher consumer.
+ * Rather than one basicAck per event, completed delivery tags from all bucket managers are collected and
+ *   acknowledged with basicAck(tag, multiple=true) for the highest tag such that every tag at or below it has completed.
+ * Acks are flushed when the number of completed tags waiting reaches the batch size or when the flush interval passes.
+ *
+ * The consumer registers each delivery tag along with its bucket before handing the delivery to a bucket manager.
+ * Every delivery on the consumer channel must be registered, since a multiple ack covers all lower tags.
+ * There is one coordinator per consumer channel, i.e. one for the main queue consumer or one for each bucket queue.
+ *
+ * At-least-once delivery and duplicate detection:
+ *   - A tag is only acked after the bucket manager reports it complete, i.e. after notifications have been persisted.
+ *   - A bucket may have at most one completed event that has not been acked. If a bucket completes another event
+ *     while its previous one is still waiting on a lower tag, the previous one is acked on its own.
+ *   - A bucket manager persists a batch of events in one transaction and only then completes them. Before the
+ *     transaction it acks the event waiting from its previous batch. So after a crash the already processed events
+ *     redelivered to a bucket are those of its last batch. They are recorded in the DB and skipped by
+ *     ackIfDuplicate in DeliveryBucketManager.
+ *   - A delivery that could not be processed is returned to the queue with a nack so that it does not hold back acks.
+ */
+final class AckCoordinator
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(AckCoordinator.class);
+
+  // Metric names
+  static final String METRIC_ACK_FRAMES = "ntf.dispatch.ack.frames";
+  static final String METRIC_ACK_EVENTS = "ntf.dispatch.ack.events";
+  static final String METRIC_ACK_SINGLE = "ntf.dispatch.ack.single";
+  static final String METRIC_NACKS = "ntf.dispatch.nacks";
+  static final String METRIC_ACK_PENDING = "ntf.dispatch.ack.pending";
+  static final String METRIC_ACK_WAITING = "ntf.dispatch.ack.waiting";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final Channel channel;
+  private final int batchSize;
+  // Names of the gauges for pending and waiting tags
+  private final String pendingGauge;
+  private final String waitingGauge;
+
+  // All fields below are guarded by this.
+  // Tags handed to a bucket manager that have not yet completed. Tag to bucket.
+  private final NavigableMap<Long, Integer> pending = new TreeMap<>();
+  // Tags completed but not yet acked. Tag to bucket.
+  private final NavigableMap<Long, Integer> completed = new TreeMap<>();
+  // Completed but not yet acked tag for each bucket. At most one per bucket.
+  private final Map<Integer, Long> waitingByBucket = new HashMap<>();
+
+  // Periodic flush. Null if acks are flushed on every completion.
+  private final ScheduledExecutorService flushExecService;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * A batch size or flush interval less than 1 means ack on every completion.
+   */
+  AckCoordinator(Channel channel1, int batchSize1, long flushIntervalMs)
+  {
+    this(channel1, batchSize1, flushIntervalMs, METRIC_ACK_PENDING, METRIC_ACK_WAITING);
+  }
+
+  /*
+   * Gauge names given so that coordinators for several channels can be tracked separately.
+   */
+  AckCoordinator(Channel channel1, int batchSize1, long flushIntervalMs, String pendingGauge1, String waitingGauge1)
+  {
+    channel = channel1;
+    pendingGauge = pendingGauge1;
+    waitingGauge = waitingGauge1;
+    boolean coalesce = batchSize1 > 1 && flushIntervalMs > 0;
+    batchSize = coalesce ? batchSize1 : 1;
+    if (coalesce)
+    {
+      flushExecService = Executors.newSingleThreadScheduledExecutor(r ->
+      {
+        Thread t = new Thread(r, "ThreadAckFlush");
+        t.setDaemon(true);
+        return t;
+      });
+      flushExecService.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    else
+    {
+      flushExecService = null;
+    }
+    NtfMetrics.registerGauge(pendingGauge, this::numPending);
+    NtfMetrics.registerGauge(waitingGauge, this::numWaiting);
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Record a delivery handed to a bucket manager. Called by the consumer.
+   * @param deliveryTag - delivery tag
+   * @param bucketNum - bucket processing the delivery
+   */
+  synchronized void register(long deliveryTag, int bucketNum)
+  {
+    pending.put(deliveryTag, bucketNum);
+  }
+
+  /**
+   * Record that a delivery has been processed and may be acked. Called by bucket managers.
+   * @param deliveryTag - delivery tag
+   */
+  synchronized void complete(long deliveryTag)
+  {
+    Integer bucketNum = pending.remove(deliveryTag);
+    if (bucketNum == null)
+    {
+      // Not registered, ack it on its own.
+      ackSingle(deliveryTag);
+      return;
+    }
+    // Keep to one waiting event per bucket. See class comment.
+    if (waitingByBucket.containsKey(bucketNum))
+    {
+      flush();
+      Long prevTag = waitingByBucket.remove(bucketNum);
+      if (prevTag != null)
+      {
+        completed.remove(prevTag);
+        ackSingle(prevTag);
+      }
+    }
+    completed.put(deliveryTag, bucketNum);
+    waitingByBucket.put(bucketNum, deliveryTag);
+    if (completed.size() >= batchSize) flush();
+  }
+
+  /**
+   * Return a delivery that could not be processed to the queue. Called by bucket managers.
+   * No-op if the delivery has already completed.
+   * @param deliveryTag - delivery tag
+   */
+  synchronized void fail(long deliveryTag)
+  {
+    if (pending.remove(deliveryTag) == null) return;
+    NtfMetrics.increment(METRIC_NACKS);
+    try
+    {
+      channel.basicNack(deliveryTag, false, true);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ACK_ERR", deliveryTag, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Return all deliveries handed to a bucket that have not completed to the queue.
+   * Called when a bucket is stopped so that its events go to the dispatcher taking over the bucket.
+   * Completed deliveries for the bucket are still acked.
+   * @param bucketNum - bucket
+   * @return number of deliveries returned
+   */
+  synchronized int failBucket(int bucketNum)
+  {
+    var tags = new ArrayList<Long>();
+    for (Map.Entry<Long, Integer> entry : pending.entrySet())
+    {
+      if (entry.getValue() == bucketNum) tags.add(entry.getKey());
+    }
+    for (long tag : tags) fail(tag);
+    // Completed tags may have been waiting on the ones just returned
+    if (!tags.isEmpty()) flush();
+    return tags.size();
+  }
+
+  /**
+   * Ack the completed delivery waiting for a bucket, if any, without waiting on lower tags.
+   * Called before a virtual bucket is moved to another bucket, so that none of its events can be redelivered
+   *   to the bucket it is moving from, and before a bucket persists a batch of events.
+   * @param bucketNum - bucket
+   */
+  synchronized void ackBucket(int bucketNum)
+  {
+    flush();
+    Long tag = waitingByBucket.remove(bucketNum);
+    if (tag == null) return;
+    completed.remove(tag);
+    ackSingle(tag);
+  }
+
+  /**
+   * Ack the highest completed tag that has no pending tag below it, along with all tags below it.
+   */
+  synchronized void flush()
+  {
+    if (completed.isEmpty()) return;
+    Long limit = pending.isEmpty() ? null : pending.firstKey();
+    Long ackTag = (limit == null) ? completed.lastKey() : completed.lowerKey(limit);
+    if (ackTag == null) return;
+    NavigableMap<Long, Integer> acked = completed.headMap(ackTag, true);
+    int numAcked = acked.size();
+    for (Integer bucketNum : acked.values()) waitingByBucket.remove(bucketNum);
+    acked.clear();
+    try
+    {
+      channel.basicAck(ackTag, true);
+      NtfMetrics.increment(METRIC_ACK_FRAMES);
+      NtfMetrics.add(METRIC_ACK_EVENTS, numAcked);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      // Channel is most likely closed, in which case the broker will redeliver the events.
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ACK_ERR", ackTag, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Flush what can be acked and stop the periodic flush.
+   */
+  void close()
+  {
+    if (flushExecService != null) flushExecService.shutdownNow();
+    flush();
+    NtfMetrics.removeGauge(pendingGauge);
+    NtfMetrics.removeGauge(waitingGauge);
+  }
+
+  synchronized int numPending() { return pending.size(); }
+  synchronized int numWaiting() { return completed.size(); }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private void ackSingle(long deliveryTag)
+  {
+    try
+    {
+      channel.basicAck(deliveryTag, false);
+      NtfMetrics.increment(METRIC_ACK_FRAMES);
+      NtfMetrics.increment(METRIC_ACK_EVENTS);
+      NtfMetrics.increment(METRIC_ACK_SINGLE);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ACK_ERR", deliveryTag, e.getMessage()), e);
+    }
+  }
+}
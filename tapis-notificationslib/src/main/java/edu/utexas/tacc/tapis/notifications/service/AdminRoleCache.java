@@ -0,0 +1,222 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.client.shared.exceptions.TapisClientException;
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Bounded cache of Security Kernel admin role lookups keyed by (tenant, user).
+ * Auth checks for reads and searches ask whether the oboUser has the service admin role. Rather than a remote call to
+ *   SK for each request the result is cached. Users with the role are cached for the positive TTL and users without
+ *   it for the negative TTL, so a change in role takes effect within the TTL, or right away if the entry is
+ *   invalidated.
+ * Loads are single-flight: when several requests miss on the same key at once only one calls SK and the others wait
+ *   for its result. Errors are not cached.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ * A size less than 1 disables the cache.
+ */
+public final class AdminRoleCache
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(AdminRoleCache.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_SIZE = 10000;
+  public static final int DEFAULT_TTL = 60; // seconds
+  public static final int DEFAULT_NEGATIVE_TTL = 60; // seconds
+
+  // Metric names
+  static final String METRIC_HITS = "ntf.adminrole.hits";
+  static final String METRIC_MISSES = "ntf.adminrole.misses";
+  static final String METRIC_LOAD_TIME = "ntf.adminrole.load";
+  static final String METRIC_SIZE = "ntf.adminrole.size";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static AdminRoleCache instance;
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+
+  // Guarded by this. Iteration order is least recently used first.
+  private final LinkedHashMap<Key, Entry> entries;
+  // Loads in progress. Loads started before an invalidation are removed, so later requests do not wait for them.
+  private final Map<Key, CompletableFuture<Boolean>> loads = new ConcurrentHashMap<>();
+  // Incremented on each invalidation. A load started before an invalidation does not populate the cache.
+  private final AtomicLong generation = new AtomicLong();
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  AdminRoleCache(int maxSize1, long ttlSeconds, long negativeTtlSeconds)
+  {
+    maxSize = maxSize1;
+    ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, ttlSeconds));
+    negativeTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, negativeTtlSeconds));
+    entries = new LinkedHashMap<>(16, 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) { return size() > maxSize; }
+    };
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static AdminRoleCache getInstance()
+  {
+    if (instance == null)
+    {
+      RuntimeParameters parms = RuntimeParameters.getInstance();
+      instance = new AdminRoleCache(parms.getNtfAdminRoleCacheSize(), parms.getNtfAdminRoleCacheTtl(),
+                                    parms.getNtfAdminRoleCacheNegativeTtl());
+      NtfMetrics.registerGauge(METRIC_SIZE, instance::size);
+    }
+    return instance;
+  }
+
+  /**
+   * Check if a user has the admin role, using the cached result if present and not expired.
+   * @param tenant - tenant of user
+   * @param user - user
+   * @param loader - looks up the role on a miss, e.g. using SK
+   * @return true if user has the admin role
+   * @throws TapisException - on error
+   * @throws TapisClientException - on error from the loader
+   */
+  public boolean isAdmin(String tenant, String user, RoleLoader loader) throws TapisException, TapisClientException
+  {
+    if (maxSize < 1) return load(tenant, user, loader);
+    var key = new Key(tenant, user);
+    Entry entry;
+    synchronized (this) { entry = entries.get(key); }
+    if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0)
+    {
+      NtfMetrics.increment(METRIC_HITS);
+      return entry.isAdmin();
+    }
+    NtfMetrics.increment(METRIC_MISSES);
+
+    // Only one load per key. If one is already in progress wait for it.
+    var future = new CompletableFuture<Boolean>();
+    CompletableFuture<Boolean> inProgress = loads.putIfAbsent(key, future);
+    if (inProgress != null) return await(inProgress);
+    try
+    {
+      long gen = generation.get();
+      boolean isAdmin = load(tenant, user, loader);
+      long expiresAt = System.nanoTime() + (isAdmin ? ttlNanos : negativeTtlNanos);
+      synchronized (this)
+      {
+        if (generation.get() == gen) entries.put(key, new Entry(isAdmin, expiresAt));
+      }
+      future.complete(isAdmin);
+      return isAdmin;
+    }
+    catch (TapisException | TapisClientException | RuntimeException | Error e)
+    {
+      // Requests waiting on this load get the same error
+      future.completeExceptionally(e);
+      throw e;
+    }
+    finally
+    {
+      loads.remove(key, future);
+    }
+  }
+
+  /**
+   * Remove cached entries. Requests made after this do not use the result of a load already in progress.
+   * @param tenant - tenant, null for all tenants
+   * @param user - user, null for all users in the tenant
+   * @return number of entries removed
+   */
+  public synchronized int invalidate(String tenant, String user)
+  {
+    generation.incrementAndGet();
+    Predicate<Key> matches =
+            k -> tenant == null || (k.tenant().equals(tenant) && (user == null || k.user().equals(user)));
+    loads.keySet().removeIf(matches);
+    int numRemoved = entries.size();
+    entries.keySet().removeIf(matches);
+    numRemoved -= entries.size();
+    log.info(LibUtils.getMsg("NTFLIB_ADMINROLE_CACHE_INVALIDATE", tenant, user, numRemoved));
+    return numRemoved;
+  }
+
+  public synchronized int size() { return entries.size(); }
+
+  /*
+   * Look up the role of a user, e.g. in SK
+   */
+  @FunctionalInterface
+  public interface RoleLoader
+  {
+    boolean isAdmin(String tenant, String user) throws TapisException, TapisClientException;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static boolean load(String tenant, String user, RoleLoader loader)
+          throws TapisException, TapisClientException
+  {
+    long start = System.nanoTime();
+    try { return loader.isAdmin(tenant, user); }
+    finally { NtfMetrics.recordNanos(METRIC_LOAD_TIME, System.nanoTime() - start); }
+  }
+
+  /*
+   * Wait for a load started by another request. Errors from the load are thrown as is.
+   */
+  private static boolean await(CompletableFuture<Boolean> future) throws TapisException, TapisClientException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new TapisException(LibUtils.getMsg("NTFLIB_ADMINROLE_CACHE_INTRPT"), e);
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if (cause instanceof TapisException te) throw te;
+      if (cause instanceof TapisClientException tce) throw tce;
+      if (cause instanceof RuntimeException re) throw re;
+      throw new TapisException(cause.getMessage(), cause);
+    }
+  }
+
+  private record Key(String tenant, String user) {}
+
+  private record Entry(boolean isAdmin, long expiresAtNanos) {}
+}
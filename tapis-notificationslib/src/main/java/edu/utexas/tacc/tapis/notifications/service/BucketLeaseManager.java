@@ -0,0 +1,412 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+
+/*
+ * Shares the buckets among dispatcher replicas using leases held in the DB table notifications_leases.
+ *
+ * Each dispatcher holds a membership lease and some number of bucket leases. One dispatcher also holds the router
+ *   lease, making it responsible for forwarding events from the main queue to the bucket queues.
+ * On each heartbeat the dispatcher renews the leases it holds and then moves towards an even share of the buckets:
+ *   ceil(number of buckets / number of dispatchers). Buckets above the share are stopped and released. Buckets
+ *   below the share are taken from those that are free, which includes buckets whose owner has stopped renewing.
+ * So when a dispatcher dies its buckets are taken over once their leases expire, and when a dispatcher joins the
+ *   others hand over buckets until each has its share.
+ *
+ * A bucket is always stopped before its lease is released, so at most one dispatcher processes a bucket.
+ * If leases cannot be renewed, e.g. the DB is unreachable, all buckets are stopped before the leases could expire
+ *   and be taken by another dispatcher. Since DB times are used for leases, clocks on dispatcher hosts do not matter.
+ *
+ * Starting and stopping buckets is done by the listener. Listener methods are called one at a time.
+ */
+public final class BucketLeaseManager
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(BucketLeaseManager.class);
+
+  // Lease names
+  static final String BUCKET_LEASE_PREFIX = "bucket.";
+  static final String MEMBER_LEASE_PREFIX = "dispatcher.";
+  static final String ROUTER_LEASE = "router";
+
+  // How often to check that leases have been renewed recently enough (in milliseconds)
+  private static final long FENCE_CHECK_INTERVAL_MS = 1000;
+
+  // Metric names
+  static final String METRIC_LEASE_BUCKETS = "ntf.dispatch.lease.buckets";
+  static final String METRIC_LEASE_ACQUIRED = "ntf.dispatch.lease.acquired";
+  static final String METRIC_LEASE_LOST = "ntf.dispatch.lease.lost";
+  static final String METRIC_LEASE_FENCED = "ntf.dispatch.lease.fenced";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final NotificationsDao dao;
+  private final String ownerId;
+  private final int numBuckets;
+  private final int ttlSeconds;
+  private final int heartbeatSeconds;
+  // Buckets are stopped if leases have not been renewed within this time
+  private final long fenceNanos;
+  private final Listener listener;
+
+  // Fields below are guarded by this.
+  // Buckets being processed by this dispatcher
+  private final Set<Integer> ownedBuckets = new TreeSet<>();
+  private boolean router;
+  private boolean closed;
+  // Start time of the last successful renewal
+  private long lastRenewNanos;
+
+  private final ScheduledExecutorService heartbeatExecService = newScheduler("ThreadLeaseHeartbeat");
+  // Separate thread so that a heartbeat stuck on the DB does not hold up fencing
+  private final ScheduledExecutorService fenceExecService = newScheduler("ThreadLeaseFence");
+
+  /* ********************************************************************** */
+  /*                                Listener                                */
+  /* ********************************************************************** */
+  /*
+   * Starts and stops work for the leases held by this dispatcher.
+   * A stop must not return until the work has stopped, since the lease may then be taken by another dispatcher.
+   */
+  interface Listener
+  {
+    void startBucket(int bucketNum) throws Exception;
+    void stopBucket(int bucketNum);
+    void startRouter() throws Exception;
+    void stopRouter();
+  }
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * Heartbeat must be less than the ttl. If not, one third of the ttl is used.
+   */
+  BucketLeaseManager(NotificationsDao dao1, String ownerId1, int numBuckets1, int ttlSeconds1, int heartbeatSeconds1,
+                     Listener listener1)
+  {
+    dao = dao1;
+    ownerId = ownerId1;
+    numBuckets = numBuckets1;
+    ttlSeconds = Math.max(2, ttlSeconds1);
+    heartbeatSeconds = (heartbeatSeconds1 > 0 && heartbeatSeconds1 < ttlSeconds) ? heartbeatSeconds1
+                                                                                  : Math.max(1, ttlSeconds / 3);
+    fenceNanos = TimeUnit.SECONDS.toNanos(ttlSeconds - heartbeatSeconds);
+    listener = listener1;
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Start the heartbeat and fence check
+   */
+  void start()
+  {
+    log.info(LibUtils.getMsg("NTFLIB_DSP_LEASE_START", ownerId, numBuckets, ttlSeconds, heartbeatSeconds));
+    NtfMetrics.registerGauge(METRIC_LEASE_BUCKETS, this::numOwnedBuckets);
+    // An exception escaping a scheduled task would end the heartbeats
+    heartbeatExecService.scheduleWithFixedDelay(() ->
+    {
+      try { heartbeat(); }
+      catch (RuntimeException e)
+      {
+        log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_RENEW_ERR", ownerId, e.getMessage()), e);
+      }
+    }, 0, heartbeatSeconds, TimeUnit.SECONDS);
+    fenceExecService.scheduleWithFixedDelay(this::checkFence, FENCE_CHECK_INTERVAL_MS, FENCE_CHECK_INTERVAL_MS,
+                                            TimeUnit.MILLISECONDS);
+  }
+
+  /*
+   * Stop everything and release all leases so that other dispatchers can take over right away
+   */
+  void close()
+  {
+    log.info(LibUtils.getMsg("NTFLIB_DSP_LEASE_CLOSE", ownerId));
+    heartbeatExecService.shutdownNow();
+    fenceExecService.shutdownNow();
+    List<String> names;
+    synchronized (this)
+    {
+      if (closed) return;
+      closed = true;
+      names = heldLeaseNames();
+      stopAll();
+    }
+    NtfMetrics.removeGauge(METRIC_LEASE_BUCKETS);
+    try { dao.releaseLeases(ownerId, names); }
+    catch (TapisException | RuntimeException e)
+    {
+      // Leases will expire
+      log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_RELEASE_ERR", ownerId, e.getMessage()), e);
+    }
+  }
+
+  /*
+   * Renew held leases and move towards an even share of the buckets.
+   * DB calls are made without holding the lock, so that fencing is never held up by the DB.
+   */
+  void heartbeat()
+  {
+    long startNanos = System.nanoTime();
+    List<String> names;
+    synchronized (this)
+    {
+      if (closed) return;
+      names = heldLeaseNames();
+    }
+    // Always try for the router, it is free if its owner has stopped
+    if (!names.contains(ROUTER_LEASE)) names.add(ROUTER_LEASE);
+    Set<String> held;
+    Map<String, String> owners;
+    try
+    {
+      held = dao.acquireLeases(ownerId, names, ttlSeconds);
+      owners = dao.getLeaseOwners();
+    }
+    catch (TapisException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_RENEW_ERR", ownerId, e.getMessage()), e);
+      return;
+    }
+
+    List<String> toRelease;
+    List<String> toAcquire;
+    boolean isRouter;
+    synchronized (this)
+    {
+      if (closed) return;
+      lastRenewNanos = startNanos;
+      applyRenewal(held);
+      int share = bucketShare(owners);
+      toRelease = shedBuckets(share);
+      toAcquire = toRelease.isEmpty() ? freeBuckets(owners, share) : Collections.emptyList();
+      isRouter = router;
+    }
+
+    try
+    {
+      if (!toRelease.isEmpty()) dao.releaseLeases(ownerId, toRelease);
+      if (!toAcquire.isEmpty())
+      {
+        Set<String> acquired = dao.acquireLeases(ownerId, toAcquire, ttlSeconds);
+        synchronized (this)
+        {
+          // Leases were acquired after startNanos, so they are good as long as the renewal is
+          if (!closed && System.nanoTime() - startNanos < fenceNanos)
+          {
+            for (String name : acquired) startBucket(bucketNumber(name));
+          }
+        }
+      }
+      // Expired leases are free anyway, remove them so that dispatchers that have stopped are no longer listed
+      if (isRouter) dao.deleteExpiredLeases();
+    }
+    catch (TapisException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_RENEW_ERR", ownerId, e.getMessage()), e);
+    }
+  }
+
+  /*
+   * Stop everything if leases have not been renewed in time, since other dispatchers may take them once they expire
+   */
+  synchronized void checkFence()
+  {
+    if (closed || (ownedBuckets.isEmpty() && !router)) return;
+    long sinceRenewNanos = System.nanoTime() - lastRenewNanos;
+    if (sinceRenewNanos < fenceNanos) return;
+    log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_FENCE", ownerId, TimeUnit.NANOSECONDS.toMillis(sinceRenewNanos),
+                              ownedBuckets.size(), router));
+    NtfMetrics.increment(METRIC_LEASE_FENCED);
+    stopAll();
+  }
+
+  synchronized int numOwnedBuckets() { return ownedBuckets.size(); }
+  synchronized Set<Integer> getOwnedBuckets() { return new TreeSet<>(ownedBuckets); }
+  synchronized boolean isRouter() { return router; }
+  String getOwnerId() { return ownerId; }
+
+  static String bucketLeaseName(int bucketNum) { return BUCKET_LEASE_PREFIX + bucketNum; }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Names of the membership lease and the leases currently held. Caller must hold the lock.
+   */
+  private List<String> heldLeaseNames()
+  {
+    var names = new ArrayList<String>();
+    names.add(MEMBER_LEASE_PREFIX + ownerId);
+    if (router) names.add(ROUTER_LEASE);
+    for (int bucketNum : ownedBuckets) names.add(bucketLeaseName(bucketNum));
+    return names;
+  }
+
+  /*
+   * Stop work for leases that were not renewed and start the router if it was acquired. Caller must hold the lock.
+   */
+  private void applyRenewal(Set<String> held)
+  {
+    for (int bucketNum : new ArrayList<>(ownedBuckets))
+    {
+      if (held.contains(bucketLeaseName(bucketNum))) continue;
+      log.warn(LibUtils.getMsg("NTFLIB_DSP_LEASE_LOST", ownerId, bucketLeaseName(bucketNum)));
+      NtfMetrics.increment(METRIC_LEASE_LOST);
+      stopBucket(bucketNum);
+    }
+    boolean routerHeld = held.contains(ROUTER_LEASE);
+    if (router && !routerHeld)
+    {
+      log.warn(LibUtils.getMsg("NTFLIB_DSP_LEASE_LOST", ownerId, ROUTER_LEASE));
+      stopRouter();
+    }
+    else if (!router && routerHeld)
+    {
+      log.info(LibUtils.getMsg("NTFLIB_DSP_LEASE_ACQUIRED", ownerId, ROUTER_LEASE));
+      try
+      {
+        listener.startRouter();
+        router = true;
+      }
+      catch (Exception e)
+      {
+        // Lease expires since it is not renewed, unless we succeed on the next heartbeat
+        log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_START_ERR", ownerId, ROUTER_LEASE, e.getMessage()), e);
+      }
+    }
+  }
+
+  /*
+   * Number of buckets each dispatcher should process given the live dispatchers
+   */
+  private int bucketShare(Map<String, String> owners)
+  {
+    long numMembers = owners.keySet().stream().filter(n -> n.startsWith(MEMBER_LEASE_PREFIX)).count();
+    numMembers = Math.max(1L, numMembers);
+    return (int) ((numBuckets + numMembers - 1) / numMembers);
+  }
+
+  /*
+   * Stop buckets above our share, highest numbered first. Return the lease names to be released.
+   * Caller must hold the lock.
+   */
+  private List<String> shedBuckets(int share)
+  {
+    var names = new ArrayList<String>();
+    var buckets = new ArrayList<>(ownedBuckets);
+    for (int i = buckets.size() - 1; i >= share; i--)
+    {
+      int bucketNum = buckets.get(i);
+      log.info(LibUtils.getMsg("NTFLIB_DSP_LEASE_SHED", ownerId, bucketLeaseName(bucketNum), share));
+      stopBucket(bucketNum);
+      names.add(bucketLeaseName(bucketNum));
+    }
+    return names;
+  }
+
+  /*
+   * Free bucket leases to try for in order to reach our share. Shuffled so that dispatchers starting at the same
+   *   time do not all go after the same buckets. Caller must hold the lock.
+   */
+  private List<String> freeBuckets(Map<String, String> owners, int share)
+  {
+    int numWanted = share - ownedBuckets.size();
+    if (numWanted <= 0) return Collections.emptyList();
+    var names = new ArrayList<String>();
+    for (int bucketNum = 0; bucketNum < numBuckets; bucketNum++)
+    {
+      String name = bucketLeaseName(bucketNum);
+      if (!owners.containsKey(name)) names.add(name);
+    }
+    Collections.shuffle(names);
+    return names.size() > numWanted ? new ArrayList<>(names.subList(0, numWanted)) : names;
+  }
+
+  /*
+   * Caller must hold the lock
+   */
+  private void startBucket(int bucketNum)
+  {
+    if (ownedBuckets.contains(bucketNum)) return;
+    log.info(LibUtils.getMsg("NTFLIB_DSP_LEASE_ACQUIRED", ownerId, bucketLeaseName(bucketNum)));
+    try
+    {
+      listener.startBucket(bucketNum);
+      ownedBuckets.add(bucketNum);
+      NtfMetrics.increment(METRIC_LEASE_ACQUIRED);
+    }
+    catch (Exception e)
+    {
+      // Lease expires since it is not renewed. Make sure nothing is left running.
+      log.error(LibUtils.getMsg("NTFLIB_DSP_LEASE_START_ERR", ownerId, bucketLeaseName(bucketNum), e.getMessage()), e);
+      listener.stopBucket(bucketNum);
+    }
+  }
+
+  /*
+   * Caller must hold the lock
+   */
+  private void stopBucket(int bucketNum)
+  {
+    listener.stopBucket(bucketNum);
+    ownedBuckets.remove(bucketNum);
+  }
+
+  /*
+   * Caller must hold the lock
+   */
+  private void stopRouter()
+  {
+    listener.stopRouter();
+    router = false;
+  }
+
+  /*
+   * Caller must hold the lock
+   */
+  private void stopAll()
+  {
+    if (router) stopRouter();
+    for (int bucketNum : new ArrayList<>(ownedBuckets)) stopBucket(bucketNum);
+  }
+
+  private static int bucketNumber(String leaseName)
+  {
+    return Integer.parseInt(leaseName.substring(BUCKET_LEASE_PREFIX.length()));
+  }
+
+  private static ScheduledExecutorService newScheduler(String threadName)
+  {
+    return Executors.newSingleThreadScheduledExecutor(r ->
+    {
+      Thread t = new Thread(r, threadName);
+      t.setDaemon(true);
+      return t;
+    });
+  }
+}
@@ -0,0 +1,249 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Group commit of deletes for delivered notifications.
+ * Rather than one connection, DELETE and commit for each delivery, delivered notifications are queued and removed
+ *   in a single transaction per batch, one DELETE ... WHERE tenant = ? AND uuid = ANY(?) per tenant in the batch.
+ * A batch is flushed when the number of queued deletes reaches the batch size or when the flush interval passes.
+ * Batches are flushed one at a time on a single thread, so deletes use at most one connection.
+ *
+ * The future returned when a delete is queued completes once the delete is committed.
+ * A notification whose delete is not committed, e.g. we crash or the batch fails, remains persisted and is
+ *   delivered again, the same at-least-once behavior as before.
+ *
+ * A batch size or flush interval less than 1 means each delete is made on its own using the caller's executor.
+ * There is a single instance per JVM, created by the dispatch service using init().
+ */
+public final class DeliveredNotificationDeleter
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(DeliveredNotificationDeleter.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  public static final int DEFAULT_FLUSH_INTERVAL = 20; // milliseconds
+
+  // Metric names
+  static final String METRIC_BATCHES = "ntf.delivered.delete.batches";
+  static final String METRIC_DELETES = "ntf.delivered.delete.notifications";
+  static final String METRIC_FAILED = "ntf.delivered.delete.failed";
+  static final String METRIC_FLUSH_TIME = "ntf.delivered.delete.flush";
+  static final String METRIC_QUEUED = "ntf.delivered.delete.queued";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static DeliveredNotificationDeleter instance;
+
+  private final NotificationsDao dao;
+  private final int batchSize;
+
+  // Deletes waiting to be flushed
+  private final Queue<PendingDelete> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger numQueued = new AtomicInteger();
+  // Set when a flush for a full batch has been requested but has not started
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private volatile boolean closed;
+
+  // Single thread for flushing. Null if each delete is made on its own.
+  private final ScheduledExecutorService flushExecService;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  DeliveredNotificationDeleter(NotificationsDao dao1, int batchSize1, long flushIntervalMs)
+  {
+    dao = dao1;
+    boolean grouped = batchSize1 > 1 && flushIntervalMs > 0;
+    batchSize = grouped ? batchSize1 : 1;
+    if (grouped)
+    {
+      flushExecService = Executors.newSingleThreadScheduledExecutor(r ->
+      {
+        Thread t = new Thread(r, "ThreadDeliveredDeleteFlush");
+        t.setDaemon(true);
+        return t;
+      });
+      flushExecService.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    else
+    {
+      flushExecService = null;
+    }
+    log.info(LibUtils.getMsg("NTFLIB_DSP_DLVRY_DEL_INIT", batchSize, grouped ? flushIntervalMs : 0));
+    NtfMetrics.registerGauge(METRIC_QUEUED, numQueued::get);
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Create the singleton instance. Called by the dispatch service before any deliveries are made.
+   */
+  public synchronized static void init(NotificationsDao dao, RuntimeParameters parms)
+  {
+    if (instance != null) return;
+    instance = new DeliveredNotificationDeleter(dao, parms.getNtfDeliveryDeleteBatchSize(),
+                                                parms.getNtfDeliveryDeleteFlushInterval());
+  }
+
+  /*
+   * Get the singleton instance. init() must have been called.
+   */
+  public synchronized static DeliveredNotificationDeleter getInstance()
+  {
+    if (instance == null) throw new IllegalStateException(LibUtils.getMsg("NTFLIB_DSP_DLVRY_DEL_UNINIT"));
+    return instance;
+  }
+
+  /*
+   * Flush queued deletes and stop flushing in the background. Later deletes are made on their own.
+   */
+  public synchronized static void shutDown(long timeoutMs)
+  {
+    if (instance != null) instance.close(timeoutMs);
+  }
+
+  /**
+   * Queue the delete of a delivered notification.
+   * @param ntf - delivered notification
+   * @param executor - executor used if the delete is made on its own
+   * @return future completed when the delete is committed
+   */
+  CompletableFuture<Void> submit(Notification ntf, Executor executor)
+  {
+    var pendingDelete = new PendingDelete(ntf);
+    if (flushExecService == null || closed)
+    {
+      executor.execute(() -> deleteBatch(List.of(pendingDelete)));
+      return pendingDelete.future;
+    }
+    queue.add(pendingDelete);
+    // Request a flush once a full batch is waiting. The periodic flush picks up the rest.
+    if (numQueued.incrementAndGet() >= batchSize && flushRequested.compareAndSet(false, true))
+    {
+      try { flushExecService.execute(this::flush); }
+      catch (RejectedExecutionException e) { flushRequested.set(false); }
+    }
+    // If we are closing, flush here in case the flush thread has already finished.
+    if (closed) flush();
+    return pendingDelete.future;
+  }
+
+  /**
+   * Flush all queued deletes, a batch at a time.
+   */
+  void flush()
+  {
+    flushRequested.set(false);
+    var batch = new ArrayList<PendingDelete>(batchSize);
+    do
+    {
+      batch.clear();
+      PendingDelete pendingDelete;
+      while (batch.size() < batchSize && (pendingDelete = queue.poll()) != null) batch.add(pendingDelete);
+      if (batch.isEmpty()) return;
+      numQueued.addAndGet(-batch.size());
+      deleteBatch(batch);
+    }
+    while (batch.size() >= batchSize);
+  }
+
+  /**
+   * Stop the background flush and flush what is queued.
+   */
+  void close(long timeoutMs)
+  {
+    closed = true;
+    if (flushExecService != null)
+    {
+      flushExecService.shutdown();
+      try
+      {
+        if (!flushExecService.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) flushExecService.shutdownNow();
+      }
+      catch (InterruptedException e)
+      {
+        flushExecService.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+    flush();
+  }
+
+  int numQueued() { return numQueued.get(); }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Delete a batch in a single transaction and complete the futures.
+   * Throws nothing, failures are passed on through the futures.
+   */
+  private void deleteBatch(List<PendingDelete> batch)
+  {
+    var uuidsByTenant = new HashMap<String, List<UUID>>();
+    for (PendingDelete pendingDelete : batch)
+    {
+      uuidsByTenant.computeIfAbsent(pendingDelete.tenant, k -> new ArrayList<>()).add(pendingDelete.uuid);
+    }
+    long start = System.nanoTime();
+    try
+    {
+      dao.deleteNotificationsByUuid(uuidsByTenant);
+    }
+    catch (Exception e)
+    {
+      NtfMetrics.add(METRIC_FAILED, batch.size());
+      log.error(LibUtils.getMsg("NTFLIB_DSP_DLVRY_DEL_BATCH_ERR", batch.size(), e.getMessage()), e);
+      for (PendingDelete pendingDelete : batch) pendingDelete.future.completeExceptionally(e);
+      return;
+    }
+    NtfMetrics.recordNanos(METRIC_FLUSH_TIME, System.nanoTime() - start);
+    NtfMetrics.increment(METRIC_BATCHES);
+    NtfMetrics.add(METRIC_DELETES, batch.size());
+    for (PendingDelete pendingDelete : batch) pendingDelete.future.complete(null);
+  }
+
+  /*
+   * A queued delete
+   */
+  private static final class PendingDelete
+  {
+    private final String tenant;
+    private final UUID uuid;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private PendingDelete(Notification ntf) { tenant = ntf.getTenant(); uuid = ntf.getUuid(); }
+  }
+}
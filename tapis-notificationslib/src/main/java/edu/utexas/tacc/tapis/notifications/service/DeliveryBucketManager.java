@@ -3,27 +3,33 @@ package edu.utexas.tacc.tapis.notifications.service;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
 
-import org.jooq.tools.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.utexas.tacc.tapis.shared.utils.ThrottleMap;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.shared.utils.TapisUtils;
 import edu.utexas.tacc.tapis.notifications.model.Event;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
 import edu.utexas.tacc.tapis.notifications.model.Delivery;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
 import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
 
 /*
@@ -33,6 +39,25 @@ import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
  * The callable works off an in-memory queue associated with a bucket.
  * Number and types of delivery notifications will be determined by subscriptions for the event.
  *
+ * Events are taken from the queue and matched in queue order. Consecutive events waiting in the queue are persisted
+ *   together in a single transaction, up to a configured batch size, optionally waiting a short time for more
+ *   events to arrive. The events are acked once the transaction commits. If the bucket manager stops in between
+ *   every event in the batch is redelivered, so the events of the last batch are recorded in the DB and on restart
+ *   any of them received again is simply acked. Delivery of each event is then handed, in queue order, to a lane
+ *   for the event series (tenant, source, subject, seriesId). Events in the same series are delivered
+ *   in order, one after the other. Different series make progress concurrently, so a slow delivery target only
+ *   holds up its own series. The series with deliveries in progress are tracked, and before processing
+ *   interrupted deliveries the bucket manager waits for them to finish, so nothing is delivered twice.
+ *
+ * The queue may also hold a marker for moving a virtual bucket from this bucket to another. The marker follows every
+ *   event in the virtual bucket handed to this bucket. When it is reached, deliveries in progress are finished and
+ *   the events acked, then the notifications for the virtual bucket are moved. See VirtualBucketMap.
+ *
+ * When publishers route events straight to the bucket queues (PARTITIONED routing mode) events for a virtual bucket
+ *   just moved to this bucket may arrive before events for it forwarded through the main queue. So the bucket
+ *   manager tracks the virtual buckets assigned to this bucket and holds events published straight to this queue for
+ *   any other virtual bucket, in order, until the fence for the move arrives. See MessageBroker.publishFence.
+ *   Events forwarded through the main queue are never held. Other virtual buckets are not held up.
  */
 public final class DeliveryBucketManager implements Callable<String>
 {
@@ -48,15 +73,41 @@ public final class DeliveryBucketManager implements Callable<String>
   private static final String SHUTDOWN_MSG ="shutdown";
   // How long to pause on error (in minutes)
   private static final int BUCKET_ERR_PAUSE_INTERVAL = 10;
+  // How often to check whether held events can be released (in milliseconds)
+  private static final long HELD_CHECK_INTERVAL_MS = 1000;
+  // How long to wait for the fence of a completed move before releasing held events anyway (in milliseconds)
+  private static final long FENCE_WAIT_MS = 60000;
+
+  // Metric names
+  static final String METRIC_PERSIST_BATCHES = "ntf.dispatch.persist.batches";
+  static final String METRIC_PERSIST_EVENTS = "ntf.dispatch.persist.events";
 
-  // Throttle settings.
-  private static final String THROTTLEMAP_NAME = "NtfWebhookThrottleMap";
-  private static final int    THROTTLE_SECONDS = 5; // Sliding window size
-  private static final int    THROTTLE_LIMIT   = 10; // Max calls in window
-  private static final int    CONNECT_DELAY_MS    = 4000; // Minimum delay
-  private static final int    CONNECT_MAX_SKEW_MS = 4000; // Max skew for randomized re-try delay
-  // Key for delivery address should never be null or empty, but if it is we use a special throttle key.
-  private static final String NO_KEY_FOR_THROTTLE = "NO_THROTTLE_KEY";
+  // Acks go to the message broker
+  private static final EventAcks BROKER_ACKS = new EventAcks()
+  {
+    @Override
+    public void ack(int bucketNum, long deliveryTag) throws IOException
+    {
+      MessageBroker.getInstance().ackMsg(bucketNum, deliveryTag);
+    }
+    @Override
+    public void nack(int bucketNum, long deliveryTag) { MessageBroker.getInstance().nackMsg(bucketNum, deliveryTag); }
+    @Override
+    public void ackBucket(int bucketNum) { MessageBroker.getInstance().ackBucket(bucketNum); }
+  };
+
+  /* ********************************************************************** */
+  /*                               Interfaces                               */
+  /* ********************************************************************** */
+  /*
+   * Acknowledges events taken from the queue, see MessageBroker.ackMsg(), nackMsg() and ackBucket()
+   */
+  interface EventAcks
+  {
+    void ack(int bucketNum, long deliveryTag) throws IOException;
+    void nack(int bucketNum, long deliveryTag);
+    void ackBucket(int bucketNum);
+  }
 
   /* ********************************************************************** */
   /*                                 Fields                                 */
@@ -64,23 +115,48 @@ public final class DeliveryBucketManager implements Callable<String>
 
   private final NotificationsDao dao;
 
+  // In-memory index for matching events to subscriptions. May be null if disabled.
+  private final SubscriptionMatchIndex subscriptionIndex;
+
   private final int bucketNum;
   private final BlockingQueue<Delivery> deliveryBucketQueue;
-
-  // ExecutorService for delivery worker tasks
+  // Move marker taken from the queue while collecting a batch, to be processed after the batch
+  private Delivery nextDelivery;
+  // Acks events taken from the queue. See EventAcks.
+  private final EventAcks acks;
+
+  // Events in the last batch persisted before starting or resuming after an error. They may be redelivered if
+  //   they were not acked, in which case they are acked without being processed again. Removed once seen.
+  private final Set<UUID> lastBatchEventUuids = new HashSet<>();
+
+  // Virtual buckets assigned to this bucket. Null if events are not checked, i.e. they are routed by the dispatcher.
+  private final Set<Integer> ownedVirtualBuckets;
+  // Events held for each virtual bucket not assigned to this bucket, in order, and events released to be processed
+  private final Map<Integer, List<Delivery>> heldDeliveries = new LinkedHashMap<>();
+  // When the first event still held for each virtual bucket was held
+  private final Map<Integer, Long> heldSinceNanos = new HashMap<>();
+  private final Queue<Delivery> releasedDeliveries = new ArrayDeque<>();
+  private long lastHeldCheckNanos;
+
+  // ExecutorService for delivery worker tasks. May be shared with other buckets.
   private final ExecutorService deliveryTaskExecService;
-  // List of futures for delivery worker tasks
-  private final List<Future<Notification>> deliveryTaskFutures = new ArrayList<>();
-  // Map of notifications and their future values. Used to track which notifications have been delivered
-  private final Map<Future<Notification>, Notification> deliveryTaskReturns = new HashMap<>();
+
+  // ExecutorService for series lanes. Number of threads determines how many series are delivered concurrently.
+  private final ExecutorService laneExecService;
+  // Series with deliveries in progress. Value is the completion of the last event handed to the lane.
+  private final Map<EventSeriesKey, CompletableFuture<Void>> inFlightSeries = new HashMap<>();
+  // Limits the number of events persisted but not yet delivered
+  private final int maxInFlight;
+  private final Semaphore inFlightPermits;
+
+  // Max number of queued events persisted in one transaction and max time to wait for more events to fill a batch
+  private final int persistBatchSize;
+  private final long persistLingerMs;
 
   // ExecutorService and future for the long-running background recovery task
   private final ExecutorService recoveryExecService = Executors.newSingleThreadExecutor();
   private Future<String> recoveryTaskFuture;
 
-  // Map used to throttle the number of webhook call attempts.
-  private static final ThrottleMap callThrottles = initConnectThrottles();
-
   /* ********************************************************************** */
   /*                             Constructors                               */
   /* ********************************************************************** */
@@ -88,8 +164,34 @@ public final class DeliveryBucketManager implements Callable<String>
   /*
    * Callable is associated with a specific bucket.
    * Dao and deliveryBucketQueue must be non-null.
+   * Subscription index may be null, in which case subscriptions are always matched using the DB.
+   * Delivery executor may be shared with other buckets. See DeliveryExecutors.
+   * Events are checked against the virtual buckets assigned to this bucket if they are routed by the message broker.
+   * Lanes, events in flight and persist batching are set from the runtime parameters.
+   */
+  DeliveryBucketManager(NotificationsDao dao1, BlockingQueue<Delivery> deliveryBucketQueue1, int bucketNum1,
+                        SubscriptionMatchIndex subscriptionIndex1, ExecutorService deliveryTaskExecService1)
+  {
+    this(dao1, deliveryBucketQueue1, bucketNum1, subscriptionIndex1, deliveryTaskExecService1, false);
+  }
+
+  DeliveryBucketManager(NotificationsDao dao1, BlockingQueue<Delivery> deliveryBucketQueue1, int bucketNum1,
+                        SubscriptionMatchIndex subscriptionIndex1, ExecutorService deliveryTaskExecService1,
+                        boolean routedByBroker)
+  {
+    this(dao1, deliveryBucketQueue1, bucketNum1, subscriptionIndex1, deliveryTaskExecService1, routedByBroker,
+         RuntimeParameters.getInstance().getNtfBucketLanes(), RuntimeParameters.getInstance().getNtfBucketMaxInFlight(),
+         RuntimeParameters.getInstance().getNtfBucketPersistBatchSize(),
+         RuntimeParameters.getInstance().getNtfBucketPersistLinger(), BROKER_ACKS);
+  }
+
+  /*
+   * Settings and acks given explicitly. Used directly by tests.
    */
-  DeliveryBucketManager(NotificationsDao dao1, BlockingQueue<Delivery> deliveryBucketQueue1, int bucketNum1)
+  DeliveryBucketManager(NotificationsDao dao1, BlockingQueue<Delivery> deliveryBucketQueue1, int bucketNum1,
+                        SubscriptionMatchIndex subscriptionIndex1, ExecutorService deliveryTaskExecService1,
+                        boolean routedByBroker, int numLanes, int maxInFlight1, int persistBatchSize1,
+                        long persistLingerMs1, EventAcks acks1)
   {
     // Check for invalid parameters.
     if (deliveryBucketQueue1 == null)
@@ -100,12 +202,25 @@ public final class DeliveryBucketManager implements Callable<String>
     {
       throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_DSP_BUCKETMGR_NULL",bucketNum1, "Dao"));
     }
+    if (deliveryTaskExecService1 == null)
+    {
+      throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_DSP_BUCKETMGR_NULL",bucketNum1, "DeliveryExecService"));
+    }
     dao = dao1;
+    subscriptionIndex = subscriptionIndex1;
     bucketNum = bucketNum1;
     deliveryBucketQueue = deliveryBucketQueue1;
-    // NOTE: Can also pass in a custom ThreadFactory if we need more control of the threads created, such
-    //       as setting the thread names or possibly handling exceptions
-    deliveryTaskExecService =  Executors.newFixedThreadPool(RuntimeParameters.getInstance().getNtfDeliveryThreadPoolSize());
+    deliveryTaskExecService = deliveryTaskExecService1;
+    acks = acks1;
+    ownedVirtualBuckets = routedByBroker ? new HashSet<>() : null;
+    laneExecService = Executors.newFixedThreadPool(Math.max(1, numLanes));
+    maxInFlight = Math.max(1, maxInFlight1);
+    inFlightPermits = new Semaphore(maxInFlight);
+    persistBatchSize = Math.max(1, persistBatchSize1);
+    persistLingerMs = Math.max(0, persistLingerMs1);
+    NtfMetrics.registerGauge(DispatchService.METRIC_BUCKET_PREFIX + bucketNum + ".lanes", this::numInFlightSeries);
+    NtfMetrics.registerGauge(DispatchService.METRIC_BUCKET_PREFIX + bucketNum + ".inflight",
+                             () -> maxInFlight - inFlightPermits.availablePermits());
   }
   
   /* ********************************************************************** */
@@ -131,23 +246,13 @@ public final class DeliveryBucketManager implements Callable<String>
     {
       try
       {
-        // RECOVERY Check for and process an interrupted delivery. This can happen if we crash during a delivery.
-        proccessInterruptedDelivery();
-
-        // RECOVERY Blocking call to get first event.
-        // First event may be a duplicate so handle it as a special case.
-        processFirstEvent();
+        // RECOVERY Finish interrupted deliveries and find out which events may be duplicates
+        resume();
 
         // Now processes events as they come in
         log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_WAIT_NEXT", bucketNum));
-        Delivery delivery;
         // Loop forever until interrupted or error
-        while (true)
-        {
-          // Blocking call to get next event
-          delivery = deliveryBucketQueue.take();
-          processDelivery(delivery);
-        }
+        while (true) processNext();
       }
       catch (InterruptedException e)
       {
@@ -166,59 +271,42 @@ public final class DeliveryBucketManager implements Callable<String>
     }
 
     // We are done
+    stopLanes();
     stopRecoveryTask();
     log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_STOP", bucketNum, Thread.currentThread().getId(), Thread.currentThread().getName()));
     return SHUTDOWN_MSG;
   }
 
-  /* Delay connections when too many have recently taken place for a webhook.
-   * NOTE: Code and comments copied on 5/8/2023 from repo: github.com/tapis-project/tapis-shared-java
-   *       File tapis-shared-lib/src/main/java/edu/utexas/tacc/tapis/shared/ssh/apache/SSHConnection.java
-   * This works best for occasional spikes in SSH connection requests, but is less
-   * effective if a large number of requests occur over an extended period.
-   *
-   * The implementation simply delays a connection attempt CONNECT_DELAY_MS +
-   * random(CONNECT_MAX_SKEW_MS) milliseconds.  This approach smoothes out
-   * spikes but ultimately attempts every connection after a short delay.
-   *
-   * This approach has known limitations.  Say, for example, 1000 connection
-   * requests occur nearly at once and 8 connections are allowed in a sliding
-   * window of 4 seconds.  There will be a short delay after the first 8 connection
-   * requests fill the window, but requests received while the window is closed
-   * will still proceed after a short delay.  We can think of this as window
-   * spillage or overflow because even though the window is closed, more than
-   * the configured maximum connections will likely be attempted soon.
-   *
-   * If handling occasional spikes is not sufficient, and we really need to strictly
-   * limit the number of connections within the sliding window, then we would
-   * need to queue or reject overflow connections.  Queuing complicates matters
-   * because queue time might need to be bounded for some connection requests,
-   * making this facility more of a full-blown connection manager. Until the
-   * need arises, we'll stick with the current simple approach.
+  /*
+   * Get ready to process events, on start and after an error.
+   * Find out which events to hold, if events are routed by the message broker. Check for and process interrupted
+   *   deliveries. This can happen if we crash during a delivery. Then load the events persisted in the last batch,
+   *   since if we crashed before acking them they are redelivered.
    */
-  public static void throttleLaunch(String key)
+  void resume() throws TapisException, InterruptedException
   {
-    // Key should never be null or empty, but if it is, log a warning and use a special key
-    // Without a key, callThrottles.record() will throw a null pointer exception.
-    if (StringUtils.isBlank(key))
-    {
-      log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_THROTTLE_NO_KEY", key));
-      key = NO_KEY_FOR_THROTTLE;
-    }
-
-    // Return from here if there is room in the sliding window
-    if (callThrottles.record(key)) return;
-
-    // Calls to this webhook need to be throttled.
-    // Calculate a randomized but short delay in milliseconds.
-    var skewMs = ThreadLocalRandom.current().nextInt(CONNECT_MAX_SKEW_MS);
-    skewMs += CONNECT_DELAY_MS;
+    loadVirtualBuckets();
+    proccessInterruptedDelivery();
+    lastBatchEventUuids.clear();
+    lastBatchEventUuids.addAll(dao.getLastBatchEventUUIDs(bucketNum));
+  }
 
-    // Log the delay.
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_THROTTLE_WEBHOOK", key, skewMs));
+  /*
+   * Blocking call to get the next event, then collect any events to be persisted along with it and process them
+   */
+  void processNext() throws IOException, TapisException, InterruptedException
+  {
+    Delivery delivery = takeNext();
+    if (delivery.isRemap()) processMove(delivery);
+    else if (!ackIfDuplicate(delivery)) processDeliveries(takeBatch(delivery));
+  }
 
-    // Delay for the randomized period.
-    try {Thread.sleep(skewMs);} catch (InterruptedException e) { /* empty */}
+  /*
+   * Stop delivering. Deliveries in progress are interrupted and their notifications delivered after a restart.
+   */
+  void stopLanes()
+  {
+    laneExecService.shutdownNow();
   }
 
   /* ********************************************************************** */
@@ -226,65 +314,324 @@ public final class DeliveryBucketManager implements Callable<String>
   /* ********************************************************************** */
 
   /*
-   * Normal processing for a single event delivery
+   * Normal processing for consecutive event deliveries taken from the queue
+   * If the events cannot be processed they are returned to the message broker queue, so they will be delivered again.
    */
-  private void processDelivery(Delivery delivery) throws IOException, TapisException
+  private void processDeliveries(List<Delivery> deliveries) throws IOException, TapisException, InterruptedException
   {
-    Event event = delivery.getEvent();
-    event.setTypeFields();
+    try
+    {
+      processEvents(deliveries);
+    }
+    catch (IOException | TapisException | RuntimeException e)
+    {
+      // No-op for events that have already been acked
+      for (Delivery delivery : deliveries) acks.nack(bucketNum, delivery.getDeliveryTag());
+      throw e;
+    }
+  }
 
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_EVENT", bucketNum, delivery.getDeliveryTag(), event));
+  /*
+   * Collect consecutive events from the queue to be persisted in a single transaction, starting with the given event.
+   * Waits up to the linger time for more events to fill the batch.
+   * A batch ends with an event that deletes subscriptions, since events after it must be matched once the
+   *   subscriptions are gone. A batch also ends before a move marker, which is kept for the next call to takeNext().
+   * Events already persisted in the last batch are acked and left out.
+   */
+  private List<Delivery> takeBatch(Delivery first) throws InterruptedException, IOException
+  {
+    var deliveries = new ArrayList<Delivery>();
+    deliveries.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(persistLingerMs);
+    Delivery last = first;
+    while (deliveries.size() < persistBatchSize && !last.getEvent().getDeleteSubscriptionsMatchingSubject())
+    {
+      Delivery delivery = pollNext(deadline - System.nanoTime());
+      if (delivery == null) break;
+      if (delivery.isRemap())
+      {
+        nextDelivery = delivery;
+        break;
+      }
+      if (ackIfDuplicate(delivery)) continue;
+      deliveries.add(delivery);
+      last = delivery;
+    }
+    return deliveries;
+  }
 
-    // Find matching subscriptions
-    List<Subscription> matchingSubscriptions = dao.getSubscriptionsForEvent(event);
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_SUBS", bucketNum, event.getUuid(), matchingSubscriptions.size()));
+  /*
+   * Check for an event persisted in the last batch before starting or resuming. If found it has already been
+   *   processed, so simply ack it. Return true if the event was a duplicate.
+   * Every event in the batch is checked, since all of them are redelivered if we crashed after the batch was
+   *   committed but before the events were acked.
+   */
+  private boolean ackIfDuplicate(Delivery delivery) throws IOException
+  {
+    if (lastBatchEventUuids.isEmpty() || !lastBatchEventUuids.remove(delivery.getEvent().getUuid())) return false;
+    log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_ACK_DUP", bucketNum, delivery.getEvent().getUuid()));
+    acks.ack(bucketNum, delivery.getDeliveryTag());
+    return true;
+  }
 
-    // Generate and persist notifications based on subscriptions, update last_event table.
-    // This should all happen in a single transaction.
-    List<Notification> notifications = createAndPersistNotifications(event, matchingSubscriptions);
+  /*
+   * Match subscriptions, persist notifications, ack the events and deliver the notifications
+   * Notifications for all events are persisted in a single transaction. Events are acked and handed off for
+   *   delivery in queue order, so delivery order within a series is preserved.
+   */
+  private void processEvents(List<Delivery> deliveries) throws IOException, TapisException, InterruptedException
+  {
+    var events = new ArrayList<Event>(deliveries.size());
+    var eventNotifications = new ArrayList<List<Notification>>(deliveries.size());
+    var allNotifications = new ArrayList<Notification>();
+    for (Delivery delivery : deliveries)
+    {
+      Event event = delivery.getEvent();
+      event.setTypeFields();
+
+      log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_EVENT", bucketNum, delivery.getDeliveryTag(), event));
+
+      // Find matching subscriptions
+      // Use the in-memory index if it is loaded and current, else fall back to the DB.
+      List<Subscription> matchingSubscriptions;
+      if (subscriptionIndex != null && subscriptionIndex.isReady())
+        matchingSubscriptions = subscriptionIndex.match(event);
+      else
+        matchingSubscriptions = dao.getSubscriptionsForEvent(event);
+      log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_SUBS", bucketNum, event.getUuid(), matchingSubscriptions.size()));
+
+      // Generate notifications based on subscriptions
+      List<Notification> notifications = createNotifications(event, matchingSubscriptions);
+      events.add(event);
+      eventNotifications.add(notifications);
+      allNotifications.addAll(notifications);
+    }
 
-    // RECOVERY NOTE: If we crash here, notifications will have been persisted but the event will not have been
-    //    ack'd off the message queue. Hence, the check above in the call() method for a duplicate event.
+    // Persist notifications for all events, update last_event table. This should all happen in a single transaction.
+    if (!allNotifications.isEmpty())
+    {
+      // Ack the event still waiting from the previous batch first, so that after a crash the only events
+      //   redelivered that have already been processed are those in this batch. See ackIfDuplicate().
+      acks.ackBucket(bucketNum);
+      dao.persistNotificationsAndUpdateLastEvent(bucketNum, events, allNotifications);
+      NtfMetrics.increment(METRIC_PERSIST_BATCHES);
+      NtfMetrics.add(METRIC_PERSIST_EVENTS, events.size());
+      for (int i = 0; i < events.size(); i++)
+      {
+        log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_GEN_N2", bucketNum, events.get(i).getUuid(),
+                                  eventNotifications.get(i).size()));
+      }
+    }
 
-    // All notifications for the event have been persisted, remove message from message broker queue
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_ACK_EVENT", bucketNum, event.getUuid()));
-    MessageBroker.getInstance().ackMsg(delivery.getDeliveryTag());
+    // RECOVERY NOTE: If we crash here, notifications will have been persisted but the events will not have been
+    //    ack'd off the message queue. Hence, the check in ackIfDuplicate() for events in the last batch.
+
+    // All notifications for the events have been persisted, remove messages from message broker queue
+    for (Delivery delivery : deliveries)
+    {
+      log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_ACK_EVENT", bucketNum, delivery.getEvent().getUuid()));
+      acks.ack(bucketNum, delivery.getDeliveryTag());
+    }
 
-    // Deliver notifications using an ExecutorService. Wait for delivery tasks to complete.
-    deliverNotifications(notifications);
+    // Hand off the notifications to the lane for each series. Delivery happens after any earlier events in the series.
+    // If an event has no notifications there is nothing to do for it.
+    for (int i = 0; i < events.size(); i++)
+    {
+      List<Notification> notifications = eventNotifications.get(i);
+      if (!notifications.isEmpty()) submitToLane(events.get(i), notifications);
+    }
+
+    // Removing subscriptions changes which subscriptions match later events in other series.
+    // Wait for it to happen before matching any more events. Such an event is always last in the batch.
+    if (events.get(events.size() - 1).getDeleteSubscriptionsMatchingSubject()) awaitLanes();
   }
 
   /*
    * Check for and process an interrupted delivery
    * An abnormal shutdown may have left us in the middle of a delivery.
    */
-  private void proccessInterruptedDelivery() throws TapisException
+  private void proccessInterruptedDelivery() throws TapisException, InterruptedException
   {
+    // Deliveries still in progress have notifications that are not yet delivered. Let them finish first.
+    awaitLanes();
     log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_PROC_INT", bucketNum));
     // Get all notifications that were in progress and not yet delivered
-    var notifications = dao.getNotifications(bucketNum);
-    // Deliver them
-    deliverNotifications(notifications);
+    // They are in the order in which they were persisted. Group them by event and deliver using series lanes.
+    var eventNotifications = new LinkedHashMap<UUID, List<Notification>>();
+    for (Notification n : dao.getNotifications(bucketNum))
+    {
+      eventNotifications.computeIfAbsent(n.getEventUuid(), k -> new ArrayList<>()).add(n);
+    }
+    for (List<Notification> notifications : eventNotifications.values())
+    {
+      submitToLane(notifications.get(0).getEvent(), notifications);
+    }
+    awaitLanes();
+  }
+
+  /*
+   * Take the next delivery, waiting if necessary. A move marker kept back by takeBatch() comes first, then events
+   *   released from hold. While events are held, check every so often whether they can be released.
+   */
+  private Delivery takeNext() throws InterruptedException, TapisException
+  {
+    Delivery delivery = nextDelivery;
+    nextDelivery = null;
+    while (delivery == null)
+    {
+      releaseHeld();
+      delivery = releasedDeliveries.poll();
+      if (delivery != null) break;
+      delivery = heldDeliveries.isEmpty() ? deliveryBucketQueue.take()
+                                          : deliveryBucketQueue.poll(HELD_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      if (delivery != null && hold(delivery)) delivery = null;
+    }
+    return delivery;
+  }
+
+  /*
+   * Take the next delivery if one arrives within the given time, else return null. Events released from hold
+   *   come first.
+   */
+  private Delivery pollNext(long timeoutNanos) throws InterruptedException
+  {
+    Delivery delivery = releasedDeliveries.poll();
+    long deadline = System.nanoTime() + timeoutNanos;
+    while (delivery == null)
+    {
+      long remainingNs = deadline - System.nanoTime();
+      delivery = (remainingNs > 0) ? deliveryBucketQueue.poll(remainingNs, TimeUnit.NANOSECONDS)
+                                   : deliveryBucketQueue.poll();
+      if (delivery == null) return null;
+      if (hold(delivery)) delivery = null;
+    }
+    return delivery;
+  }
+
+  /*
+   * Load the virtual buckets assigned to this bucket, if events are routed by the message broker.
+   * A virtual bucket being moved off this bucket is still assigned to it until its marker is reached.
+   */
+  private void loadVirtualBuckets() throws TapisException
+  {
+    if (ownedVirtualBuckets == null) return;
+    ownedVirtualBuckets.clear();
+    for (VirtualBucket vb : dao.getVirtualBuckets())
+    {
+      if (vb.bucketNum() == bucketNum) ownedVirtualBuckets.add(vb.vbucket());
+    }
+  }
+
+  /*
+   * Hold an event published straight to this queue if its virtual bucket is not assigned to this bucket.
+   *   Return true if held.
+   * The event stays registered with the message broker, so it is returned to the queue if the bucket stops.
+   */
+  private boolean hold(Delivery delivery)
+  {
+    if (ownedVirtualBuckets == null || delivery.isRemap() || !delivery.isDirect()) return false;
+    int vbucket = EventSeriesKey.of(delivery.getEvent()).virtualBucket();
+    if (ownedVirtualBuckets.contains(vbucket)) return false;
+    if (log.isDebugEnabled())
+      log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_VBUCKET_HOLD", bucketNum, vbucket, delivery.getDeliveryTag()));
+    heldDeliveries.computeIfAbsent(vbucket, k -> new ArrayList<>()).add(delivery);
+    heldSinceNanos.putIfAbsent(vbucket, System.nanoTime());
+    return true;
+  }
+
+  /*
+   * Check held events against the DB, at most once per interval. Held events are normally released by the fence
+   *   for the move, see processFence().
+   * If the DB shows the virtual bucket assigned to this bucket but no fence has arrived within FENCE_WAIT_MS, e.g.
+   *   because the router stopped before sending it, the events are released anyway.
+   * Events for a virtual bucket neither assigned nor moving to this bucket should not arrive here. If they do,
+   *   e.g. because an event was on its way to the queue when the virtual bucket was moved, they are processed here
+   *   rather than held forever.
+   */
+  private void releaseHeld() throws TapisException
+  {
+    if (heldDeliveries.isEmpty()) return;
+    if (System.nanoTime() - lastHeldCheckNanos < TimeUnit.MILLISECONDS.toNanos(HELD_CHECK_INTERVAL_MS)) return;
+    lastHeldCheckNanos = System.nanoTime();
+    var iter = heldDeliveries.entrySet().iterator();
+    while (iter.hasNext())
+    {
+      Map.Entry<Integer, List<Delivery>> entry = iter.next();
+      int vbucket = entry.getKey();
+      VirtualBucket vb = dao.getVirtualBucket(vbucket);
+      if (vb != null && vb.bucketNum() == bucketNum)
+      {
+        long heldMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - heldSinceNanos.get(vbucket));
+        if (heldMs < FENCE_WAIT_MS) continue;
+        ownedVirtualBuckets.add(vbucket);
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_VBUCKET_NO_FENCE", bucketNum, vbucket, entry.getValue().size(),
+                                 heldMs));
+      }
+      else if (vb == null || vb.targetBucket() == null || vb.targetBucket() != bucketNum)
+      {
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_VBUCKET_STRAY", bucketNum, vbucket,
+                                 vb == null ? null : vb.bucketNum(), entry.getValue().size()));
+      }
+      else
+      {
+        // Still moving here
+        continue;
+      }
+      releasedDeliveries.addAll(entry.getValue());
+      heldSinceNanos.remove(vbucket);
+      iter.remove();
+    }
+  }
+
+  /*
+   * Handle the fence for a virtual bucket moved to this bucket. Every event for the virtual bucket forwarded through
+   *   the main queue has been taken, so the virtual bucket is now assigned to this bucket and the events held for it
+   *   are released, in order. A fence received more than once is simply acked.
+   */
+  private void processFence(Delivery fence) throws IOException
+  {
+    int vbucket = fence.getRemap().vbucket();
+    ownedVirtualBuckets.add(vbucket);
+    heldSinceNanos.remove(vbucket);
+    List<Delivery> held = heldDeliveries.remove(vbucket);
+    int numHeld = (held == null) ? 0 : held.size();
+    log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_VBUCKET_RELEASE", bucketNum, vbucket, numHeld));
+    if (held != null) releasedDeliveries.addAll(held);
+    if (fence.getDeliveryTag() > 0) acks.ack(bucketNum, fence.getDeliveryTag());
   }
 
   /*
-   * Wait for and process the first incoming event
+   * Move a virtual bucket from this bucket to another once its marker is reached.
+   * Every event in the virtual bucket handed to this bucket has been persisted. Let deliveries in progress finish,
+   *   so nothing is added to recovery for this bucket after the move, and ack the events, so none are redelivered
+   *   here. Then move the notifications and assign the virtual bucket to its new bucket.
+   * The marker may be handled more than once, in which case the move is already done and it is simply acked.
+   * If the move fails the marker is returned to the queue, if it came from there, and is resent in any case.
+   * A marker for a move to this bucket is a fence, see processFence().
    */
-  private void processFirstEvent() throws TapisException, InterruptedException, IOException
+  private void processMove(Delivery marker) throws TapisException, InterruptedException, IOException
   {
-    log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_WAIT_FIRST", bucketNum));
-    // Blocking call to get next event
-    Delivery delivery = deliveryBucketQueue.take();
-    // For first event received check for a duplicate. If already processed then simply ack it, else process it.
-    if (dao.checkForLastEvent(delivery.getEvent().getUuid(), bucketNum))
+    VirtualBucket move = marker.getRemap();
+    if (ownedVirtualBuckets != null && move.targetBucket() == bucketNum)
+    {
+      processFence(marker);
+      return;
+    }
+    awaitLanes();
+    acks.ackBucket(bucketNum);
+    try
     {
-      log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_ACK_DUP", bucketNum, delivery.getEvent().getUuid()));
-      MessageBroker.getInstance().ackMsg(delivery.getDeliveryTag());
+      boolean moved = dao.moveVirtualBucket(move.vbucket(), move.bucketNum(), move.targetBucket());
+      log.info(LibUtils.getMsg(moved ? "NTFLIB_DSP_BUCKET_VBUCKET_MOVED" : "NTFLIB_DSP_BUCKET_VBUCKET_DONE", bucketNum,
+                               move.vbucket(), move.targetBucket()));
+      if (ownedVirtualBuckets != null) ownedVirtualBuckets.remove(move.vbucket());
     }
-    else
+    catch (TapisException | RuntimeException e)
     {
-      processDelivery(delivery);
+      if (marker.getDeliveryTag() > 0) acks.nack(bucketNum, marker.getDeliveryTag());
+      throw e;
     }
+    if (marker.getDeliveryTag() > 0) acks.ack(bucketNum, marker.getDeliveryTag());
   }
 
   /*
@@ -293,7 +640,7 @@ public final class DeliveryBucketManager implements Callable<String>
   private void startRecoveryTask()
   {
     log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_START_RCVRY", bucketNum));
-    recoveryTaskFuture = recoveryExecService.submit(new RecoveryTask(bucketNum, dao));
+    recoveryTaskFuture = recoveryExecService.submit(new RecoveryTask(bucketNum, dao, deliveryTaskExecService));
   }
 
   /*
@@ -306,11 +653,9 @@ public final class DeliveryBucketManager implements Callable<String>
   }
 
   /*
-   * Create and persist notifications given an event and a list of matching subscriptions
-   * Also update the last_event table as part of the transaction.
+   * Create notifications given an event and a list of matching subscriptions
    */
-  private List<Notification> createAndPersistNotifications(Event event, List<Subscription> subscriptions)
-          throws TapisException
+  private List<Notification> createNotifications(Event event, List<Subscription> subscriptions)
   {
     var notifList = new ArrayList<Notification>();
     if (event == null || subscriptions == null || subscriptions.isEmpty()) return notifList;
@@ -321,14 +666,10 @@ public final class DeliveryBucketManager implements Callable<String>
     UUID eventUuid = event.getUuid();
 
     // Add a notification for each deliveryTarget in each Subscription
-    // Note that we ultimately want to de-duplicate (based on deliveryTarget) in order to prevent a notification from
-    //   being sent to a deliveryTarget more than once.
-    // We do not de-duplicate here because we want to track the subscription associated with each deliveryTarget.
-    // We want to track the associated subscription so that when a notification is in recovery, we stop re-trying after
-    //   the associated subscription is deleted.
-    // TBD For de-duplication we simply delete all persisted matching notifications once there has been a
-    //   successful delivery. In this case matching means matching (event, deliveryTarget) independent of the
-    //   associated subscription.
+    // Notifications are not de-duplicated by deliveryTarget. Each one tracks the subscription it came from, so that
+    //   when a notification is in recovery we stop re-trying after the associated subscription is deleted.
+    // A deliveryTarget listed by more than one subscription is therefore sent one notification per subscription,
+    //   by design.
     for (Subscription s : subscriptions)
     {
       var deliveryTargets = s.getDeliveryTargets();
@@ -339,25 +680,83 @@ public final class DeliveryBucketManager implements Callable<String>
         notifList.add(new Notification(null, s.getSeqId(), tenant, s.getName(), bucketNum, eventUuid, event, dm, created));
       }
     }
-    // Persist all notifications and update the last_event table in a single transaction.
-    dao.persistNotificationsAndUpdateLastEvent(event.getTenant(), event, bucketNum, notifList);
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_GEN_N2", bucketNum, event.getUuid(), notifList.size()));
     return notifList;
   }
 
+  /*
+   * Hand off delivery of notifications for an event to the lane for its series.
+   * Blocks if the max number of events in progress for the bucket has been reached.
+   */
+  private void submitToLane(Event event, List<Notification> notifications) throws InterruptedException
+  {
+    var seriesKey = new EventSeriesKey(event.getTenant(), event.getSource(), event.getSubject(), event.getSeriesId());
+    inFlightPermits.acquire();
+    synchronized (inFlightSeries)
+    {
+      // Start after the last event handed to the lane, if any.
+      CompletableFuture<Void> prev = inFlightSeries.get(seriesKey);
+      if (prev == null) prev = CompletableFuture.completedFuture(null);
+      // If we are shutting down and the lane executor rejects the task, the future completes exceptionally and the
+      //   notifications remain persisted, to be delivered after a restart.
+      CompletableFuture<Void> tail = prev.thenRunAsync(() -> deliverForLane(event, notifications), laneExecService);
+      inFlightSeries.put(seriesKey, tail);
+      // When done, release the permit and stop tracking the series unless another event has been added to the lane.
+      tail.whenComplete((r, e) ->
+      {
+        inFlightPermits.release();
+        synchronized (inFlightSeries) { inFlightSeries.remove(seriesKey, tail); }
+      });
+    }
+  }
+
+  /*
+   * Wait for all deliveries in progress to complete
+   */
+  private void awaitLanes() throws InterruptedException
+  {
+    CompletableFuture<?>[] tails;
+    synchronized (inFlightSeries) { tails = inFlightSeries.values().toArray(new CompletableFuture<?>[0]); }
+    if (tails.length == 0) return;
+    try
+    {
+      CompletableFuture.allOf(tails).get();
+    }
+    catch (ExecutionException e)
+    {
+      // Lane tasks log their own errors, nothing more to do
+    }
+  }
+
+  /*
+   * Deliver notifications for an event within a series lane.
+   * Errors are logged rather than thrown, so that later events in the series are still delivered.
+   */
+  private void deliverForLane(Event event, List<Notification> notifications)
+  {
+    try
+    {
+      deliverNotifications(event, notifications);
+    }
+    catch (Exception e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_DSP_BUCKET_LANE_ERR", bucketNum, event.getUuid(), e.getMessage()), e);
+    }
+  }
+
+  private int numInFlightSeries()
+  {
+    synchronized (inFlightSeries) { return inFlightSeries.size(); }
+  }
+
   /**
    * Deliver notifications using an ExecutorService.
    * Wait for all delivery tasks to complete.
+   * Then handle any event flags that end the series or delete subscriptions.
+   * @param event Event associated with the notifications
    * @param notifications Notifications to be delivered
    */
-  private void deliverNotifications(List<Notification> notifications) throws TapisException {
-    // If nothing to do then return
-    if (notifications == null || notifications.isEmpty()) return;
-
-    // All notifications are associated with the same event, even when working on an interrupted delivery
-    //   This is because a bucket worker works on one event at a time.
-    Event event = notifications.get(0).getEvent();
-
+  private void deliverNotifications(Event event, List<Notification> notifications) throws TapisException
+  {
     // Extract various attributes from event for convenience and clarity
     // Each notification has the same event
     String tenant = event.getTenant();
@@ -366,73 +765,46 @@ public final class DeliveryBucketManager implements Callable<String>
     String seriesId = event.getSeriesId();
     UUID eventUuid = event.getUuid();
 
-    // Clear out futures list and map. They get re-used.
-    deliveryTaskFutures.clear();
-    deliveryTaskReturns.clear();
+    // Encode the event once, it is shared by all notifications for the event
+    var encodedEvent = NotificationJson.encodeEvent(event);
+
     // Add a delivery task for each notification
+    var deliveryTaskFutures = new ArrayList<Future<Notification>>();
     for (Notification ntf : notifications)
     {
       log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY1", bucketNum, ntf.getEventUuid(), ntf.getDeliveryTarget()));
-      // Create a delivery task and submit it to the executor service.
-      Future<Notification> future = deliveryTaskExecService.submit(new DeliveryTask(dao, ntf));
-      // Add the task to the list
-      deliveryTaskFutures.add(future);
-      // Initialize the map entry for tracking the future returns
-      deliveryTaskReturns.put(future, null);
+      // Create and start a delivery task. Webhook calls are made asynchronously, other work uses the executor service.
+      deliveryTaskFutures.add(new DeliveryTask(dao, ntf, encodedEvent).start(deliveryTaskExecService));
     }
 
     // Wait for all tasks to finish
     log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY2", bucketNum, eventUuid, deliveryTaskFutures.size()));
-    // Loop indefinitely waiting for tasks to finish
     // The call to get a future value for a task is a blocking call so no need to pause.
-    // As tasks finish the future values get put into the map. Once all tasks are done the final pass through the
-    //   list of futures will quickly fill in any remaining values and the loop will exit.
-    boolean notDone = true;
-    while (notDone)
-    {
-      notDone = false;
-      // Check each task and capture return values when available.
-      // If any have not finished then notDone ends up true
-      for (Future<Notification> f : deliveryTaskFutures)
+    // Note that the Future.get() will throw an InterruptedException or ExecutionException if the underlying
+    //   thread threw an exception, including runtime exceptions.
+    for (Future<Notification> f : deliveryTaskFutures)
+    {
+      try
       {
-        // If task is not done then reset notDone to true, else record and log the return value
-        if (!f.isDone())
-        {
-          notDone = true;
-        }
-        else
-        {
-          // Task is done. If we have not captured the return value do it now.
-          // Note that the Future.get() will throw an InterruptedException or ExecutionException if the underlying
-          //   thread threw an exception, including runtime exceptions.
-          if (deliveryTaskReturns.get(f) == null)
-          {
-            try
-            {
-              // Make a blocking call to get the return value of the future.
-              Notification ret = f.get();
-              String deliveryTargetStr = ret == null ? null : ret.getDeliveryTarget().toString();
-              log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY3", bucketNum, eventUuid, deliveryTargetStr));
-              deliveryTaskReturns.put(f, ret);
-            }
-            catch (InterruptedException e)
-            {
-              // Log exception for the failed delivery
-              log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY_ERR1", bucketNum, eventUuid, e.getMessage()), e);
-            }
-            catch (ExecutionException e)
-            {
-              // Log exception for the failed delivery
-              log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY_ERR2", bucketNum, eventUuid, e.getMessage()), e);
-            }
-          }
-        }
+        Notification ret = f.get();
+        String deliveryTargetStr = ret == null ? null : ret.getDeliveryTarget().toString();
+        log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY3", bucketNum, eventUuid, deliveryTargetStr));
+      }
+      catch (InterruptedException e)
+      {
+        // Log exception for the failed delivery. We are shutting down, so do not wait for the rest.
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY_ERR1", bucketNum, eventUuid, e.getMessage()), e);
+        Thread.currentThread().interrupt();
+        return;
+      }
+      catch (ExecutionException e)
+      {
+        // Log exception for the failed delivery
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_DLVRY_ERR2", bucketNum, eventUuid, e.getMessage()), e);
       }
     }
 
-    // At this point all tasks are done. The map of values has been filled in as much as possible.
-    //   If any tasks threw an exception then the value in the map deliveryTaskReturns will be null.
-
+    // At this point all tasks are done.
     // All deliveries have completed or failed, and we will not re-try.
 
     // Handle flags indicating we should end a series or delete subscriptions matching a subject.
@@ -469,12 +841,4 @@ public final class DeliveryBucketManager implements Callable<String>
     }
     return false;
   }
-
-  /*
-   * Initialize the webhook callback throttle map
-   */
-  private static ThrottleMap initConnectThrottles()
-  {
-    return new ThrottleMap(THROTTLEMAP_NAME, THROTTLE_SECONDS, THROTTLE_LIMIT);
-  }
 }
@@ -0,0 +1,238 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Circuit breaker for webhook destinations. A destination is the host or the full url of the delivery address,
+ *   based on the key mode.
+ *
+ *   CLOSED    - Attempts are made. After the failure threshold of consecutive failed attempts the breaker opens.
+ *   OPEN      - No attempts are made. Delivery tasks send notifications straight to recovery and the recovery
+ *               task skips them. After the open interval the breaker goes to half open.
+ *   HALF_OPEN - A single probe attempt is allowed. If it succeeds the breaker closes, if it fails the breaker
+ *               opens again. If the probe does not report back within the open interval another probe is allowed.
+ *
+ * Only destinations that have failed are tracked. A destination is forgotten when its breaker closes.
+ * State for each tracked destination is reported as a gauge: 0 = closed, 1 = half open, 2 = open.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ */
+public final class DeliveryCircuitBreaker
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(DeliveryCircuitBreaker.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  public static final int DEFAULT_OPEN_INTERVAL = 60; // seconds
+  public static final WebhookRateLimiter.KeyMode DEFAULT_KEY_MODE = WebhookRateLimiter.KeyMode.HOST;
+
+  // Metric names
+  static final String METRIC_OPEN = "ntf.breaker.open";
+  static final String METRIC_HALF_OPEN = "ntf.breaker.halfopen";
+  static final String METRIC_OPENED = "ntf.breaker.opened";
+  static final String METRIC_CLOSED = "ntf.breaker.closed";
+  static final String METRIC_SHORT_CIRCUITED = "ntf.breaker.shortcircuited";
+  static final String METRIC_STATE_PREFIX = "ntf.breaker.state.";
+
+  /* ********************************************************************** */
+  /*                                Enums                                   */
+  /* ********************************************************************** */
+  public enum State {CLOSED, HALF_OPEN, OPEN}
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static DeliveryCircuitBreaker instance;
+
+  private final int failureThreshold;
+  private final long openIntervalNanos;
+  private final WebhookRateLimiter.KeyMode keyMode;
+  private final LongSupplier nanoClock;
+  // Destinations that have failed. Destination to breaker.
+  private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * A failure threshold less than 1 disables the breaker.
+   */
+  DeliveryCircuitBreaker(int failureThreshold1, long openIntervalMs, WebhookRateLimiter.KeyMode keyMode1,
+                         LongSupplier nanoClock1)
+  {
+    failureThreshold = failureThreshold1;
+    openIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, openIntervalMs));
+    keyMode = (keyMode1 == null) ? DEFAULT_KEY_MODE : keyMode1;
+    nanoClock = nanoClock1;
+    log.info(LibUtils.getMsg("NTFLIB_BREAKER_INIT", failureThreshold, openIntervalMs, keyMode));
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static DeliveryCircuitBreaker getInstance()
+  {
+    if (instance == null)
+    {
+      RuntimeParameters parms = RuntimeParameters.getInstance();
+      instance = new DeliveryCircuitBreaker(parms.getNtfBreakerFailureThreshold(),
+                                            parms.getNtfBreakerOpenInterval() * 1000L,
+                                            parms.getNtfBreakerKeyMode(), System::nanoTime);
+      NtfMetrics.registerGauge(METRIC_OPEN, () -> instance.numInState(State.OPEN));
+      NtfMetrics.registerGauge(METRIC_HALF_OPEN, () -> instance.numInState(State.HALF_OPEN));
+    }
+    return instance;
+  }
+
+  /**
+   * Check if an attempt may be made to a delivery address.
+   * When the breaker is half open this grants the probe, so the caller must follow up with recordResult.
+   * @param deliveryAddress - webhook url
+   * @return true if the attempt may be made
+   */
+  public boolean allowAttempt(String deliveryAddress)
+  {
+    if (failureThreshold < 1) return true;
+    Breaker breaker = breakers.get(getDestination(deliveryAddress));
+    if (breaker == null || breaker.allowAttempt()) return true;
+    NtfMetrics.increment(METRIC_SHORT_CIRCUITED);
+    return false;
+  }
+
+  /**
+   * Record the result of an attempt to a delivery address.
+   * @param deliveryAddress - webhook url
+   * @param success - true if delivered
+   */
+  public void recordResult(String deliveryAddress, boolean success)
+  {
+    if (failureThreshold < 1) return;
+    String destination = getDestination(deliveryAddress);
+    if (success)
+    {
+      // Nothing to do unless the destination has failed before.
+      Breaker breaker = breakers.get(destination);
+      if (breaker != null)
+      {
+        breaker.recordSuccess();
+        breakers.remove(destination, breaker);
+        NtfMetrics.removeGauge(METRIC_STATE_PREFIX + destination);
+      }
+      return;
+    }
+    breakers.computeIfAbsent(destination, this::newBreaker).recordFailure();
+  }
+
+  /**
+   * Get the state of the breaker for a delivery address
+   * @param deliveryAddress - webhook url
+   * @return state
+   */
+  public State getState(String deliveryAddress)
+  {
+    Breaker breaker = breakers.get(getDestination(deliveryAddress));
+    return (breaker == null) ? State.CLOSED : breaker.getState();
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private String getDestination(String deliveryAddress)
+  {
+    return WebhookRateLimiter.getDestination(keyMode, deliveryAddress);
+  }
+
+  private Breaker newBreaker(String destination)
+  {
+    var breaker = new Breaker(destination);
+    NtfMetrics.registerGauge(METRIC_STATE_PREFIX + destination, () -> breaker.getState().ordinal());
+    return breaker;
+  }
+
+  private int numInState(State state)
+  {
+    int n = 0;
+    for (Breaker breaker : breakers.values()) if (breaker.getState() == state) n++;
+    return n;
+  }
+
+  /*
+   * State for one destination
+   */
+  private final class Breaker
+  {
+    private final String destination;
+
+    // All fields below are guarded by this.
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    // When OPEN, time the breaker goes to HALF_OPEN. When HALF_OPEN, time another probe may be granted.
+    private long nextProbeNanos;
+    // Set when a removed breaker should no longer be used
+    private boolean closed;
+
+    private Breaker(String destination1) { destination = destination1; }
+
+    private synchronized boolean allowAttempt()
+    {
+      if (closed || state == State.CLOSED) return true;
+      long now = nanoClock.getAsLong();
+      if (now - nextProbeNanos < 0L) return false;
+      // Grant a probe. Until it reports back, or the interval passes, no more attempts are allowed.
+      if (state == State.OPEN) log.info(LibUtils.getMsg("NTFLIB_BREAKER_HALF_OPEN", destination));
+      state = State.HALF_OPEN;
+      nextProbeNanos = now + openIntervalNanos;
+      return true;
+    }
+
+    private synchronized void recordFailure()
+    {
+      consecutiveFailures++;
+      if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold))
+      {
+        if (state == State.CLOSED) NtfMetrics.increment(METRIC_OPENED);
+        state = State.OPEN;
+        nextProbeNanos = nanoClock.getAsLong() + openIntervalNanos;
+        log.warn(LibUtils.getMsg("NTFLIB_BREAKER_OPEN", destination, consecutiveFailures,
+                                 TimeUnit.NANOSECONDS.toMillis(openIntervalNanos)));
+      }
+    }
+
+    /*
+     * Close the breaker. It is then forgotten, so mark it so any thread still holding it lets attempts through.
+     */
+    private synchronized void recordSuccess()
+    {
+      if (state != State.CLOSED)
+      {
+        NtfMetrics.increment(METRIC_CLOSED);
+        log.info(LibUtils.getMsg("NTFLIB_BREAKER_CLOSED", destination));
+      }
+      state = State.CLOSED;
+      consecutiveFailures = 0;
+      closed = true;
+    }
+
+    private synchronized State getState() { return state; }
+  }
+}
@@ -0,0 +1,161 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Factory for the executors that run DeliveryTasks.
+ * A delivery task spends nearly all of its time blocked, in an http call, in a pause between attempts or
+ *   in a throttle delay. The mode determines how many threads that takes and what they cost.
+ *
+ *   FIXED   - A fixed pool of platform threads for each bucket. Concurrency per bucket is capped at the pool size
+ *             and all threads are created up front. This is the original behavior.
+ *   SHARED  - One pool shared by all buckets. Threads are created on demand up to a max and expire when idle,
+ *             and use a reduced stack size. Memory follows the number of deliveries actually in progress.
+ *   VIRTUAL - One virtual thread per delivery, so blocking costs almost nothing. Requires a JVM that supports
+ *             virtual threads (Java 21 or later). On an older JVM SHARED is used instead.
+ *
+ * This class is non-instantiable
+ */
+public final class DeliveryExecutors
+{
+  // Private constructor to make it non-instantiable
+  private DeliveryExecutors() { throw new AssertionError(); }
+
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(DeliveryExecutors.class);
+
+  // Stack size for threads in SHARED mode. Deliveries do not need a deep stack.
+  static final long SHARED_THREAD_STACK_SIZE = 512L * 1024L;
+  // How long an idle thread in SHARED mode is kept
+  static final long SHARED_THREAD_KEEPALIVE_SECONDS = 60L;
+
+  // Metric names
+  static final String METRIC_SHARED_THREADS = "ntf.dispatch.delivery.threads";
+  static final String METRIC_SHARED_QUEUED = "ntf.dispatch.delivery.queued";
+
+  /* ********************************************************************** */
+  /*                                Enums                                   */
+  /* ********************************************************************** */
+  public enum Mode {FIXED, SHARED, VIRTUAL}
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Determine the mode that will actually be used, i.e. VIRTUAL becomes SHARED if not supported by the JVM.
+   * @param mode - requested mode
+   * @return mode to use
+   */
+  public static Mode effectiveMode(Mode mode)
+  {
+    if (mode == null) return Mode.FIXED;
+    if (mode == Mode.VIRTUAL && !isVirtualThreadSupported()) return Mode.SHARED;
+    return mode;
+  }
+
+  /**
+   * Create an executor for a single bucket in FIXED mode
+   * @param numThreads - number of threads
+   * @return executor
+   */
+  public static ExecutorService newFixed(int numThreads)
+  {
+    return Executors.newFixedThreadPool(Math.max(1, numThreads));
+  }
+
+  /**
+   * Create an executor to be shared by all buckets in SHARED or VIRTUAL mode.
+   * @param mode - SHARED or VIRTUAL
+   * @param maxThreads - max number of threads for SHARED mode. Not used for VIRTUAL.
+   * @return executor
+   */
+  public static ExecutorService newShared(Mode mode, int maxThreads)
+  {
+    if (effectiveMode(mode) == Mode.VIRTUAL)
+    {
+      ExecutorService virtualExecutor = newVirtualIfSupported();
+      if (virtualExecutor != null) return virtualExecutor;
+    }
+    int n = Math.max(1, maxThreads);
+    var tpe = new ThreadPoolExecutor(n, n, SHARED_THREAD_KEEPALIVE_SECONDS, TimeUnit.SECONDS,
+                                     new LinkedBlockingQueue<>(), new SharedThreadFactory());
+    // Threads are only created as tasks arrive and are dropped when idle.
+    tpe.allowCoreThreadTimeOut(true);
+    NtfMetrics.registerGauge(METRIC_SHARED_THREADS, tpe::getPoolSize);
+    NtfMetrics.registerGauge(METRIC_SHARED_QUEUED, () -> tpe.getQueue().size());
+    return tpe;
+  }
+
+  /**
+   * Check if the JVM supports virtual threads
+   * @return true if supported
+   */
+  public static boolean isVirtualThreadSupported()
+  {
+    return getVirtualExecutorFactory() != null;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Look up Executors.newVirtualThreadPerTaskExecutor(). Looked up by name so that we can build for Java 17.
+   */
+  private static Method getVirtualExecutorFactory()
+  {
+    try { return Executors.class.getMethod("newVirtualThreadPerTaskExecutor"); }
+    catch (NoSuchMethodException e) { return null; }
+  }
+
+  /*
+   * Create a virtual thread per task executor. Return null if not possible.
+   */
+  static ExecutorService newVirtualIfSupported()
+  {
+    Method factory = getVirtualExecutorFactory();
+    if (factory == null) return null;
+    try
+    {
+      return (ExecutorService) factory.invoke(null);
+    }
+    catch (ReflectiveOperationException | RuntimeException e)
+    {
+      log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_EXEC_VIRTUAL_ERR", e.getMessage()), e);
+      return null;
+    }
+  }
+
+  /*
+   * Daemon threads with a reduced stack size
+   */
+  private static final class SharedThreadFactory implements ThreadFactory
+  {
+    private final AtomicInteger threadNum = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r)
+    {
+      Thread t = new Thread(null, r, "ThreadDelivery-shared-" + threadNum.incrementAndGet(), SHARED_THREAD_STACK_SIZE);
+      t.setDaemon(true);
+      return t;
+    }
+  }
+}
@@ -1,16 +1,15 @@
 package edu.utexas.tacc.tapis.notifications.service;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
-import okhttp3.Call;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +17,6 @@ import org.slf4j.LoggerFactory;
 import edu.utexas.tacc.tapis.shared.providers.email.EmailClient;
 import edu.utexas.tacc.tapis.shared.providers.email.EmailClientFactory;
 import edu.utexas.tacc.tapis.shared.utils.HTMLizer;
-import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
 import edu.utexas.tacc.tapis.shared.TapisConstants;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
@@ -28,12 +26,17 @@ import edu.utexas.tacc.tapis.notifications.model.Event;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
 
 /*
- * Callable for sending out a single notification generated by a bucket manager.
+ * Task for sending out a single notification generated by a bucket manager.
  * After finite number of attempts give up and add the notification to the recovery table.
  * Number of attempts determined by runtime setting TAPIS_NTF_DELIVERY_ATTEMPTS
- * Attempt interval determined by runtime setting TAPIS_NTF_DELIVERY_RETRY_INTERVAL
+ * Attempt interval determined by runtime setting TAPIS_NTF_DELIVERY_RETRY_INTERVAL along with the backoff and
+ *   jitter settings, see RetryPolicy.
+ *
+ * start() delivers webhooks asynchronously through WebhookTransport and schedules waits between attempts using the
+ *   RetryScheduler, so no thread is held while waiting for a receiver or for the next attempt. Other delivery
+ *   methods make each attempt on the executor.
  */
-public final class DeliveryTask implements Callable<Notification>
+public final class DeliveryTask
 {
   /* ********************************************************************** */
   /*                               Constants                                */
@@ -55,15 +58,25 @@ public final class DeliveryTask implements Callable<Notification>
   private final UUID uuid;
   private final int bucketNum; // Bucket that generated the notification
   private final DeliveryTarget deliveryTarget;
-  private static final OkHttpClient httpClient = new OkHttpClient();
+  // Event encoded once for all notifications for the event. May be null.
+  private final NotificationJson.EncodedEvent encodedEvent;
 
   /* ********************************************************************** */
   /*                             Constructors                               */
   /* ********************************************************************** */
 
   DeliveryTask(NotificationsDao dao1, Notification n1)
+  {
+    this(dao1, n1, null);
+  }
+
+  /*
+   * Create a task that shares the encoded event with other tasks for the same event
+   */
+  DeliveryTask(NotificationsDao dao1, Notification n1, NotificationJson.EncodedEvent encodedEvent1)
   {
     dao = dao1;
+    encodedEvent = encodedEvent1;
     notification = n1;
     tenant = n1.getTenant();
     bucketNum = n1.getBucketNum();
@@ -75,53 +88,29 @@ public final class DeliveryTask implements Callable<Notification>
   /*                             Public Methods                             */
   /* ********************************************************************** */
 
-  /*
-   * Main method for thread.start
-   * Make multiple attempts to deliver the notification. Pause after each attempt.
-   * Number of attempts and interval are based on runtime settings.
+  /**
+   * Start delivery of the notification.
+   * The returned future is completed with the notification if it was delivered or null if all attempts failed and
+   *   the notification was placed in recovery.
+   * Database updates after delivery and non-webhook deliveries run on the executor. Waits between attempts are
+   *   scheduled using the RetryScheduler, so no executor thread is held while waiting.
+   *
+   * @param executor - executor for blocking work
+   * @return future completed when the task is done
    */
-  @Override
-  public Notification call() throws InterruptedException
+  public CompletableFuture<Notification> start(Executor executor)
   {
-    int bucketNum = notification.getBucketNum();
-    DeliveryTarget deliveryTarget = notification.getDeliveryTarget();
-    UUID uuid = notification.getUuid();
-
-    Thread.currentThread().setName("ThreadDelivery-bucket-" + bucketNum + "-method-" + deliveryTarget);
-    log.debug(LibUtils.getMsg("NTFLIB_DSP_DLVRY_START", bucketNum, Thread.currentThread().getId(), Thread.currentThread().getName()));
-
-    // Get number of attempts and attempt interval from settings.
-    int numAttempts = RuntimeParameters.getInstance().getNtfDeliveryMaxAttempts();
-    long deliveryAttemptInterval = RuntimeParameters.getInstance().getNtfDeliveryRetryInterval() * 1000L;
-    for (int i = 1; i <= numAttempts; i++)
+    var result = new CompletableFuture<Notification>();
+    try
     {
-      log.debug(LibUtils.getMsg("NTFLIB_DSP_DLVRY_ATTEMPT", bucketNum, uuid, i, deliveryTarget));
-      try
-      {
-        // Attempt to make the delivery
-        boolean delivered = deliverNotification(notification);
-        // If delivered ok we are done. Perform any post-delivery steps and return
-        if (delivered) return notificationDelivered();
-
-        // Delivery failed, log a warning.
-        log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL1", bucketNum, uuid, i, deliveryTarget));
-      }
-      catch (Exception e)
-      {
-        log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL2", bucketNum, uuid, i, deliveryTarget, e.getMessage()), e);
-      }
-      // Pause for configured interval before trying again
-      // NOTE: Do not catch InterruptedException. If interrupted we are shutting down and should not make another attempt.
-      log.debug(LibUtils.getMsg("NTFLIB_DSP_DLVRY_ATTEMPT_PAUSE", bucketNum, uuid, i, deliveryAttemptInterval));
-      Thread.sleep(deliveryAttemptInterval);
+      attemptAsync(1, RetryPolicy.forDelivery(RuntimeParameters.getInstance()), executor, result);
     }
-
-    // Give up for now, log warning and add to recovery table
-    String msg = LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL", bucketNum, notification.getUuid(),
-                                 deliveryTarget.getDeliveryMethod(), deliveryTarget.getDeliveryAddress(), numAttempts);
-    log.warn(msg);
-    addNotificationToRecovery();
-    return null;
+    catch (RuntimeException e)
+    {
+      // E.g. executor rejected the task because we are shutting down
+      result.completeExceptionally(e);
+    }
+    return result;
   }
 
   // ====================================================================================
@@ -130,8 +119,10 @@ public final class DeliveryTask implements Callable<Notification>
 
   /*
    * Send out a notification via WEBHOOK or EMAIL
+   * The event part of the body is shared with other notifications for the event when encodedEvent is not null.
    */
-  public static boolean deliverNotification(Notification notification) throws IOException, TapisException
+  public static boolean deliverNotification(Notification notification, NotificationJson.EncodedEvent encodedEvent)
+          throws IOException, TapisException
   {
     int bucketNum = notification.getBucketNum();
     Event event = notification.getEvent();
@@ -144,64 +135,178 @@ public final class DeliveryTask implements Callable<Notification>
     boolean deliveryStatus = false;
     switch (deliveryTarget.getDeliveryMethod())
     {
-      case WEBHOOK -> deliveryStatus = deliverByWebhook(notification);
-      case EMAIL -> deliveryStatus = deliverByEmail(notification);
+      case WEBHOOK -> deliveryStatus = deliverByWebhook(notification, encodedEvent);
+      case EMAIL -> deliveryStatus = deliverByEmail(notification, encodedEvent);
     }
     return deliveryStatus;
   }
 
+  /*
+   * Send out a notification via WEBHOOK or EMAIL without waiting for the result.
+   * Webhook calls are made asynchronously. Email is sent using the executor.
+   * Future is completed with true if delivered.
+   */
+  public static CompletableFuture<Boolean> deliverNotificationAsync(Notification notification, Executor executor)
+  {
+    return deliverNotificationAsync(notification, null, executor);
+  }
+
+  /*
+   * Send out a notification without waiting for the result, sharing the encoded event with other notifications
+   *   for the event. encodedEvent may be null.
+   */
+  public static CompletableFuture<Boolean> deliverNotificationAsync(Notification notification,
+                                                                    NotificationJson.EncodedEvent encodedEvent,
+                                                                    Executor executor)
+  {
+    if (notification.getDeliveryTarget().getDeliveryMethod() == DeliveryMethod.WEBHOOK)
+      return sendWebhookAsync(notification, encodedEvent);
+    return CompletableFuture.supplyAsync(() ->
+    {
+      try { return deliverNotification(notification, encodedEvent); }
+      catch (IOException | TapisException e) { throw new CompletionException(e); }
+    }, executor);
+  }
+
   /* ********************************************************************** */
   /*                             Private Methods                            */
   /* ********************************************************************** */
 
   /*
-   * Send out the notification via Webhook
-   * By default OkHttpClient has read and write timeouts of 1 second.
+   * Make one asynchronous delivery attempt. On failure schedule the next attempt based on the retry policy.
+   * After the last attempt add the notification to recovery.
    */
-  private static boolean deliverByWebhook(Notification ntf) throws IOException
+  private void attemptAsync(int attempt, RetryPolicy retryPolicy, Executor executor,
+                            CompletableFuture<Notification> result)
   {
-    boolean delivered = true;
-    int bucketNum = ntf.getBucketNum();
-    DeliveryTarget deliveryTarget =  ntf.getDeliveryTarget();
-    // Body is the notification as json
-    String notifJsonStr = TapisGsonUtils.getGson(true).toJson(ntf);
-
-    // Build the request
-    RequestBody body = RequestBody.create(notifJsonStr, MediaType.parse("application/json"));
-    Request.Builder requestBuilder = new Request.Builder().url(deliveryTarget.getDeliveryAddress()).post(body);
-    Request request = requestBuilder.addHeader("User-Agent", "Tapis/%s".formatted(TapisConstants.API_VERSION)).build();
+    int numAttempts = RuntimeParameters.getInstance().getNtfDeliveryMaxAttempts();
+    log.debug(LibUtils.getMsg("NTFLIB_DSP_DLVRY_ATTEMPT", bucketNum, uuid, attempt, deliveryTarget));
+    CompletableFuture<Boolean> attemptFuture;
+    if (deliveryTarget.getDeliveryMethod() == DeliveryMethod.WEBHOOK)
+    {
+      // If the destination is known to be down do not make any more attempts, go straight to recovery.
+      if (!DeliveryCircuitBreaker.getInstance().allowAttempt(deliveryTarget.getDeliveryAddress()))
+      {
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_BREAKER_OPEN", bucketNum, uuid, attempt, deliveryTarget));
+        executor.execute(() -> { addNotificationToRecovery(); result.complete(null); });
+        return;
+      }
+      attemptFuture = sendWebhookAsync(notification, encodedEvent);
+    }
+    else attemptFuture = deliverNotificationAsync(notification, encodedEvent, executor);
+    attemptFuture.whenComplete((delivered, e) ->
+    {
+      try
+      {
+        // If delivered ok we are done. Post-delivery steps complete the result.
+        if (e == null && delivered)
+        {
+          notificationDeliveredAsync(executor).thenAccept(result::complete);
+          return;
+        }
+        // Delivery failed, log a warning.
+        if (e == null) log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL1", bucketNum, uuid, attempt, deliveryTarget));
+        else
+        {
+          Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+          log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL2", bucketNum, uuid, attempt, deliveryTarget,
+                                   cause.getMessage()), cause);
+        }
+        if (attempt >= numAttempts)
+        {
+          // Give up for now, log warning and add to recovery table
+          log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_FAIL", bucketNum, uuid, deliveryTarget.getDeliveryMethod(),
+                                   deliveryTarget.getDeliveryAddress(), numAttempts));
+          executor.execute(() -> { addNotificationToRecovery(); result.complete(null); });
+          return;
+        }
+        // Schedule the next attempt. The executor is not used until it is due.
+        long intervalMs = retryPolicy.delayMs(attempt);
+        log.debug(LibUtils.getMsg("NTFLIB_DSP_DLVRY_ATTEMPT_PAUSE", bucketNum, uuid, attempt, intervalMs));
+        RetryScheduler.getInstance().delay(intervalMs)
+                      .thenRunAsync(() -> attemptAsync(attempt + 1, retryPolicy, executor, result), executor)
+                      .exceptionally(re -> { result.completeExceptionally(re); return null; });
+      }
+      catch (RuntimeException re)
+      {
+        // E.g. executor rejected the task because we are shutting down. Notification remains persisted.
+        result.completeExceptionally(re);
+      }
+    });
+  }
 
-    // Throttle by webhook as needed.
-    // NOTE: This probably should be by host (i.e. domain), but turns out sometimes the method used to extract domain
-    //       returns null when it appears that it should not. Until that is resolved, use the full delivery address.
-//    String host = deliveryTarget.getDomain();
-    DeliveryBucketManager.throttleLaunch(deliveryTarget.getDeliveryAddress());
+  /*
+   * Send out the notification via Webhook asynchronously, waiting first for the rate limiter if needed.
+   * Rather than sleep, the call is started when the rate limiter allows it.
+   */
+  private static CompletableFuture<Boolean> sendWebhookAsync(Notification ntf,
+                                                             NotificationJson.EncodedEvent encodedEvent)
+  {
+    return WebhookRateLimiter.getInstance().acquire(ntf.getTenant(), ntf.getDeliveryTarget().getDeliveryAddress())
+                             .thenCompose(x -> postWebhook(ntf, encodedEvent));
+  }
 
-    Call call = httpClient.newCall(request);
-    // Use try-with-resources to auto-close the response.
-    try (Response response = call.execute())
+  /*
+   * Send out the notification via Webhook asynchronously without rate limiting.
+   * Future is completed with true if the receiver returned a status in the 200s.
+   * The result is recorded with the circuit breaker for the destination.
+   * The event part of the body is shared with other notifications for the event when encodedEvent is not null.
+   */
+  private static CompletableFuture<Boolean> postWebhook(Notification ntf, NotificationJson.EncodedEvent encodedEvent)
+  {
+    DeliveryTarget deliveryTarget =  ntf.getDeliveryTarget();
+    // Body is the notification as json, compact unless configured otherwise
+    List<byte[]> body = NotificationJson.toWebhookBody(ntf, encodedEvent,
+                                                       RuntimeParameters.getInstance().isNtfWebhookPrettyJson());
+    return WebhookTransport.getInstance().post(deliveryTarget.getDeliveryAddress(), body).thenApply(httpCode ->
     {
       // If response status code is not in the 200s assume delivery failed.
-      int httpCode = response.code();
       if (httpCode < 200 || httpCode >= 300)
       {
-        log.error(LibUtils.getMsg("NTFLIB_DSP_DLVRY_WH_FAIL_ERR", bucketNum, ntf.getUuid(),
-                deliveryTarget.getDeliveryMethod(), deliveryTarget.getDeliveryAddress(), response.code()));
-        delivered = false;
+        log.error(LibUtils.getMsg("NTFLIB_DSP_DLVRY_WH_FAIL_ERR", ntf.getBucketNum(), ntf.getUuid(),
+                                  deliveryTarget.getDeliveryMethod(), deliveryTarget.getDeliveryAddress(), httpCode));
+        return false;
       }
+      return true;
+    }).whenComplete((delivered, e) ->
+      DeliveryCircuitBreaker.getInstance().recordResult(deliveryTarget.getDeliveryAddress(),
+                                                        e == null && delivered));
+  }
+
+  /*
+   * Send out the notification via Webhook and wait for the response.
+   * Timeouts are set by runtime parameters, see WebhookTransport.
+   */
+  private static boolean deliverByWebhook(Notification ntf, NotificationJson.EncodedEvent encodedEvent)
+          throws IOException
+  {
+    try
+    {
+      return sendWebhookAsync(ntf, encodedEvent).get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException(e.getMessage(), e);
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof IOException ioe) throw ioe;
+      throw new IOException(e.getMessage(), e.getCause());
     }
-    return delivered;
   }
 
   /*
    * Send out the notification via email
+   * The event part of the body is shared with other notifications for the event when encodedEvent is not null.
    */
-  private static boolean deliverByEmail(Notification ntf) throws TapisException
+  private static boolean deliverByEmail(Notification ntf, NotificationJson.EncodedEvent encodedEvent)
+          throws TapisException
   {
     boolean delivered = true;
     DeliveryTarget deliveryTarget =  ntf.getDeliveryTarget();
-    // Body is the notification as json
-    String notifJsonStr = TapisGsonUtils.getGson(true).toJson(ntf);
+    // Body is the notification as pretty printed json
+    String notifJsonStr = NotificationJson.toJson(ntf, encodedEvent, true);
 
     String eventType = ntf.getEvent().getType();
     String eventSubj = ntf.getEvent().getSubject();
@@ -220,20 +325,23 @@ public final class DeliveryTask implements Callable<Notification>
   }
 
   /*
-   * Notification has been delivered. Remove all matching entries from the table.
-   * Entries are considered matching based on (eventUuid, deliveryTarget)
+   * Notification has been delivered. Remove it from the table.
+   * Deletes are batched by the DeliveredNotificationDeleter. The future completes once the delete is committed,
+   *   with the notification, or with null if the delete failed. If the delete failed the notification remains
+   *   persisted and will be delivered again.
    */
-  private Notification notificationDelivered()
+  private CompletableFuture<Notification> notificationDeliveredAsync(Executor executor)
   {
-    try { dao.deleteNotificationsByDeliveryTarget(tenant, notification); }
-    catch (TapisException e)
+    return DeliveredNotificationDeleter.getInstance().submit(notification, executor).handle((v, e) ->
     {
+      if (e == null) return notification;
+      Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
       String msg = LibUtils.getMsg("NTFLIB_DSP_DLVRY_DEL_ERR", bucketNum, uuid,
-                             deliveryTarget.getDeliveryMethod(), deliveryTarget.getDeliveryAddress(), e.getMessage(), e);
+                                   deliveryTarget.getDeliveryMethod(), deliveryTarget.getDeliveryAddress(),
+                                   cause.getMessage(), cause);
       log.error(msg);
       return null;
-    }
-    return notification;
+    });
   }
 
   /*
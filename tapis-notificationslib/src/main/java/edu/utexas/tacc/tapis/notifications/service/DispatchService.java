@@ -2,9 +2,13 @@ package edu.utexas.tacc.tapis.notifications.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -20,7 +24,10 @@ import javax.inject.Inject;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
 import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 import edu.utexas.tacc.tapis.notifications.model.Delivery;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 
 /*
@@ -42,17 +49,19 @@ public class DispatchService
   // When shutting down background processes give them 5 seconds to finish
   private static final int SHUTDOWN_TIMEOUT_MS = 5000;
 
-  // Number of buckets for grouping events for processing
-  // Use a prime number since this should improve hash performance
-  // Leave hard-coded, changing would cause trouble for re-starts and recovery
-  //  - would need to quiesce and clean out queue.
-  //  - e.g., reducing number could lead to orphan entries
-  //          increasing number could lead to events moving from one bucket to another which would break recovery
-  public static final int NUM_BUCKETS = 23;
+  // Default number of buckets for grouping events for processing. Can be changed via runtime parameter.
+  // Each event series hashes to a fixed virtual bucket and virtual buckets are assigned to buckets in the DB.
+  // When the number changes, virtual buckets are moved along with their notifications. See VirtualBucketMap.
+  public static final int DEFAULT_NUM_BUCKETS = 23;
 
   // Default number of workers per bucket for handling notification delivery. Can be changed via runtime parameter.
   public static final int DEFAULT_NUM_DELIVERY_WORKERS = 5;
 
+  // Default type of executor for delivery tasks and max threads when the executor is shared by all buckets.
+  // Can be changed via runtime parameters.
+  public static final DeliveryExecutors.Mode DEFAULT_DELIVERY_EXECUTOR_MODE = DeliveryExecutors.Mode.FIXED;
+  public static final int DEFAULT_DELIVERY_MAX_THREADS = 1000;
+
   // Default interval in minutes to use when periodically running the subscription reaper. Can be changed via runtime parameter.
   public static final int DEFAULT_SUBSCR_REAPER_INTERVAL = 3;
 
@@ -63,10 +72,53 @@ public class DispatchService
   // Number of attempts during recovery delivery and interval (in minutes) between each one
   public static final int DEFAULT_DELIVERY_RCVRY_MAX_ATTEMPTS = 150;
   public static final int DEFAULT_DELIVERY_RCVRY_RETRY_INTERVAL = 10;
+  // During recovery the wait grows from the retry interval up to the max interval (in minutes).
+  // Due notifications are fetched in pages and delivered with bounded parallelism.
+  public static final RetryPolicy.Backoff DEFAULT_DELIVERY_RCVRY_BACKOFF = RetryPolicy.Backoff.EXPONENTIAL;
+  public static final int DEFAULT_DELIVERY_RCVRY_MAX_INTERVAL = 60;
+  public static final int DEFAULT_DELIVERY_RCVRY_PAGE_SIZE = 500;
+  public static final int DEFAULT_DELIVERY_RCVRY_PARALLELISM = 20;
+
+  // Max number of unacknowledged events held by the dispatcher consumer. Can be changed via runtime parameter.
+  public static final int DEFAULT_CONSUMER_PREFETCH = 500;
+
+  // Max number of unacknowledged events held by the consumer for each bucket queue.
+  // Can be changed via runtime parameter.
+  public static final int DEFAULT_BUCKET_PREFETCH = 100;
+
+  // Max number of events waiting in each in-memory bucket queue. Can be changed via runtime parameter.
+  public static final int DEFAULT_BUCKET_QUEUE_CAPACITY = 100;
+
+  // Default number of event series a bucket manager delivers concurrently and max number of events in progress.
+  // Can be changed via runtime parameters.
+  public static final int DEFAULT_BUCKET_LANES = 4;
+  public static final int DEFAULT_BUCKET_MAX_IN_FLIGHT = 50;
+
+  // Default max number of queued events a bucket manager persists in one transaction and max time (in milliseconds)
+  //   it waits for more events to fill a batch. 0 = only batch events already waiting in the queue.
+  // Can be changed via runtime parameters.
+  public static final int DEFAULT_BUCKET_PERSIST_BATCH_SIZE = 50;
+  public static final int DEFAULT_BUCKET_PERSIST_LINGER = 0;
+
+  // Prefix for per-bucket gauges, e.g. ntf.dispatch.bucket.7.depth
+  static final String METRIC_BUCKET_PREFIX = "ntf.dispatch.bucket.";
+
+  // By default match events to subscriptions using the in-memory index. Can be changed via runtime parameter.
+  public static final boolean DEFAULT_SUBSCR_INDEX_ENABLED = true;
+
+  // By default a single dispatcher processes all buckets. When enabled, dispatcher replicas share the buckets
+  //   using leases that expire unless renewed (in seconds) and are renewed on each heartbeat (in seconds).
+  // Can be changed via runtime parameters.
+  public static final boolean DEFAULT_DISPATCH_LEASES_ENABLED = false;
+  public static final int DEFAULT_DISPATCH_LEASE_TTL = 30;
+  public static final int DEFAULT_DISPATCH_LEASE_HEARTBEAT = 5;
 
   // Allow interrupt when shutting down executor services.
   private static final boolean mayInterruptIfRunning = true;
 
+  // Bucket manager running for a leased bucket. Latch is released when the bucket manager has stopped.
+  private record RunningBucket(Future<?> future, CountDownLatch stopped) {}
+
   // ************************************************************************
   // *********************** Fields *****************************************
   // ************************************************************************
@@ -78,15 +130,56 @@ public class DispatchService
   // In-memory queues used to pass messages from rabbitmq to bucket managers
   private final List<BlockingQueue<Delivery>> deliveryBucketQueues = new ArrayList<>();
 
-  // DeliveryBucketManagers for processing events, one per bucket
+  // DeliveryBucketManagers for processing events, one per bucket. Not used when events go through bucket queues.
   private final List<Callable<String>> bucketManagers = new ArrayList<>();
 
-  // ExecutorService for bucket managers
-  private final ExecutorService bucketManagerExecService =  Executors.newFixedThreadPool(NUM_BUCKETS);
+  // ExecutorService for delivery tasks for each bucket
+  private final List<ExecutorService> bucketDeliveryExecServices = new ArrayList<>();
+
+  // Used when dispatcher replicas share the buckets. Tracks the leases held by this dispatcher.
+  private boolean leasesEnabled;
+  private BucketLeaseManager leaseManager;
+  // Used when events go through the bucket queues, i.e. buckets are leased or the routing mode is PARTITIONED.
+  //   Tracks the bucket managers running for the buckets held. Main loop waits on the latch until shutdown.
+  private boolean bucketQueuesEnabled;
+  private boolean routedByBroker;
+  private int bucketPrefetch = DEFAULT_BUCKET_PREFETCH;
+  private final Map<Integer, RunningBucket> runningBuckets = new HashMap<>();
+  private final CountDownLatch shutDownLatch = new CountDownLatch(1);
+  private String instanceName;
+  private int leaseTtl = DEFAULT_DISPATCH_LEASE_TTL;
+  private int leaseHeartbeat = DEFAULT_DISPATCH_LEASE_HEARTBEAT;
+
+  // Number of buckets configured and number in use, which is higher while virtual buckets are being moved off
+  //   buckets no longer configured.
+  private int numBuckets = DEFAULT_NUM_BUCKETS;
+  private int numBucketsInUse = DEFAULT_NUM_BUCKETS;
+
+  // Assignment of virtual buckets to buckets. Used by the single dispatcher. When dispatcher replicas share the
+  //   buckets it is loaded each time this dispatcher starts routing events.
+  private VirtualBucketMap virtualBuckets;
+  // ExecutorService and future for moving virtual buckets
+  private final ExecutorService vbucketMoverExecService = Executors.newSingleThreadExecutor();
+  private Future<?> vbucketMoverFuture;
+
+  // ExecutorService for bucket managers. Created once the number of buckets is known.
+  private ExecutorService bucketManagerExecService;
+
+  // ExecutorService for delivery tasks when shared by all buckets. Null if each bucket has its own.
+  private ExecutorService sharedDeliveryExecService;
+
+  // In-memory subscription match index shared by all bucket managers and the listener that keeps it current.
+  // Index is null if disabled via runtime parameter.
+  private SubscriptionMatchIndex subscriptionIndex;
+  private final ExecutorService subscriptionIndexExecService = Executors.newSingleThreadExecutor();
+
+  // Prefetch limit for the message broker consumer
+  private int consumerPrefetch = DEFAULT_CONSUMER_PREFETCH;
 
   // ExecutorService and future for subscription reaper
   private final ScheduledExecutorService reaperExecService = Executors.newSingleThreadScheduledExecutor();
   private Future<?> reaperTaskFuture;
+  private Future<?> eventSweeperTaskFuture;
 
   // We must be running on a specific site and this will never change
   // These are initialized in method initService()
@@ -105,8 +198,11 @@ public class DispatchService
    *   init service context
    *   migrate DB
    *   init message broker
+   *   init subscription match index
+   *   load assignment of virtual buckets to buckets
    *   init in-memory queues for event processing
-   *   init bucket manager callables
+   *   init bucket manager callables, or bucket queues if dispatcher replicas share the buckets or events are
+   *     routed to the bucket queues by the message broker
    */
   public void initService(String siteAdminTenantId1, RuntimeParameters runParms) throws TapisException
   {
@@ -122,11 +218,78 @@ public class DispatchService
     log.info(LibUtils.getMsg("NTFLIB_DSP_INIT_MSGBRKR"));
     MessageBroker.init(runParms);
 
+    // Deletes of delivered notifications are committed in batches
+    DeliveredNotificationDeleter.init(dao, runParms);
+
+    // Create the subscription match index. It is loaded and kept current by the listener started in processEvents().
+    if (runParms.isNtfSubscriptionIndexEnabled()) subscriptionIndex = new SubscriptionMatchIndex();
+    else log.info(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_DISABLED"));
+
+    // Buckets holding virtual buckets keep running until the virtual buckets have been moved off them, which
+    //   happens after startup when the number of buckets has been reduced.
+    numBuckets = Math.max(1, Math.min(runParms.getNtfDispatchNumBuckets(), EventSeriesKey.NUM_VIRTUAL_BUCKETS));
+    List<VirtualBucket> vbuckets = dao.getVirtualBuckets();
+    numBucketsInUse = numBuckets;
+    for (VirtualBucket vb : vbuckets)
+    {
+      numBucketsInUse = Math.max(numBucketsInUse, vb.bucketNum() + 1);
+      if (vb.targetBucket() != null) numBucketsInUse = Math.max(numBucketsInUse, vb.targetBucket() + 1);
+    }
+    log.info(LibUtils.getMsg("NTFLIB_DSP_INIT_VBUCKETS", numBuckets, numBucketsInUse,
+                             EventSeriesKey.NUM_VIRTUAL_BUCKETS));
+    bucketManagerExecService = Executors.newFixedThreadPool(numBucketsInUse);
+
     // Create in-memory queues and callables for multi-threaded processing of events
-    for (int i = 0; i < NUM_BUCKETS; i++)
+    // Queues are bounded so that the consumer stops taking events from the message broker when a bucket falls behind.
+    consumerPrefetch = runParms.getNtfConsumerPrefetch();
+    int queueCapacity = Math.max(1, runParms.getNtfBucketQueueCapacity());
+    log.info(LibUtils.getMsg("NTFLIB_DSP_INIT_QUEUES", numBucketsInUse, queueCapacity, consumerPrefetch));
+
+    // Create executor(s) for delivery tasks based on the configured mode.
+    DeliveryExecutors.Mode dlvryMode = runParms.getNtfDeliveryExecutorMode();
+    DeliveryExecutors.Mode effectiveMode = DeliveryExecutors.effectiveMode(dlvryMode);
+    if (effectiveMode != dlvryMode) log.warn(LibUtils.getMsg("NTFLIB_DSP_DLVRY_EXEC_NO_VIRTUAL", dlvryMode, effectiveMode));
+    log.info(LibUtils.getMsg("NTFLIB_DSP_DLVRY_EXEC", effectiveMode, runParms.getNtfDeliveryThreadPoolSize(),
+                             runParms.getNtfDeliveryMaxThreads()));
+    if (effectiveMode != DeliveryExecutors.Mode.FIXED)
+      sharedDeliveryExecService = DeliveryExecutors.newShared(effectiveMode, runParms.getNtfDeliveryMaxThreads());
+
+    // Events go through the bucket queues if dispatcher replicas share the buckets or publishers route them there.
+    leasesEnabled = runParms.isNtfDispatchLeasesEnabled();
+    routedByBroker = (runParms.getNtfRoutingMode() == MessageBroker.RoutingMode.PARTITIONED);
+    bucketQueuesEnabled = leasesEnabled || routedByBroker;
+    bucketPrefetch = runParms.getNtfBucketPrefetch();
+    log.info(LibUtils.getMsg("NTFLIB_DSP_INIT_ROUTING", runParms.getNtfRoutingMode(), bucketQueuesEnabled,
+                             bucketPrefetch));
+
+    for (int i = 0; i < numBucketsInUse; i++)
     {
-      deliveryBucketQueues.add(new LinkedBlockingQueue<>());
-      bucketManagers.add(new DeliveryBucketManager(dao, deliveryBucketQueues.get(i), i));
+      BlockingQueue<Delivery> bucketQueue = new LinkedBlockingQueue<>(queueCapacity);
+      deliveryBucketQueues.add(bucketQueue);
+      NtfMetrics.registerGauge(METRIC_BUCKET_PREFIX + i + ".depth", bucketQueue::size);
+      ExecutorService dlvryExecService = (sharedDeliveryExecService != null) ? sharedDeliveryExecService
+                                          : DeliveryExecutors.newFixed(runParms.getNtfDeliveryThreadPoolSize());
+      bucketDeliveryExecServices.add(dlvryExecService);
+      // With bucket queues, a bucket manager is created each time this dispatcher starts the bucket
+      if (!bucketQueuesEnabled)
+        bucketManagers.add(new DeliveryBucketManager(dao, bucketQueue, i, subscriptionIndex, dlvryExecService));
+    }
+
+    // Each dispatcher consumes the queues for the buckets it holds, or all of them if buckets are not leased.
+    if (bucketQueuesEnabled)
+    {
+      instanceName = runParms.getInstanceName();
+      leaseTtl = runParms.getNtfDispatchLeaseTtl();
+      leaseHeartbeat = runParms.getNtfDispatchLeaseHeartbeat();
+      try { MessageBroker.getInstance().initBucketQueues(numBucketsInUse); }
+      catch (IOException e)
+      {
+        throw new TapisException(LibUtils.getMsg("NTFLIB_DSP_LEASE_INIT_ERR", e.getMessage()), e);
+      }
+    }
+    else
+    {
+      virtualBuckets = new VirtualBucketMap(vbuckets);
     }
   }
 
@@ -137,10 +300,43 @@ public class DispatchService
    */
   public void processEvents() throws IOException, InterruptedException
   {
+    // Start listener that loads the subscription match index and applies subscription changes.
+    // Until the initial load completes bucket managers match subscriptions using the DB.
+    if (subscriptionIndex != null)
+      subscriptionIndexExecService.submit(new SubscriptionChangeListener(dao, subscriptionIndex));
+
+    // Dispatcher replicas share the buckets. Bucket managers and consumers are started and stopped as leases are
+    //   acquired and lost. Wait here until shutdown.
+    if (leasesEnabled)
+    {
+      String ownerId = instanceName + "-" + UUID.randomUUID();
+      leaseManager = new BucketLeaseManager(dao, ownerId, numBucketsInUse, leaseTtl, leaseHeartbeat,
+                                            new LeaseListener());
+      leaseManager.start();
+      shutDownLatch.await();
+      return;
+    }
+
+    // Events are routed to the bucket queues by the message broker. This dispatcher processes all buckets and
+    //   forwards any events on the main queue. Wait here until shutdown.
+    if (bucketQueuesEnabled)
+    {
+      for (int i = 0; i < numBucketsInUse; i++) startBucket(i);
+      try { startRouter(); }
+      catch (TapisException e) { throw new IOException(e.getMessage(), e); }
+      shutDownLatch.await();
+      return;
+    }
+
     // Start our basic consumer for main queue.
     // Consumer handles incoming events.
-    // Consumer will compute bucket number for the event and hand it off to a bucket manager.
-    String consumerTag = MessageBroker.getInstance().startConsumer(deliveryBucketQueues);
+    // Consumer will look up the bucket number for the event and hand it off to a bucket manager.
+    String consumerTag = MessageBroker.getInstance().startConsumer(deliveryBucketQueues, consumerPrefetch,
+                                                                   virtualBuckets);
+
+    // Move virtual buckets as needed for the number of buckets. Markers go straight to the in-memory queues.
+    vbucketMoverFuture = vbucketMoverExecService.submit(new VirtualBucketMover(dao, virtualBuckets, numBuckets,
+      move -> deliveryBucketQueues.get(move.bucketNum()).put(new Delivery(move, 0))));
 
     // Start up the bucket managers and wait for them to finish
     // The bucket managers will only finish on interrupt or error.
@@ -152,21 +348,37 @@ public class DispatchService
    * The reaper is a ScheduledExecutorService that runs periodically using the value passed in as the period in minutes.
    *
    * @param intervalMinutes execution period in minutes
+   * @param chunkSize max number of subscriptions deleted in one transaction
    */
-  public void startReaper(long intervalMinutes)
+  public void startReaper(long intervalMinutes, int chunkSize)
   {
     log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_START"));
-    reaperTaskFuture = reaperExecService.scheduleAtFixedRate(() -> SubscriptionReaper.cleanup(dao),
+    reaperTaskFuture = reaperExecService.scheduleAtFixedRate(() -> SubscriptionReaper.cleanup(dao, chunkSize),
                                                              intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
   }
 
+  /**
+   * Start the sweeper for removing events no longer referenced by any notification
+   * Runs periodically on the reaper executor using the value passed in as the period in minutes.
+   *
+   * @param intervalMinutes execution period in minutes
+   * @param graceMinutes minutes an unreferenced event is kept after notifications for it were last persisted
+   */
+  public void startEventSweeper(long intervalMinutes, long graceMinutes)
+  {
+    log.info(LibUtils.getMsg("NTFLIB_DSP_EVENT_SWEEP_START", intervalMinutes, graceMinutes));
+    eventSweeperTaskFuture = reaperExecService.scheduleAtFixedRate(() -> EventSweeper.cleanup(dao, graceMinutes),
+                                                                   intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+  }
+
   /*
-   * Stop the subscription reaper thread
+   * Stop the subscription reaper and event sweeper
    */
   public void stopReaper()
   {
     log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_STOP"));
     if (reaperTaskFuture != null) reaperTaskFuture.cancel(mayInterruptIfRunning);
+    if (eventSweeperTaskFuture != null) eventSweeperTaskFuture.cancel(mayInterruptIfRunning);
   }
 
   /*
@@ -174,6 +386,10 @@ public class DispatchService
    */
   public void shutDown()
   {
+    // Stop leased buckets and release the leases, so other dispatchers can take over right away
+    if (leaseManager != null) leaseManager.close();
+    else if (bucketQueuesEnabled) stopAllBuckets();
+    shutDownLatch.countDown();
     MessageBroker.getInstance().shutDown(SHUTDOWN_TIMEOUT_MS);
     // Force shutdown of executor services
     shutdownExecutors(SHUTDOWN_TIMEOUT_MS);
@@ -183,11 +399,115 @@ public class DispatchService
   // **************************  Private Methods  ***************************
   // ************************************************************************
 
+  /*
+   * Start processing a bucket whose lease this dispatcher has acquired.
+   * Bucket manager is started first so that it is ready for events from the bucket queue consumer.
+   * Anything left in the in-memory queue is from a previous lease and has already been returned to the broker.
+   */
+  private synchronized void startBucket(int bucketNum) throws IOException
+  {
+    if (runningBuckets.containsKey(bucketNum)) return;
+    BlockingQueue<Delivery> bucketQueue = deliveryBucketQueues.get(bucketNum);
+    bucketQueue.clear();
+    var bucketManager = new DeliveryBucketManager(dao, bucketQueue, bucketNum, subscriptionIndex,
+                                                  bucketDeliveryExecServices.get(bucketNum), routedByBroker);
+    var stopped = new CountDownLatch(1);
+    Future<?> future = bucketManagerExecService.submit(() ->
+    {
+      try { bucketManager.call(); }
+      finally { stopped.countDown(); }
+    });
+    runningBuckets.put(bucketNum, new RunningBucket(future, stopped));
+    MessageBroker.getInstance().startBucketConsumer(bucketNum, bucketQueue, bucketPrefetch);
+  }
+
+  /*
+   * Stop processing a bucket whose lease this dispatcher is giving up or has lost.
+   * Waits for the bucket manager to stop and then returns events not yet processed to the broker, where
+   *   they wait for the dispatcher that takes over the bucket.
+   */
+  private synchronized void stopBucket(int bucketNum)
+  {
+    RunningBucket runningBucket = runningBuckets.remove(bucketNum);
+    if (runningBucket == null) return;
+    runningBucket.future().cancel(mayInterruptIfRunning);
+    try
+    {
+      if (!runningBucket.stopped().await(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS))
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_LEASE_STOP_TIMEOUT", bucketNum, SHUTDOWN_TIMEOUT_MS));
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+    MessageBroker.getInstance().stopBucketConsumer(bucketNum, deliveryBucketQueues.get(bucketNum));
+  }
+
+  /*
+   * Stop processing all buckets and routing events. Used at shutdown when buckets are not leased.
+   */
+  private synchronized void stopAllBuckets()
+  {
+    stopRouter();
+    for (Integer bucketNum : new ArrayList<>(runningBuckets.keySet())) stopBucket(bucketNum);
+  }
+
+  /*
+   * Start routing events from the main queue to the bucket queues once this dispatcher holds the router lease,
+   *   or at startup if buckets are not leased.
+   * The assignment of virtual buckets is loaded each time, since the previous router may have moved some.
+   * If events are routed by the message broker the virtual buckets are bound to their bucket queues first.
+   */
+  private synchronized void startRouter() throws IOException, TapisException
+  {
+    var routerVirtualBuckets = new VirtualBucketMap(dao.getVirtualBuckets());
+    MessageBroker.getInstance().bindVirtualBuckets(routerVirtualBuckets.getAssignment());
+    MessageBroker.getInstance().startRouter(consumerPrefetch, routerVirtualBuckets);
+    var mover = new VirtualBucketMover(dao, routerVirtualBuckets, numBuckets, new VirtualBucketMap.MarkerSender()
+    {
+      @Override
+      public void send(VirtualBucket move) throws IOException { MessageBroker.getInstance().publishMarker(move); }
+      @Override
+      public void moved(VirtualBucket move) throws IOException { MessageBroker.getInstance().publishFence(move); }
+    });
+    vbucketMoverFuture = vbucketMoverExecService.submit(mover);
+  }
+
+  /*
+   * Stop routing events. A virtual bucket move in progress is completed by the next router.
+   */
+  private synchronized void stopRouter()
+  {
+    if (vbucketMoverFuture != null) vbucketMoverFuture.cancel(mayInterruptIfRunning);
+    vbucketMoverFuture = null;
+    MessageBroker.getInstance().stopRouter();
+  }
+
+  /*
+   * Starts and stops work as leases are acquired and lost
+   */
+  private final class LeaseListener implements BucketLeaseManager.Listener
+  {
+    @Override
+    public void startBucket(int bucketNum) throws IOException { DispatchService.this.startBucket(bucketNum); }
+    @Override
+    public void stopBucket(int bucketNum) { DispatchService.this.stopBucket(bucketNum); }
+    @Override
+    public void startRouter() throws IOException, TapisException { DispatchService.this.startRouter(); }
+    @Override
+    public void stopRouter() { DispatchService.this.stopRouter(); }
+  }
+
   /*
    * Shut down Executors after giving tasks some time to finish up.
    */
   private void shutdownExecutors(int shutdownTimeout)
   {
+    // Subscription index listener holds no state that needs to be saved, stop it right away.
+    subscriptionIndexExecService.shutdownNow();
+    // A virtual bucket move in progress is completed on restart.
+    vbucketMoverExecService.shutdownNow();
+
     // Make sure reaper is shut down.
     log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_SHUT", shutdownTimeout));
     // Stop the service from accepting any new tasks.
@@ -219,5 +539,12 @@ public class DispatchService
       // We may have been interrupted waiting to finish. Force it to complete.
       bucketManagerExecService.shutdownNow();
     }
+
+    // Commit deletes for notifications already delivered.
+    // Deliveries still in progress will be picked up as interrupted deliveries on restart.
+    DeliveredNotificationDeleter.shutDown(shutdownTimeout);
+    if (sharedDeliveryExecService != null) sharedDeliveryExecService.shutdownNow();
+    WebhookTransport.shutDown();
+    RetryScheduler.shutDown();
   }
 }
@@ -0,0 +1,245 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+
+/*
+ * Forwards events from the main queue to the bucket queues when dispatcher replicas share the buckets.
+ * Only the dispatcher holding the router lease runs the router. See BucketLeaseManager.
+ * In PARTITIONED routing mode publishers send events straight to the bucket queues, so the router only forwards
+ *   events for virtual buckets with no binding. It is still needed to send the markers for moving virtual buckets.
+ *
+ * Runs on its own channel with publisher confirms. An event is acked on the main queue only once the broker has
+ *   confirmed it is on the bucket queue, so an event is never lost when the router stops. Events forwarded but not
+ *   yet confirmed when the router stops are returned to the main queue and may be forwarded twice.
+ * Events are forwarded in the order received, so events in a series stay in order. Events whose virtual bucket is
+ *   being moved are held and forwarded once the move completes, see VirtualBucketMap. In PARTITIONED routing mode
+ *   a fence published once the move completes is forwarded after them, see MessageBroker.publishFence.
+ *   Sequence numbers of held events are out of order with their delivery tags, so confirms covering them are passed
+ *   on one event at a time.
+ */
+final class EventRouter
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(EventRouter.class);
+
+  // Metric names
+  static final String METRIC_ROUTED = "ntf.dispatch.router.events";
+  static final String METRIC_ROUTER_NACKS = "ntf.dispatch.router.nacks";
+  static final String METRIC_ROUTER_UNCONFIRMED = "ntf.dispatch.router.unconfirmed";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final Channel channel;
+  private final VirtualBucketMap virtualBuckets;
+  // Publish sequence number to delivery tag on the main queue, for events not yet confirmed
+  private final NavigableMap<Long, Long> unconfirmed = new ConcurrentSkipListMap<>();
+  // Delivery tags of events held while their virtual bucket is moved, until confirmed
+  private final NavigableSet<Long> heldTags = new ConcurrentSkipListSet<>();
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * Create the channel and start consuming from the main queue
+   * A prefetch count of 0 means no limit.
+   */
+  EventRouter(Connection connection, int prefetchCount, VirtualBucketMap virtualBuckets1) throws IOException
+  {
+    virtualBuckets = virtualBuckets1;
+    channel = connection.createChannel();
+    channel.confirmSelect();
+    if (prefetchCount > 0) channel.basicQos(prefetchCount);
+    channel.addConfirmListener(new ConfirmListener()
+    {
+      @Override
+      public void handleAck(long seqNo, boolean multiple) { confirmed(seqNo, multiple, true); }
+      @Override
+      public void handleNack(long seqNo, boolean multiple) { confirmed(seqNo, multiple, false); }
+    });
+    NtfMetrics.registerGauge(METRIC_ROUTER_UNCONFIRMED, unconfirmed::size);
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_ROUTER_START", MessageBroker.QUEUE_MAIN, MessageBroker.EXCHANGE_BUCKETS,
+                             prefetchCount));
+    boolean autoAck = false;
+    channel.basicConsume(MessageBroker.QUEUE_MAIN, autoAck, new DefaultConsumer(channel)
+    {
+      @Override
+      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+      {
+        route(envelope.getDeliveryTag(), properties, body);
+      }
+    });
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Publish a virtual bucket move marker to the queue for the bucket the virtual bucket is moving from.
+   * Called by the virtual bucket mover while holding the VirtualBucketMap lock, as is route, so the channel is
+   *   never used for publishing by two threads at once.
+   * Markers are not tracked. A lost marker is resent.
+   */
+  void publishMarker(VirtualBucket move) throws IOException
+  {
+    var properties = new AMQP.BasicProperties.Builder()
+            .headers(Map.of(MessageBroker.HEADER_VBUCKET_MOVE, MessageBroker.moveHeader(move)))
+            .deliveryMode(2)
+            .build();
+    channel.basicPublish(MessageBroker.EXCHANGE_BUCKETS, Integer.toString(move.bucketNum()), properties, new byte[0]);
+  }
+
+  /*
+   * Stop the router. Events not yet confirmed are returned to the main queue by the broker.
+   */
+  void close()
+  {
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_ROUTER_STOP", unconfirmed.size()));
+    NtfMetrics.removeGauge(METRIC_ROUTER_UNCONFIRMED);
+    try { channel.close(); }
+    catch (IOException | TimeoutException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_CHAN_CLOSE_ERR", channel.getChannelNumber(), e.getMessage()), e);
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Forward an event to the queue for its bucket. Called on the consumer thread, one event at a time, so
+   *   sequence numbers and delivery tags increase together unless the event is held.
+   * A virtual bucket move fence is forwarded to the bucket the virtual bucket moved to, after the events for the
+   *   virtual bucket received before it.
+   */
+  private void route(long deliveryTag, AMQP.BasicProperties properties, byte[] body)
+  {
+    VirtualBucket fence;
+    try { fence = MessageBroker.getMove(properties); }
+    catch (RuntimeException e)
+    {
+      returnEvent(deliveryTag, e);
+      return;
+    }
+    if (fence != null)
+    {
+      virtualBuckets.dispatch(fence.targetBucket(), bucketNum -> publish(deliveryTag, bucketNum, properties, body));
+      return;
+    }
+    Event event;
+    try
+    {
+      event = TapisGsonUtils.getGson().fromJson(new String(body, StandardCharsets.UTF_8), Event.class);
+    }
+    catch (RuntimeException e)
+    {
+      returnEvent(deliveryTag, e);
+      return;
+    }
+    virtualBuckets.route(event, bucketNum -> publish(deliveryTag, bucketNum, properties, body),
+                         bucketNum -> heldTags.add(deliveryTag));
+  }
+
+  /*
+   * Publish an event to the queue for a bucket
+   */
+  private void publish(long deliveryTag, int bucketNum, AMQP.BasicProperties properties, byte[] body)
+  {
+    long seqNo = channel.getNextPublishSeqNo();
+    unconfirmed.put(seqNo, deliveryTag);
+    try
+    {
+      channel.basicPublish(MessageBroker.EXCHANGE_BUCKETS, Integer.toString(bucketNum), properties, body);
+      NtfMetrics.increment(METRIC_ROUTED);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      unconfirmed.remove(seqNo);
+      heldTags.remove(deliveryTag);
+      returnEvent(deliveryTag, e);
+    }
+  }
+
+  /*
+   * Return an event that could not be forwarded to the main queue
+   */
+  private void returnEvent(long deliveryTag, Exception e)
+  {
+    log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ROUTER_ERR", deliveryTag, e.getMessage()), e);
+    try { channel.basicNack(deliveryTag, false, true); }
+    catch (IOException | RuntimeException e2)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ACK_ERR", deliveryTag, e2.getMessage()), e2);
+    }
+  }
+
+  /*
+   * Settle events on the main queue once the broker has confirmed them on a bucket queue.
+   * Since delivery tags increase with sequence numbers, a multiple confirm is passed on as a multiple ack.
+   * A multiple ack covers every lower tag, so it is only used if no held event has a lower tag. Otherwise, or if
+   *   the confirm covers a held event, the events are settled one at a time.
+   * An event the broker could not take is returned to the main queue.
+   */
+  private void confirmed(long seqNo, boolean multiple, boolean ack)
+  {
+    NavigableMap<Long, Long> settled = multiple ? unconfirmed.headMap(seqNo, true)
+                                                : unconfirmed.subMap(seqNo, true, seqNo, true);
+    if (settled.isEmpty()) return;
+    List<Long> tags = new ArrayList<>(settled.values());
+    settled.clear();
+    boolean inOrder = true;
+    for (long tag : tags) if (heldTags.remove(tag)) inOrder = false;
+    long lastTag = tags.get(tags.size() - 1);
+    Long firstHeldTag = heldTags.ceiling(0L);
+    if (!ack) NtfMetrics.add(METRIC_ROUTER_NACKS, tags.size());
+    if (multiple && inOrder && (firstHeldTag == null || firstHeldTag > lastTag)) settle(lastTag, true, ack);
+    else for (long tag : tags) settle(tag, false, ack);
+  }
+
+  /*
+   * Ack or nack events on the main queue
+   */
+  private void settle(long deliveryTag, boolean multiple, boolean ack)
+  {
+    try
+    {
+      if (ack) channel.basicAck(deliveryTag, multiple);
+      else channel.basicNack(deliveryTag, multiple, true);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      // Channel is most likely closed, in which case the broker will redeliver the events.
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_ACK_ERR", deliveryTag, e.getMessage()), e);
+    }
+  }
+}
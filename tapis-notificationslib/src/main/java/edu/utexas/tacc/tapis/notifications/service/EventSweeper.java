@@ -0,0 +1,68 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Support cleaning up events that are no longer referenced.
+ * Each event payload is stored once in the events table and referenced by notifications and notifications in
+ *   recovery. Once all notifications for an event are delivered or abandoned the event can be removed.
+ * An event is kept for a grace period after notifications for it were last persisted.
+ * Contains a single static cleanup method that is run at fixed intervals using a ScheduledExecutorService.
+ */
+public final class EventSweeper
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Tracing.
+  private static final Logger log = LoggerFactory.getLogger(EventSweeper.class);
+
+  // Defaults in minutes. Can be changed via runtime parameters.
+  public static final int DEFAULT_SWEEP_INTERVAL = 10;
+  public static final int DEFAULT_SWEEP_GRACE = 10;
+
+  // Max number of events removed in one transaction
+  static final int SWEEP_BATCH_SIZE = 1000;
+
+  // Metric names
+  static final String METRIC_DELETED = "ntf.events.swept";
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Main method for cleanup
+   */
+  public static void cleanup(NotificationsDao dao, long graceMinutes)
+  {
+    log.debug(LibUtils.getMsg("NTFLIB_DSP_EVENT_SWEEP_RUN"));
+    try
+    {
+      Instant olderThan = Instant.now().minus(Math.max(0L, graceMinutes), ChronoUnit.MINUTES);
+      // Remove in batches to keep transactions short
+      int total = 0;
+      int numDeleted;
+      do
+      {
+        numDeleted = dao.deleteUnreferencedEvents(olderThan, SWEEP_BATCH_SIZE);
+        total += numDeleted;
+      }
+      while (numDeleted >= SWEEP_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+      if (total == 0) return;
+      NtfMetrics.add(METRIC_DELETED, total);
+      log.info(LibUtils.getMsg("NTFLIB_DSP_EVENT_SWEEP_COUNT", total));
+    }
+    catch (Exception e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_DSP_EVENT_SWEEP_ERR", e.getMessage()), e);
+    }
+  }
+}
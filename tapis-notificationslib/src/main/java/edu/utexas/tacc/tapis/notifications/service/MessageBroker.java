@@ -2,11 +2,19 @@ package edu.utexas.tacc.tapis.notifications.service;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,11 +42,12 @@ import edu.utexas.tacc.tapis.sharedq.VHostParms;
 
 import edu.utexas.tacc.tapis.notifications.model.Event;
 import edu.utexas.tacc.tapis.notifications.model.Delivery;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
 
-import static edu.utexas.tacc.tapis.notifications.service.DispatchService.NUM_BUCKETS;
-
 /*
  * Singleton class to provide message broker services. There is a single queue QUEUE_MAIN.
  *  - initialize connection and channel.
@@ -49,6 +58,13 @@ import static edu.utexas.tacc.tapis.notifications.service.DispatchService.NUM_BU
  *  - acknowledge a message read from the queue
  *
  * Notifications service uses a single primary queue for events, so we include all support in this one class.
+ * When dispatcher replicas share the buckets there is also a queue per bucket. The dispatcher holding the router
+ *   lease forwards events from the main queue to the bucket queues and each dispatcher consumes the queues for the
+ *   buckets it holds. Each bucket queue is consumed on its own channel, with its own prefetch limit and acks.
+ *
+ * How publishers route events depends on the routing mode, see RoutingMode. In PARTITIONED mode events are published
+ *   to an exchange keyed by virtual bucket, which the dispatcher binds to the bucket queues, so events go straight to
+ *   the queue for their bucket. The main queue then only takes events for virtual buckets with no binding.
  */
 public final class MessageBroker
 {
@@ -62,10 +78,51 @@ public final class MessageBroker
   public static final String DEFAULT_BINDING_KEY = "#";
   public static final String EXCHANGE_MAIN = "tapis.notifications.exchange";
   public static final String QUEUE_MAIN = "tapis.notifications.queue";
+  // Used when dispatcher replicas share the buckets. Queue for each bucket is bound using the bucket number.
+  public static final String EXCHANGE_BUCKETS = "tapis.notifications.bucket.exchange";
+  public static final String QUEUE_BUCKET_PREFIX = "tapis.notifications.queue.bucket.";
+  // Used in PARTITIONED routing mode. Routing key is the virtual bucket. Each virtual bucket is bound to the queue
+  //   for its bucket. Events for a virtual bucket with no binding go to the main exchange.
+  public static final String EXCHANGE_VBUCKETS = "tapis.notifications.vbucket.exchange";
+  // Header marking a message as a virtual bucket move marker or fence. Value is vbucket:from:to
+  static final String HEADER_VBUCKET_MOVE = "tapis-vbucket-move";
+
+  // When a bucket queue is full, how often to check if the bucket has been stopped (in milliseconds)
+  private static final long BLOCKED_CHECK_INTERVAL_MS = 1000;
+
+  // Defaults for publishing events
+  public static final int DEFAULT_PUBLISH_CHANNELS = 8;
+  public static final int DEFAULT_PUBLISH_CONFIRM_TIMEOUT = 5000; // milliseconds
+
+  // By default events are published to the main queue. Can be changed via runtime parameter.
+  public static final RoutingMode DEFAULT_ROUTING_MODE = RoutingMode.MAIN;
+
+  // Defaults for acknowledging events received by the dispatcher
+  public static final int DEFAULT_ACK_BATCH_SIZE = 16;
+  public static final int DEFAULT_ACK_FLUSH_INTERVAL = 50; // milliseconds
+
+  // Used for the main queue consumer, which is never stopped
+  private static final AtomicBoolean ALWAYS_ACTIVE = new AtomicBoolean(true);
+
+  // Metric names for the dispatcher consumer
+  static final String METRIC_CONSUMER_BLOCKED = "ntf.dispatch.consumer.blocked";
+  static final String METRIC_CONSUMER_BLOCKED_TIME = "ntf.dispatch.consumer.blocked.time";
 
   /* ********************************************************************** */
   /*                                Enums                                   */
   /* ********************************************************************** */
+  /*
+   * How publishers route events to the dispatcher
+   *   MAIN - all events go to the main queue. The dispatcher consumes it on one consumer and hands each event to
+   *          the bucket for its virtual bucket, or the dispatcher holding the router lease forwards it to the queue
+   *          for the bucket.
+   *   PARTITIONED - events go to the queue for their bucket through the virtual bucket exchange, so partitioning
+   *          is done by the message broker. The dispatcher always uses bucket queues and the main queue is only
+   *          used for events with no binding, e.g. those published before the dispatcher first started
+   *          or while a virtual bucket is being moved.
+   * All publishers and dispatchers should use the same mode.
+   */
+  public enum RoutingMode {MAIN, PARTITIONED}
 
   /* ********************************************************************** */
   /*                                 Fields                                 */
@@ -77,10 +134,37 @@ public final class MessageBroker
   // RabbitMQ specific parameters. Mostly set from RuntimeParameters.
   private static QueueManagerParms mbParms;
 
+  // Size of publisher channel pool and time to wait for publisher confirms
+  private static int publishChannels = DEFAULT_PUBLISH_CHANNELS;
+  private static int publishConfirmTimeout = DEFAULT_PUBLISH_CONFIRM_TIMEOUT;
+
+  // How publishers route events
+  private static RoutingMode routingMode = DEFAULT_ROUTING_MODE;
+
+  // Max number of completed events to collect before acking and max time to wait before acking them
+  private static int ackBatchSize = DEFAULT_ACK_BATCH_SIZE;
+  private static int ackFlushInterval = DEFAULT_ACK_FLUSH_INTERVAL;
+
   // Connection for talking to RabbitMQ
   private final ConnectionFactory connectionFactory = new ConnectionFactory();
+  // Runs consumers. Consumers block when a bucket falls behind, so each channel may need its own thread.
+  private final ExecutorService consumerExecService = Executors.newCachedThreadPool(r ->
+  {
+    Thread t = new Thread(r, "ThreadMsgBrkrConsumer");
+    t.setDaemon(true);
+    return t;
+  });
   private Connection mbConnection;
   private Channel mbChannel;
+  // Channels used for publishing. Created on first publish since the dispatcher does not publish.
+  private PublisherChannelPool publisherPool;
+  // Coalesces acks for events received by the main queue consumer. Created when the consumer is started.
+  private volatile AckCoordinator ackCoordinator;
+  // Consumers for bucket queues, keyed by bucket number. Set once the first one is started.
+  private final Map<Integer, BucketConsumer> bucketConsumers = new ConcurrentHashMap<>();
+  private volatile boolean bucketQueuesConsumed;
+  // Forwards events from the main queue to the bucket queues. Only used by the dispatcher holding the router lease.
+  private EventRouter eventRouter;
 
   /* ********************************************************************** */
   /*                             Constructors                               */
@@ -132,6 +216,11 @@ public final class MessageBroker
     mbParms.setQueuePassword(parms.getQueuePassword());
     mbParms.setQueueSSLEnabled(parms.isQueueSSLEnabled());
     mbParms.setQueueAutoRecoveryEnabled(parms.isQueueAutoRecoveryEnabled());
+    publishChannels = parms.getNtfPublishChannels();
+    publishConfirmTimeout = parms.getNtfPublishConfirmTimeout();
+    ackBatchSize = parms.getNtfAckBatchSize();
+    ackFlushInterval = parms.getNtfAckFlushInterval();
+    routingMode = parms.getNtfRoutingMode();
 
     instance = new MessageBroker();
   }
@@ -159,6 +248,12 @@ public final class MessageBroker
   public void shutDown(int timeoutMs)
   {
     log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_CONN_CLOSE", timeoutMs));
+    // Close publisher channels and stop forwarding events to bucket queues
+    synchronized (this) { if (publisherPool != null) publisherPool.close(); }
+    stopRouter();
+    // Send any acks that are ready before the channels are closed
+    if (ackCoordinator != null) ackCoordinator.close();
+    for (BucketConsumer bucketConsumer : bucketConsumers.values()) bucketConsumer.ackCoordinator().close();
     // Close channel
     if (mbChannel != null)
     {
@@ -179,29 +274,75 @@ public final class MessageBroker
         log.error(msg, e);
       }
     }
+    consumerExecService.shutdownNow();
   }
 
   /**
-   * Place an event on the main event queue
+   * Place an event on the main event queue, or the queue for its bucket in PARTITIONED routing mode.
+   * Waits for the message broker to confirm the event, so a normal return means the broker has the event.
    * This is called by NotificationsService.
    *
    * @param rUser - ResourceRequestUser containing tenant, user and request info
    * @param event - Event to queue up
-   * @throws IOException - on error
+   * @throws IOException - on error, including a nack or no confirm from the broker
    */
   public void publishEvent(ResourceRequestUser rUser, Event event) throws IOException
   {
-    // Convert event to json string
-    var jsonMessage = TapisGsonUtils.getGson().toJson(event);
-    // Publish the event to the queue.
-    getChannel().basicPublish(EXCHANGE_MAIN, QUEUE_MAIN, QueueManagerNames.PERSISTENT_JSON,
-                           jsonMessage.getBytes(StandardCharsets.UTF_8));
-    if (log.isTraceEnabled())
+    CompletableFuture<Void> confirm = publishEvents(rUser, List.of(event)).get(0);
+    try { confirm.join(); }
+    catch (CompletionException e)
+    {
+      Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+      if (cause instanceof IOException ioe) throw ioe;
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Place a group of events on the main event queue, or the queues for their buckets in PARTITIONED routing mode,
+   *   in list order, using a single publisher channel.
+   * Waits for the message broker to confirm the events. Returns one future per event, all of which are done.
+   *   A future completed exceptionally means the broker did not confirm that event. The exception has the reason.
+   * This is called by NotificationsService.
+   *
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param events - Events to queue up
+   * @return completed futures, one per event
+   * @throws IOException - if no publisher channel is available
+   */
+  public List<CompletableFuture<Void>> publishEvents(ResourceRequestUser rUser, List<Event> events) throws IOException
+  {
+    if (events == null || events.isEmpty()) return Collections.emptyList();
+    boolean partitioned = (routingMode == RoutingMode.PARTITIONED);
+    String exchange = partitioned ? EXCHANGE_VBUCKETS : EXCHANGE_MAIN;
+    var routingKeys = new ArrayList<String>(events.size());
+    var bodies = new ArrayList<byte[]>(events.size());
+    for (Event event : events)
     {
-      log.trace(LibUtils.getMsgAuth("NTFLIB_EVENT_PUB", rUser, event.getSource(), event.getType(),
-                                    event.getSubject(), event.getData(), event.getSeriesId(), event.getSeriesSeqCount(),
-                                    event.getTimestamp(), event.getUuid()));
+      routingKeys.add(partitioned ? Integer.toString(EventSeriesKey.of(event).virtualBucket()) : QUEUE_MAIN);
+      bodies.add(TapisGsonUtils.getGson().toJson(event).getBytes(StandardCharsets.UTF_8));
+    }
+    PublisherChannelPool pool = getPublisherPool();
+    List<CompletableFuture<Void>> confirms = pool.publish(exchange, routingKeys, QueueManagerNames.PERSISTENT_JSON,
+                                                          bodies);
+    pool.awaitConfirms(confirms);
+    for (int i = 0; i < events.size(); i++)
+    {
+      Event event = events.get(i);
+      if (confirms.get(i).isCompletedExceptionally())
+      {
+        Throwable cause = confirms.get(i).handle((v, t) -> t).join();
+        log.error(LibUtils.getMsgAuth("NTFLIB_EVENT_PUB_ERR", rUser, event.getSource(), event.getType(),
+                                      event.getSubject(), cause == null ? null : cause.getMessage()));
+      }
+      else if (log.isTraceEnabled())
+      {
+        log.trace(LibUtils.getMsgAuth("NTFLIB_EVENT_PUB", rUser, event.getSource(), event.getType(),
+                                      event.getSubject(), event.getData(), event.getSeriesId(),
+                                      event.getSeriesSeqCount(), event.getTimestamp(), event.getUuid()));
+      }
     }
+    return confirms;
   }
 
   /**
@@ -234,16 +375,40 @@ public final class MessageBroker
   }
 
   /**
-   * Acknowledge a message so that is removed from the main event queue.
+   * Acknowledge a message so that is removed from the main event queue or the queue for the bucket.
+   * Once the consumer has been started acks are coalesced, so the message may be removed a short time later.
    * This is called by DeliveryBucketManager.
    *
+   * @param bucketNum - bucket that processed the message
    * @param deliveryTag - deliveryTag provide my message broker
    * @throws IOException - on error
    */
-  public void ackMsg(long deliveryTag) throws IOException
+  public void ackMsg(int bucketNum, long deliveryTag) throws IOException
   {
-     boolean ackMultiple = false; // do NOT ack all messages up to and including the deliveryTag
-     mbChannel.basicAck(deliveryTag, ackMultiple);
+    AckCoordinator coordinator = getAckCoordinator(bucketNum);
+    if (coordinator != null)
+    {
+      coordinator.complete(deliveryTag);
+      return;
+    }
+    // Consumer for the bucket queue has been stopped. Its channel is closed, so the message will be redelivered.
+    if (bucketQueuesConsumed) return;
+    boolean ackMultiple = false; // do NOT ack all messages up to and including the deliveryTag
+    mbChannel.basicAck(deliveryTag, ackMultiple);
+  }
+
+  /**
+   * Return a message that could not be processed to the queue it came from so that it is delivered again.
+   * No-op if the message has already been acknowledged.
+   * This is called by DeliveryBucketManager.
+   *
+   * @param bucketNum - bucket that processed the message
+   * @param deliveryTag - deliveryTag provide my message broker
+   */
+  public void nackMsg(int bucketNum, long deliveryTag)
+  {
+    AckCoordinator coordinator = getAckCoordinator(bucketNum);
+    if (coordinator != null) coordinator.fail(deliveryTag);
   }
 
   /**
@@ -252,15 +417,18 @@ public final class MessageBroker
    * This is called by Dispatcher in order to start receiving events.
    *
    * @param deliveryQueues - in-memory queues used to pass events to bucket manager threads
+   * @param prefetchCount - max number of unacknowledged events delivered to the consumer, 0 for no limit
+   * @param virtualBuckets - assignment of virtual buckets to buckets
    * @throws IOException - on error
    * @return consumer tag
    */
-  public String startConsumer(List<BlockingQueue<Delivery>> deliveryQueues) throws IOException
+  public String startConsumer(List<BlockingQueue<Delivery>> deliveryQueues, int prefetchCount,
+                              VirtualBucketMap virtualBuckets) throws IOException
   {
     // Create the consumer that handles receiving messages from the queue.
     //   The consumer:
     //     - turns the message into an Event and constructs a Delivery object
-    //     - computes the bucket number
+    //     - looks up the bucket number for the virtual bucket of the event series
     //     - places Delivery on a queue for a bucket manager thread to pick up.
     // The bucket manager thread must do the final message acknowledgement
     Consumer consumer = new DefaultConsumer(mbChannel)
@@ -268,39 +436,25 @@ public final class MessageBroker
       @Override
       public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
       {
-        // Convert event to json string
-        String jsonStr = new String(body, StandardCharsets.UTF_8);
-        Event event = TapisGsonUtils.getGson().fromJson(jsonStr, Event.class);
-        // Trace receipt of the event
-        if (log.isTraceEnabled())
-        {
-          log.trace(LibUtils.getMsg("NTFLIB_EVENT_RCV", event.getTenant(), event.getSource(), event.getType(),
-                                    event.getSubject(), event.getData(), event.getSeriesId(), event.getSeriesSeqCount(),
-                                    event.getTimestamp(), event.getUuid()));
-        }
-
-        // Create the Delivery object to be passed to the bucket manager.
-        Delivery delivery = new Delivery(event, envelope.getDeliveryTag());
-
-        // Compute the bucket number
+        // Look up the bucket number
         // This is used to distribute the work among the workers.
-        int bucketNum = computeBucketNumber(event);
-        // Pass event to bucket manager thread through an in-memory queue
-        // NOTE: bucket manager thread uses deliveryTag in order to ack the message
-        try
-        {
-          deliveryQueues.get(bucketNum).put(delivery);
-        }
-        catch (InterruptedException e)
-        {
-          String msg = LibUtils.getMsg("NTFLIB_EVENT_PUT_INTRPT", event.getTenant(), event.getSource(),
-                                       event.getType(), event.getSubject(), event.getSeriesId(),
-                                       event.getSeriesSeqCount(), event.getUuid());
-          log.info(msg);
-        }
+        // An event whose virtual bucket is being moved is held until the move completes. Register it right away
+        //   so that it holds back acks of later events.
+        Delivery delivery = toDelivery(envelope, null, body);
+        virtualBuckets.route(delivery.getEvent(),
+          bucketNum -> queueDelivery(delivery, bucketNum, deliveryQueues.get(bucketNum), ALWAYS_ACTIVE,
+                                     ackCoordinator),
+          bucketNum -> ackCoordinator.register(delivery.getDeliveryTag(), bucketNum));
       }
     };
 
+    // Limit the number of unacknowledged events the broker will send us. Together with the bounded bucket queues
+    //   this caps the memory used by the dispatcher no matter how large the backlog in the main queue.
+    // A value of 0 means no limit.
+    if (prefetchCount > 0) mbChannel.basicQos(prefetchCount);
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_CONSUMER_START", QUEUE_MAIN, prefetchCount, ackBatchSize, ackFlushInterval));
+    ackCoordinator = new AckCoordinator(mbChannel, ackBatchSize, ackFlushInterval);
+
     // Now start consuming with no auto-ack. Ack should happen once event has been processed and notifications table
     //   has been populated for all subscriptions matching the event.
     boolean autoAck = false;
@@ -309,6 +463,196 @@ public final class MessageBroker
     return consumerTag;
   }
 
+  /**
+   * Declare the exchange and queues used when dispatcher replicas share the buckets or events are published to the
+   *   bucket queues, and bind them together.
+   * This is called by Dispatcher when bucket leases are enabled or the routing mode is PARTITIONED.
+   *
+   * @param numBuckets - number of buckets
+   * @throws IOException - on error
+   */
+  public void initBucketQueues(int numBuckets) throws IOException
+  {
+    boolean durable = true;
+    boolean autoDelete = false;
+    boolean exclusive = false;
+    getChannel().exchangeDeclare(EXCHANGE_BUCKETS, BuiltinExchangeType.DIRECT, durable, autoDelete, null);
+    for (int i = 0; i < numBuckets; i++)
+    {
+      getChannel().queueDeclare(bucketQueueName(i), durable, exclusive, autoDelete, null);
+      getChannel().queueBind(bucketQueueName(i), EXCHANGE_BUCKETS, Integer.toString(i));
+    }
+  }
+
+  /**
+   * Start consuming the queue for a bucket held by this dispatcher.
+   * Each bucket queue is consumed on its own channel, so the prefetch count and acks for a bucket do not depend on
+   *   any other bucket.
+   * This is called by Dispatcher when it acquires a bucket lease or, if buckets are not leased, at startup.
+   *
+   * @param bucketNum - bucket
+   * @param deliveryQueue - in-memory queue used to pass events to the bucket manager thread
+   * @param prefetchCount - max number of unacknowledged events delivered to the bucket consumer, 0 for no limit
+   * @throws IOException - on error
+   */
+  public synchronized void startBucketConsumer(int bucketNum, BlockingQueue<Delivery> deliveryQueue, int prefetchCount)
+          throws IOException
+  {
+    if (bucketConsumers.containsKey(bucketNum)) return;
+    bucketQueuesConsumed = true;
+    Channel channel = mbConnection.createChannel();
+    if (prefetchCount > 0) channel.basicQos(prefetchCount);
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_CONSUMER_START", bucketQueueName(bucketNum), prefetchCount, ackBatchSize,
+                             ackFlushInterval));
+    String metricPrefix = DispatchService.METRIC_BUCKET_PREFIX + bucketNum;
+    var bucketAckCoordinator = new AckCoordinator(channel, ackBatchSize, ackFlushInterval,
+                                                  metricPrefix + ".ack.pending", metricPrefix + ".ack.waiting");
+    var active = new AtomicBoolean(true);
+    Consumer consumer = new DefaultConsumer(channel)
+    {
+      @Override
+      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+      {
+        queueDelivery(toDelivery(envelope, properties, body), bucketNum, deliveryQueue, active, bucketAckCoordinator);
+      }
+    };
+    boolean autoAck = false;
+    String consumerTag = channel.basicConsume(bucketQueueName(bucketNum), autoAck, consumer);
+    bucketConsumers.put(bucketNum, new BucketConsumer(channel, consumerTag, active, bucketAckCoordinator));
+  }
+
+  /**
+   * Stop consuming the queue for a bucket and return events handed to the bucket but not yet processed to the queue.
+   * The bucket manager must be stopped first, so that none of the returned events are being processed.
+   * Acks ready to be sent are sent, then the channel for the bucket is closed, which returns the rest.
+   * This is called by Dispatcher when it gives up a bucket lease.
+   *
+   * @param bucketNum - bucket
+   * @param deliveryQueue - in-memory queue used to pass events to the bucket manager thread
+   */
+  public void stopBucketConsumer(int bucketNum, BlockingQueue<Delivery> deliveryQueue)
+  {
+    BucketConsumer bucketConsumer = bucketConsumers.remove(bucketNum);
+    if (bucketConsumer == null) return;
+    bucketConsumer.active().set(false);
+    Channel channel = bucketConsumer.channel();
+    try { channel.basicCancel(bucketConsumer.consumerTag()); }
+    catch (IOException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_CONSUMER_STOP_ERR", bucketQueueName(bucketNum), e.getMessage()), e);
+    }
+    bucketConsumer.ackCoordinator().close();
+    int numReturned = bucketConsumer.ackCoordinator().numPending();
+    try { channel.close(); }
+    catch (IOException | TimeoutException | RuntimeException e)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_CHAN_CLOSE_ERR", channel.getChannelNumber(), e.getMessage()), e);
+    }
+    deliveryQueue.clear();
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_CONSUMER_STOP", bucketQueueName(bucketNum), numReturned));
+  }
+
+  /**
+   * Bind each virtual bucket to the queue for its bucket, so that in PARTITIONED routing mode events are published
+   *   straight to the bucket queues. Bindings are kept by the message broker, so this only has an effect the first
+   *   time. A virtual bucket left being moved is bound to the bucket it is moving from again, and unbound when its
+   *   marker is resent. No-op in MAIN routing mode.
+   * This is called by Dispatcher when it starts forwarding events, before any virtual bucket is moved.
+   *
+   * @param assignment - bucket for each virtual bucket
+   * @throws IOException - on error
+   */
+  public void bindVirtualBuckets(int[] assignment) throws IOException
+  {
+    if (routingMode != RoutingMode.PARTITIONED) return;
+    for (int v = 0; v < assignment.length; v++)
+    {
+      getChannel().queueBind(bucketQueueName(assignment[v]), EXCHANGE_VBUCKETS, Integer.toString(v));
+    }
+    log.info(LibUtils.getMsg("NTFLIB_MSGBRKR_VBUCKETS_BOUND", assignment.length, EXCHANGE_VBUCKETS));
+  }
+
+  /**
+   * Start forwarding events from the main queue to the bucket queues. No-op if already started.
+   * This is called by Dispatcher when it acquires the router lease.
+   *
+   * @param prefetchCount - max number of events forwarded but not yet confirmed, 0 for no limit
+   * @param virtualBuckets - assignment of virtual buckets to buckets
+   * @throws IOException - on error
+   */
+  public synchronized void startRouter(int prefetchCount, VirtualBucketMap virtualBuckets) throws IOException
+  {
+    if (eventRouter == null) eventRouter = new EventRouter(mbConnection, prefetchCount, virtualBuckets);
+  }
+
+  /**
+   * Send a virtual bucket move marker to the queue for the bucket the virtual bucket is moving from.
+   * In PARTITIONED routing mode the virtual bucket is first unbound from the queue it is moving from, so that the
+   *   marker follows every event for the virtual bucket on that queue. Until the move completes events for the
+   *   virtual bucket go through the alternate exchange to the main queue, where the router holds them. The virtual
+   *   bucket is bound to the queue it is moving to only once the move completes, see publishFence. An event is
+   *   never on both queues, so it is never processed twice. Unbinding again when a marker is resent is harmless.
+   * This is called when the router moves a virtual bucket.
+   *
+   * @param move - virtual bucket with the bucket it is moving from and to
+   * @throws IOException - on error, including if the router has been stopped
+   */
+  public synchronized void publishMarker(VirtualBucket move) throws IOException
+  {
+    if (eventRouter == null) throw new IOException(LibUtils.getMsg("NTFLIB_MSGBRKR_NO_ROUTER"));
+    if (routingMode == RoutingMode.PARTITIONED)
+    {
+      getChannel().queueUnbind(bucketQueueName(move.bucketNum()), EXCHANGE_VBUCKETS, Integer.toString(move.vbucket()));
+    }
+    eventRouter.publishMarker(move);
+  }
+
+  /**
+   * Complete a virtual bucket move in PARTITIONED routing mode. No-op in the other routing modes.
+   * The virtual bucket is bound to the queue for the bucket it moved to and a fence is then published to the main
+   *   exchange. The router forwards the fence to the bucket after every event for the virtual bucket that went to the
+   *   main queue while it was unbound. Events published straight to the bucket queue after the binding may arrive
+   *   before the fence, so the bucket holds them until the fence arrives. That way events in a series stay in order.
+   * This is called when the move has completed and the router has released the events it held. Binding again and
+   *   publishing another fence when this is retried is harmless.
+   *
+   * @param move - virtual bucket with the bucket it moved from and to
+   * @throws IOException - on error
+   */
+  public synchronized void publishFence(VirtualBucket move) throws IOException
+  {
+    if (routingMode != RoutingMode.PARTITIONED) return;
+    getChannel().queueBind(bucketQueueName(move.targetBucket()), EXCHANGE_VBUCKETS, Integer.toString(move.vbucket()));
+    var properties = new AMQP.BasicProperties.Builder()
+            .headers(Map.of(HEADER_VBUCKET_MOVE, moveHeader(move)))
+            .deliveryMode(2)
+            .build();
+    getChannel().basicPublish(EXCHANGE_MAIN, DEFAULT_BINDING_KEY, properties, new byte[0]);
+  }
+
+  /**
+   * Ack the completed event waiting for a bucket right away, rather than waiting for events before it.
+   * This is called by DeliveryBucketManager before moving a virtual bucket.
+   *
+   * @param bucketNum - bucket
+   */
+  public void ackBucket(int bucketNum)
+  {
+    AckCoordinator coordinator = getAckCoordinator(bucketNum);
+    if (coordinator != null) coordinator.ackBucket(bucketNum);
+  }
+
+  /**
+   * Stop forwarding events to the bucket queues. No-op if not started.
+   * This is called by Dispatcher when it gives up the router lease.
+   */
+  public synchronized void stopRouter()
+  {
+    if (eventRouter == null) return;
+    eventRouter.close();
+    eventRouter = null;
+  }
+
   /**
    * Check status
    */
@@ -321,10 +665,110 @@ public final class MessageBroker
     return null;
   }
 
+  /*
+   * Header value for a virtual bucket move marker or fence
+   */
+  static String moveHeader(VirtualBucket move)
+  {
+    return "%d:%d:%d".formatted(move.vbucket(), move.bucketNum(), move.targetBucket());
+  }
+
+  /*
+   * Virtual bucket move carried by a marker or fence, or null if the message is an event
+   */
+  static VirtualBucket getMove(AMQP.BasicProperties properties)
+  {
+    Map<String, Object> headers = (properties == null) ? null : properties.getHeaders();
+    Object move = (headers == null) ? null : headers.get(HEADER_VBUCKET_MOVE);
+    if (move == null) return null;
+    String[] parts = move.toString().split(":");
+    return new VirtualBucket(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.valueOf(parts[2]));
+  }
+
   /* ********************************************************************** */
   /*                             Private Methods                            */
   /* ********************************************************************** */
 
+  /*
+   * Turn a message into an Event and construct the Delivery object to be passed to a bucket manager
+   * A message on a bucket queue may instead be a virtual bucket move marker, identified by a header.
+   */
+  private static Delivery toDelivery(Envelope envelope, AMQP.BasicProperties properties, byte[] body)
+  {
+    VirtualBucket remap = getMove(properties);
+    if (remap != null) return new Delivery(remap, envelope.getDeliveryTag());
+
+    // Convert event to json string
+    String jsonStr = new String(body, StandardCharsets.UTF_8);
+    Event event = TapisGsonUtils.getGson().fromJson(jsonStr, Event.class);
+    // Trace receipt of the event
+    if (log.isTraceEnabled())
+    {
+      log.trace(LibUtils.getMsg("NTFLIB_EVENT_RCV", event.getTenant(), event.getSource(), event.getType(),
+                                event.getSubject(), event.getData(), event.getSeriesId(), event.getSeriesSeqCount(),
+                                event.getTimestamp(), event.getUuid()));
+    }
+    return new Delivery(event, envelope.getDeliveryTag(), EXCHANGE_VBUCKETS.equals(envelope.getExchange()));
+  }
+
+  /*
+   * Pass event to bucket manager thread through an in-memory queue
+   * NOTE: bucket manager thread uses deliveryTag in order to ack the message
+   * Bucket queues are bounded. If the queue is full we block here, which stops the consumer from taking
+   *   any more events, so the backlog stays in the message broker rather than in memory.
+   * If the bucket is stopped while we wait, or just after the event is queued, the event is returned to the queue.
+   */
+  private void queueDelivery(Delivery delivery, int bucketNum, BlockingQueue<Delivery> bucketQueue,
+                             AtomicBoolean active, AckCoordinator ackCoordinator)
+  {
+    Event event = delivery.getEvent();
+    long deliveryTag = delivery.getDeliveryTag();
+    Object id = delivery.isRemap() ? delivery.getRemap() : event.getUuid();
+    try
+    {
+      ackCoordinator.register(deliveryTag, bucketNum);
+      if (!bucketQueue.offer(delivery))
+      {
+        NtfMetrics.increment(METRIC_CONSUMER_BLOCKED);
+        if (log.isDebugEnabled()) log.debug(LibUtils.getMsg("NTFLIB_EVENT_PUT_BLOCKED", bucketNum, id));
+        long startNanos = System.nanoTime();
+        while (!bucketQueue.offer(delivery, BLOCKED_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS))
+        {
+          if (!active.get())
+          {
+            ackCoordinator.fail(deliveryTag);
+            return;
+          }
+        }
+        NtfMetrics.recordNanos(METRIC_CONSUMER_BLOCKED_TIME, System.nanoTime() - startNanos);
+      }
+      if (!active.get() && bucketQueue.remove(delivery)) ackCoordinator.fail(deliveryTag);
+    }
+    catch (InterruptedException e)
+    {
+      // Event was not queued. Return it so that it does not hold back acks.
+      ackCoordinator.fail(deliveryTag);
+      if (event == null) return;
+      String msg = LibUtils.getMsg("NTFLIB_EVENT_PUT_INTRPT", event.getTenant(), event.getSource(),
+                                   event.getType(), event.getSubject(), event.getSeriesId(),
+                                   event.getSeriesSeqCount(), event.getUuid());
+      log.info(msg);
+    }
+  }
+
+  private static String bucketQueueName(int bucketNum) { return QUEUE_BUCKET_PREFIX + bucketNum; }
+
+  /*
+   * Coalesces acks for a bucket. From the consumer for its queue if there is one, else from the main queue consumer.
+   * Null if neither has been started.
+   */
+  private AckCoordinator getAckCoordinator(int bucketNum)
+  {
+    BucketConsumer bucketConsumer = bucketConsumers.get(bucketNum);
+    if (bucketConsumer != null) return bucketConsumer.ackCoordinator();
+    return bucketQueuesConsumed ? null : ackCoordinator;
+  }
+
   /**
    * Create the exchanges and queues for notification events and bind them together
    */
@@ -339,6 +783,11 @@ public final class MessageBroker
     getChannel().queueDeclare(QUEUE_MAIN, durable, exclusive, autoDelete, null);
     // Bind to the queue
     getChannel().queueBind(QUEUE_MAIN, EXCHANGE_MAIN, DEFAULT_BINDING_KEY);
+    // Exchange used by publishers in PARTITIONED routing mode. Events for a virtual bucket that is not bound to a
+    //   bucket queue go to the main exchange rather than being dropped.
+    Map<String,Object> vbucketExchangeArgs = Map.of("alternate-exchange", EXCHANGE_MAIN);
+    getChannel().exchangeDeclare(EXCHANGE_VBUCKETS, BuiltinExchangeType.DIRECT, durable, autoDelete,
+                                 vbucketExchangeArgs);
   }
 
   /**
@@ -387,7 +836,7 @@ public final class MessageBroker
     connectionFactory.setPassword(mbParms.getQueuePassword());
     connectionFactory.setAutomaticRecoveryEnabled(mbParms.isQueueAutoRecoveryEnabled());
     connectionFactory.setVirtualHost(mbParms.getVhost());
-    mbConnection = connectionFactory.newConnection();
+    mbConnection = connectionFactory.newConnection(consumerExecService);
     mbChannel = mbConnection.createChannel();
   }
 
@@ -395,34 +844,29 @@ public final class MessageBroker
    * Get the channel
    * Channels can close due to exceptions, re-create as needed.
    * NOTE: although it is recommended that isOpen not be used in production code because there can be race conditions,
-   *   in our case we only have one thread that deals with rabbitmq (the DispatchApplication), so we will not have
-   *   multiple threads accessing the channel.
+   *   in our case only the DispatchApplication consumes and acks using this channel. Publishing uses the pool.
    */
-  private Channel getChannel() throws IOException
+  private synchronized Channel getChannel() throws IOException
   {
-    if (mbChannel.isOpen()) return mbChannel;
-    else return mbConnection.createChannel();
+    if (!mbChannel.isOpen()) mbChannel = mbConnection.createChannel();
+    return mbChannel;
   }
 
   /*
-   * Compute a bucket number from 0 to NUM_BUCKETS-1
-   *   based on hash of event tenant, source, subject and seriesId
-   * This is used to distribute the work among the workers.
-   * Why we use tenant, source, subject and seriesId:
-   *   Each series is intended to sequentially track events of various types coming from
-   *   a given tenant, source and subject.
-   *   For example, the Jobs service (the source) sends out events with the jobUuid as the subject and
-   *   sets the seriesId to the jobUuid. That way a subscription can be created to follow (in order) all
-   *   events of various types related to the job.
-   *   Examples of event types defined in the Jobs service: JOB_NEW_STATUS, JOB_ERROR_MESSAGE, JOB_USER_EVENT
-   * So we use tenant, source, subject and seriesId in the hash so that the same bucketManager always gets
-   *   events in a given series. The bucketManager will ensure event notifications are sent out in order.
-   * NOTE that we clear the top 4 bits of the hash so that we always have a positive integer
-   */
-  private static int computeBucketNumber(Event event)
+   * Get the pool of publisher channels, creating it on first use.
+   */
+  private synchronized PublisherChannelPool getPublisherPool() throws IOException
   {
-    Object[] hashObjects = {event.getTenant(), event.getSource(), event.getSubject(), event.getSeriesId()};
-    int hash = (Arrays.hashCode(hashObjects) & 0xfffffff);
-    return hash % NUM_BUCKETS;
+    if (publisherPool == null)
+    {
+      publisherPool = new PublisherChannelPool(mbConnection, publishChannels, publishConfirmTimeout);
+    }
+    return publisherPool;
   }
+
+  /*
+   * Consumer for a bucket queue, with its own channel and acks. Active is cleared when the bucket is stopped.
+   */
+  private record BucketConsumer(Channel channel, String consumerTag, AtomicBoolean active,
+                                AckCoordinator ackCoordinator) {}
 }
\ No newline at end of file
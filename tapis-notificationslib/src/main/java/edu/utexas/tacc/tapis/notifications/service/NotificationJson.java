@@ -0,0 +1,168 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.Notification;
+
+/*
+ * Json encoding of notifications for delivery.
+ * All notifications generated for an event carry the same event, so the event is encoded once per fan-out and
+ *   shared. Each notification is then the shared event joined with a small envelope of its own fields.
+ * The result is the same json as serializing the notification with Gson, compact or pretty printed.
+ *
+ * For webhooks the body is sent as parts, envelope prefix, shared event bytes and envelope suffix, so the event
+ *   bytes are not copied for each notification. Email bodies are pretty printed strings built from the same
+ *   shared event.
+ *
+ * This class is non-instantiable
+ */
+public final class NotificationJson
+{
+  // Private constructor to make it non-instantiable
+  private NotificationJson() { throw new AssertionError(); }
+
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Gson instances are thread safe, create them once.
+  private static final Gson GSON_COMPACT = TapisGsonUtils.getGson(false);
+  private static final Gson GSON_PRETTY = TapisGsonUtils.getGson(true);
+
+  // Stand-in for the event while writing the envelope. Gson escapes control characters in strings,
+  //   so this can not occur anywhere else in the output.
+  private static final String EVENT_PLACEHOLDER = "\u0000EVENT\u0000";
+
+  // Indent used by Gson when pretty printing
+  private static final String PRETTY_INDENT = "  ";
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Encode an event for sharing by all notifications in a fan-out
+   * @param event - the event
+   * @return encoded event
+   */
+  public static EncodedEvent encodeEvent(Event event)
+  {
+    return new EncodedEvent(event);
+  }
+
+  /**
+   * Build the body for a webhook delivery as parts to be sent in order.
+   * @param ntf - notification
+   * @param encodedEvent - encoded event for the notification, may be null in which case the event is encoded
+   * @param pretty - true for pretty printed json
+   * @return body parts
+   */
+  public static List<byte[]> toWebhookBody(Notification ntf, EncodedEvent encodedEvent, boolean pretty)
+  {
+    if (ntf.getEvent() == null) return List.of(toJson(ntf, null, pretty).getBytes(StandardCharsets.UTF_8));
+    EncodedEvent ev = (encodedEvent == null) ? new EncodedEvent(ntf.getEvent()) : encodedEvent;
+    String envelope = writeEnvelope(ntf, pretty);
+    int idx = envelope.indexOf(EVENT_PLACEHOLDER);
+    return List.of(envelope.substring(0, idx).getBytes(StandardCharsets.UTF_8), ev.getBytes(pretty),
+                   envelope.substring(idx + EVENT_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Build the json for a notification as a string, e.g. for an email body.
+   * @param ntf - notification
+   * @param encodedEvent - encoded event for the notification, may be null in which case the event is encoded
+   * @param pretty - true for pretty printed json
+   * @return json
+   */
+  public static String toJson(Notification ntf, EncodedEvent encodedEvent, boolean pretty)
+  {
+    if (ntf.getEvent() == null) return (pretty ? GSON_PRETTY : GSON_COMPACT).toJson(ntf);
+    EncodedEvent ev = (encodedEvent == null) ? new EncodedEvent(ntf.getEvent()) : encodedEvent;
+    return writeEnvelope(ntf, pretty).replace(EVENT_PLACEHOLDER, ev.getString(pretty));
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Write the notification fields in the same order and form as Gson does for Notification, with a placeholder
+   *   for the event. Gson settings, such as null handling, are honored since the writer comes from Gson.
+   */
+  private static String writeEnvelope(Notification ntf, boolean pretty)
+  {
+    Gson gson = pretty ? GSON_PRETTY : GSON_COMPACT;
+    var sw = new StringWriter(256);
+    try (JsonWriter w = gson.newJsonWriter(sw))
+    {
+      w.beginObject();
+      writeField(gson, w, "uuid", ntf.getUuid());
+      writeField(gson, w, "tenant", ntf.getTenant());
+      writeField(gson, w, "subscriptionName", ntf.getSubscriptionName());
+      writeField(gson, w, "eventUuid", ntf.getEventUuid());
+      w.name("event").jsonValue(EVENT_PLACEHOLDER);
+      writeField(gson, w, "deliveryTarget", ntf.getDeliveryTarget());
+      writeField(gson, w, "created", ntf.getCreated());
+      w.endObject();
+    }
+    catch (IOException e)
+    {
+      // Not expected when writing to a string
+      throw new UncheckedIOException(e);
+    }
+    return sw.toString();
+  }
+
+  private static void writeField(Gson gson, JsonWriter w, String name, Object value) throws IOException
+  {
+    w.name(name);
+    if (value == null) w.nullValue();
+    else gson.toJson(value, value.getClass(), w);
+  }
+
+  /*
+   * Event encoded once and shared by all notifications for the event. Each form is encoded on first use.
+   * Thread safe.
+   */
+  public static final class EncodedEvent
+  {
+    private final Event event;
+    private String compact;
+    private byte[] compactBytes;
+    private String pretty;
+    private byte[] prettyBytes;
+
+    private EncodedEvent(Event event1) { event = event1; }
+
+    private synchronized String getString(boolean isPretty)
+    {
+      if (isPretty)
+      {
+        // Nested one level in the notification, so indent every line after the first.
+        if (pretty == null) pretty = GSON_PRETTY.toJson(event).replace("\n", "\n" + PRETTY_INDENT);
+        return pretty;
+      }
+      if (compact == null) compact = GSON_COMPACT.toJson(event);
+      return compact;
+    }
+
+    private synchronized byte[] getBytes(boolean isPretty)
+    {
+      if (isPretty)
+      {
+        if (prettyBytes == null) prettyBytes = getString(true).getBytes(StandardCharsets.UTF_8);
+        return prettyBytes;
+      }
+      if (compactBytes == null) compactBytes = getString(false).getBytes(StandardCharsets.UTF_8);
+      return compactBytes;
+    }
+  }
+}
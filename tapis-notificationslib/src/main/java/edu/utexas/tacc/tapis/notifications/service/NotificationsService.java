@@ -11,9 +11,13 @@ import edu.utexas.tacc.tapis.client.shared.exceptions.TapisClientException;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
 import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao.SubscriptionHandler;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
 import edu.utexas.tacc.tapis.notifications.model.PatchSubscription;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 import edu.utexas.tacc.tapis.notifications.model.TestSequence;
 
 /*
@@ -60,7 +64,7 @@ public interface NotificationsService
           throws TapisException, TapisClientException, NotAuthorizedException;
 
   int getSubscriptionsTotalCount(ResourceRequestUser rUser, String owner, List<String> searchList, List<OrderBy> orderByList,
-                        String startAfter) throws TapisException, TapisClientException;
+                        String startAfter, CountStrategy countStrategy) throws TapisException, TapisClientException;
 
   List<Subscription> getSubscriptions(ResourceRequestUser rUser, String owner, List<String> searchList, int limit,
                     List<OrderBy> orderByList, int skip, String startAfter, boolean anyOwner)
@@ -70,6 +74,11 @@ public interface NotificationsService
                                      List<OrderBy> orderByList, int skip, String startAfter)
           throws TapisException, TapisClientException;
 
+  SubscriptionStream getSubscriptionStream(ResourceRequestUser rUser, String owner, List<String> searchList,
+                                           String sqlSearchStr, int limit, List<OrderBy> orderByList, String cursor,
+                                           boolean anyOwner)
+          throws TapisException, TapisClientException;
+
   // -----------------------------------------------------------------------
   // ------------------------- Events --------------------------------------
   // -----------------------------------------------------------------------
@@ -78,6 +87,9 @@ public interface NotificationsService
                     boolean endSeries, String tenant)
           throws TapisException, IOException, IllegalArgumentException, NotAuthorizedException;
 
+  List<EventPublishResult> publishEvents(ResourceRequestUser rUser, List<Event> events, String tenant)
+          throws TapisException, IllegalArgumentException, NotAuthorizedException;
+
   int endEventSeries(ResourceRequestUser rUser, String source, String subject, String seriesId, String tenant)
           throws TapisException, IOException, IllegalArgumentException, NotAuthorizedException;
 
@@ -96,4 +108,14 @@ public interface NotificationsService
 
   void recordTestNotification(String tenant, String user, String name, Notification notification)
           throws TapisException, IllegalStateException;
+
+  /*
+   * A page of subscriptions that have been checked and authorized, read from the DB when forEach() is called.
+   */
+  @FunctionalInterface
+  interface SubscriptionStream
+  {
+    // Pass each subscription to the handler and return the cursor for the next page, null if there are no more.
+    String forEach(SubscriptionHandler handler) throws TapisException;
+  }
 }
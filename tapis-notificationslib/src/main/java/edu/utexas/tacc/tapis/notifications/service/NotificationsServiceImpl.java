@@ -5,10 +5,16 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.inject.Inject;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
@@ -39,9 +45,14 @@ import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
 import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
 import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.dao.SubscriptionCountCache;
+import edu.utexas.tacc.tapis.notifications.dao.SubscriptionCursor;
 import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
 import edu.utexas.tacc.tapis.notifications.model.PatchSubscription;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 import edu.utexas.tacc.tapis.notifications.model.Subscription.SubscriptionOperation;
 import edu.utexas.tacc.tapis.notifications.model.TestSequence;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
@@ -85,6 +96,9 @@ public class NotificationsServiceImpl implements NotificationsService
   // NotAuthorizedException requires a Challenge, although it serves no purpose here.
   private static final String NO_CHALLENGE = "NoChallenge";
 
+  // Maximum number of events that may be published in a single batch request
+  public static final int MAX_PUBLISH_BATCH_SIZE = 1000;
+
   // ************************************************************************
   // *********************** Enums ******************************************
   // ************************************************************************
@@ -109,6 +123,24 @@ public class NotificationsServiceImpl implements NotificationsService
   public static String getServiceTenantId() {return siteAdminTenantId;}
   public static String getServiceUserId() {return SERVICE_NAME;}
 
+  // Allocator for event series sequence counts and the listener that keeps it consistent with series resets.
+  // Initialized in method initService(). Until then counts are allocated from the DB for each event.
+  private SeriesSeqAllocator seriesAllocator;
+  private final ExecutorService seriesResetExecService = Executors.newSingleThreadExecutor(r ->
+  {
+    Thread t = new Thread(r);
+    t.setDaemon(true);
+    return t;
+  });
+
+  // Listener that drops cached subscription search counts when subscriptions are changed by other processes
+  private final ExecutorService subscrCountExecService = Executors.newSingleThreadExecutor(r ->
+  {
+    Thread t = new Thread(r);
+    t.setDaemon(true);
+    return t;
+  });
+
   // ************************************************************************
   // *********************** Public Methods *********************************
   // ************************************************************************
@@ -118,6 +150,8 @@ public class NotificationsServiceImpl implements NotificationsService
    *   init service context
    *   migrate DB
    *   init message broker
+   *   start event series block allocation
+   *   start subscription count cache listener
    */
   public void initService(String siteAdminTenantId1, RuntimeParameters runParms)
           throws TapisException, TapisClientException
@@ -130,6 +164,13 @@ public class NotificationsServiceImpl implements NotificationsService
     dao.migrateDB();
     // Initialize the singleton instance of the message broker manager
     MessageBroker.init(runParms);
+    // Allocate event series sequence counts in blocks if configured
+    seriesAllocator = new SeriesSeqAllocator(dao, runParms.getNtfSeriesBlockSize());
+    if (seriesAllocator.getBlockSize() > 1) seriesResetExecService.submit(new SeriesResetListener(seriesAllocator));
+    else log.info(LibUtils.getMsg("NTFLIB_SERIES_ALLOC_DISABLED"));
+    // Keep cached subscription search counts consistent with changes made by other processes
+    if (runParms.getNtfSubscrCountCacheSize() > 0)
+      subscrCountExecService.submit(new SubscriptionCountListener(SubscriptionCountCache.getInstance()));
   }
 
   /**
@@ -141,6 +182,17 @@ public class NotificationsServiceImpl implements NotificationsService
     return dao.checkDB();
   }
 
+  /**
+   * Remove cached admin role lookups for this service instance, e.g. after a role is granted or revoked in SK.
+   * @param tenant - tenant, null for all tenants
+   * @param user - user, null for all users in the tenant
+   * @return number of entries removed
+   */
+  public int invalidateAdminRoleCache(String tenant, String user)
+  {
+    return AdminRoleCache.getInstance().invalidate(tenant, user);
+  }
+
   /**
    * Check that we can connect with our message broker.
    * @return null if all OK else return an Exception
@@ -629,12 +681,13 @@ public class NotificationsServiceImpl implements NotificationsService
    * @param searchList - optional list of conditions used for searching
    * @param orderByList - orderBy entries for sorting, e.g. orderBy=created(desc).
    * @param startAfter - where to start when sorting, e.g. orderBy=id(asc)&startAfter=101 (may not be used with skip)
+   * @param countStrategy - exact, estimated or cached count. Null for exact.
    * @return Count of subscription objects
    * @throws TapisException - for Tapis related exceptions
    */
   @Override
   public int getSubscriptionsTotalCount(ResourceRequestUser rUser, String owner, List<String> searchList,
-                                        List<OrderBy> orderByList, String startAfter)
+                                        List<OrderBy> orderByList, String startAfter, CountStrategy countStrategy)
           throws TapisException, TapisClientException
   {
     // Check inputs
@@ -670,7 +723,8 @@ public class NotificationsServiceImpl implements NotificationsService
     if (allowedNames != null && allowedNames.isEmpty()) return 0;
 
     // Count all allowed resources matching the search conditions
-    return dao.getSubscriptionsCount(rUser.getOboTenantId(), owner, verifiedSearchList, null, allowedNames, orderByList, startAfter);
+    return dao.getSubscriptionsCount(rUser.getOboTenantId(), owner, verifiedSearchList, null, allowedNames, orderByList,
+                                     startAfter, countStrategy);
   }
 
   /**
@@ -790,6 +844,79 @@ public class NotificationsServiceImpl implements NotificationsService
                                 startAfter, anyOwnerFalse);
   }
 
+  /**
+   * Get a page of subscriptions using a continuation cursor, for streaming to a client.
+   * Inputs and auth are checked here. Subscriptions are read from the DB when forEach() is called on the result,
+   *   so the caller can write each one out as it is read.
+   * If sqlSearchStr is given it is used for the search and searchList is ignored. anyOwner is not supported for
+   *   a search string, the same as getSubscriptionsUsingSqlSearchStr().
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param owner subscription owner. Normally oboUser, but can be set using ownedBy query parameter.
+   * @param searchList - optional list of conditions used for searching
+   * @param sqlSearchStr - optional string containing a valid SQL where clause
+   * @param limit - indicates maximum number of results to be included, -1 for unlimited
+   * @param orderByList - orderBy entries for sorting. Default is the order of the cursor or created(asc),name(asc).
+   * @param cursor - cursor returned with the previous page. Blank for the first page.
+   * @param anyOwner - If true retrieve all subscriptions owned by any user. owner will be ignored.
+   * @return Subscriptions in the page
+   * @throws TapisException - for Tapis related exceptions
+   */
+  @Override
+  public SubscriptionStream getSubscriptionStream(ResourceRequestUser rUser, String owner, List<String> searchList,
+                                                  String sqlSearchStr, int limit, List<OrderBy> orderByList,
+                                                  String cursor, boolean anyOwner)
+          throws TapisException, TapisClientException
+  {
+    // Check inputs
+    if (rUser == null) throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_NULL_INPUT_AUTHUSR"));
+    if (StringUtils.isBlank(owner))
+      throw new IllegalArgumentException(LibUtils.getMsgAuth("NTFLIB_MISSING_ARG1", rUser, "owner", SubscriptionOperation.read));
+    boolean useSqlSearchStr = !StringUtils.isBlank(sqlSearchStr);
+    boolean anyOwner1 = anyOwner && !useSqlSearchStr;
+
+    // Check auth. Only service may use anyOwner == true
+    checkAuthAnyOwner(rUser, anyOwner1);
+
+    // Check auth. Let service always pass.
+    // For user request: User may only search for subscriptions they own unless they are an admin
+    checkAuthOwner(rUser, owner);
+
+    // Decode the cursor. Null for the first page.
+    SubscriptionCursor after = SubscriptionCursor.decode(cursor);
+
+    // Build verified list of search conditions or parse the sql string into an abstract syntax tree (AST)
+    var verifiedSearchList = new ArrayList<String>();
+    ASTNode searchAST = null;
+    try
+    {
+      if (useSqlSearchStr) searchAST = ASTParser.parse(sqlSearchStr);
+      else if (searchList != null)
+      {
+        for (String cond : searchList) verifiedSearchList.add(SearchUtils.validateAndProcessSearchCondition(cond));
+      }
+    }
+    catch (Exception e)
+    {
+      String msg = LibUtils.getMsgAuth("NTFLIB_SEARCH_ERROR", rUser, e.getMessage());
+      throw new IllegalArgumentException(msg);
+    }
+
+    // Get list of subscription names
+    // This is either all subscriptions (null) or a list of names.
+    // If anyOwner == true then no need to get allowedNames
+    Set<String> allowedNames = (anyOwner1 ? null : prvtGetAllowedSubscriptionNames(rUser, owner));
+
+    String tenant = rUser.getOboTenantId();
+    List<String> daoSearchList = useSqlSearchStr ? null : verifiedSearchList;
+    ASTNode daoSearchAST = searchAST;
+    return handler ->
+    {
+      SubscriptionCursor next = dao.streamSubscriptions(tenant, owner, daoSearchList, daoSearchAST, allowedNames,
+                                                        limit, orderByList, after, anyOwner1, handler);
+      return (next == null) ? null : next.encode();
+    };
+  }
+
   // -----------------------------------------------------------------------
   // ------------------------- Events --------------------------------------
   // -----------------------------------------------------------------------
@@ -819,9 +946,6 @@ public class NotificationsServiceImpl implements NotificationsService
     String opName = "publishEvent";
     // Check inputs
     if (rUser == null) throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_NULL_INPUT_AUTHUSR"));
-    if (StringUtils.isBlank(source)) throw new IllegalArgumentException(LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "source", opName));
-    if (StringUtils.isBlank(type)) throw new IllegalArgumentException(LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "type", opName));
-    if (StringUtils.isBlank(timestamp)) throw new IllegalArgumentException(LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "timestamp", opName));
 
     String msg;
     // Only services may publish. Reject if not a service.
@@ -832,40 +956,169 @@ public class NotificationsServiceImpl implements NotificationsService
     }
 
     // Determine the tenant. Only services may set the tenant. By default, oboTenant is used.
-    if (!StringUtils.isBlank(tenant1) && !rUser.isServiceRequest())
-    {
-      msg = LibUtils.getMsgAuth("NTFLIB_EVENT_UNAUTH", rUser, opName);
-      throw new NotAuthorizedException(msg, NO_CHALLENGE);
-    }
     String tenant = StringUtils.isBlank(tenant1) ? rUser.getOboTenantId() : tenant1;
 
-    // Validate the event type
-    if (!Event.isValidType(type))
-    {
-      msg = LibUtils.getMsgAuth("NTFLIB_EVENT_TYPE_ERR", rUser, source, type, subject, timestamp);
-      throw new IllegalArgumentException(msg);
-    }
+    // Validate the event
+    Event reqEvent = new Event(source, type, subject, data, seriesId, Event.DEFAULT_SERIES_SEQ_COUNT, timestamp,
+                               deleteSubscriptionsMatchingSubject, endSeries, null, null, null, null);
+    msg = validateEventForPublish(rUser, reqEvent, opName);
+    if (msg != null) throw new IllegalArgumentException(msg);
 
     // Create timestamp indicating when event was received by Tapis
     Instant received = TapisUtils.getUTCTimeNow().toInstant(ZoneOffset.UTC);
 
     // Determine the next sequence count for the seriesId
     // The series is unique in the context of tenant, source, subject
-    long seriesSeqCount = dao.getNextSeriesSeqCount(rUser, tenant, source, subject, seriesId);
+    long seriesSeqCount = getNextSeriesSeqCount(rUser, tenant, source, subject, seriesId);
 
     // Create an Event from the request
     Event event = new Event(source, type, subject, data, seriesId, seriesSeqCount, timestamp,
             deleteSubscriptionsMatchingSubject, endSeries, tenant, rUser.getOboUserId(), received, UUID.randomUUID());
 
-    // If first field of type is not the service name then reject
-    if (!event.getType1().equals(rUser.getJwtUserId()))
+    // Publish the event
+    MessageBroker.getInstance().publishEvent(rUser, event);
+  }
+
+  /**
+   * Post a batch of Events to the queue. Only services may publish events.
+   * First field of type must match the service name for each event.
+   * Each event in the list is used as a template for the event to be published. Only the attributes that may be
+   *   set in a request are used: source, type, subject, data, seriesId, timestamp, deleteSubscriptionsMatchingSubject
+   *   and endSeries.
+   * All events are validated in one pass. Events that fail validation are not published and are reported in the result.
+   *   In addition to the checks made by publishEvent, an event with a seriesId must have a subject.
+   * Sequence counts for all series in the batch are reserved using a single DB call. Within a series, counts are
+   *   assigned in the order the events appear in the list. An event with endSeries set does not restart the counts
+   *   for events after it in the same batch, the series is ended only when the event is processed by the dispatcher.
+   * Valid events are then placed on the queue as a group. An event is reported as published only if the
+   *   message broker confirmed it.
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param events - Events to publish
+   * @param tenant1 - Set the tenant. Only for services. Optional. By default, oboTenant is used.
+   * @return result for each event, in the same order as the request
+   * @throws IllegalArgumentException - if missing required arg or invalid arg
+   * @throws NotAuthorizedException - unauthorized
+   */
+  @Override
+  public List<EventPublishResult> publishEvents(ResourceRequestUser rUser, List<Event> events, String tenant1)
+          throws TapisException, IllegalArgumentException, NotAuthorizedException
+  {
+    String opName = "publishEvents";
+    // Check inputs
+    if (rUser == null) throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_NULL_INPUT_AUTHUSR"));
+
+    String msg;
+    // Only services may publish. Reject if not a service.
+    if (!rUser.isServiceRequest())
+    {
+      msg = LibUtils.getMsgAuth("NTFLIB_EVENT_UNAUTH", rUser, opName);
+      throw new NotAuthorizedException(msg, NO_CHALLENGE);
+    }
+
+    // Check number of events
+    int numEvents = (events == null) ? 0 : events.size();
+    if (numEvents == 0 || numEvents > MAX_PUBLISH_BATCH_SIZE)
     {
-      msg = LibUtils.getMsgAuth("NTFLIB_EVENT_SVC_NOMATCH", rUser, type, rUser.getJwtUserId());
+      msg = LibUtils.getMsgAuth("NTFLIB_EVENT_BATCH_SIZE", rUser, numEvents, MAX_PUBLISH_BATCH_SIZE);
       throw new IllegalArgumentException(msg);
     }
 
-    // Publish the event
-    MessageBroker.getInstance().publishEvent(rUser, event);
+    // Determine the tenant. By default, oboTenant is used.
+    String tenant = StringUtils.isBlank(tenant1) ? rUser.getOboTenantId() : tenant1;
+
+    // Validate all events. Collect failures and count the number of events needed for each series.
+    var results = new EventPublishResult[numEvents];
+    var seriesCounts = new HashMap<EventSeriesKey, Integer>();
+    for (int i = 0; i < numEvents; i++)
+    {
+      Event e = events.get(i);
+      msg = validateEventForPublish(rUser, e, opName);
+      // Within a batch series tracking also requires a subject, since a series without one can never be ended
+      if (msg == null && !StringUtils.isBlank(e.getSeriesId()) && StringUtils.isBlank(e.getSubject()))
+      {
+        msg = LibUtils.getMsgAuth("NTFLIB_EVENT_SERIES_NO_SUBJ", rUser, e.getSource(), e.getType(), e.getSeriesId());
+      }
+      if (msg != null)
+      {
+        results[i] = EventPublishResult.failure(i, msg);
+        continue;
+      }
+      EventSeriesKey seriesKey = getSeriesKey(tenant, e);
+      if (seriesKey != null) seriesCounts.merge(seriesKey, 1, Integer::sum);
+    }
+
+    // Reserve sequence counts for all series in a single call.
+    // If this fails then none of the events in a series can be published.
+    Map<EventSeriesKey, long[]> seriesSeqCounts = Collections.emptyMap();
+    String seriesErrMsg = null;
+    try
+    {
+      if (!seriesCounts.isEmpty()) seriesSeqCounts = getSeriesAllocator().allocate(rUser, seriesCounts);
+    }
+    catch (TapisException e)
+    {
+      seriesErrMsg = e.getMessage();
+      log.error(seriesErrMsg, e);
+    }
+
+    // Create the events to be published. Within a series assign counts in request order.
+    Instant received = TapisUtils.getUTCTimeNow().toInstant(ZoneOffset.UTC);
+    var pubEvents = new ArrayList<Event>(numEvents);
+    var pubIndexes = new ArrayList<Integer>(numEvents);
+    var seriesPos = new HashMap<EventSeriesKey, Integer>();
+    for (int i = 0; i < numEvents; i++)
+    {
+      if (results[i] != null) continue;
+      Event e = events.get(i);
+      long seriesSeqCount = Event.DEFAULT_SERIES_SEQ_COUNT;
+      EventSeriesKey seriesKey = getSeriesKey(tenant, e);
+      if (seriesKey != null)
+      {
+        if (seriesErrMsg != null)
+        {
+          results[i] = EventPublishResult.failure(i, seriesErrMsg);
+          continue;
+        }
+        int pos = seriesPos.merge(seriesKey, 1, Integer::sum) - 1;
+        seriesSeqCount = seriesSeqCounts.get(seriesKey)[pos];
+      }
+      pubEvents.add(new Event(e.getSource(), e.getType(), e.getSubject(), e.getData(), e.getSeriesId(), seriesSeqCount,
+                              e.getTimestamp(), e.getDeleteSubscriptionsMatchingSubject(), e.getEndSeries(), tenant,
+                              rUser.getOboUserId(), received, UUID.randomUUID()));
+      pubIndexes.add(i);
+    }
+
+    // Publish the events as a group and wait for the message broker to confirm them.
+    // Each event is reported as published only if the broker confirmed it.
+    List<CompletableFuture<Void>> confirms = null;
+    String pubErrMsg = null;
+    try
+    {
+      if (!pubEvents.isEmpty()) confirms = MessageBroker.getInstance().publishEvents(rUser, pubEvents);
+    }
+    catch (IOException e)
+    {
+      pubErrMsg = e.getMessage();
+      log.error(pubErrMsg, e);
+    }
+    int numPublished = 0;
+    for (int j = 0; j < pubEvents.size(); j++)
+    {
+      int i = pubIndexes.get(j);
+      CompletableFuture<Void> confirm = (confirms == null) ? null : confirms.get(j);
+      if (confirm != null && !confirm.isCompletedExceptionally())
+      {
+        results[i] = EventPublishResult.success(i, pubEvents.get(j));
+        numPublished++;
+        continue;
+      }
+      String errMsg = pubErrMsg;
+      if (confirm != null) errMsg = confirm.handle((v, ex) -> ex.getMessage()).join();
+      results[i] = EventPublishResult.failure(i, errMsg);
+    }
+
+    log.debug(LibUtils.getMsgAuth("NTFLIB_EVENT_BATCH_PUB", rUser, numEvents, numPublished, numEvents - numPublished));
+    return Arrays.asList(results);
   }
 
   /**
@@ -911,7 +1164,10 @@ public class NotificationsServiceImpl implements NotificationsService
 
 
     // Delete tracking data for the series
-    return dao.deleteEventSeries(source, subject, seriesId, tenant);
+    // Drop any block leased by this instance. Other instances are told by the delete trigger.
+    int changeCount = dao.deleteEventSeries(source, subject, seriesId, tenant);
+    getSeriesAllocator().invalidate(new EventSeriesKey(tenant, source, subject, seriesId));
+    return changeCount;
   }
 
   /**
@@ -1267,6 +1523,58 @@ public class NotificationsServiceImpl implements NotificationsService
     }
   }
 
+  /**
+   * Check attributes of an event to be published. Used by publishEvent and for each event in publishEvents.
+   * @return null if event is valid, else message describing the error
+   */
+  private String validateEventForPublish(ResourceRequestUser rUser, Event e, String opName)
+  {
+    if (e == null) return LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "event", opName);
+    if (StringUtils.isBlank(e.getSource())) return LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "source", opName);
+    if (StringUtils.isBlank(e.getType())) return LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "type", opName);
+    if (StringUtils.isBlank(e.getTimestamp())) return LibUtils.getMsgAuth("NTFLIB_NULL_INPUT_EVENT_ATTR", rUser, "timestamp", opName);
+    if (!Event.isValidType(e.getType()))
+    {
+      return LibUtils.getMsgAuth("NTFLIB_EVENT_TYPE_ERR", rUser, e.getSource(), e.getType(), e.getSubject(), e.getTimestamp());
+    }
+    // If first field of type is not the service name then reject
+    if (!e.getType1().equals(rUser.getJwtUserId()))
+    {
+      return LibUtils.getMsgAuth("NTFLIB_EVENT_SVC_NOMATCH", rUser, e.getType(), rUser.getJwtUserId());
+    }
+    return null;
+  }
+
+  /**
+   * Get the next sequence count for a series. If seriesId is blank return the constant default value.
+   */
+  private long getNextSeriesSeqCount(ResourceRequestUser rUser, String tenant, String source, String subject,
+                                     String seriesId) throws TapisException
+  {
+    if (StringUtils.isBlank(seriesId)) return Event.DEFAULT_SERIES_SEQ_COUNT;
+    var key = new EventSeriesKey(tenant, source, subject, seriesId);
+    return getSeriesAllocator().allocate(rUser, Map.of(key, 1)).get(key)[0];
+  }
+
+  /**
+   * Get the series sequence count allocator. If initService() has not been called use one that
+   *   allocates from the DB for each request.
+   */
+  private SeriesSeqAllocator getSeriesAllocator()
+  {
+    if (seriesAllocator == null) seriesAllocator = new SeriesSeqAllocator(dao, 1);
+    return seriesAllocator;
+  }
+
+  /**
+   * Get the key for the series an event belongs to. Null if the event is not part of a series.
+   */
+  private static EventSeriesKey getSeriesKey(String tenant, Event e)
+  {
+    if (StringUtils.isBlank(e.getSeriesId())) return null;
+    return new EventSeriesKey(tenant, e.getSource(), e.getSubject(), e.getSeriesId());
+  }
+
   /**
    * Construct message containing list of errors
    */
@@ -1392,10 +1700,12 @@ public class NotificationsServiceImpl implements NotificationsService
   /**
    * Check to see if a user has the service admin role
    * By default use rUser, allow for optional tenant or user.
+   * Results of SK lookups are cached, see AdminRoleCache.
    */
   private boolean hasAdminRole(ResourceRequestUser rUser) throws TapisException, TapisClientException
   {
-    return getSKClient().isAdmin(rUser.getOboTenantId(), rUser.getOboUserId());
+    return AdminRoleCache.getInstance().isAdmin(rUser.getOboTenantId(), rUser.getOboUserId(),
+                                                (tenant, user) -> getSKClient().isAdmin(tenant, user));
   }
 
   /**
@@ -0,0 +1,317 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Pool of channels used for publishing events to the message broker.
+ * AMQP channels must not be used concurrently for publishing, so each publish borrows a channel for
+ *   exclusive use and returns it as soon as the message has been written. This allows publish throughput
+ *   to scale with the number of request threads, up to the size of the pool.
+ *
+ * Each channel is put in confirm mode. A publish returns a future that is completed when the broker
+ *   confirms the message (ack) and completed exceptionally on a nack or if the channel shuts down.
+ *   Callers wait for the confirm using awaitConfirms() so that a successful return means the broker has the message.
+ *
+ * Channels found closed when borrowed are replaced.
+ * Closing the pool closes the idle channels right away and each borrowed channel when it is returned.
+ */
+final class PublisherChannelPool
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(PublisherChannelPool.class);
+
+  // Metric names
+  static final String METRIC_CONFIRM_LATENCY = "ntf.publish.confirm.latency";
+  static final String METRIC_ACKS = "ntf.publish.acks";
+  static final String METRIC_NACKS = "ntf.publish.nacks";
+  static final String METRIC_CONFIRM_TIMEOUTS = "ntf.publish.confirm.timeouts";
+  static final String METRIC_CHANNEL_REPLACED = "ntf.publish.channels.replaced";
+  static final String METRIC_CHANNELS_IDLE = "ntf.publish.channels.idle";
+  static final String METRIC_CONFIRMS_OUTSTANDING = "ntf.publish.confirms.outstanding";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final Connection connection;
+  private final BlockingQueue<ConfirmChannel> idleChannels;
+  private final long confirmTimeoutMs;
+  // Number of published messages not yet confirmed, across all channels
+  private final AtomicInteger numOutstanding = new AtomicInteger();
+  // Set by close. Channels returned after this are closed instead of being put back in the pool.
+  private volatile boolean closed;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  PublisherChannelPool(Connection connection1, int numChannels, long confirmTimeoutMs1) throws IOException
+  {
+    connection = connection1;
+    confirmTimeoutMs = confirmTimeoutMs1;
+    int n = Math.max(1, numChannels);
+    idleChannels = new ArrayBlockingQueue<>(n);
+    for (int i = 0; i < n; i++) idleChannels.add(new ConfirmChannel(connection.createChannel()));
+    NtfMetrics.registerGauge(METRIC_CHANNELS_IDLE, idleChannels::size);
+    NtfMetrics.registerGauge(METRIC_CONFIRMS_OUTSTANDING, numOutstanding::get);
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Publish a group of messages, in list order, using a single channel.
+   * Returns one future per message. If writing a message fails then it and the remaining messages are
+   *   returned as failed futures.
+   *
+   * @param exchange - exchange name
+   * @param routingKeys - routing key for each message
+   * @param props - message properties
+   * @param bodies - message bodies
+   * @return futures completed when the broker confirms each message
+   * @throws IOException - if no channel could be obtained
+   */
+  List<CompletableFuture<Void>> publish(String exchange, List<String> routingKeys, AMQP.BasicProperties props,
+                                        List<byte[]> bodies) throws IOException
+  {
+    var futures = new ArrayList<CompletableFuture<Void>>(bodies.size());
+    ConfirmChannel cc = borrow();
+    try
+    {
+      for (int i = 0; i < bodies.size(); i++)
+      {
+        try { futures.add(cc.publish(exchange, routingKeys.get(i), props, bodies.get(i))); }
+        catch (IOException | RuntimeException e)
+        {
+          // Channel is probably no longer usable. Fail this message and the rest of the group.
+          while (futures.size() < bodies.size()) futures.add(CompletableFuture.failedFuture(e));
+          break;
+        }
+      }
+    }
+    finally
+    {
+      release(cc);
+    }
+    return futures;
+  }
+
+  /**
+   * Wait for the broker to confirm each message. Waits at most the confirm timeout in total.
+   * On return all futures are done. Futures not confirmed in time are completed exceptionally.
+   *
+   * @param futures - futures returned from publish
+   */
+  void awaitConfirms(Collection<CompletableFuture<Void>> futures)
+  {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+    for (CompletableFuture<Void> f : futures)
+    {
+      try { f.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS); }
+      catch (ExecutionException e) { /* Nack or channel error. Future already holds the cause. */ }
+      catch (TimeoutException e)
+      {
+        NtfMetrics.increment(METRIC_CONFIRM_TIMEOUTS);
+        f.completeExceptionally(new IOException(LibUtils.getMsg("NTFLIB_MSGBRKR_PUB_TIMEOUT", confirmTimeoutMs)));
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        f.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * Close all channels in the pool. Messages not yet confirmed are failed by the channel shutdown listener.
+   * Channels currently borrowed are closed when they are returned.
+   */
+  void close()
+  {
+    closed = true;
+    NtfMetrics.removeGauge(METRIC_CHANNELS_IDLE);
+    NtfMetrics.removeGauge(METRIC_CONFIRMS_OUTSTANDING);
+    ConfirmChannel cc;
+    while ((cc = idleChannels.poll()) != null) cc.close();
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Get a channel for exclusive use. Wait up to the confirm timeout for one to become available.
+   * Replace the channel if it has been closed.
+   */
+  private ConfirmChannel borrow() throws IOException
+  {
+    if (closed) throw new IOException(LibUtils.getMsg("NTFLIB_MSGBRKR_PUB_CLOSED"));
+    ConfirmChannel cc;
+    try { cc = idleChannels.poll(confirmTimeoutMs, TimeUnit.MILLISECONDS); }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    if (cc == null) throw new IOException(LibUtils.getMsg("NTFLIB_MSGBRKR_PUB_NO_CHAN", confirmTimeoutMs));
+    if (cc.channel.isOpen()) return cc;
+    // Channel was closed, e.g. due to a channel level error. Replace it.
+    // If creating the new one fails put the old one back so the pool does not shrink.
+    try
+    {
+      ConfirmChannel newCC = new ConfirmChannel(connection.createChannel());
+      NtfMetrics.increment(METRIC_CHANNEL_REPLACED);
+      log.warn(LibUtils.getMsg("NTFLIB_MSGBRKR_PUB_CHAN_REPLACED", cc.channel.getChannelNumber(),
+                               newCC.channel.getChannelNumber()));
+      return newCC;
+    }
+    catch (IOException | RuntimeException e)
+    {
+      release(cc);
+      throw e;
+    }
+  }
+
+  /*
+   * Return a borrowed channel to the pool.
+   * If the pool has been closed the channel is closed instead. Either close() drains the channel from the pool
+   *   or it is removed here, so it is closed exactly once.
+   */
+  private void release(ConfirmChannel cc)
+  {
+    idleChannels.offer(cc);
+    if (closed && idleChannels.remove(cc)) cc.close();
+  }
+
+  /* ********************************************************************** */
+  /*                        ConfirmChannel class                            */
+  /* ********************************************************************** */
+
+  /*
+   * A channel in confirm mode along with the messages published on it that have not yet been confirmed.
+   * Publishing is done only by the thread that has borrowed the channel.
+   * Confirms arrive on the connection thread.
+   */
+  private final class ConfirmChannel
+  {
+    private final Channel channel;
+    // Outstanding confirms keyed by publish sequence number
+    private final ConcurrentNavigableMap<Long, PendingConfirm> outstanding = new ConcurrentSkipListMap<>();
+
+    ConfirmChannel(Channel channel1) throws IOException
+    {
+      channel = channel1;
+      channel.confirmSelect();
+      channel.addConfirmListener((tag, multiple) -> handleConfirm(tag, multiple, true),
+                                 (tag, multiple) -> handleConfirm(tag, multiple, false));
+      // If the channel shuts down nothing more will be confirmed, fail everything outstanding.
+      channel.addShutdownListener(cause -> failAll(cause));
+    }
+
+    CompletableFuture<Void> publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body)
+            throws IOException
+    {
+      long seqNo = channel.getNextPublishSeqNo();
+      var pending = new PendingConfirm(System.nanoTime(), new CompletableFuture<>());
+      outstanding.put(seqNo, pending);
+      numOutstanding.incrementAndGet();
+      try
+      {
+        channel.basicPublish(exchange, routingKey, props, body);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        if (outstanding.remove(seqNo) != null) numOutstanding.decrementAndGet();
+        throw e;
+      }
+      return pending.future();
+    }
+
+    private void handleConfirm(long tag, boolean multiple, boolean ack)
+    {
+      long now = System.nanoTime();
+      if (!multiple)
+      {
+        completeConfirm(tag, outstanding.remove(tag), now, ack);
+        return;
+      }
+      // Multiple means all outstanding messages up to and including tag
+      Map.Entry<Long, PendingConfirm> entry;
+      while ((entry = outstanding.firstEntry()) != null && entry.getKey() <= tag)
+      {
+        completeConfirm(entry.getKey(), outstanding.remove(entry.getKey()), now, ack);
+      }
+    }
+
+    /*
+     * Complete a single pending confirm. Null if it was already removed, e.g. by failAll.
+     */
+    private void completeConfirm(long tag, PendingConfirm p, long now, boolean ack)
+    {
+      if (p == null) return;
+      numOutstanding.decrementAndGet();
+      NtfMetrics.recordNanos(METRIC_CONFIRM_LATENCY, now - p.startNanos());
+      if (ack)
+      {
+        NtfMetrics.increment(METRIC_ACKS);
+        p.future().complete(null);
+      }
+      else
+      {
+        NtfMetrics.increment(METRIC_NACKS);
+        p.future().completeExceptionally(new IOException(LibUtils.getMsg("NTFLIB_MSGBRKR_PUB_NACK",
+                                                                         channel.getChannelNumber(), tag)));
+      }
+    }
+
+    private void failAll(Exception cause)
+    {
+      for (Long seqNo : outstanding.keySet())
+      {
+        PendingConfirm p = outstanding.remove(seqNo);
+        if (p == null) continue;
+        numOutstanding.decrementAndGet();
+        p.future().completeExceptionally(new IOException(cause.getMessage(), cause));
+      }
+    }
+
+    private void close()
+    {
+      try { if (channel.isOpen()) channel.close(); }
+      catch (Exception e)
+      {
+        log.error(LibUtils.getMsg("NTFLIB_MSGBRKR_CHAN_CLOSE_ERR", channel.getChannelNumber(), e.getMessage()), e);
+      }
+    }
+  }
+
+  /*
+   * A message waiting for a confirm from the broker
+   */
+  private record PendingConfirm(long startNanos, CompletableFuture<Void> future) {}
+}
@@ -1,25 +1,44 @@
 package edu.utexas.tacc.tapis.notifications.service;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.model.NotificationRecoveryRecord;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
 import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
 
 /*
  * Callable for processing notifications that are in recovery for a specific bucket.
  * Designed to run until interrupted. Wakes up and processes at regular intervals.
- * When the process wakes up it makes a single delivery attempt for each notification in recovery.
+ * When the process wakes up it claims the notifications in recovery that are due for an attempt, a page at a time,
+ * and makes a single delivery attempt for each one. Attempts run in parallel up to a limit.
+ * After a failed attempt the next attempt is scheduled based on the recovery retry policy, e.g. exponential backoff.
  * Once the maximum number of attempts for a notification is reached an error is logged and the
  * notification is removed from the recovery table.
  *
+ * Claiming a notification moves its next attempt time out by one sleep interval. If the outcome is not recorded,
+ * e.g. we crash, the notification becomes due again after that. Rows claimed by another process are skipped.
+ *
  * Max number of attempts determined by runtime setting TAPIS_NTF_DELIVERY_RCVRY_ATTEMPTS
- * Attempt interval determined by runtime setting TAPIS_NTF_DELIVERY_RCVRY_RETRY_INTERVAL
-
+ * Sleep interval and base wait between attempts determined by runtime setting TAPIS_NTF_DELIVERY_RCVRY_RETRY_INTERVAL
+ * Backoff and max wait determined by runtime settings TAPIS_NTF_DELIVERY_RCVRY_BACKOFF, _RCVRY_MAX_INTERVAL
+ * Page size and parallelism determined by runtime settings TAPIS_NTF_DELIVERY_RCVRY_PAGE_SIZE, _RCVRY_PARALLELISM
+ * Webhooks to a destination whose circuit breaker is open are skipped until the breaker allows a probe.
  */
 public final class RecoveryTask implements Callable<String>
 {
@@ -29,14 +48,24 @@ public final class RecoveryTask implements Callable<String>
   // Tracing.
   private static final Logger log = LoggerFactory.getLogger(RecoveryTask.class);
 
+  // Metric names
+  static final String METRIC_ATTEMPTS = "ntf.recovery.attempts";
+  static final String METRIC_DELIVERED = "ntf.recovery.delivered";
+  static final String METRIC_ABANDONED = "ntf.recovery.abandoned";
+
   /* ********************************************************************** */
   /*                                 Fields                                 */
   /* ********************************************************************** */
 
   private final int bucketNum;
   private final NotificationsDao dao;
+  private final Executor executor; // Executor for database updates and non-webhook deliveries
   private final int sleepTimeMinutes;
   private final int maxAttempts;
+  private final int pageSize;
+  private final int parallelism;
+  private final RetryPolicy retryPolicy;
+  private final Semaphore inProgressPermits;
 
   /* ********************************************************************** */
   /*                             Constructors                               */
@@ -45,14 +74,20 @@ public final class RecoveryTask implements Callable<String>
   /*
    * Default constructor
    */
-  RecoveryTask(int bucketNum1, NotificationsDao dao1)
+  RecoveryTask(int bucketNum1, NotificationsDao dao1, Executor executor1)
   {
     bucketNum = bucketNum1;
     dao = dao1;
-    sleepTimeMinutes = RuntimeParameters.getInstance().getNtfDeliveryRecoveryRetryInterval();
-    maxAttempts = RuntimeParameters.getInstance().getNtfDeliveryRecoveryMaxAttempts();
+    executor = executor1;
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    sleepTimeMinutes = parms.getNtfDeliveryRecoveryRetryInterval();
+    maxAttempts = parms.getNtfDeliveryRecoveryMaxAttempts();
+    pageSize = Math.max(1, parms.getNtfDeliveryRecoveryPageSize());
+    parallelism = Math.max(1, parms.getNtfDeliveryRecoveryParallelism());
+    retryPolicy = RetryPolicy.forRecovery(parms);
+    inProgressPermits = new Semaphore(parallelism);
   }
-  
+
   /* ********************************************************************** */
   /*                             Public Methods                             */
   /* ********************************************************************** */
@@ -65,7 +100,8 @@ public final class RecoveryTask implements Callable<String>
   {
     Thread.currentThread().setName("Recovery-bucket-"+ bucketNum);
     log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_START", bucketNum, sleepTimeMinutes,
-                             Thread.currentThread().getId(), Thread.currentThread().getName()));
+                             Thread.currentThread().getId(), Thread.currentThread().getName(), retryPolicy,
+                             pageSize, parallelism));
 
     // From here on we should only shut down on interrupt
     // Use an encompassing try/catch to handle errors and wait for interrupt
@@ -74,27 +110,17 @@ public final class RecoveryTask implements Callable<String>
     {
       try
       {
-        // Get all notifications in recovery for our bucket
-        List<Notification> notifications = dao.getNotificationsInRecovery(bucketNum);
-        // Make one pass through the list
-        for (Notification ntf : notifications)
-        {
-          boolean delivered = DeliveryTask.deliverNotification(ntf);
-          // If delivered ok we are done. Perform any post-delivery steps
-          if (delivered)
-          {
-            recoveryAttemptSucceeded(ntf);
-          }
-          else
-          {
-            recoveryAttemptFailed(ntf);
-          }
-        }
+        processDueNotifications();
+      }
+      catch (InterruptedException e)
+      {
+        log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_INTRPT", bucketNum));
+        done = true;
       }
       catch (Exception e)
       {
         // Main processing loop has thrown an exception that we might be able to recover from, e.g. the DB is down.
-        // Most likely this is IOException or TapisException, but catch all exceptions so we can keep going.
+        // Most likely this is TapisException, but catch all exceptions so we can keep going.
         // Pause for a while before resuming operations. If pause interrupted then we are done.
         log.error(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_ERR", bucketNum, e.getMessage()), e);
         done = pauseProcessing();
@@ -113,6 +139,86 @@ public final class RecoveryTask implements Callable<String>
   /*                             Private Methods                            */
   /* ********************************************************************** */
 
+  /*
+   * Claim and attempt due notifications a page at a time until less than a full page is due.
+   * Each page is finished before the next one is claimed, so attempts complete well within the claim.
+   */
+  private void processDueNotifications() throws TapisException, InterruptedException, ExecutionException
+  {
+    List<NotificationRecoveryRecord> page;
+    do
+    {
+      Instant claimUntil = Instant.now().plus(sleepTimeMinutes, ChronoUnit.MINUTES);
+      page = dao.claimDueNotificationsInRecovery(bucketNum, pageSize, claimUntil);
+      if (page.isEmpty()) return;
+      log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_CLAIMED", bucketNum, page.size()));
+
+      var attemptFutures = new ArrayList<CompletableFuture<Void>>(page.size());
+      for (NotificationRecoveryRecord rcvryRec : page)
+      {
+        // Skip webhooks to destinations that are known to be down. This does not use up a recovery attempt.
+        // The notification stays claimed, so it is not due again until the next pass.
+        DeliveryTarget deliveryTarget = rcvryRec.getNotification().getDeliveryTarget();
+        if (deliveryTarget.getDeliveryMethod() == DeliveryMethod.WEBHOOK &&
+            !DeliveryCircuitBreaker.getInstance().allowAttempt(deliveryTarget.getDeliveryAddress()))
+        {
+          log.debug(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_BREAKER_OPEN", bucketNum,
+                                    rcvryRec.getNotification().getUuid(), deliveryTarget));
+          continue;
+        }
+        // Wait for a free slot
+        inProgressPermits.acquire();
+        NtfMetrics.increment(METRIC_ATTEMPTS);
+        CompletableFuture<Void> attemptFuture;
+        try
+        {
+          attemptFuture = DeliveryTask.deliverNotificationAsync(rcvryRec.getNotification(), executor)
+                  .handleAsync((delivered, e) -> { recordOutcome(rcvryRec, e == null && delivered, e); return null; },
+                               executor);
+        }
+        catch (RuntimeException e)
+        {
+          // E.g. executor rejected the task because we are shutting down.
+          inProgressPermits.release();
+          throw e;
+        }
+        attemptFutures.add(attemptFuture.whenComplete((x, e) -> inProgressPermits.release()));
+      }
+      // Wait for the page to finish
+      CompletableFuture.allOf(attemptFutures.toArray(new CompletableFuture[0])).get();
+    }
+    while (page.size() >= pageSize);
+  }
+
+  /*
+   * Record the outcome of an attempt. Errors are logged, the notification then becomes due again once its
+   *   claim runs out.
+   */
+  private void recordOutcome(NotificationRecoveryRecord rcvryRec, boolean delivered, Throwable e)
+  {
+    Notification notification = rcvryRec.getNotification();
+    try
+    {
+      // If delivered ok we are done. Perform any post-delivery steps
+      if (delivered) recoveryAttemptSucceeded(notification);
+      else
+      {
+        if (e != null)
+        {
+          Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+          log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_ATTEMPT_ERR", bucketNum, notification.getUuid(),
+                                   cause.getMessage()), cause);
+        }
+        recoveryAttemptFailed(rcvryRec);
+      }
+    }
+    catch (Exception ex)
+    {
+      log.error(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_ATTEMPT_ERR", bucketNum, notification.getUuid(),
+                                ex.getMessage()), ex);
+    }
+  }
+
   /*
    * Notification has been delivered.
    * Log a msg and remove it from the table.
@@ -120,29 +226,34 @@ public final class RecoveryTask implements Callable<String>
   private void recoveryAttemptSucceeded(Notification notification) throws TapisException
   {
     log.info(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_SUCCESS", bucketNum, notification.getUuid()));
+    NtfMetrics.increment(METRIC_DELIVERED);
     dao.deleteNotificationFromRecovery(notification);
   }
 
   /*
    * Notification recovery attempt failed.
-   * Either update the attempt count or remove the notification
+   * Either update the attempt count and schedule the next attempt or remove the notification
    * Log a warning or error.
    */
-  private void recoveryAttemptFailed(Notification notification) throws TapisException
+  private void recoveryAttemptFailed(NotificationRecoveryRecord rcvryRec) throws TapisException
   {
-    // Get the current attempt number
-    int currentAttemptNumber = dao.getNotificationRecoveryAttemptCount(notification) + 1;
+    Notification notification = rcvryRec.getNotification();
+    // Attempt count was fetched when the notification was claimed
+    int currentAttemptNumber = rcvryRec.getRecoveryAttemptNum() + 1;
     // if we hit the max then log an error and remove the notification
-    // else log a warning and bump up the count
+    // else log a warning, bump up the count and set when the next attempt is due
     if (currentAttemptNumber >= maxAttempts)
     {
       log.error(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_FAIL_MAX", bucketNum, notification.getUuid(), maxAttempts));
+      NtfMetrics.increment(METRIC_ABANDONED);
       dao.deleteNotificationFromRecovery(notification);
     }
     else
     {
-      log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_FAIL", bucketNum, notification.getUuid(), currentAttemptNumber));
-      dao.setNotificationRecoveryAttemptCount(notification, currentAttemptNumber);
+      long delayMs = retryPolicy.delayMs(currentAttemptNumber);
+      log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_RCVRY_FAIL", bucketNum, notification.getUuid(), currentAttemptNumber,
+                               delayMs));
+      dao.updateNotificationRecoveryAttempt(notification, currentAttemptNumber, Instant.now().plusMillis(delayMs));
     }
   }
 
@@ -164,4 +275,4 @@ public final class RecoveryTask implements Callable<String>
     }
     return false;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+
+/*
+ * Determines how long to wait before the next attempt to deliver a notification.
+ *
+ *   FIXED       - Wait the base interval after every attempt. This is the original behavior.
+ *   LINEAR      - Wait the base interval times the number of attempts made so far.
+ *   EXPONENTIAL - Double the wait after each attempt, starting at the base interval.
+ *
+ * The wait is capped at the max interval. Jitter then moves the wait up or down by a random amount of up to the
+ *   jitter percent, so that deliveries that failed together are not retried together.
+ * Immutable and thread safe.
+ */
+public final class RetryPolicy
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Defaults. Can be changed via runtime parameters.
+  public static final Backoff DEFAULT_BACKOFF = Backoff.FIXED;
+  public static final int DEFAULT_MAX_INTERVAL = 300; // seconds
+  public static final int DEFAULT_JITTER_PERCENT = 10;
+
+  /* ********************************************************************** */
+  /*                                Enums                                   */
+  /* ********************************************************************** */
+  public enum Backoff {FIXED, LINEAR, EXPONENTIAL}
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final Backoff backoff;
+  private final long baseIntervalMs;
+  private final long maxIntervalMs;
+  private final int jitterPercent;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  public RetryPolicy(Backoff backoff1, long baseIntervalMs1, long maxIntervalMs1, int jitterPercent1)
+  {
+    backoff = (backoff1 == null) ? DEFAULT_BACKOFF : backoff1;
+    baseIntervalMs = Math.max(0L, baseIntervalMs1);
+    maxIntervalMs = Math.max(baseIntervalMs, maxIntervalMs1);
+    jitterPercent = Math.min(100, Math.max(0, jitterPercent1));
+  }
+
+  /**
+   * Create the policy for delivery attempts made by DeliveryTask using runtime parameters.
+   * @param parms - runtime parameters
+   * @return policy
+   */
+  public static RetryPolicy forDelivery(RuntimeParameters parms)
+  {
+    return new RetryPolicy(parms.getNtfDeliveryRetryBackoff(), parms.getNtfDeliveryRetryInterval() * 1000L,
+                           parms.getNtfDeliveryRetryMaxInterval() * 1000L, parms.getNtfDeliveryRetryJitter());
+  }
+
+  /**
+   * Create the policy for attempts made by RecoveryTask using runtime parameters.
+   * @param parms - runtime parameters
+   * @return policy
+   */
+  public static RetryPolicy forRecovery(RuntimeParameters parms)
+  {
+    return new RetryPolicy(parms.getNtfDeliveryRecoveryBackoff(), parms.getNtfDeliveryRecoveryRetryInterval() * 60000L,
+                           parms.getNtfDeliveryRecoveryMaxInterval() * 60000L, parms.getNtfDeliveryRetryJitter());
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Compute the wait before the next attempt, including jitter.
+   * @param attempt - number of attempts made so far, starting at 1
+   * @return wait in milliseconds
+   */
+  public long delayMs(int attempt)
+  {
+    long delay = baseDelayMs(attempt);
+    if (jitterPercent == 0 || delay == 0L) return delay;
+    long jitterRange = delay * jitterPercent / 100L;
+    return Math.max(0L, delay + ThreadLocalRandom.current().nextLong(-jitterRange, jitterRange + 1L));
+  }
+
+  /**
+   * Compute the wait before the next attempt without jitter.
+   * @param attempt - number of attempts made so far, starting at 1
+   * @return wait in milliseconds
+   */
+  public long baseDelayMs(int attempt)
+  {
+    int n = Math.max(1, attempt);
+    long delay = switch (backoff)
+    {
+      case FIXED -> baseIntervalMs;
+      case LINEAR -> baseIntervalMs * n;
+      // Stop shifting before the value can overflow
+      case EXPONENTIAL -> (n > 31) ? maxIntervalMs : baseIntervalMs << (n - 1);
+    };
+    return (delay < 0L) ? maxIntervalMs : Math.min(delay, maxIntervalMs);
+  }
+
+  public Backoff getBackoff() { return backoff; }
+  public long getBaseIntervalMs() { return baseIntervalMs; }
+  public long getMaxIntervalMs() { return maxIntervalMs; }
+  public int getJitterPercent() { return jitterPercent; }
+
+  @Override
+  public String toString()
+  {
+    return "%s base: %d ms max: %d ms jitter: %d%%".formatted(backoff, baseIntervalMs, maxIntervalMs, jitterPercent);
+  }
+}
@@ -0,0 +1,267 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Shared scheduler for delays between delivery attempts, implemented as a hashed timer wheel.
+ * A delivery task that must wait asks for a delay and chains the next attempt onto the returned future,
+ *   so no worker thread is held while waiting. Many thousands of pending retries cost one entry each.
+ *
+ * The wheel has a fixed number of slots and advances one slot per tick on a single daemon thread.
+ *   A delay is placed in the slot where it expires along with the number of full turns of the wheel
+ *   remaining. Scheduling is O(1) and each tick only looks at one slot.
+ * Delays fire up to one tick late. The timer thread only completes the future, the caller is expected to
+ *   run any real work on its own executor, e.g. using thenRunAsync.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ */
+public final class RetryScheduler
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(RetryScheduler.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_TICK = 100; // milliseconds
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  // Metric names
+  static final String METRIC_PENDING = "ntf.retry.pending";
+  static final String METRIC_SCHEDULED = "ntf.retry.scheduled";
+  static final String METRIC_LATENESS = "ntf.retry.lateness";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static RetryScheduler instance;
+
+  private final long tickNanos;
+  private final int mask;
+  // Slots. Only accessed by the timer thread.
+  private final Queue<Entry>[] wheel;
+  // Delays scheduled since the last tick, moved into the wheel by the timer thread.
+  private final Queue<Entry> newEntries = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger numPending = new AtomicInteger();
+  private final long startNanos;
+  private final Thread timerThread;
+  private volatile boolean stopped;
+  // Number of ticks processed. Only accessed by the timer thread.
+  private long tick;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * Wheel size is rounded up to a power of 2.
+   */
+  @SuppressWarnings("unchecked")
+  RetryScheduler(long tickMs, int wheelSize)
+  {
+    tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMs));
+    int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+    mask = size - 1;
+    wheel = new Queue[size];
+    for (int i = 0; i < size; i++) wheel[i] = new ArrayDeque<>();
+    startNanos = System.nanoTime();
+    timerThread = new Thread(this::run, "ThreadRetryTimer");
+    timerThread.setDaemon(true);
+    timerThread.start();
+    log.info(LibUtils.getMsg("NTFLIB_RETRY_INIT", TimeUnit.NANOSECONDS.toMillis(tickNanos), size));
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static RetryScheduler getInstance()
+  {
+    if (instance == null)
+    {
+      RuntimeParameters parms = RuntimeParameters.getInstance();
+      instance = new RetryScheduler(parms.getNtfRetryTick(), parms.getNtfRetryWheelSize());
+      NtfMetrics.registerGauge(METRIC_PENDING, instance::numPending);
+    }
+    return instance;
+  }
+
+  /**
+   * Get a future that is completed after a delay.
+   * The future is completed on the timer thread, so callers must not run blocking work on it directly.
+   * If the scheduler is shut down before the delay expires the future is completed exceptionally with
+   *   a RejectedExecutionException.
+   *
+   * @param delayMs - delay in milliseconds
+   * @return future completed after the delay
+   */
+  public CompletableFuture<Void> delay(long delayMs)
+  {
+    var future = new CompletableFuture<Void>();
+    if (stopped)
+    {
+      future.completeExceptionally(new RejectedExecutionException(LibUtils.getMsg("NTFLIB_RETRY_STOPPED")));
+      return future;
+    }
+    long deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMs));
+    numPending.incrementAndGet();
+    NtfMetrics.increment(METRIC_SCHEDULED);
+    newEntries.add(new Entry(deadlineNanos, future));
+    // Check again in case shut down while adding, so the entry is not left behind.
+    if (stopped) cancelNewEntries();
+    return future;
+  }
+
+  /**
+   * Number of delays that have not yet fired
+   */
+  public int numPending() { return numPending.get(); }
+
+  /**
+   * Stop the timer thread. Pending delays are completed exceptionally.
+   */
+  public synchronized static void shutDown()
+  {
+    if (instance == null) return;
+    instance.stop();
+    NtfMetrics.removeGauge(METRIC_PENDING);
+    instance = null;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Stop the timer thread and cancel anything still pending.
+   */
+  void stop()
+  {
+    stopped = true;
+    timerThread.interrupt();
+    try { timerThread.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10L); }
+    catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    // Timer thread has exited or is about to, either way it will not touch the wheel again.
+    synchronized (wheel)
+    {
+      for (Queue<Entry> slot : wheel)
+      {
+        for (Entry entry : slot) cancel(entry);
+        slot.clear();
+      }
+    }
+    cancelNewEntries();
+  }
+
+  /*
+   * Timer thread. Wait for the end of each tick then expire the entries in the current slot.
+   */
+  private void run()
+  {
+    while (!stopped)
+    {
+      long sleepNanos = tickNanos * (tick + 1) - (System.nanoTime() - startNanos);
+      if (sleepNanos > 0L)
+      {
+        LockSupport.parkNanos(this, sleepNanos);
+        continue;
+      }
+      synchronized (wheel)
+      {
+        if (stopped) break;
+        transferNewEntries();
+        expire(wheel[(int) (tick & mask)]);
+        tick++;
+      }
+    }
+  }
+
+  /*
+   * Place new entries in the slot where they expire
+   */
+  private void transferNewEntries()
+  {
+    Entry entry;
+    while ((entry = newEntries.poll()) != null)
+    {
+      long expiryTick = entry.deadlineNanos / tickNanos;
+      entry.remainingRounds = (expiryTick - tick) / wheel.length;
+      // Anything already due goes in the current slot
+      long slotTick = Math.max(expiryTick, tick);
+      wheel[(int) (slotTick & mask)].add(entry);
+    }
+  }
+
+  /*
+   * Fire the entries in a slot that are due this round
+   */
+  private void expire(Queue<Entry> slot)
+  {
+    long nowNanos = System.nanoTime() - startNanos;
+    for (Iterator<Entry> it = slot.iterator(); it.hasNext();)
+    {
+      Entry entry = it.next();
+      if (entry.remainingRounds > 0L)
+      {
+        entry.remainingRounds--;
+        continue;
+      }
+      it.remove();
+      numPending.decrementAndGet();
+      NtfMetrics.recordNanos(METRIC_LATENESS, Math.max(0L, nowNanos - entry.deadlineNanos));
+      try { entry.future.complete(null); }
+      catch (RuntimeException e)
+      {
+        // A dependent stage ran on this thread and failed. Do not let it stop the timer.
+        log.warn(LibUtils.getMsg("NTFLIB_RETRY_TASK_ERR", e.getMessage()), e);
+      }
+    }
+  }
+
+  private void cancelNewEntries()
+  {
+    Entry entry;
+    while ((entry = newEntries.poll()) != null) cancel(entry);
+  }
+
+  private void cancel(Entry entry)
+  {
+    numPending.decrementAndGet();
+    entry.future.completeExceptionally(new RejectedExecutionException(LibUtils.getMsg("NTFLIB_RETRY_STOPPED")));
+  }
+
+  /*
+   * A pending delay. Deadline is relative to startNanos.
+   */
+  private static final class Entry
+  {
+    private final long deadlineNanos;
+    private final CompletableFuture<Void> future;
+    private long remainingRounds;
+
+    private Entry(long deadlineNanos1, CompletableFuture<Void> future1)
+    {
+      deadlineNanos = deadlineNanos1;
+      future = future1;
+    }
+  }
+}
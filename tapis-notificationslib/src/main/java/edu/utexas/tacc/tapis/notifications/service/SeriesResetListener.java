@@ -0,0 +1,146 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+
+/*
+ * Callable that keeps the blocks leased by a SeriesSeqAllocator consistent with series resets.
+ * Uses a dedicated DB connection to LISTEN on the channel populated by the event_series delete trigger
+ *   (see flyway migration V006). Each notification payload is a json array of tenant, source, subject and seriesId.
+ * The allocator is marked ready only while listening. Any blocks leased before that point are dropped, so a reset
+ *   that happened while we were not listening cannot be missed.
+ * If the connection is lost the allocator is marked as not ready (each publish then allocates from the DB),
+ *   and after a pause the listener reconnects.
+ */
+public final class SeriesResetListener implements Callable<String>
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Tracing.
+  private static final Logger log = LoggerFactory.getLogger(SeriesResetListener.class);
+
+  // Channel name must match the one used in the trigger function notify_event_series_reset()
+  public static final String RESET_CHANNEL = "tapis_ntf_series_reset";
+
+  // Max time to block waiting for notifications before checking for interrupt
+  private static final int LISTEN_POLL_MS = 1000;
+
+  // Pause in seconds before reconnecting after an error
+  private static final int LISTEN_ERR_PAUSE_INTERVAL = 10;
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+
+  private final SeriesSeqAllocator allocator;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+
+  SeriesResetListener(SeriesSeqAllocator allocator1) { allocator = allocator1; }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Main loop. Runs until interrupted.
+   */
+  @Override
+  public String call()
+  {
+    Thread.currentThread().setName("ThreadSeriesReset");
+    log.info(LibUtils.getMsg("NTFLIB_SERIES_ALLOC_START", RESET_CHANNEL, allocator.getBlockSize()));
+    while (!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        listenAndApplyResets();
+      }
+      catch (InterruptedException e)
+      {
+        break;
+      }
+      catch (Exception e)
+      {
+        // Resets may be missed while not connected. Stop using blocks until we are listening again.
+        allocator.setReady(false);
+        log.error(LibUtils.getMsg("NTFLIB_SERIES_ALLOC_ERR", LISTEN_ERR_PAUSE_INTERVAL, e.getMessage()), e);
+        try { Thread.sleep(LISTEN_ERR_PAUSE_INTERVAL * 1000L); }
+        catch (InterruptedException ie) { break; }
+      }
+    }
+    allocator.setReady(false);
+    log.info(LibUtils.getMsg("NTFLIB_SERIES_ALLOC_STOP"));
+    return "shutdown";
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Open a dedicated connection, start listening, enable the allocator and then apply resets until
+   *   interrupted or an error occurs.
+   */
+  private void listenAndApplyResets() throws Exception
+  {
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    try (Connection conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword()))
+    {
+      conn.setAutoCommit(true);
+      try (Statement stmt = conn.createStatement()) { stmt.execute("LISTEN " + RESET_CHANNEL); }
+      PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+      // Now that we are listening no reset will be missed. Drop anything leased before and start using blocks.
+      allocator.setReady(true);
+
+      while (true)
+      {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        PGNotification[] notifications = pgConn.getNotifications(LISTEN_POLL_MS);
+        if (notifications == null || notifications.length == 0)
+        {
+          // getNotifications() does not report a broken connection, so check it when idle.
+          if (!conn.isValid(LISTEN_ERR_PAUSE_INTERVAL)) throw new SQLException("Listen connection is no longer valid");
+          continue;
+        }
+        for (PGNotification n : notifications) applyReset(n.getParameter());
+      }
+    }
+  }
+
+  /*
+   * Drop the block for the series named in the payload.
+   * If the payload cannot be parsed drop all blocks, which is always safe.
+   */
+  private void applyReset(String payload)
+  {
+    String[] keyParts = null;
+    try { keyParts = TapisGsonUtils.getGson().fromJson(payload, String[].class); }
+    catch (Exception e) { /* handled below */ }
+    if (keyParts == null || keyParts.length != 4)
+    {
+      log.warn(LibUtils.getMsg("NTFLIB_SERIES_ALLOC_BAD_PAYLOAD", payload));
+      allocator.invalidateAll();
+      return;
+    }
+    allocator.invalidate(new EventSeriesKey(keyParts[0], keyParts[1], keyParts[2], keyParts[3]));
+  }
+}
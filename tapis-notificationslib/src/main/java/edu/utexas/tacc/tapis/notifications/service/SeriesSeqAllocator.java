@@ -0,0 +1,231 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
+
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.SeriesSeqLease;
+
+/*
+ * Allocator for event series sequence counts.
+ * By default (block size 1) every request runs a single upsert against event_series for the counts it needs, so
+ *   counts follow publish order across all api instances and a series has no gaps.
+ *
+ * Block leasing is an opt-in for deployments with a single api instance (TAPIS_NTF_SERIES_BLOCK_SIZE > 1).
+ *   The instance leases a block of counts for a series with a single update and hands them out from memory until
+ *   the block is used up, so publishers of a hot series do not contend for its row lock. With blocks:
+ *   - Each block comes from the DB (seq_count = seq_count + blockSize), so counts are always unique within a series.
+ *   - With more than one api instance counts are not in publish order: an event published through one instance
+ *     may carry a lower count than an event published earlier through another.
+ *   - Counts left over in a block when it is dropped are never used, so a series may have gaps.
+ *   - When a series is reset its tracking row is deleted and a trigger sends a notification, which
+ *     SeriesResetListener uses to drop the block for that series. A publish that races the notification may still
+ *     be given a count from before the reset.
+ *   - If the listener is not connected the allocator is not ready and each request leases exactly the
+ *     counts it needs, i.e. the same behavior as without block allocation.
+ *
+ * A lock per series is held while leasing so that concurrent publishers for a hot series wait for a single lease
+ *   rather than each going to the DB. Locks for multiple series are taken in a consistent order.
+ */
+public final class SeriesSeqAllocator
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Default number of counts leased per series in a single DB update. 1 disables block leasing.
+  public static final int DEFAULT_BLOCK_SIZE = 1;
+
+  // Drop all cached blocks if the number of series being tracked grows beyond this
+  private static final int MAX_CACHED_SERIES = 100000;
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final NotificationsDao dao;
+  private final int blockSize;
+  private final Map<EventSeriesKey, Block> blocks = new ConcurrentHashMap<>();
+  // Set by the reset listener while it is connected
+  private volatile boolean ready = false;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  SeriesSeqAllocator(NotificationsDao dao1, int blockSize1)
+  {
+    dao = dao1;
+    blockSize = Math.max(1, blockSize1);
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /**
+   * Allocate counts for a set of series.
+   * For each series the returned array holds the requested number of counts in increasing order.
+   * At most one DB call is made, covering all series whose current block does not have enough counts left.
+   *
+   * @param rUser - ResourceRequestUser containing tenant, user and request info
+   * @param seriesCounts - map of series to number of counts needed. Counts must be positive.
+   * @return map of series to counts allocated
+   * @throws TapisException - on DB error
+   */
+  public Map<EventSeriesKey, long[]> allocate(ResourceRequestUser rUser, Map<EventSeriesKey, Integer> seriesCounts)
+          throws TapisException
+  {
+    var retMap = new HashMap<EventSeriesKey, long[]>();
+    if (seriesCounts == null || seriesCounts.isEmpty()) return retMap;
+    boolean useBlocks = ready && blockSize > 1;
+    if (!useBlocks) return leaseExact(rUser, seriesCounts);
+
+    if (blocks.size() > MAX_CACHED_SERIES) invalidateAll();
+
+    // Lock blocks in a consistent order
+    var sortedCounts = new TreeMap<>(seriesCounts);
+    List<Block> locked = new ArrayList<>(sortedCounts.size());
+    var held = new HashMap<EventSeriesKey, Block>();
+    try
+    {
+      for (EventSeriesKey key : sortedCounts.keySet())
+      {
+        Block b = blocks.computeIfAbsent(key, k -> new Block());
+        b.lock.lock();
+        locked.add(b);
+        held.put(key, b);
+      }
+
+      // Take what we can from current blocks and work out what is still needed
+      var numFilled = new HashMap<EventSeriesKey, Integer>();
+      var leaseCounts = new HashMap<EventSeriesKey, Integer>();
+      for (Map.Entry<EventSeriesKey, Integer> entry : sortedCounts.entrySet())
+      {
+        EventSeriesKey key = entry.getKey();
+        int n = entry.getValue();
+        Block b = held.get(key);
+        long[] counts = new long[n];
+        int filled = b.take(counts, 0);
+        retMap.put(key, counts);
+        numFilled.put(key, filled);
+        // Lease enough whole blocks to cover the shortfall
+        int shortfall = n - filled;
+        if (shortfall > 0) leaseCounts.put(key, ((shortfall + blockSize - 1) / blockSize) * blockSize);
+      }
+      if (leaseCounts.isEmpty()) return retMap;
+
+      // Lease new blocks for all series that need them in one call
+      Map<EventSeriesKey, SeriesSeqLease> leases = dao.getNextSeriesSeqCounts(rUser, leaseCounts);
+      for (Map.Entry<EventSeriesKey, Integer> entry : leaseCounts.entrySet())
+      {
+        EventSeriesKey key = entry.getKey();
+        SeriesSeqLease lease = leases.get(key);
+        long first = lease.firstCount();
+        long[] counts = retMap.get(key);
+        int filled = numFilled.get(key);
+        long next = first;
+        while (filled < counts.length) counts[filled++] = next++;
+        // Keep the remainder unless the series was reset while we were leasing, in which case the remainder
+        //   may be from before the reset and must not be used.
+        Block b = held.get(key);
+        if (!b.invalid) b.set(next, first + entry.getValue() - 1);
+      }
+      return retMap;
+    }
+    finally
+    {
+      for (int i = locked.size() - 1; i >= 0; i--) locked.get(i).lock.unlock();
+    }
+  }
+
+  /**
+   * Drop the block for a series, e.g. because the series has been reset.
+   * @param key - series
+   */
+  public void invalidate(EventSeriesKey key)
+  {
+    Block b = blocks.remove(key);
+    if (b != null) b.invalid = true;
+  }
+
+  /**
+   * Drop all blocks. Used when reset notifications may have been missed.
+   */
+  public void invalidateAll()
+  {
+    for (EventSeriesKey key : blocks.keySet()) invalidate(key);
+  }
+
+  /**
+   * Enable or disable use of blocks. Disabling drops all blocks.
+   * Called by SeriesResetListener when it connects or loses its connection.
+   */
+  void setReady(boolean b)
+  {
+    if (!b) ready = false;
+    invalidateAll();
+    if (b) ready = true;
+  }
+
+  public boolean isReady() { return ready; }
+  public int getBlockSize() { return blockSize; }
+  public int size() { return blocks.size(); }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Lease exactly the counts needed with no caching.
+   */
+  private Map<EventSeriesKey, long[]> leaseExact(ResourceRequestUser rUser, Map<EventSeriesKey, Integer> seriesCounts)
+          throws TapisException
+  {
+    var retMap = new HashMap<EventSeriesKey, long[]>();
+    Map<EventSeriesKey, SeriesSeqLease> leases = dao.getNextSeriesSeqCounts(rUser, seriesCounts);
+    for (Map.Entry<EventSeriesKey, Integer> entry : seriesCounts.entrySet())
+    {
+      long[] counts = new long[entry.getValue()];
+      long first = leases.get(entry.getKey()).firstCount();
+      for (int i = 0; i < counts.length; i++) counts[i] = first + i;
+      retMap.put(entry.getKey(), counts);
+    }
+    return retMap;
+  }
+
+  /* ********************************************************************** */
+  /*                              Block class                               */
+  /* ********************************************************************** */
+
+  /*
+   * Range of counts (next to end inclusive) leased for a series. Guarded by lock.
+   */
+  private static final class Block
+  {
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next = 1;
+    private long end = 0;
+    // Set when the series has been reset. Remaining counts must not be used.
+    private volatile boolean invalid = false;
+
+    // Fill counts starting at pos from this block. Return new position.
+    int take(long[] counts, int pos)
+    {
+      while (!invalid && pos < counts.length && next <= end) counts[pos++] = next++;
+      return pos;
+    }
+
+    void set(long next1, long end1)
+    {
+      next = next1;
+      end = end1;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+
+/*
+ * Callable that keeps a SubscriptionMatchIndex current.
+ * Uses a dedicated DB connection to LISTEN on the channel populated by the subscriptions table trigger
+ *   (see flyway migrations V004 and V015). Each notification payload is a json array of the seq_id and tenant of a
+ *   subscription that changed.
+ * Processing loop:
+ *   LISTEN, then do a full load of enabled subscriptions. Listening first ensures no change is missed.
+ *   Wait for notifications, de-duplicate seq_ids and re-read the changed subscriptions in a single query.
+ *   Rows that are missing or disabled are removed from the index, others are added or replaced.
+ * If the connection is lost the index is marked as not ready (bucket managers then fall back to the DB query),
+ *   and after a pause the listener reconnects and does a new full load.
+ */
+public final class SubscriptionChangeListener implements Callable<String>
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Tracing.
+  private static final Logger log = LoggerFactory.getLogger(SubscriptionChangeListener.class);
+
+  // Channel name must match the one used in the trigger function notify_subscription_change()
+  public static final String CHANGE_CHANNEL = "tapis_ntf_subscr_changes";
+
+  // Max time to block waiting for change notifications before checking for interrupt
+  private static final int LISTEN_POLL_MS = 1000;
+
+  // Pause in seconds before reconnecting after an error
+  private static final int LISTEN_ERR_PAUSE_INTERVAL = 10;
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+
+  private final NotificationsDao dao;
+  private final SubscriptionMatchIndex index;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+
+  SubscriptionChangeListener(NotificationsDao dao1, SubscriptionMatchIndex index1)
+  {
+    dao = dao1;
+    index = index1;
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Main loop. Runs until interrupted.
+   */
+  @Override
+  public String call()
+  {
+    Thread.currentThread().setName("ThreadSubscriptionIndex");
+    log.info(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_START", CHANGE_CHANNEL, Thread.currentThread().getId(),
+                             Thread.currentThread().getName()));
+    while (!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        listenAndApplyChanges();
+      }
+      catch (InterruptedException e)
+      {
+        break;
+      }
+      catch (Exception e)
+      {
+        // Contents may now be stale. Stop using the index until we have reconnected and reloaded.
+        index.invalidate();
+        log.error(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_ERR", LISTEN_ERR_PAUSE_INTERVAL, e.getMessage()), e);
+        try { Thread.sleep(LISTEN_ERR_PAUSE_INTERVAL * 1000L); }
+        catch (InterruptedException ie) { break; }
+      }
+    }
+    index.invalidate();
+    log.info(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_STOP", Thread.currentThread().getId(), Thread.currentThread().getName()));
+    return "shutdown";
+  }
+
+  /*
+   * Do a full load of the index from the DB.
+   */
+  public static void loadIndex(NotificationsDao dao, SubscriptionMatchIndex index) throws Exception
+  {
+    long start = System.currentTimeMillis();
+    List<Subscription> subscriptions = dao.getEnabledSubscriptions();
+    index.replaceAll(subscriptions);
+    log.info(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_LOADED", subscriptions.size(), System.currentTimeMillis() - start));
+  }
+
+  /*
+   * Parse a change notification payload into the seq_id and tenant of the subscription.
+   * Payloads sent before migration V015 hold only the seq_id, in which case tenant is null.
+   * @throws IllegalArgumentException if the payload cannot be parsed
+   */
+  static String[] parsePayload(String payload)
+  {
+    if (payload != null && !payload.startsWith("[")) return new String[] {payload, null};
+    String[] parts = null;
+    try { parts = TapisGsonUtils.getGson().fromJson(payload, String[].class); }
+    catch (Exception e) { /* handled below */ }
+    if (parts == null || parts.length != 2) throw new IllegalArgumentException("Invalid payload: " + payload);
+    return parts;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Open a dedicated connection, start listening, do a full load and then apply changes until
+   *   interrupted or an error occurs.
+   */
+  private void listenAndApplyChanges() throws Exception
+  {
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    try (Connection conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword()))
+    {
+      conn.setAutoCommit(true);
+      try (Statement stmt = conn.createStatement()) { stmt.execute("LISTEN " + CHANGE_CHANNEL); }
+      PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+      // Now that we are listening a full load will not miss any changes.
+      loadIndex(dao, index);
+
+      Set<Integer> changedIds = new HashSet<>();
+      while (true)
+      {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        PGNotification[] notifications = pgConn.getNotifications(LISTEN_POLL_MS);
+        if (notifications == null || notifications.length == 0)
+        {
+          // getNotifications() does not report a broken connection, so check it when idle.
+          if (!conn.isValid(LISTEN_ERR_PAUSE_INTERVAL)) throw new SQLException("Listen connection is no longer valid");
+          continue;
+        }
+        changedIds.clear();
+        for (PGNotification n : notifications) changedIds.add(Integer.parseInt(parsePayload(n.getParameter())[0]));
+        applyChanges(changedIds);
+      }
+    }
+  }
+
+  /*
+   * Re-read subscriptions that have changed and update the index.
+   */
+  private void applyChanges(Set<Integer> changedIds) throws Exception
+  {
+    List<Subscription> subscriptions = dao.getSubscriptionsBySeqIds(changedIds);
+    Set<Integer> missingIds = new HashSet<>(changedIds);
+    for (Subscription s : subscriptions)
+    {
+      missingIds.remove(s.getSeqId());
+      // Upsert removes the subscription if it is no longer enabled
+      index.upsert(s);
+    }
+    // Anything not found has been deleted
+    for (Integer seqId : missingIds) index.remove(seqId);
+    log.debug(LibUtils.getMsg("NTFLIB_DSP_SUBIDX_CHANGES", changedIds.size(), index.size()));
+  }
+}
@@ -0,0 +1,148 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.dao.SubscriptionCountCache;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+
+/*
+ * Callable that keeps the SubscriptionCountCache of an api instance consistent with subscription changes made by
+ *   other processes, such as other api instances or the dispatcher's expired subscription reaper.
+ * Uses a dedicated DB connection to LISTEN on the channel populated by the subscriptions table trigger
+ *   (see SubscriptionChangeListener). For each change all cached counts for the tenant of the subscription are
+ *   dropped. If the tenant cannot be determined all cached counts are dropped.
+ * Changes may be missed while not listening, so all cached counts are dropped each time the listener connects and
+ *   when the connection is lost. Until the listener reconnects counts may be up to the cache TTL out of date.
+ */
+public final class SubscriptionCountListener implements Callable<String>
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Tracing.
+  private static final Logger log = LoggerFactory.getLogger(SubscriptionCountListener.class);
+
+  // Max time to block waiting for notifications before checking for interrupt
+  private static final int LISTEN_POLL_MS = 1000;
+
+  // Pause in seconds before reconnecting after an error
+  private static final int LISTEN_ERR_PAUSE_INTERVAL = 10;
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+
+  private final SubscriptionCountCache countCache;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+
+  SubscriptionCountListener(SubscriptionCountCache countCache1) { countCache = countCache1; }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Main loop. Runs until interrupted.
+   */
+  @Override
+  public String call()
+  {
+    Thread.currentThread().setName("ThreadSubscriptionCount");
+    log.info(LibUtils.getMsg("NTFLIB_SUBCOUNT_LSTN_START", SubscriptionChangeListener.CHANGE_CHANNEL));
+    while (!Thread.currentThread().isInterrupted())
+    {
+      try
+      {
+        listenAndApplyChanges();
+      }
+      catch (InterruptedException e)
+      {
+        break;
+      }
+      catch (Exception e)
+      {
+        // Changes may be missed while not connected
+        countCache.invalidate(null);
+        log.error(LibUtils.getMsg("NTFLIB_SUBCOUNT_LSTN_ERR", LISTEN_ERR_PAUSE_INTERVAL, e.getMessage()), e);
+        try { Thread.sleep(LISTEN_ERR_PAUSE_INTERVAL * 1000L); }
+        catch (InterruptedException ie) { break; }
+      }
+    }
+    log.info(LibUtils.getMsg("NTFLIB_SUBCOUNT_LSTN_STOP"));
+    return "shutdown";
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Open a dedicated connection, start listening, drop all cached counts and then apply changes until
+   *   interrupted or an error occurs.
+   */
+  private void listenAndApplyChanges() throws Exception
+  {
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    try (Connection conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword()))
+    {
+      conn.setAutoCommit(true);
+      try (Statement stmt = conn.createStatement())
+      {
+        stmt.execute("LISTEN " + SubscriptionChangeListener.CHANGE_CHANNEL);
+      }
+      PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+      // Now that we are listening no change will be missed. Drop anything counted before.
+      countCache.invalidate(null);
+
+      Set<String> changedTenants = new HashSet<>();
+      while (true)
+      {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        PGNotification[] notifications = pgConn.getNotifications(LISTEN_POLL_MS);
+        if (notifications == null || notifications.length == 0)
+        {
+          // getNotifications() does not report a broken connection, so check it when idle.
+          if (!conn.isValid(LISTEN_ERR_PAUSE_INTERVAL)) throw new SQLException("Listen connection is no longer valid");
+          continue;
+        }
+        // A bulk change sends a notification per subscription, so drop the counts for each tenant once
+        changedTenants.clear();
+        for (PGNotification n : notifications) changedTenants.add(getTenant(n.getParameter()));
+        if (changedTenants.contains(null)) countCache.invalidate(null);
+        else for (String tenant : changedTenants) countCache.invalidate(tenant);
+      }
+    }
+  }
+
+  /*
+   * Get the tenant from a change notification payload. Return null if it cannot be determined.
+   */
+  private static String getTenant(String payload)
+  {
+    try
+    {
+      return SubscriptionChangeListener.parsePayload(payload)[1];
+    }
+    catch (IllegalArgumentException e)
+    {
+      log.warn(LibUtils.getMsg("NTFLIB_SUBCOUNT_LSTN_BAD_PAYLOAD", payload));
+      return null;
+    }
+  }
+}
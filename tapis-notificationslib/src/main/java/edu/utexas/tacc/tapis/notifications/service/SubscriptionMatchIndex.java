@@ -0,0 +1,190 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.Subscription;
+
+/*
+ * In-memory index of enabled subscriptions used by the dispatcher to match events to subscriptions
+ *   without running a query per event.
+ * Subscriptions are grouped by tenant and then by the exact values of their 4 filters
+ *   (typeFilter1, typeFilter2, typeFilter3, subjectFilter).
+ * Each filter is either a literal or the wildcard, so an event can match at most 2^4 = 16 filter keys per tenant.
+ *   Matching is a fixed number of hash lookups regardless of how many subscriptions exist.
+ * Semantics are the same as NotificationsDao.getSubscriptionsForEvent():
+ *   tenant must match, subscription must be enabled and each filter must equal the event value or be the wildcard.
+ *   An event value that is null (e.g. no subject) only matches the wildcard.
+ * Kept current by SubscriptionChangeListener. Until the first full load completes the index is not ready
+ *   and callers should fall back to the DB query.
+ */
+public final class SubscriptionMatchIndex
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  private static final String WILDCARD = Subscription.FILTER_WILDCARD;
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+
+  // tenant -> filter key -> (seqId -> subscription)
+  private final Map<String, Map<FilterKey, Map<Integer, Subscription>>> byTenant = new HashMap<>();
+
+  // seqId -> subscription, needed for removal and for updates that change tenant or filters.
+  private final Map<Integer, Subscription> bySeqId = new HashMap<>();
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // Set once a full load has completed, cleared when the change feed is lost.
+  private volatile boolean ready = false;
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Return all subscriptions matching the event.
+   * Result is always non-null. Order of results is not significant.
+   */
+  public List<Subscription> match(Event event)
+  {
+    List<Subscription> retList = new ArrayList<>();
+    if (event == null || StringUtils.isBlank(event.getTenant()) || StringUtils.isBlank(event.getType())) return retList;
+    event.setTypeFields();
+
+    String[] t1 = candidates(event.getType1());
+    String[] t2 = candidates(event.getType2());
+    String[] t3 = candidates(event.getType3());
+    String[] sf = candidates(event.getSubject());
+
+    lock.readLock().lock();
+    try
+    {
+      Map<FilterKey, Map<Integer, Subscription>> tenantMap = byTenant.get(event.getTenant());
+      if (tenantMap == null) return retList;
+      for (String f1 : t1)
+        for (String f2 : t2)
+          for (String f3 : t3)
+            for (String f4 : sf)
+            {
+              Map<Integer, Subscription> subs = tenantMap.get(new FilterKey(f1, f2, f3, f4));
+              if (subs != null) retList.addAll(subs.values());
+            }
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+    return retList;
+  }
+
+  /*
+   * Replace the entire contents of the index and mark it as ready.
+   */
+  public void replaceAll(Collection<Subscription> subscriptions)
+  {
+    lock.writeLock().lock();
+    try
+    {
+      byTenant.clear();
+      bySeqId.clear();
+      if (subscriptions != null) for (Subscription s : subscriptions) upsertLocked(s);
+      ready = true;
+    }
+    finally
+    {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /*
+   * Add or replace a subscription. A disabled subscription is removed from the index.
+   */
+  public void upsert(Subscription s)
+  {
+    if (s == null) return;
+    lock.writeLock().lock();
+    try { upsertLocked(s); }
+    finally { lock.writeLock().unlock(); }
+  }
+
+  /*
+   * Remove a subscription given its sequence id. No-op if not present.
+   */
+  public void remove(int seqId)
+  {
+    lock.writeLock().lock();
+    try { removeLocked(seqId); }
+    finally { lock.writeLock().unlock(); }
+  }
+
+  /*
+   * Mark the index as not ready, e.g. when the change feed has been lost and the contents may be stale.
+   */
+  public void invalidate() { ready = false; }
+
+  public boolean isReady() { return ready; }
+
+  public int size()
+  {
+    lock.readLock().lock();
+    try { return bySeqId.size(); }
+    finally { lock.readLock().unlock(); }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Filter values an event attribute can match. Null matches only the wildcard.
+   */
+  private static String[] candidates(String value)
+  {
+    if (value == null || WILDCARD.equals(value)) return new String[] {WILDCARD};
+    return new String[] {value, WILDCARD};
+  }
+
+  // Caller must hold write lock
+  private void upsertLocked(Subscription s)
+  {
+    removeLocked(s.getSeqId());
+    if (!s.isEnabled() || StringUtils.isBlank(s.getTenant())) return;
+    FilterKey key = new FilterKey(s.getTypeFilter1(), s.getTypeFilter2(), s.getTypeFilter3(), s.getSubjectFilter());
+    byTenant.computeIfAbsent(s.getTenant(), k -> new HashMap<>())
+            .computeIfAbsent(key, k -> new LinkedHashMap<>())
+            .put(s.getSeqId(), s);
+    bySeqId.put(s.getSeqId(), s);
+  }
+
+  // Caller must hold write lock
+  private void removeLocked(int seqId)
+  {
+    Subscription old = bySeqId.remove(seqId);
+    if (old == null) return;
+    Map<FilterKey, Map<Integer, Subscription>> tenantMap = byTenant.get(old.getTenant());
+    if (tenantMap == null) return;
+    FilterKey key = new FilterKey(old.getTypeFilter1(), old.getTypeFilter2(), old.getTypeFilter3(),
+                                  old.getSubjectFilter());
+    Map<Integer, Subscription> subs = tenantMap.get(key);
+    if (subs == null) return;
+    subs.remove(seqId);
+    if (subs.isEmpty()) tenantMap.remove(key);
+    if (tenantMap.isEmpty()) byTenant.remove(old.getTenant());
+  }
+
+  /*
+   * Exact values of the 4 filters of a subscription.
+   */
+  private record FilterKey(String typeFilter1, String typeFilter2, String typeFilter3, String subjectFilter) { }
+}
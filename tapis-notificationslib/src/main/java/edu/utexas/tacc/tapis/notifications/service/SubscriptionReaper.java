@@ -1,14 +1,19 @@
 package edu.utexas.tacc.tapis.notifications.service;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
-import edu.utexas.tacc.tapis.notifications.model.Subscription;
 import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
 
 /*
  * Support cleaning up expired subscriptions.
  * Contains a single static cleanup method that is run at fixed intervals using a ScheduledExecutorService.
+ * Expired subscriptions are deleted in bounded chunks, one transaction per chunk. When a chunk is full there may be
+ *   more, so the reaper pauses for about as long as the chunk took before deleting the next one. This keeps a large
+ *   number of expiring subscriptions from competing with event processing for the DB.
  */
 public final class SubscriptionReaper
 {
@@ -18,6 +23,16 @@ public final class SubscriptionReaper
   // Tracing.
   private static final Logger log = LoggerFactory.getLogger(SubscriptionReaper.class);
 
+  // Default max number of subscriptions deleted in one transaction. Can be changed via runtime parameter.
+  public static final int DEFAULT_REAPER_CHUNK_SIZE = 500;
+
+  // Max pause between chunks (in milliseconds)
+  static final long MAX_CHUNK_PAUSE_MS = 1000;
+
+  // Metric names
+  static final String METRIC_REAPED = "ntf.subscriptions.reaped";
+  static final String METRIC_REAPER_TIME = "ntf.subscriptions.reaper";
+
   /* ********************************************************************** */
   /*                             Public Methods                             */
   /* ********************************************************************** */
@@ -25,28 +40,40 @@ public final class SubscriptionReaper
   /*
    * Main method for cleanup
    */
-  public static void cleanup(NotificationsDao dao)
+  public static void cleanup(NotificationsDao dao, int chunkSize)
   {
     log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_RUN"));
+    chunkSize = Math.max(1, chunkSize);
+    long start = System.nanoTime();
+    int total = 0;
     try
     {
-      // Get all subscriptions passed their expiration time
-      var expiredSubscriptions = dao.getExpiredSubscriptions();
-      if (expiredSubscriptions == null || expiredSubscriptions.isEmpty()) return;
-      log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_COUNT", expiredSubscriptions.size()));
-      for (Subscription s : expiredSubscriptions)
+      int numDeleted;
+      do
       {
-        dao.deleteSubscriptionByName(s.getTenant(), s.getOwner(), s.getName());
+        long chunkStart = System.nanoTime();
+        numDeleted = dao.deleteExpiredSubscriptions(chunkSize);
+        total += numDeleted;
+        if (numDeleted < chunkSize) break;
+        // Chunk was full, pause before the next one
+        long pauseNs = Math.min(System.nanoTime() - chunkStart, TimeUnit.MILLISECONDS.toNanos(MAX_CHUNK_PAUSE_MS));
+        TimeUnit.NANOSECONDS.sleep(pauseNs);
       }
+      while (!Thread.currentThread().isInterrupted());
+    }
+    catch (InterruptedException e)
+    {
+      // We are shutting down. Remaining subscriptions are reaped on the next run after a restart.
+      Thread.currentThread().interrupt();
     }
     catch (Exception e)
     {
       log.error(LibUtils.getMsg("NTFLIB_DSP_REAPER_ERR", e.getMessage()), e);
     }
+    long elapsedNs = System.nanoTime() - start;
+    NtfMetrics.recordNanos(METRIC_REAPER_TIME, elapsedNs);
+    if (total == 0) return;
+    NtfMetrics.add(METRIC_REAPED, total);
+    log.info(LibUtils.getMsg("NTFLIB_DSP_REAPER_COUNT", total, TimeUnit.NANOSECONDS.toMillis(elapsedNs)));
   }
-
-  /* ********************************************************************** */
-  /*                             Private Methods                            */
-  /* ********************************************************************** */
-
-}
\ No newline at end of file
+}
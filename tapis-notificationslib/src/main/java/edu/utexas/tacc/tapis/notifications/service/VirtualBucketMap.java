@@ -0,0 +1,207 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+
+import static edu.utexas.tacc.tapis.notifications.model.EventSeriesKey.NUM_VIRTUAL_BUCKETS;
+
+/*
+ * In-memory assignment of virtual buckets to buckets, used to route each event to the bucket for its series.
+ * Loaded from the DB by the dispatcher that routes events from the main queue, i.e. the single dispatcher or, when
+ *   dispatcher replicas share the buckets, the one holding the router lease.
+ *
+ * Moving a virtual bucket from bucket A to bucket B (see VirtualBucketMover):
+ *   - the move is recorded in the DB
+ *   - the virtual bucket is paused. Its events are held here, in order, rather than handed to A.
+ *   - a marker is handed to A. It follows every event in the virtual bucket already handed to A.
+ *     In PARTITIONED routing mode publishers send events straight to the bucket queues, so the virtual bucket is
+ *     first unbound from the queue for A. Its events then go to the main queue and are held here.
+ *     See MessageBroker.publishMarker.
+ *   - when the manager for A reaches the marker it moves the notifications for the virtual bucket to B and assigns
+ *     the virtual bucket to B, in one transaction. See DeliveryBucketManager and NotificationsDao.moveVirtualBucket.
+ *   - the held events are then handed to B, in order.
+ *   - in PARTITIONED routing mode the virtual bucket is then bound to the queue for B and a fence is sent through
+ *     the main queue, behind any events for the virtual bucket still there. The manager for B holds events published
+ *     straight to its queue for the virtual bucket until the fence arrives. See MessageBroker.publishFence and
+ *     DeliveryBucketManager.
+ * So events in a series are always processed by one bucket manager at a time, and in order.
+ * Routing, pausing, releasing and dispatching fences are done under one lock. This also serializes use of the
+ *   router channel.
+ */
+final class VirtualBucketMap
+{
+  /* ********************************************************************** */
+  /*                             Interfaces                                 */
+  /* ********************************************************************** */
+  /*
+   * Hands a move marker to the bucket a virtual bucket is moving from and, once the move completes, a fence to the
+   *   bucket it moved to if needed.
+   */
+  @FunctionalInterface
+  interface MarkerSender
+  {
+    void send(VirtualBucket move) throws IOException, InterruptedException;
+
+    default void moved(VirtualBucket move) throws IOException { }
+  }
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // All fields are guarded by this.
+  // Bucket for each virtual bucket
+  private final int[] assignment = new int[NUM_VIRTUAL_BUCKETS];
+  // Virtual buckets being moved and dispatches held for each, in the order received
+  private final Map<Integer, VirtualBucket> moves = new HashMap<>();
+  private final Map<Integer, List<IntConsumer>> held = new HashMap<>();
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  /*
+   * Create the map from the assignments in the DB. Virtual buckets with a move in progress start out paused, so
+   *   none of their events are handed to a bucket until the move has been completed.
+   */
+  VirtualBucketMap(List<VirtualBucket> vbuckets)
+  {
+    // A virtual bucket missing from the DB keeps the initial assignment
+    for (int v = 0; v < NUM_VIRTUAL_BUCKETS; v++) assignment[v] = v % DispatchService.DEFAULT_NUM_BUCKETS;
+    for (VirtualBucket vb : vbuckets)
+    {
+      if (vb.vbucket() < 0 || vb.vbucket() >= NUM_VIRTUAL_BUCKETS) continue;
+      assignment[vb.vbucket()] = vb.bucketNum();
+      if (vb.targetBucket() != null)
+      {
+        moves.put(vb.vbucket(), vb);
+        held.put(vb.vbucket(), new ArrayList<>());
+      }
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Hand an event to the bucket for its virtual bucket.
+   * If the virtual bucket is being moved the event is held until the move completes. onHold is called with the
+   *   bucket the event will go to, e.g. so the caller can track it.
+   * Return true if dispatched, false if held.
+   */
+  synchronized boolean route(Event event, IntConsumer dispatch, IntConsumer onHold)
+  {
+    int vbucket = EventSeriesKey.of(event).virtualBucket();
+    List<IntConsumer> heldDispatches = held.get(vbucket);
+    if (heldDispatches == null)
+    {
+      dispatch.accept(assignment[vbucket]);
+      return true;
+    }
+    onHold.accept(moves.get(vbucket).targetBucket());
+    heldDispatches.add(dispatch);
+    return false;
+  }
+
+  /*
+   * Pause a virtual bucket being moved, if not already paused, and hand the marker to the bucket it is moving from.
+   * May be called again to resend the marker.
+   */
+  synchronized void pause(VirtualBucket move, MarkerSender markerSender) throws IOException, InterruptedException
+  {
+    moves.putIfAbsent(move.vbucket(), move);
+    held.putIfAbsent(move.vbucket(), new ArrayList<>());
+    markerSender.send(move);
+  }
+
+  /*
+   * Complete a move. Assign the virtual bucket and hand the held events to the bucket, in order.
+   * Return the number of events released.
+   */
+  synchronized int release(int vbucket, int bucketNum)
+  {
+    assignment[vbucket] = bucketNum;
+    moves.remove(vbucket);
+    List<IntConsumer> heldDispatches = held.remove(vbucket);
+    if (heldDispatches == null) return 0;
+    for (IntConsumer dispatch : heldDispatches) dispatch.accept(bucketNum);
+    return heldDispatches.size();
+  }
+
+  /*
+   * Hand a message that is not an event, e.g. a move fence, to a bucket. Done under the lock so the message is
+   *   ordered with the events routed and released.
+   */
+  synchronized void dispatch(int bucketNum, IntConsumer dispatch) { dispatch.accept(bucketNum); }
+
+  /*
+   * Moves in progress, e.g. left by a dispatcher that stopped while moving
+   */
+  synchronized List<VirtualBucket> getMoves() { return new ArrayList<>(moves.values()); }
+
+  synchronized int[] getAssignment() { return assignment.clone(); }
+
+  synchronized int numHeld()
+  {
+    int n = 0;
+    for (List<IntConsumer> heldDispatches : held.values()) n += heldDispatches.size();
+    return n;
+  }
+
+  /*
+   * Plan the moves needed to spread the virtual buckets evenly over numBuckets buckets, moving as few as possible.
+   * Virtual buckets in buckets numBuckets and above are always moved. Each bucket keeps, or is brought up to, its
+   *   share. Fullest buckets get the larger share when the virtual buckets do not divide evenly.
+   * Return a list of moves, each with the bucket the virtual bucket is moving from and to.
+   */
+  static List<VirtualBucket> planMoves(int[] assignment, int numBuckets)
+  {
+    int maxBucket = numBuckets - 1;
+    for (int b : assignment) maxBucket = Math.max(maxBucket, b);
+    List<List<Integer>> byBucket = new ArrayList<>();
+    for (int b = 0; b <= maxBucket; b++) byBucket.add(new ArrayList<>());
+    for (int v = 0; v < assignment.length; v++) byBucket.get(assignment[v]).add(v);
+
+    // Share for each bucket
+    int[] quota = new int[numBuckets];
+    Integer[] fullestFirst = new Integer[numBuckets];
+    for (int b = 0; b < numBuckets; b++) fullestFirst[b] = b;
+    Arrays.sort(fullestFirst, Comparator.comparingInt((Integer b) -> byBucket.get(b).size()).reversed()
+                                        .thenComparingInt(b -> b));
+    for (int i = 0; i < numBuckets; i++)
+    {
+      quota[fullestFirst[i]] = assignment.length / numBuckets + (i < assignment.length % numBuckets ? 1 : 0);
+    }
+
+    // Virtual buckets above their bucket's share, highest numbered first within a bucket
+    var excess = new ArrayList<VirtualBucket>();
+    for (int b = 0; b <= maxBucket; b++)
+    {
+      List<Integer> vbuckets = byBucket.get(b);
+      int keep = (b < numBuckets) ? quota[b] : 0;
+      for (int i = vbuckets.size() - 1; i >= keep; i--) excess.add(new VirtualBucket(vbuckets.get(i), b, null));
+    }
+
+    // Fill the buckets below their share
+    var plan = new ArrayList<VirtualBucket>();
+    int next = 0;
+    for (int b = 0; b < numBuckets; b++)
+    {
+      for (int n = byBucket.get(b).size(); n < quota[b]; n++)
+      {
+        VirtualBucket vb = excess.get(next++);
+        plan.add(new VirtualBucket(vb.vbucket(), vb.bucketNum(), b));
+      }
+    }
+    return plan;
+  }
+}
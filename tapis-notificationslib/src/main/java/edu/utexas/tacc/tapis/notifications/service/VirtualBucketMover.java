@@ -0,0 +1,196 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+
+/*
+ * Moves virtual buckets so that they are spread evenly over the configured number of buckets.
+ * Run by the dispatcher that routes events, when it starts routing. Moves left in progress are completed first.
+ * Virtual buckets are moved one at a time, without stopping the consumer. See VirtualBucketMap for the protocol.
+ *
+ * A move completes once the manager for the bucket the virtual bucket is moving from reaches the marker, so the
+ *   events of the virtual bucket are held until then. The marker is resent periodically in case it was lost,
+ *   e.g. because the bucket was stopped and its events returned to the queue. Handling a marker twice is harmless.
+ * Once the held events are released the marker sender is told the move completed, e.g. so it can send a fence.
+ *   This is retried until it succeeds.
+ */
+final class VirtualBucketMover implements Runnable
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(VirtualBucketMover.class);
+
+  // How often to check whether a move has completed and to resend the marker (in milliseconds)
+  private static final long MOVE_CHECK_INTERVAL_MS = 1000;
+  private static final long MARKER_RESEND_INTERVAL_MS = 30000;
+
+  // Metric names
+  static final String METRIC_MOVES = "ntf.dispatch.vbucket.moves";
+  static final String METRIC_MOVE_TIME = "ntf.dispatch.vbucket.move.time";
+  static final String METRIC_HELD = "ntf.dispatch.vbucket.held";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private final NotificationsDao dao;
+  private final VirtualBucketMap virtualBuckets;
+  private final int numBuckets;
+  private final VirtualBucketMap.MarkerSender markerSender;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  VirtualBucketMover(NotificationsDao dao1, VirtualBucketMap virtualBuckets1, int numBuckets1,
+                     VirtualBucketMap.MarkerSender markerSender1)
+  {
+    dao = dao1;
+    virtualBuckets = virtualBuckets1;
+    numBuckets = numBuckets1;
+    markerSender = markerSender1;
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Complete moves in progress, then plan and make the moves needed. Runs until done or interrupted.
+   */
+  @Override
+  public void run()
+  {
+    Thread.currentThread().setName("VirtualBucketMover");
+    NtfMetrics.registerGauge(METRIC_HELD, virtualBuckets::numHeld);
+    try
+    {
+      for (VirtualBucket move : virtualBuckets.getMoves())
+      {
+        log.info(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_RESUME", move.vbucket(), move.bucketNum(), move.targetBucket()));
+        completeMove(move);
+      }
+
+      List<VirtualBucket> moves = VirtualBucketMap.planMoves(virtualBuckets.getAssignment(), numBuckets);
+      if (moves.isEmpty()) return;
+      log.info(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_PLAN", moves.size(), numBuckets));
+      for (VirtualBucket move : moves)
+      {
+        if (!startMove(move)) continue;
+        completeMove(move);
+      }
+      log.info(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_PLAN_DONE", moves.size(), numBuckets));
+    }
+    catch (InterruptedException e)
+    {
+      // Moves in progress are completed by the next dispatcher to route events
+      log.info(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_INTRPT", virtualBuckets.getMoves().size()));
+    }
+    finally
+    {
+      NtfMetrics.removeGauge(METRIC_HELD);
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Record a move in the DB, retrying until done or interrupted.
+   * Return false if the virtual bucket has changed since the plan was made, in which case it is skipped.
+   */
+  private boolean startMove(VirtualBucket move) throws InterruptedException
+  {
+    while (true)
+    {
+      try
+      {
+        if (dao.startVirtualBucketMove(move.vbucket(), move.bucketNum(), move.targetBucket())) return true;
+        log.warn(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_SKIP", move.vbucket(), move.bucketNum(), move.targetBucket()));
+        return false;
+      }
+      catch (TapisException e)
+      {
+        log.error(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_ERR", move.vbucket(), e.getMessage()), e);
+        TimeUnit.MILLISECONDS.sleep(MOVE_CHECK_INTERVAL_MS);
+      }
+    }
+  }
+
+  /*
+   * Pause the virtual bucket, send the marker and wait for the move to complete. Then release the held events.
+   * Errors are logged and retried, since the held events can only go on once the move completes.
+   */
+  private void completeMove(VirtualBucket move) throws InterruptedException
+  {
+    long startNanos = System.nanoTime();
+    long lastSentNanos = 0;
+    boolean sent = false;
+    while (true)
+    {
+      if (!sent || System.nanoTime() - lastSentNanos >= TimeUnit.MILLISECONDS.toNanos(MARKER_RESEND_INTERVAL_MS))
+      {
+        try
+        {
+          virtualBuckets.pause(move, markerSender);
+          sent = true;
+          lastSentNanos = System.nanoTime();
+        }
+        catch (IOException e)
+        {
+          log.error(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_ERR", move.vbucket(), e.getMessage()), e);
+        }
+      }
+      TimeUnit.MILLISECONDS.sleep(MOVE_CHECK_INTERVAL_MS);
+      VirtualBucket current;
+      try { current = dao.getVirtualBucket(move.vbucket()); }
+      catch (TapisException e)
+      {
+        log.error(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_ERR", move.vbucket(), e.getMessage()), e);
+        continue;
+      }
+      if (current != null && current.targetBucket() == null)
+      {
+        int numReleased = virtualBuckets.release(move.vbucket(), current.bucketNum());
+        long elapsedNanos = System.nanoTime() - startNanos;
+        NtfMetrics.increment(METRIC_MOVES);
+        NtfMetrics.recordNanos(METRIC_MOVE_TIME, elapsedNanos);
+        log.info(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_MOVED", move.vbucket(), move.bucketNum(), current.bucketNum(),
+                                 numReleased, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+        sendMoved(new VirtualBucket(move.vbucket(), move.bucketNum(), current.bucketNum()));
+        return;
+      }
+    }
+  }
+
+  /*
+   * Tell the marker sender a move completed, retrying until done or interrupted
+   */
+  private void sendMoved(VirtualBucket move) throws InterruptedException
+  {
+    while (true)
+    {
+      try
+      {
+        markerSender.moved(move);
+        return;
+      }
+      catch (IOException e)
+      {
+        log.error(LibUtils.getMsg("NTFLIB_DSP_VBUCKET_ERR", move.vbucket(), e.getMessage()), e);
+        TimeUnit.MILLISECONDS.sleep(MOVE_CHECK_INTERVAL_MS);
+      }
+    }
+  }
+}
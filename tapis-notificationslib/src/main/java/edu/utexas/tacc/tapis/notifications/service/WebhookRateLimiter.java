@@ -0,0 +1,416 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Rate limiter for webhook calls, one token bucket per destination.
+ * A destination is the host or the full url of the delivery address, based on the key mode, within a tenant.
+ *   Each tenant gets its own bucket for a destination so that limits may be configured per tenant.
+ * A bucket holds up to burst tokens and is refilled at rate tokens per second. Each call takes one token.
+ *   Over any interval of t seconds at most burst + rate * t calls are made to a destination.
+ *
+ * A call that finds no token waits in a FIFO queue for its destination. Rather than sleep, the caller gets a future
+ *   that is completed when its turn comes, so no thread is held while waiting. The queue is drained using the
+ *   RetryScheduler when the next token is due.
+ * Queue depth for each destination is reported as a gauge.
+ *
+ * There is a single instance per JVM, created from RuntimeParameters on first use.
+ */
+public final class WebhookRateLimiter
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(WebhookRateLimiter.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  // Same long run rate as the original throttle of 10 calls in 5 seconds.
+  public static final int DEFAULT_RATE = 2; // calls per second
+  public static final int DEFAULT_BURST = 10;
+  public static final KeyMode DEFAULT_KEY_MODE = KeyMode.URL;
+
+  // Key for delivery address should never be null or empty, but if it is we use a special key.
+  static final String NO_KEY = "NO_THROTTLE_KEY";
+
+  // Limiters that have been idle this long are removed
+  static final long IDLE_EVICT_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+  // Metric names
+  static final String METRIC_DELAYED = "ntf.webhook.ratelimit.delayed";
+  static final String METRIC_WAIT = "ntf.webhook.ratelimit.wait";
+  static final String METRIC_WAITING = "ntf.webhook.ratelimit.waiting";
+  static final String METRIC_QUEUE_PREFIX = "ntf.webhook.ratelimit.queue.";
+
+  /* ********************************************************************** */
+  /*                                Enums                                   */
+  /* ********************************************************************** */
+  public enum KeyMode {HOST, URL}
+
+  /* ********************************************************************** */
+  /*                                Records                                 */
+  /* ********************************************************************** */
+  /*
+   * Rate in calls per second and burst allowance. A rate less than 1 means no limit.
+   */
+  public record Limit(int rate, int burst)
+  {
+    @Override
+    public String toString() { return rate + ":" + burst; }
+  }
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static WebhookRateLimiter instance;
+
+  private final RetryScheduler retryScheduler;
+  private final KeyMode keyMode;
+  private final Limit defaultLimit;
+  private final Map<String, Limit> tenantLimits;
+  private final Map<String, DestinationLimiter> limiters = new ConcurrentHashMap<>();
+  private final AtomicInteger numWaiting = new AtomicInteger();
+  private volatile long lastEvictNanos = System.nanoTime();
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  WebhookRateLimiter(RetryScheduler retryScheduler1, KeyMode keyMode1, Limit defaultLimit1,
+                     Map<String, Limit> tenantLimits1)
+  {
+    retryScheduler = retryScheduler1;
+    keyMode = (keyMode1 == null) ? DEFAULT_KEY_MODE : keyMode1;
+    defaultLimit = defaultLimit1;
+    tenantLimits = (tenantLimits1 == null) ? Collections.emptyMap() : new HashMap<>(tenantLimits1);
+    log.info(LibUtils.getMsg("NTFLIB_WH_RATE_INIT", keyMode, defaultLimit, new TreeMap<>(tenantLimits)));
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static WebhookRateLimiter getInstance()
+  {
+    if (instance == null)
+    {
+      RuntimeParameters parms = RuntimeParameters.getInstance();
+      instance = new WebhookRateLimiter(RetryScheduler.getInstance(), parms.getNtfWebhookRateKeyMode(),
+                                        new Limit(parms.getNtfWebhookRate(), parms.getNtfWebhookBurst()),
+                                        parms.getNtfWebhookTenantRateLimits());
+      NtfMetrics.registerGauge(METRIC_WAITING, instance.numWaiting::get);
+    }
+    return instance;
+  }
+
+  /**
+   * Take a token for a call to a delivery address.
+   * The returned future is already complete if a token was available, else it is completed when the call may
+   *   be made. The future may be completed on the RetryScheduler thread, so dependent stages must not do blocking
+   *   work directly on it.
+   *
+   * @param tenant - tenant of the notification
+   * @param deliveryAddress - webhook url
+   * @return future completed when the call may be made
+   */
+  public CompletableFuture<Void> acquire(String tenant, String deliveryAddress)
+  {
+    Limit limit = getLimit(tenant);
+    if (limit.rate() < 1) return CompletableFuture.completedFuture(null);
+    evictIdle();
+    String key = getKey(tenant, deliveryAddress);
+    CompletableFuture<Void> future;
+    while (true)
+    {
+      DestinationLimiter limiter = limiters.computeIfAbsent(key, k -> newLimiter(k, limit));
+      future = limiter.acquire();
+      // Null means the limiter was evicted after we looked it up, so look it up again.
+      if (future != null) break;
+    }
+    return future;
+  }
+
+  /**
+   * Number of calls waiting for each destination that has any waiting
+   */
+  public Map<String, Integer> getQueueDepths()
+  {
+    var depths = new TreeMap<String, Integer>();
+    for (DestinationLimiter limiter : limiters.values())
+    {
+      int depth = limiter.numWaiting();
+      if (depth > 0) depths.put(limiter.key, depth);
+    }
+    return depths;
+  }
+
+  /**
+   * Number of calls waiting for all destinations
+   */
+  public int numWaiting() { return numWaiting.get(); }
+
+  /**
+   * Parse per tenant limits. Format is tenant=rate:burst with entries separated by commas,
+   *   e.g. "dev=5:20,admin=0:0". A rate of 0 means no limit for the tenant.
+   * @param str - string to parse, may be blank
+   * @return map of tenant to limit
+   * @throws IllegalArgumentException if the string is not valid
+   */
+  public static Map<String, Limit> parseTenantLimits(String str)
+  {
+    var limits = new HashMap<String, Limit>();
+    if (StringUtils.isBlank(str)) return limits;
+    for (String entry : str.split(","))
+    {
+      if (StringUtils.isBlank(entry)) continue;
+      String[] tenantAndLimit = entry.trim().split("=");
+      String[] rateAndBurst = (tenantAndLimit.length == 2) ? tenantAndLimit[1].trim().split(":") : new String[0];
+      if (rateAndBurst.length != 2 || StringUtils.isBlank(tenantAndLimit[0]))
+        throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_WH_RATE_TENANT_PARSE", entry));
+      try
+      {
+        limits.put(tenantAndLimit[0].trim(), new Limit(Integer.parseInt(rateAndBurst[0].trim()),
+                                                       Integer.parseInt(rateAndBurst[1].trim())));
+      }
+      catch (NumberFormatException e)
+      {
+        throw new IllegalArgumentException(LibUtils.getMsg("NTFLIB_WH_RATE_TENANT_PARSE", entry), e);
+      }
+    }
+    return limits;
+  }
+
+  /**
+   * Get the destination for a delivery address, i.e. the host or the full address depending on the key mode.
+   * If the host cannot be determined for HOST mode then the full address is used.
+   * @param keyMode - HOST or URL
+   * @param deliveryAddress - webhook url
+   * @return destination
+   */
+  public static String getDestination(KeyMode keyMode, String deliveryAddress)
+  {
+    // Address should never be null or empty, but if it is, log a warning and use a special key
+    if (StringUtils.isBlank(deliveryAddress))
+    {
+      log.warn(LibUtils.getMsg("NTFLIB_DSP_BUCKET_THROTTLE_NO_KEY", deliveryAddress));
+      return NO_KEY;
+    }
+    if (keyMode == KeyMode.HOST)
+    {
+      try
+      {
+        String host = URI.create(deliveryAddress.trim()).getHost();
+        if (!StringUtils.isBlank(host)) return host.toLowerCase();
+      }
+      catch (IllegalArgumentException e) { /* Not a valid uri, use the full address */ }
+    }
+    return deliveryAddress;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private Limit getLimit(String tenant)
+  {
+    Limit limit = (tenant == null) ? null : tenantLimits.get(tenant);
+    return (limit == null) ? defaultLimit : limit;
+  }
+
+  /*
+   * Build the key for a destination within a tenant.
+   */
+  String getKey(String tenant, String deliveryAddress)
+  {
+    return tenant + "|" + getDestination(keyMode, deliveryAddress);
+  }
+
+  private DestinationLimiter newLimiter(String key, Limit limit)
+  {
+    var limiter = new DestinationLimiter(key, limit);
+    NtfMetrics.registerGauge(METRIC_QUEUE_PREFIX + key, limiter::numWaiting);
+    return limiter;
+  }
+
+  /*
+   * Remove limiters that have a full bucket, no calls waiting and have not been used recently.
+   * At most once per eviction interval.
+   */
+  private void evictIdle()
+  {
+    long now = System.nanoTime();
+    if (now - lastEvictNanos < IDLE_EVICT_NANOS) return;
+    lastEvictNanos = now;
+    List<String> evicted = new ArrayList<>();
+    for (DestinationLimiter limiter : limiters.values())
+    {
+      if (limiter.evictIfIdle(now))
+      {
+        limiters.remove(limiter.key, limiter);
+        NtfMetrics.removeGauge(METRIC_QUEUE_PREFIX + limiter.key);
+        evicted.add(limiter.key);
+      }
+    }
+    if (!evicted.isEmpty()) log.debug(LibUtils.getMsg("NTFLIB_WH_RATE_EVICT", evicted.size()));
+  }
+
+  /*
+   * Token bucket and wait queue for one destination
+   */
+  private final class DestinationLimiter
+  {
+    private final String key;
+    private final double ratePerNano;
+    private final double burst;
+
+    // All fields below are guarded by this.
+    private double tokens;
+    private long lastRefillNanos;
+    private long lastUsedNanos;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private boolean drainScheduled;
+    private boolean evicted;
+
+    private DestinationLimiter(String key1, Limit limit)
+    {
+      key = key1;
+      ratePerNano = limit.rate() / 1.0e9;
+      burst = Math.max(1, limit.burst());
+      tokens = burst;
+      lastRefillNanos = System.nanoTime();
+      lastUsedNanos = lastRefillNanos;
+    }
+
+    /*
+     * Take a token or join the queue. Return null if this limiter has been evicted.
+     */
+    private CompletableFuture<Void> acquire()
+    {
+      synchronized (this)
+      {
+        if (evicted) return null;
+        lastUsedNanos = System.nanoTime();
+        refill(lastUsedNanos);
+        // Keep to FIFO order, if anyone is waiting we wait too.
+        if (waiters.isEmpty() && tokens >= 1.0)
+        {
+          tokens -= 1.0;
+          return CompletableFuture.completedFuture(null);
+        }
+        var waiter = new Waiter(new CompletableFuture<>(), System.nanoTime());
+        waiters.add(waiter);
+        numWaiting.incrementAndGet();
+        NtfMetrics.increment(METRIC_DELAYED);
+        scheduleDrain();
+        return waiter.future;
+      }
+    }
+
+    /*
+     * Release as many waiters as there are tokens, then schedule the next drain if any are left.
+     * Futures are completed outside the lock since completing them may start a call.
+     */
+    private void drain()
+    {
+      List<Waiter> released = new ArrayList<>();
+      synchronized (this)
+      {
+        drainScheduled = false;
+        refill(System.nanoTime());
+        while (!waiters.isEmpty() && tokens >= 1.0)
+        {
+          tokens -= 1.0;
+          released.add(waiters.poll());
+        }
+        if (!waiters.isEmpty()) scheduleDrain();
+      }
+      long now = System.nanoTime();
+      for (Waiter waiter : released)
+      {
+        numWaiting.decrementAndGet();
+        NtfMetrics.recordNanos(METRIC_WAIT, now - waiter.startNanos);
+        waiter.future.complete(null);
+      }
+    }
+
+    /*
+     * Schedule a drain for when the next token is due. Caller must hold the lock.
+     */
+    private void scheduleDrain()
+    {
+      if (drainScheduled) return;
+      drainScheduled = true;
+      long delayMs = (long) Math.ceil((1.0 - tokens) / ratePerNano / 1.0e6);
+      retryScheduler.delay(Math.max(1L, delayMs)).whenComplete((x, e) ->
+      {
+        if (e == null) drain();
+        else failAll(e);
+      });
+    }
+
+    /*
+     * Scheduler is shutting down. Fail anything waiting.
+     */
+    private void failAll(Throwable e)
+    {
+      List<Waiter> failed;
+      synchronized (this)
+      {
+        drainScheduled = false;
+        failed = new ArrayList<>(waiters);
+        waiters.clear();
+      }
+      for (Waiter waiter : failed)
+      {
+        numWaiting.decrementAndGet();
+        waiter.future.completeExceptionally(e);
+      }
+    }
+
+    /*
+     * Mark as evicted if there is nothing to remember, i.e. it would behave the same as a new limiter.
+     */
+    private synchronized boolean evictIfIdle(long now)
+    {
+      refill(now);
+      if (waiters.isEmpty() && !drainScheduled && tokens >= burst && now - lastUsedNanos >= IDLE_EVICT_NANOS)
+        evicted = true;
+      return evicted;
+    }
+
+    private synchronized int numWaiting() { return waiters.size(); }
+
+    /*
+     * Add tokens for the time since the last refill, up to the burst. Caller must hold the lock.
+     */
+    private void refill(long now)
+    {
+      if (tokens < burst) tokens = Math.min(burst, tokens + (now - lastRefillNanos) * ratePerNano);
+      lastRefillNanos = now;
+    }
+  }
+
+  private record Waiter(CompletableFuture<Void> future, long startNanos) {}
+}
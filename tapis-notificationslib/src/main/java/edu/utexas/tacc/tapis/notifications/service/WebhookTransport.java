@@ -0,0 +1,245 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.utexas.tacc.tapis.shared.TapisConstants;
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.utils.LibUtils;
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+/*
+ * Http client used to deliver notifications by webhook.
+ * There is a single instance per JVM, created from RuntimeParameters on first use, so that connections to the
+ *   same receivers are pooled and reused across buckets, delivery tasks and recovery.
+ *
+ * Calls are made asynchronously using OkHttp's enqueue. A call returns a future that is completed with the
+ *   http status code, so callers do not hold a thread while waiting for a receiver.
+ * The OkHttp dispatcher limits the number of calls in progress, in total and per host. Calls over the limit
+ *   wait in the dispatcher queue. Connections are kept in a pool for reuse.
+ * HTTP/2 is used when the receiver supports it (negotiated over TLS), else HTTP/1.1.
+ * Timeouts are explicit rather than the OkHttp defaults.
+ */
+public final class WebhookTransport
+{
+  /* ********************************************************************** */
+  /*                               Constants                                */
+  /* ********************************************************************** */
+  // Logging
+  private static final Logger log = LoggerFactory.getLogger(WebhookTransport.class);
+
+  // Defaults. Can be changed via runtime parameters.
+  public static final int DEFAULT_MAX_REQUESTS = 1000;
+  public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 20;
+  public static final int DEFAULT_POOL_MAX_IDLE = 100;
+  public static final int DEFAULT_KEEPALIVE = 300; // seconds
+  public static final int DEFAULT_CONNECT_TIMEOUT = 5000; // milliseconds
+  public static final int DEFAULT_READ_TIMEOUT = 10000; // milliseconds, also used for writes
+  public static final int DEFAULT_CALL_TIMEOUT = 30000; // milliseconds
+  public static final boolean DEFAULT_HTTP2_ENABLED = true;
+  public static final boolean DEFAULT_PRETTY_JSON = false;
+
+  public static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json");
+  private static final String USER_AGENT = "Tapis/%s".formatted(TapisConstants.API_VERSION);
+
+  // Metric names
+  static final String METRIC_LATENCY = "ntf.webhook.latency";
+  static final String METRIC_RUNNING = "ntf.webhook.running";
+  static final String METRIC_QUEUED = "ntf.webhook.queued";
+  static final String METRIC_CONNECTIONS = "ntf.webhook.connections";
+  static final String METRIC_CONNECTIONS_IDLE = "ntf.webhook.connections.idle";
+  static final String METRIC_ERRORS = "ntf.webhook.errors";
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  // Singleton instance of this class.
+  private static WebhookTransport instance;
+
+  private final OkHttpClient httpClient;
+
+  /* ********************************************************************** */
+  /*                             Constructors                               */
+  /* ********************************************************************** */
+  private WebhookTransport(RuntimeParameters parms)
+  {
+    // Run calls on virtual threads if configured and supported, else OkHttp's default executor.
+    Dispatcher dispatcher;
+    ExecutorService virtualExecService = null;
+    if (DeliveryExecutors.effectiveMode(parms.getNtfDeliveryExecutorMode()) == DeliveryExecutors.Mode.VIRTUAL)
+      virtualExecService = DeliveryExecutors.newVirtualIfSupported();
+    dispatcher = (virtualExecService == null) ? new Dispatcher() : new Dispatcher(virtualExecService);
+    dispatcher.setMaxRequests(Math.max(1, parms.getNtfWebhookMaxRequests()));
+    dispatcher.setMaxRequestsPerHost(Math.max(1, parms.getNtfWebhookMaxRequestsPerHost()));
+
+    var pool = new ConnectionPool(Math.max(0, parms.getNtfWebhookPoolMaxIdle()), parms.getNtfWebhookKeepAlive(),
+                                  TimeUnit.SECONDS);
+    List<Protocol> protocols = parms.isNtfWebhookHttp2Enabled() ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                                                                : List.of(Protocol.HTTP_1_1);
+    httpClient = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(pool)
+            .protocols(protocols)
+            .connectTimeout(parms.getNtfWebhookConnectTimeout(), TimeUnit.MILLISECONDS)
+            .readTimeout(parms.getNtfWebhookReadTimeout(), TimeUnit.MILLISECONDS)
+            .writeTimeout(parms.getNtfWebhookReadTimeout(), TimeUnit.MILLISECONDS)
+            .callTimeout(parms.getNtfWebhookCallTimeout(), TimeUnit.MILLISECONDS)
+            .build();
+
+    log.info(LibUtils.getMsg("NTFLIB_WEBHOOK_INIT", dispatcher.getMaxRequests(), dispatcher.getMaxRequestsPerHost(),
+                             parms.getNtfWebhookPoolMaxIdle(), parms.getNtfWebhookKeepAlive(), protocols,
+                             parms.getNtfWebhookConnectTimeout(), parms.getNtfWebhookReadTimeout(),
+                             parms.getNtfWebhookCallTimeout(), virtualExecService != null));
+    NtfMetrics.registerGauge(METRIC_RUNNING, dispatcher::runningCallsCount);
+    NtfMetrics.registerGauge(METRIC_QUEUED, dispatcher::queuedCallsCount);
+    NtfMetrics.registerGauge(METRIC_CONNECTIONS, pool::connectionCount);
+    NtfMetrics.registerGauge(METRIC_CONNECTIONS_IDLE, pool::idleConnectionCount);
+  }
+
+  /* ********************************************************************** */
+  /*                             Public Methods                             */
+  /* ********************************************************************** */
+
+  /*
+   * Get the singleton instance of this class, creating it if necessary.
+   */
+  public synchronized static WebhookTransport getInstance()
+  {
+    if (instance == null) instance = new WebhookTransport(RuntimeParameters.getInstance());
+    return instance;
+  }
+
+  /**
+   * Post a json body to a url.
+   * The returned future is completed with the http status code when the response is received,
+   *   or exceptionally with an IOException if the call fails, e.g. connect failure or timeout.
+   * The future may be completed on an OkHttp thread, so callers should not run blocking work on it directly.
+   *
+   * @param url - delivery address
+   * @param jsonBody - request body
+   * @return future completed with the status code
+   */
+  public CompletableFuture<Integer> post(String url, byte[] jsonBody)
+  {
+    return post(url, RequestBody.create(jsonBody, JSON_MEDIA_TYPE));
+  }
+
+  /**
+   * Post a json body made up of parts to a url. The parts are written in order without being joined first,
+   *   so a part shared by many calls, such as an encoded event, is not copied for each call.
+   * See post(String, byte[]).
+   *
+   * @param url - delivery address
+   * @param jsonParts - request body parts
+   * @return future completed with the status code
+   */
+  public CompletableFuture<Integer> post(String url, List<byte[]> jsonParts)
+  {
+    return post(url, new PartsRequestBody(jsonParts));
+  }
+
+  /**
+   * Close idle connections and stop the dispatcher. Calls in progress are cancelled.
+   */
+  public synchronized static void shutDown()
+  {
+    if (instance == null) return;
+    instance.httpClient.dispatcher().cancelAll();
+    instance.httpClient.dispatcher().executorService().shutdown();
+    instance.httpClient.connectionPool().evictAll();
+    NtfMetrics.removeGauge(METRIC_RUNNING);
+    NtfMetrics.removeGauge(METRIC_QUEUED);
+    NtfMetrics.removeGauge(METRIC_CONNECTIONS);
+    NtfMetrics.removeGauge(METRIC_CONNECTIONS_IDLE);
+    instance = null;
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private CompletableFuture<Integer> post(String url, RequestBody body)
+  {
+    var result = new CompletableFuture<Integer>();
+    Request request;
+    try
+    {
+      request = new Request.Builder().url(url).post(body).addHeader("User-Agent", USER_AGENT).build();
+    }
+    catch (IllegalArgumentException e)
+    {
+      // Invalid url
+      NtfMetrics.increment(METRIC_ERRORS);
+      result.completeExceptionally(new IOException(e.getMessage(), e));
+      return result;
+    }
+    long startNanos = System.nanoTime();
+    httpClient.newCall(request).enqueue(new Callback()
+    {
+      @Override
+      public void onResponse(Call call, Response response)
+      {
+        // Close the response to release the connection back to the pool
+        try (response)
+        {
+          NtfMetrics.recordNanos(METRIC_LATENCY, System.nanoTime() - startNanos);
+          result.complete(response.code());
+        }
+      }
+
+      @Override
+      public void onFailure(Call call, IOException e)
+      {
+        NtfMetrics.increment(METRIC_ERRORS);
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  /*
+   * Json request body written from parts
+   */
+  private static final class PartsRequestBody extends RequestBody
+  {
+    private final List<byte[]> parts;
+    private final long contentLength;
+
+    private PartsRequestBody(List<byte[]> parts1)
+    {
+      parts = parts1;
+      long n = 0L;
+      for (byte[] part : parts) n += part.length;
+      contentLength = n;
+    }
+
+    @Override
+    public MediaType contentType() { return JSON_MEDIA_TYPE; }
+
+    @Override
+    public long contentLength() { return contentLength; }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException
+    {
+      for (byte[] part : parts) sink.write(part);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package edu.utexas.tacc.tapis.notifications.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+   Lightweight in-process metrics for the Notifications service.
+   Counters, timers and gauges are registered by name on first use and may be read as a snapshot,
+     e.g. for logging or for reporting through the API.
+   There is a single registry per JVM, so the api and dispatcher each report their own values.
+   This class is non-instantiable
+ */
+public class NtfMetrics
+{
+  // Private constructor to make it non-instantiable
+  private NtfMetrics() { throw new AssertionError(); }
+
+  /* ********************************************************************** */
+  /*                                 Fields                                 */
+  /* ********************************************************************** */
+  private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+  private static final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+  /* **************************************************************************** */
+  /*                                Public Methods                                */
+  /* **************************************************************************** */
+
+  /**
+   * Increment a counter by 1
+   * @param name - counter name
+   */
+  public static void increment(String name) { counter(name).increment(); }
+
+  /**
+   * Add a value to a counter
+   * @param name - counter name
+   * @param n - amount to add
+   */
+  public static void add(String name, long n) { counter(name).add(n); }
+
+  /**
+   * Get the current value of a counter. Zero if the counter has never been used.
+   * @param name - counter name
+   * @return current value
+   */
+  public static long getCount(String name)
+  {
+    LongAdder c = counters.get(name);
+    return (c == null) ? 0L : c.sum();
+  }
+
+  /**
+   * Record an elapsed time
+   * @param name - timer name
+   * @param nanos - elapsed time in nanoseconds
+   */
+  public static void recordNanos(String name, long nanos) { timer(name).record(nanos); }
+
+  /**
+   * Get a timer, creating it if necessary
+   * @param name - timer name
+   * @return the timer
+   */
+  public static Timer timer(String name) { return timers.computeIfAbsent(name, k -> new Timer()); }
+
+  /**
+   * Register a gauge. The supplier is called each time a snapshot is taken, so it must be cheap and thread safe.
+   * Registering a gauge with the same name replaces the previous one.
+   * @param name - gauge name
+   * @param gauge - supplier of current value
+   */
+  public static void registerGauge(String name, Supplier<? extends Number> gauge) { gauges.put(name, gauge); }
+
+  /**
+   * Remove a gauge, e.g. when the object it reports on is shut down.
+   * @param name - gauge name
+   */
+  public static void removeGauge(String name) { gauges.remove(name); }
+
+  /**
+   * Take a snapshot of all metrics, sorted by name.
+   * Timers are reported as count, mean, p50, p99 and max in milliseconds.
+   * @return map of metric name to value
+   */
+  public static Map<String, Object> snapshot()
+  {
+    var retMap = new TreeMap<String, Object>();
+    counters.forEach((k, v) -> retMap.put(k, v.sum()));
+    gauges.forEach((k, v) ->
+    {
+      try { retMap.put(k, v.get()); }
+      catch (RuntimeException e) { retMap.put(k, null); }
+    });
+    timers.forEach((k, v) -> retMap.put(k, v.toMap()));
+    return retMap;
+  }
+
+  /**
+   * Clear all metrics. Intended for testing.
+   */
+  public static void reset()
+  {
+    counters.clear();
+    timers.clear();
+    gauges.clear();
+  }
+
+  /* **************************************************************************** */
+  /*                               Private Methods                                */
+  /* **************************************************************************** */
+
+  private static LongAdder counter(String name) { return counters.computeIfAbsent(name, k -> new LongAdder()); }
+
+  /* **************************************************************************** */
+  /*                                 Timer class                                  */
+  /* **************************************************************************** */
+
+  /*
+   * Records elapsed times. Keeps count, total and max along with a histogram using power of 2 buckets in
+   *   microseconds, so percentiles are approximate (reported as the upper bound of the bucket).
+   */
+  public static final class Timer
+  {
+    private static final int NUM_BUCKETS = 40;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+
+    public void record(long nanos)
+    {
+      if (nanos < 0) nanos = 0;
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+      int bucket = Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+      buckets.incrementAndGet(bucket);
+    }
+
+    public long getCount() { return count.sum(); }
+    public double getMeanMs() { long n = count.sum(); return n == 0 ? 0d : totalNanos.sum() / 1.0e6 / n; }
+    public double getMaxMs() { return maxNanos.get() / 1.0e6; }
+
+    /*
+     * Approximate percentile in milliseconds, p between 0 and 1
+     */
+    public double getPercentileMs(double p)
+    {
+      long n = 0;
+      long[] snap = new long[NUM_BUCKETS];
+      for (int i = 0; i < NUM_BUCKETS; i++) { snap[i] = buckets.get(i); n += snap[i]; }
+      if (n == 0) return 0d;
+      long rank = (long) Math.ceil(p * n);
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++)
+      {
+        seen += snap[i];
+        if (seen >= rank) return (1L << i) / 1000d;
+      }
+      return getMaxMs();
+    }
+
+    private Map<String, Object> toMap()
+    {
+      var m = new TreeMap<String, Object>();
+      m.put("count", getCount());
+      m.put("meanMs", getMeanMs());
+      m.put("p50Ms", getPercentileMs(0.5d));
+      m.put("p99Ms", getPercentileMs(0.99d));
+      m.put("maxMs", getMaxMs());
+      return m;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+-- Publish subscription changes so the dispatcher can keep its in-memory subscription match index current.
+-- Each insert, update or delete of a subscription sends a NOTIFY on channel tapis_ntf_subscr_changes.
+-- The payload is the subscription seq_id. The dispatcher re-reads the row (or drops it if it no longer exists).
+-- NOTIFY is transactional, so listeners only see changes that have been committed and in commit order.
+CREATE OR REPLACE FUNCTION notify_subscription_change() RETURNS TRIGGER AS $$
+BEGIN
+  IF (TG_OP = 'DELETE') THEN
+    PERFORM pg_notify('tapis_ntf_subscr_changes', OLD.seq_id::text);
+    RETURN OLD;
+  END IF;
+  PERFORM pg_notify('tapis_ntf_subscr_changes', NEW.seq_id::text);
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+ALTER FUNCTION notify_subscription_change() OWNER TO tapis_ntf;
+
+DROP TRIGGER IF EXISTS subscriptions_change_notify ON subscriptions;
+CREATE TRIGGER subscriptions_change_notify
+  AFTER INSERT OR UPDATE OR DELETE ON subscriptions
+  FOR EACH ROW EXECUTE PROCEDURE notify_subscription_change();
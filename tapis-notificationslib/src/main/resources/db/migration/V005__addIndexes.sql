@@ -0,0 +1,40 @@
+-- Add secondary indexes used by dispatcher and API queries.
+-- Without these each query is a sequential scan whose cost grows with the backlog of notifications.
+-- Tables are expected to be small when this runs, so indexes are created inside the flyway transaction
+--   rather than CONCURRENTLY.
+
+-- ----------------------------------------------------------------------------------------
+--    Subscriptions
+-- ----------------------------------------------------------------------------------------
+-- getSubscriptionsForEvent: tenant plus each filter column matched by value or wildcard. Only enabled rows.
+CREATE INDEX IF NOT EXISTS subscr_enabled_filters_idx
+    ON subscriptions (tenant, type_filter1, type_filter2, type_filter3, subject_filter) WHERE enabled;
+-- getExpiredSubscriptions: expiry < now(). Most subscriptions with no TTL have no expiry.
+CREATE INDEX IF NOT EXISTS subscr_expiry_idx ON subscriptions (expiry) WHERE expiry IS NOT NULL;
+-- deleteSubscriptionsBySubject
+CREATE INDEX IF NOT EXISTS subscr_tenant_subject_idx ON subscriptions (tenant, subject_filter);
+-- getSubscriptionByUuid, deleteSubscriptionByUuid
+CREATE INDEX IF NOT EXISTS subscr_tenant_uuid_idx ON subscriptions (tenant, uuid);
+
+-- ----------------------------------------------------------------------------------------
+--    Notifications
+-- ----------------------------------------------------------------------------------------
+-- getNotifications(bucketNum): WHERE bucket_number = ? ORDER BY seq_id
+CREATE INDEX IF NOT EXISTS ntf_bucket_seq_idx ON notifications (bucket_number, seq_id);
+-- deleteNotificationsByDeliveryTarget. Leading columns also serve getNotificationsForEvent.
+CREATE INDEX IF NOT EXISTS ntf_event_target_idx
+    ON notifications (tenant, event_uuid, delivery_method, delivery_address);
+-- getNotification, deleteNotificationAndAddToRecovery
+CREATE INDEX IF NOT EXISTS ntf_tenant_uuid_idx ON notifications (tenant, uuid);
+-- ON DELETE CASCADE from subscriptions
+CREATE INDEX IF NOT EXISTS ntf_subscr_seq_id_idx ON notifications (subscr_seq_id);
+
+-- ----------------------------------------------------------------------------------------
+--    Notifications recovery
+-- ----------------------------------------------------------------------------------------
+-- getNotificationsInRecovery(bucketNum): WHERE bucket_number = ? ORDER BY seq_id
+CREATE INDEX IF NOT EXISTS ntf_rcvry_bucket_seq_idx ON notifications_recovery (bucket_number, seq_id);
+-- Recovery lookups, updates and deletes by notification uuid
+CREATE INDEX IF NOT EXISTS ntf_rcvry_uuid_idx ON notifications_recovery (uuid);
+-- ON DELETE CASCADE from subscriptions
+CREATE INDEX IF NOT EXISTS ntf_rcvry_subscr_seq_id_idx ON notifications_recovery (subscr_seq_id);
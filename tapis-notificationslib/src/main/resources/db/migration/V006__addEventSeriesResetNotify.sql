@@ -0,0 +1,17 @@
+-- Publish event series resets so api instances can drop sequence count blocks they have leased for the series.
+-- A series is reset when its tracking row is deleted (endEventSeries or an event with endSeries set).
+-- Each delete sends a NOTIFY on channel tapis_ntf_series_reset.
+-- The payload is a json array of tenant, source, subject and series_id.
+CREATE OR REPLACE FUNCTION notify_event_series_reset() RETURNS TRIGGER AS $$
+BEGIN
+  PERFORM pg_notify('tapis_ntf_series_reset',
+                    json_build_array(OLD.tenant, OLD.source, OLD.subject, OLD.series_id)::text);
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+ALTER FUNCTION notify_event_series_reset() OWNER TO tapis_ntf;
+
+DROP TRIGGER IF EXISTS event_series_reset_notify ON event_series;
+CREATE TRIGGER event_series_reset_notify
+  AFTER DELETE ON event_series
+  FOR EACH ROW EXECUTE PROCEDURE notify_event_series_reset();
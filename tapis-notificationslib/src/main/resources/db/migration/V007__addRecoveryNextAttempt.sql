@@ -0,0 +1,8 @@
+-- Track when each notification in recovery is next due for an attempt.
+-- Recovery tasks fetch only due rows for their bucket, a page at a time, rather than every row on every pass.
+-- Existing rows are due right away.
+ALTER TABLE notifications_recovery ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    DEFAULT (NOW() AT TIME ZONE 'utc');
+
+-- claimDueNotificationsInRecovery: WHERE bucket_number = ? AND next_attempt_at <= ? ORDER BY next_attempt_at, seq_id
+CREATE INDEX IF NOT EXISTS ntf_rcvry_bucket_next_idx ON notifications_recovery (bucket_number, next_attempt_at, seq_id);
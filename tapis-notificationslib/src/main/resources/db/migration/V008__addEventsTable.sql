@@ -0,0 +1,36 @@
+-- Store each event payload once rather than in every notification row.
+-- Notifications and notifications in recovery reference the event by event_uuid.
+-- The event column in those tables is kept, nullable, so rows written before this change can still be read.
+-- Events no longer referenced by any notification are removed by the event sweeper.
+CREATE TABLE IF NOT EXISTS events
+(
+    event_uuid UUID PRIMARY KEY,
+    tenant TEXT NOT NULL,
+    event JSONB NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (NOW() AT TIME ZONE 'utc'),
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (NOW() AT TIME ZONE 'utc')
+);
+ALTER TABLE events OWNER TO tapis_ntf;
+COMMENT ON COLUMN events.event_uuid IS 'UUID of the event';
+COMMENT ON COLUMN events.tenant IS 'Tenant of the event';
+COMMENT ON COLUMN events.event IS 'Event payload shared by all notifications for the event';
+COMMENT ON COLUMN events.updated IS 'UTC time for when notifications for the event were last persisted';
+
+ALTER TABLE notifications ALTER COLUMN event DROP NOT NULL;
+ALTER TABLE notifications_recovery ALTER COLUMN event DROP NOT NULL;
+
+-- Move payloads of in-flight notifications to the events table
+INSERT INTO events (event_uuid, tenant, event)
+    SELECT DISTINCT ON (event_uuid) event_uuid, tenant, event FROM notifications WHERE event IS NOT NULL
+    ON CONFLICT DO NOTHING;
+INSERT INTO events (event_uuid, tenant, event)
+    SELECT DISTINCT ON (event_uuid) event_uuid, tenant, event FROM notifications_recovery WHERE event IS NOT NULL
+    ON CONFLICT DO NOTHING;
+UPDATE notifications SET event = NULL WHERE event IS NOT NULL;
+UPDATE notifications_recovery SET event = NULL WHERE event IS NOT NULL;
+
+-- deleteUnreferencedEvents: WHERE updated < ?
+CREATE INDEX IF NOT EXISTS events_updated_idx ON events (updated);
+-- deleteUnreferencedEvents: NOT EXISTS (... notifications_recovery WHERE tenant = ? AND event_uuid = ?)
+-- Lookups in notifications use ntf_event_target_idx
+CREATE INDEX IF NOT EXISTS ntf_rcvry_event_idx ON notifications_recovery (tenant, event_uuid);
@@ -0,0 +1,8 @@
+-- Indexes for paging through subscriptions with a cursor in the default sort order, created(asc),name(asc),seq_id.
+-- Each page starts with an index range scan after the last row of the previous page rather than reading and
+--   discarding the rows of all earlier pages.
+
+-- streamSubscriptions: WHERE tenant = ? AND owner = ? AND (created, name, seq_id) > (?, ?, ?) ORDER BY created, name, seq_id
+CREATE INDEX IF NOT EXISTS subscr_owner_created_idx ON subscriptions (tenant, owner, created, name, seq_id);
+-- streamSubscriptions with anyOwner: WHERE tenant = ? AND (created, name, seq_id) > (?, ?, ?)
+CREATE INDEX IF NOT EXISTS subscr_tenant_created_idx ON subscriptions (tenant, created, name, seq_id);
@@ -0,0 +1,18 @@
+-- Leases used to share work among dispatcher replicas.
+-- Each row is held by one dispatcher until it expires. The holder renews it periodically, and once it has expired
+--   any dispatcher may take it over. Names used:
+--   bucket.N      - processing of events, notifications and recovery for bucket N
+--   router        - consuming the main queue and forwarding events to the bucket queues
+--   dispatcher.ID - membership of a running dispatcher, used to share the buckets evenly
+CREATE TABLE IF NOT EXISTS notifications_leases
+(
+    name TEXT PRIMARY KEY,
+    owner TEXT NOT NULL,
+    expires TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    acquired TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (NOW() AT TIME ZONE 'utc')
+);
+ALTER TABLE notifications_leases OWNER TO tapis_ntf;
+COMMENT ON COLUMN notifications_leases.name IS 'Name of the leased resource, e.g. bucket.7';
+COMMENT ON COLUMN notifications_leases.owner IS 'Dispatcher holding the lease';
+COMMENT ON COLUMN notifications_leases.expires IS 'UTC time at which the lease may be taken by another dispatcher unless renewed';
+COMMENT ON COLUMN notifications_leases.acquired IS 'UTC time at which the current owner acquired the lease';
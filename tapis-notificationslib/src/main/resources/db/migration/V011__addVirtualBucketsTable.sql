@@ -0,0 +1,22 @@
+-- Assignment of virtual buckets to buckets.
+-- Every event series hashes to one of a fixed number of virtual buckets (EventSeriesKey.NUM_VIRTUAL_BUCKETS).
+-- Each virtual bucket is assigned to the bucket whose manager processes its events, notifications and recovery.
+-- The number of buckets may change. A virtual bucket is moved by recording the target bucket, draining the virtual
+--   bucket from its current bucket and then moving its notifications and setting the new bucket in one transaction.
+CREATE TABLE IF NOT EXISTS notifications_vbuckets
+(
+    vbucket INTEGER PRIMARY KEY,
+    bucket_number INTEGER NOT NULL,
+    target_bucket INTEGER,
+    updated TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT (NOW() AT TIME ZONE 'utc')
+);
+ALTER TABLE notifications_vbuckets OWNER TO tapis_ntf;
+COMMENT ON COLUMN notifications_vbuckets.vbucket IS 'Virtual bucket computed from hash of tenant, source, subject and seriesId';
+COMMENT ON COLUMN notifications_vbuckets.bucket_number IS 'Bucket processing the virtual bucket';
+COMMENT ON COLUMN notifications_vbuckets.target_bucket IS 'Bucket the virtual bucket is being moved to, null if no move in progress';
+COMMENT ON COLUMN notifications_vbuckets.updated IS 'UTC time at which the assignment was last changed';
+
+-- Start with virtual bucket v in bucket v % 23, the bucket its series used when there were always 23 buckets.
+INSERT INTO notifications_vbuckets (vbucket, bucket_number)
+  SELECT v, v % 23 FROM generate_series(0, 1471) AS v
+  ON CONFLICT DO NOTHING;
@@ -0,0 +1,14 @@
+-- Events in the last batch persisted by each bucket manager.
+-- A bucket manager persists notifications for several queued events in one transaction and acks the events after
+--   the commit. If it stops in between, every event in the batch is redelivered. On restart each event received is
+--   checked against this table, so none of them is processed a second time.
+-- Replaced as a whole each time the bucket persists a batch.
+CREATE TABLE IF NOT EXISTS notifications_last_batch
+(
+    bucket_number INTEGER NOT NULL,
+    event_uuid UUID NOT NULL,
+    PRIMARY KEY (bucket_number, event_uuid)
+);
+ALTER TABLE notifications_last_batch OWNER TO tapis_ntf;
+COMMENT ON COLUMN notifications_last_batch.bucket_number IS 'Bucket that persisted the batch';
+COMMENT ON COLUMN notifications_last_batch.event_uuid IS 'UUID of an event in the batch';
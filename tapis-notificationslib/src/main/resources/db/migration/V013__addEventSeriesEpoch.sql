@@ -0,0 +1,8 @@
+-- Epoch for each event series tracking row.
+-- A series is reset by deleting its tracking row, so a row created again after a reset gets a new epoch.
+-- Api instances record the epoch of each block of sequence counts they lease and compare it with the row before
+--   handing out counts from the block, so no count from before a reset is used after it.
+CREATE SEQUENCE IF NOT EXISTS event_series_epoch_seq;
+ALTER SEQUENCE event_series_epoch_seq OWNER TO tapis_ntf;
+ALTER TABLE event_series ADD COLUMN IF NOT EXISTS epoch BIGINT NOT NULL DEFAULT nextval('event_series_epoch_seq');
+COMMENT ON COLUMN event_series.epoch IS 'Changes each time the series is reset and its row created again';
@@ -0,0 +1,12 @@
+-- Virtual bucket of each pending notification and each notification in recovery.
+-- The virtual bucket is computed from the event series key when a row is written, so moving a virtual bucket
+--   to another bucket is a single indexed update.
+-- Rows written before this migration have no virtual bucket. The value cannot be computed in SQL, so such rows
+--   are given one the first time their virtual bucket is moved.
+ALTER TABLE notifications ADD COLUMN IF NOT EXISTS vbucket INTEGER;
+COMMENT ON COLUMN notifications.vbucket IS 'Virtual bucket of the event series, null for rows written before it was recorded';
+ALTER TABLE notifications_recovery ADD COLUMN IF NOT EXISTS vbucket INTEGER;
+COMMENT ON COLUMN notifications_recovery.vbucket IS 'Virtual bucket of the event series, null for rows written before it was recorded';
+
+CREATE INDEX IF NOT EXISTS ntf_bucket_vbucket_idx ON notifications (bucket_number, vbucket);
+CREATE INDEX IF NOT EXISTS ntf_rcvry_bucket_vbucket_idx ON notifications_recovery (bucket_number, vbucket);
@@ -0,0 +1,14 @@
+-- Include the tenant in subscription change notifications, so api instances can drop the cached subscription
+--   search counts for the tenant (see SubscriptionCountCache) without reading the row, which may have been deleted.
+-- The channel is unchanged (tapis_ntf_subscr_changes). The payload is now a json array of seq_id and tenant.
+CREATE OR REPLACE FUNCTION notify_subscription_change() RETURNS TRIGGER AS $$
+BEGIN
+  IF (TG_OP = 'DELETE') THEN
+    PERFORM pg_notify('tapis_ntf_subscr_changes', json_build_array(OLD.seq_id, OLD.tenant)::text);
+    RETURN OLD;
+  END IF;
+  PERFORM pg_notify('tapis_ntf_subscr_changes', json_build_array(NEW.seq_id, NEW.tenant)::text);
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+ALTER FUNCTION notify_subscription_change() OWNER TO tapis_ntf;
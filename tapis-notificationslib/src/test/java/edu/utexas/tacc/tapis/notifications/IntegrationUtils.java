@@ -12,12 +12,14 @@ import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
 import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
 import edu.utexas.tacc.tapis.shared.utils.TapisUtils;
 
+import java.lang.reflect.Proxy;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -145,6 +147,34 @@ public final class IntegrationUtils
                                                tenantName, testUser1,
                                                TapisUtils.getUTCTimeNow().toInstant(ZoneOffset.UTC), UUID.randomUUID());
 
+  /*
+   * Handler for a method of a stub, given the arguments of the call
+   */
+  @FunctionalInterface
+  public interface StubMethod
+  {
+    Object call(Object[] args) throws Exception;
+  }
+
+  /**
+   * Create a stand-in for an interface that supports only the methods given
+   * Calls to any other method throw UnsupportedOperationException, so a test fails if the code under test uses a
+   *   method the test did not expect.
+   * @param type interface to implement
+   * @param methods handler for each supported method, keyed by method name
+   * @return stub implementing the interface
+   */
+  public static <T> T makeStub(Class<T> type, Map<String, StubMethod> methods)
+  {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+      (proxy, method, args) ->
+      {
+        StubMethod handler = methods.get(method.getName());
+        if (handler == null) throw new UnsupportedOperationException(method.getName());
+        return handler.call(args);
+      }));
+  }
+
   /**
    * Create an array of Subscription objects in memory
    * Names will be of format TestSub_K_NNN where K is the key and NNN runs from 000 to 999
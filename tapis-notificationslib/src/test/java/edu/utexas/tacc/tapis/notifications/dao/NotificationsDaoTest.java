@@ -1,8 +1,17 @@
 package edu.utexas.tacc.tapis.notifications.dao;
 
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
 import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.model.SeriesSeqLease;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+import edu.utexas.tacc.tapis.notifications.service.DispatchService;
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy.OrderByDir;
 import edu.utexas.tacc.tapis.shared.threadlocal.TapisThreadContext;
+import edu.utexas.tacc.tapis.shared.utils.TapisUtils;
 import edu.utexas.tacc.tapis.sharedapi.security.AuthenticatedUser;
 import edu.utexas.tacc.tapis.sharedapi.security.ResourceRequestUser;
 import edu.utexas.tacc.tapis.notifications.IntegrationUtils;
@@ -19,9 +28,12 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.Subscription.CountStrategy;
 
 import static edu.utexas.tacc.tapis.shared.threadlocal.SearchParameters.*;
 import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.*;
@@ -38,7 +50,7 @@ public class NotificationsDaoTest
   String testKey = "Dao";
 
   // Create test subscriptions and notifications in memory
-  int numSubscriptions = 9;
+  int numSubscriptions = 14;
   int numNotifications = 5;
   Subscription[] subscriptions = IntegrationUtils.makeSubscriptions(numSubscriptions, testKey);
 
@@ -158,6 +170,92 @@ public class NotificationsDaoTest
     Assert.assertEquals(subIdList.size(), subscriptions.size());
   }
 
+  // Test paging through subscriptions with a cursor
+  @Test
+  public void testStreamSubscriptions() throws Exception
+  {
+    var names = new HashSet<String>();
+    for (int i = 9; i < 12; i++)
+    {
+      Assert.assertTrue(dao.createSubscription(rUser, subscriptions[i], expiryNull),
+                        "Item not created, id: " + subscriptions[i].getName());
+      names.add(subscriptions[i].getName());
+    }
+    String owner = subscriptions[9].getOwner();
+
+    // Default order, 2 per page
+    var found = new ArrayList<Subscription>();
+    SubscriptionCursor cursor = dao.streamSubscriptions(tenantName, owner, null, null, names, 2, orderByListNull,
+                                                        null, anyOwnerFalse, found::add);
+    Assert.assertEquals(found.size(), 2);
+    Assert.assertNotNull(cursor);
+    // Cursor survives a round trip through a client
+    cursor = SubscriptionCursor.decode(cursor.encode());
+    cursor = dao.streamSubscriptions(tenantName, owner, null, null, names, 2, orderByListNull, cursor, anyOwnerFalse,
+                                     found::add);
+    Assert.assertNull(cursor);
+    Assert.assertEquals(found.size(), 3);
+    var foundNames = new HashSet<String>();
+    for (Subscription s : found) foundNames.add(s.getName());
+    Assert.assertEquals(foundNames, names);
+    for (int i = 1; i < found.size(); i++)
+    {
+      Assert.assertFalse(found.get(i).getCreated().isBefore(found.get(i-1).getCreated()));
+    }
+
+    // Mixed sort directions, 1 per page
+    var orderByList = List.of(new OrderBy("enabled", OrderByDir.ASC), new OrderBy("name", OrderByDir.DESC));
+    found.clear();
+    cursor = null;
+    do
+    {
+      cursor = dao.streamSubscriptions(tenantName, owner, null, null, names, 1, orderByList, cursor, anyOwnerFalse,
+                                       found::add);
+    }
+    while (cursor != null);
+    Assert.assertEquals(found.size(), 3);
+    for (int i = 1; i < found.size(); i++)
+    {
+      Assert.assertTrue(found.get(i).getName().compareTo(found.get(i-1).getName()) < 0);
+    }
+
+    // Cursor may not be used with a different sort order, nor with a nullable sort column
+    SubscriptionCursor cursor1 = dao.streamSubscriptions(tenantName, owner, null, null, names, 1, orderByList, null,
+                                                         anyOwnerFalse, s -> {});
+    Assert.assertThrows(TapisException.class,
+        () -> dao.streamSubscriptions(tenantName, owner, null, null, names, 1,
+                                      List.of(new OrderBy("name", OrderByDir.ASC)), cursor1, anyOwnerFalse, s -> {}));
+    Assert.assertThrows(TapisException.class,
+        () -> dao.streamSubscriptions(tenantName, owner, null, null, names, 1,
+                                      List.of(new OrderBy("expiry", OrderByDir.ASC)), null, anyOwnerFalse, s -> {}));
+    Assert.assertThrows(IllegalArgumentException.class, () -> SubscriptionCursor.decode("not a cursor"));
+  }
+
+  // Test exact, cached and estimated counts
+  @Test
+  public void testSubscriptionsCount() throws Exception
+  {
+    var names = new HashSet<String>();
+    for (int i = 12; i < 14; i++)
+    {
+      Assert.assertTrue(dao.createSubscription(rUser, subscriptions[i], expiryNull),
+                        "Item not created, id: " + subscriptions[i].getName());
+      names.add(subscriptions[i].getName());
+    }
+    String owner = subscriptions[12].getOwner();
+    Assert.assertEquals(dao.getSubscriptionsCount(tenantName, owner, null, null, names, orderByListNull,
+                                                  startAfterNull, CountStrategy.exact), 2);
+    Assert.assertEquals(dao.getSubscriptionsCount(tenantName, owner, null, null, names, orderByListNull,
+                                                  startAfterNull, CountStrategy.cached), 2);
+    // A delete invalidates the cached count
+    dao.deleteSubscriptionByName(tenantName, owner, subscriptions[13].getName());
+    Assert.assertEquals(dao.getSubscriptionsCount(tenantName, owner, null, null, names, orderByListNull,
+                                                  startAfterNull, CountStrategy.cached), 1);
+    // The planner estimate is only approximate
+    Assert.assertTrue(dao.getSubscriptionsCount(tenantName, owner, null, null, names, orderByListNull,
+                                                startAfterNull, CountStrategy.estimated) >= 0);
+  }
+
   // Test enable/disable/delete
   @Test
   public void testEnableDisableDeleteSubscription() throws Exception
@@ -289,7 +387,7 @@ public class NotificationsDaoTest
 
     // Check that we can delete one.
     ntf = tmpNotifications.get(0);
-    dao.deleteNotificationsByDeliveryTarget(tenantName, ntf);
+    Assert.assertEquals(dao.deleteNotificationsByUuid(Map.of(tenantName, List.of(ntf.getUuid()))), 1);
     tmpNtf = dao.getNotification(tenantName, ntf.getUuid());
     Assert.assertNull(tmpNtf, "Notification not deleted");
 
@@ -298,4 +396,166 @@ public class NotificationsDaoTest
     Assert.assertNotNull(u, "Last event not found");
     Assert.assertEquals(u, event1.getUuid());
   }
+
+  // Test reserving sequence counts for several series in one call.
+  // Each series gets a block starting after the last block reserved for it. Ending a series starts it over at 1.
+  @Test
+  public void testGetNextSeriesSeqCounts() throws Exception
+  {
+    var key1 = new EventSeriesKey(tenantName, eventSource1, eventSubject1, UUID.randomUUID().toString());
+    var key2 = new EventSeriesKey(tenantName, eventSource1, eventSubject1, UUID.randomUUID().toString());
+    try
+    {
+      Map<EventSeriesKey, SeriesSeqLease> leases = dao.getNextSeriesSeqCounts(rUser, Map.of(key1, 3, key2, 1));
+      Assert.assertEquals(leases.size(), 2);
+      Assert.assertEquals(leases.get(key1).firstCount(), 1L);
+      Assert.assertEquals(leases.get(key2).firstCount(), 1L);
+      long epoch1 = leases.get(key1).epoch();
+
+      leases = dao.getNextSeriesSeqCounts(rUser, Map.of(key1, 2, key2, 5));
+      Assert.assertEquals(leases.get(key1).firstCount(), 4L);
+      Assert.assertEquals(leases.get(key2).firstCount(), 2L);
+      Assert.assertEquals(leases.get(key1).epoch(), epoch1);
+
+      // Ending one series restarts it with a new epoch and leaves the other alone
+      dao.deleteEventSeries(key1.source(), key1.subject(), key1.seriesId(), key1.tenant());
+      leases = dao.getNextSeriesSeqCounts(rUser, Map.of(key1, 1, key2, 1));
+      Assert.assertEquals(leases.get(key1).firstCount(), 1L);
+      Assert.assertNotEquals(leases.get(key1).epoch(), epoch1);
+      Assert.assertEquals(leases.get(key2).firstCount(), 7L);
+    }
+    finally
+    {
+      dao.deleteEventSeries(key1.source(), key1.subject(), key1.seriesId(), key1.tenant());
+      dao.deleteEventSeries(key2.source(), key2.subject(), key2.seriesId(), key2.tenant());
+    }
+  }
+
+  // Test create for notifications of several events in one transaction
+  @Test
+  public void testPersistNotificationsForEvents() throws Exception
+  {
+    // Use a bucket of our own so the last event is not updated by other tests
+    int bucketNum = bucketNum1 + 1;
+    Subscription sub0 = subscriptions[6];
+    boolean itemCreated = dao.createSubscription(rUser, sub0, expiryNull);
+    Assert.assertTrue(itemCreated, "Subscription not created, id: " + sub0.getName());
+    Subscription tmpSub = dao.getSubscriptionByName(sub0.getTenant(), sub0.getOwner(), sub0.getName());
+    Assert.assertNotNull(tmpSub, "Failed to create subscription: " + sub0.getName());
+
+    // Two events with notifications followed by one with none
+    List<Event> events = new ArrayList<>();
+    List<Notification> notifications = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+    {
+      var event = new Event(eventSource1, eventType1, eventSubject1, eventDataNull, seriesId1, seriesSeqCount1 + i,
+                            eventTime, false, false, tenantName, testUser1,
+                            TapisUtils.getUTCTimeNow().toInstant(ZoneOffset.UTC), UUID.randomUUID());
+      events.add(event);
+      if (i == 2) continue;
+      for (int j = 0; j < 2; j++)
+      {
+        var dm = new DeliveryTarget(DeliveryTarget.DeliveryMethod.EMAIL, testKey + "_" + i + j + ".fake@example.com");
+        notifications.add(new Notification(null, tmpSub.getSeqId(), tenantName, tmpSub.getName(), bucketNum,
+                                           event.getUuid(), event, dm, createdNull));
+      }
+    }
+    Assert.assertTrue(dao.persistNotificationsAndUpdateLastEvent(bucketNum, events, notifications));
+
+    // Check that each event has its notifications and its payload
+    for (int i = 0; i < 3; i++)
+    {
+      List<Notification> tmpNotifications = dao.getNotificationsForEvent(tenantName, events.get(i), bucketNum);
+      Assert.assertEquals(tmpNotifications.size(), i == 2 ? 0 : 2);
+      for (Notification n : tmpNotifications)
+      {
+        Notification tmpNtf = dao.getNotification(tenantName, n.getUuid());
+        Assert.assertNotNull(tmpNtf, "Notification not found");
+        Assert.assertEquals(tmpNtf.getEvent().getUuid(), events.get(i).getUuid());
+        Assert.assertEquals(tmpNtf.getEvent().getSeriesSeqCount(), events.get(i).getSeriesSeqCount());
+      }
+    }
+
+    // Last event is the newest, even though it has no notifications
+    Assert.assertEquals(dao.getLastEventUUID(bucketNum), events.get(2).getUuid());
+    // Last batch has all the events, so any of them redelivered after a crash is recognized
+    Assert.assertEquals(dao.getLastBatchEventUUIDs(bucketNum),
+                        Set.of(events.get(0).getUuid(), events.get(1).getUuid(), events.get(2).getUuid()));
+
+    // Clean up
+    var uuids = new ArrayList<UUID>();
+    for (Notification n : notifications) uuids.add(n.getUuid());
+    Assert.assertEquals(dao.deleteNotificationsByUuid(Map.of(tenantName, uuids)), notifications.size());
+  }
+
+  // Test moving a virtual bucket to another bucket.
+  // Notifications for events in the virtual bucket move with it, notifications for other events stay behind.
+  @Test
+  public void testMoveVirtualBucket() throws Exception
+  {
+    Subscription sub0 = subscriptions[10];
+    boolean itemCreated = dao.createSubscription(rUser, sub0, expiryNull);
+    Assert.assertTrue(itemCreated, "Subscription not created, id: " + sub0.getName());
+    Subscription tmpSub = dao.getSubscriptionByName(sub0.getTenant(), sub0.getOwner(), sub0.getName());
+    Assert.assertNotNull(tmpSub, "Failed to create subscription: " + sub0.getName());
+
+    // Two events in different virtual buckets, both with notifications in the bucket of the first one
+    Event eventIn = makeSeriesEvent(UUID.randomUUID().toString());
+    int vbucket = EventSeriesKey.of(eventIn).virtualBucket();
+    Event eventOut = makeSeriesEvent(UUID.randomUUID().toString());
+    while (EventSeriesKey.of(eventOut).virtualBucket() == vbucket)
+    {
+      eventOut = makeSeriesEvent(UUID.randomUUID().toString());
+    }
+    VirtualBucket vb = dao.getVirtualBucket(vbucket);
+    Assert.assertNotNull(vb, "Virtual bucket not found: " + vbucket);
+    int fromBucket = vb.bucketNum();
+    int toBucket = (fromBucket + 1) % DispatchService.DEFAULT_NUM_BUCKETS;
+    List<Notification> notifications = new ArrayList<>();
+    for (Event event : List.of(eventIn, eventOut))
+    {
+      var dm = new DeliveryTarget(DeliveryTarget.DeliveryMethod.EMAIL, testKey + "_move.fake@example.com");
+      notifications.add(new Notification(null, tmpSub.getSeqId(), tenantName, tmpSub.getName(), fromBucket,
+                                         event.getUuid(), event, dm, createdNull));
+    }
+    Assert.assertTrue(dao.persistNotificationsAndUpdateLastEvent(fromBucket, List.of(eventIn, eventOut),
+                                                                 notifications));
+    try
+    {
+      // Move is only done once it has been started
+      Assert.assertFalse(dao.moveVirtualBucket(vbucket, fromBucket, toBucket));
+      Assert.assertTrue(dao.startVirtualBucketMove(vbucket, fromBucket, toBucket));
+      Assert.assertTrue(dao.moveVirtualBucket(vbucket, fromBucket, toBucket));
+      Assert.assertFalse(dao.moveVirtualBucket(vbucket, fromBucket, toBucket));
+      Assert.assertEquals(dao.getVirtualBucket(vbucket), new VirtualBucket(vbucket, toBucket, null));
+
+      Assert.assertEquals(dao.getNotificationsForEvent(tenantName, eventIn, toBucket).size(), 1);
+      Assert.assertTrue(dao.getNotificationsForEvent(tenantName, eventIn, fromBucket).isEmpty());
+      Assert.assertEquals(dao.getNotificationsForEvent(tenantName, eventOut, fromBucket).size(), 1);
+      Assert.assertTrue(dao.getNotificationsForEvent(tenantName, eventOut, toBucket).isEmpty());
+    }
+    finally
+    {
+      // Put the virtual bucket back where it was and clean up
+      if (dao.getVirtualBucket(vbucket).bucketNum() == toBucket)
+      {
+        dao.startVirtualBucketMove(vbucket, toBucket, fromBucket);
+        dao.moveVirtualBucket(vbucket, toBucket, fromBucket);
+      }
+      var uuids = new ArrayList<UUID>();
+      for (Notification n : notifications) uuids.add(n.getUuid());
+      dao.deleteNotificationsByUuid(Map.of(tenantName, uuids));
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static Event makeSeriesEvent(String seriesId)
+  {
+    return new Event(eventSource1, eventType1, eventSubject1, eventDataNull, seriesId, seriesSeqCount1, eventTime,
+                     false, false, tenantName, testUser1, TapisUtils.getUTCTimeNow().toInstant(ZoneOffset.UTC),
+                     UUID.randomUUID());
+  }
 }
@@ -0,0 +1,281 @@
+package edu.utexas.tacc.tapis.notifications.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.testng.Assert;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy;
+import edu.utexas.tacc.tapis.shared.threadlocal.OrderBy.OrderByDir;
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+
+import static edu.utexas.tacc.tapis.notifications.gen.jooq.Tables.*;
+
+/**
+ * Query plan regression tests for the dispatcher and API hot path queries.
+ * Runs against a DB running locally. Seeds a dedicated tenant with subscriptions, notifications and
+ *   recovery entries, runs EXPLAIN on each query as built by the query builders of NotificationsDaoImpl
+ *   and fails if the plan contains a sequential scan.
+ * Sequential scans are disabled for the session so the check does not depend on table sizes or statistics.
+ *   If a sequential scan still shows up it means no index can serve the query.
+ */
+@Test(groups={"integration"})
+public class QueryPlanTest
+{
+  private static final String planTenant = "planTestTenant";
+  private static final int numSubscriptions = 2000;
+  private static final int numNotifications = 20000;
+  private static final int numRecovery = 5000;
+  private static final String SEQ_SCAN = "Seq Scan";
+
+  private final UUID someUuid = UUID.randomUUID();
+  private Connection conn;
+  private DSLContext db;
+
+  @BeforeSuite
+  public void setup() throws Exception
+  {
+    System.out.println("Executing BeforeSuite setup method: " + QueryPlanTest.class.getSimpleName());
+    // Make sure DB is migrated so that all indexes are present
+    new NotificationsDaoImpl().migrateDB();
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword());
+    db = DSL.using(conn, SQLDialect.POSTGRES);
+    // Cleanup anything leftover from previous failed run
+    deleteSeedData();
+    try (Statement stmt = conn.createStatement())
+    {
+      stmt.executeUpdate("""
+        INSERT INTO tapis_ntf.subscriptions (tenant, owner, name, type_filter, type_filter1, type_filter2, type_filter3,
+                                             subject_filter, delivery_targets, uuid, enabled, expiry)
+          SELECT '%s', 'owner' || (g %% 50), 'subscr' || g, 'svc' || (g %% 20) || '.res.action' || (g %% 10),
+                 'svc' || (g %% 20), 'res', 'action' || (g %% 10), 'subj' || g, '[]'::jsonb, md5('s' || g)::uuid,
+                 (g %% 10 <> 0), CASE WHEN g %% 5 = 0 THEN (now() at time zone 'utc') + interval '1 day' END
+          FROM generate_series(1, %d) g
+        """.formatted(planTenant, numSubscriptions));
+      stmt.executeUpdate("""
+        INSERT INTO tapis_ntf.notifications (subscr_seq_id, uuid, tenant, subscr_name, delivery_method, delivery_address,
+                                             event_uuid, event, bucket_number, vbucket)
+          SELECT s.seq_id, md5('n' || g)::uuid, '%s', s.name, 'WEBHOOK', 'https://example.org/hook' || (g %% 100),
+                 md5('e' || (g / 4))::uuid, '{}'::jsonb, g %% 23, g %% 1472
+          FROM generate_series(1, %d) g
+          JOIN tapis_ntf.subscriptions s ON s.tenant = '%s' AND s.name = 'subscr' || (1 + g %% %d)
+        """.formatted(planTenant, numNotifications, planTenant, numSubscriptions));
+      stmt.executeUpdate("""
+        INSERT INTO tapis_ntf.notifications_recovery (subscr_seq_id, uuid, tenant, subscr_name, delivery_method,
+                                                      delivery_address, event_uuid, event, bucket_number,
+                                                      vbucket)
+          SELECT s.seq_id, md5('r' || g)::uuid, '%s', s.name, 'WEBHOOK', 'https://example.org/hook' || (g %% 100),
+                 md5('re' || (g / 4))::uuid, '{}'::jsonb, g %% 23, g %% 1472
+          FROM generate_series(1, %d) g
+          JOIN tapis_ntf.subscriptions s ON s.tenant = '%s' AND s.name = 'subscr' || (1 + g %% %d)
+        """.formatted(planTenant, numRecovery, planTenant, numSubscriptions));
+      stmt.executeUpdate("""
+        INSERT INTO tapis_ntf.events (event_uuid, tenant, event)
+          SELECT DISTINCT event_uuid, tenant, '{}'::jsonb FROM tapis_ntf.notifications WHERE tenant = '%s'
+          UNION
+          SELECT DISTINCT event_uuid, tenant, '{}'::jsonb FROM tapis_ntf.notifications_recovery WHERE tenant = '%s'
+        """.formatted(planTenant, planTenant));
+      stmt.execute("ANALYZE tapis_ntf.subscriptions");
+      stmt.execute("ANALYZE tapis_ntf.notifications");
+      stmt.execute("ANALYZE tapis_ntf.notifications_recovery");
+      stmt.execute("ANALYZE tapis_ntf.events");
+    }
+  }
+
+  @AfterSuite
+  public void teardown() throws Exception
+  {
+    System.out.println("Executing AfterSuite teardown for " + QueryPlanTest.class.getSimpleName());
+    if (conn == null) return;
+    deleteSeedData();
+    conn.close();
+  }
+
+  // ******************************************************************
+  //   Subscriptions
+  // ******************************************************************
+
+  @Test
+  public void testGetSubscriptionsForEvent() throws Exception
+  {
+    assertNoSeqScan("getSubscriptionsForEvent",
+        NotificationsDaoImpl.subscriptionsForEventQuery(db, planTenant, "svc1", "res", "action1", "subj21"));
+  }
+
+  @Test
+  public void testDeleteExpiredSubscriptions() throws Exception
+  {
+    assertNoSeqScan("deleteExpiredSubscriptions", NotificationsDaoImpl.deleteExpiredSubscriptionsQuery(db, now(), 500));
+  }
+
+  @Test
+  public void testDeleteSubscriptionsBySubject() throws Exception
+  {
+    assertNoSeqScan("deleteSubscriptionsBySubject",
+        NotificationsDaoImpl.deleteSubscriptionsBySubjectQuery(db, planTenant, "owner1", "subj1", false));
+    assertNoSeqScan("deleteSubscriptionsBySubjectAnyOwner",
+        NotificationsDaoImpl.deleteSubscriptionsBySubjectQuery(db, planTenant, null, "subj1", true));
+  }
+
+  @Test
+  public void testGetSubscriptionByUuid() throws Exception
+  {
+    assertNoSeqScan("getSubscriptionByUuid", NotificationsDaoImpl.subscriptionByUuidQuery(db, planTenant, someUuid));
+  }
+
+  @Test
+  public void testStreamSubscriptions() throws Exception
+  {
+    // Page after a cursor in the default sort order
+    var orderByList = List.of(new OrderBy("created", OrderByDir.ASC), new OrderBy("name", OrderByDir.ASC));
+    var after = new SubscriptionCursor(orderByList, List.of(now().minusDays(1).toString(), "subscr100"), 100);
+    Condition ownerCondition = SUBSCRIPTIONS.TENANT.eq(planTenant).and(SUBSCRIPTIONS.OWNER.eq("owner1"));
+    assertNoSeqScan("streamSubscriptions",
+        NotificationsDaoImpl.streamSubscriptionsQuery(db, ownerCondition, orderByList, after, 100));
+    assertNoSeqScan("streamSubscriptionsAnyOwner",
+        NotificationsDaoImpl.streamSubscriptionsQuery(db, SUBSCRIPTIONS.TENANT.eq(planTenant), orderByList, after, 100));
+  }
+
+  // ******************************************************************
+  //   Notifications
+  // ******************************************************************
+
+  @Test
+  public void testGetNotificationsForBucket() throws Exception
+  {
+    assertNoSeqScan("getNotifications", NotificationsDaoImpl.notificationsForBucketQuery(db, 5));
+  }
+
+  @Test
+  public void testGetNotificationsForEvent() throws Exception
+  {
+    assertNoSeqScan("getNotificationsForEvent",
+        NotificationsDaoImpl.notificationsForEventQuery(db, planTenant, 5, someUuid));
+  }
+
+  @Test
+  public void testGetNotification() throws Exception
+  {
+    assertNoSeqScan("getNotification", NotificationsDaoImpl.notificationByUuidQuery(db, planTenant, someUuid));
+  }
+
+  @Test
+  public void testDeleteNotificationsByUuid() throws Exception
+  {
+    assertNoSeqScan("deleteNotificationsByUuid",
+        NotificationsDaoImpl.deleteNotificationsByUuidQuery(db, planTenant, List.of(someUuid, UUID.randomUUID())));
+  }
+
+  @Test
+  public void testMoveVirtualBucketNotifications() throws Exception
+  {
+    assertNoSeqScan("moveVirtualBucketNotifications",
+        NotificationsDaoImpl.moveVirtualBucketNotificationsQuery(db, 28, 5, 6));
+  }
+
+  // ******************************************************************
+  //   Notifications recovery
+  // ******************************************************************
+
+  @Test
+  public void testGetNotificationsInRecovery() throws Exception
+  {
+    assertNoSeqScan("getNotificationsInRecovery", NotificationsDaoImpl.notificationsInRecoveryQuery(db, 5));
+  }
+
+  @Test
+  public void testClaimDueNotificationsInRecovery() throws Exception
+  {
+    assertNoSeqScan("claimDueNotificationsInRecovery", NotificationsDaoImpl.dueRecoveryRowsQuery(db, 5, now(), 500));
+  }
+
+  @Test
+  public void testDeleteNotificationFromRecovery() throws Exception
+  {
+    assertNoSeqScan("deleteNotificationFromRecovery",
+        NotificationsDaoImpl.deleteNotificationFromRecoveryQuery(db, someUuid));
+  }
+
+  @Test
+  public void testMoveVirtualBucketRecovery() throws Exception
+  {
+    assertNoSeqScan("moveVirtualBucketRecovery", NotificationsDaoImpl.moveVirtualBucketRecoveryQuery(db, 28, 5, 6));
+  }
+
+  // ******************************************************************
+  //   Events
+  // ******************************************************************
+
+  @Test
+  public void testGetEvents() throws Exception
+  {
+    assertNoSeqScan("getEvents", NotificationsDaoImpl.eventsQuery(db, List.of(someUuid, UUID.randomUUID())));
+  }
+
+  @Test
+  public void testDeleteUnreferencedEvents() throws Exception
+  {
+    assertNoSeqScan("deleteUnreferencedEvents",
+        NotificationsDaoImpl.deleteUnreferencedEventsQuery(db, now().minusMinutes(10), 1000));
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static LocalDateTime now() { return LocalDateTime.now(ZoneOffset.UTC); }
+
+  /*
+   * Run EXPLAIN for the query with sequential scans disabled and fail if the plan still contains one.
+   * EXPLAIN without ANALYZE does not execute the query, so deletes are safe.
+   */
+  private void assertNoSeqScan(String queryName, Query query) throws Exception
+  {
+    String sql = query.getSQL(ParamType.INLINED);
+    StringBuilder plan = new StringBuilder();
+    conn.setAutoCommit(false);
+    try (Statement stmt = conn.createStatement())
+    {
+      stmt.execute("SET LOCAL enable_seqscan = off");
+      try (var rs = stmt.executeQuery("EXPLAIN " + sql))
+      {
+        while (rs.next()) plan.append(rs.getString(1)).append('\n');
+      }
+    }
+    finally
+    {
+      conn.rollback();
+      conn.setAutoCommit(true);
+    }
+    System.out.println("Plan for " + queryName + ":\n" + plan);
+    Assert.assertFalse(plan.toString().contains(SEQ_SCAN),
+                       "Query falls back to sequential scan: " + queryName + "\nSQL: " + sql + "\nPlan:\n" + plan);
+  }
+
+  /*
+   * Remove seeded rows. Notifications and recovery entries are removed by ON DELETE CASCADE.
+   */
+  private void deleteSeedData() throws Exception
+  {
+    try (Statement stmt = conn.createStatement())
+    {
+      stmt.executeUpdate("DELETE FROM tapis_ntf.subscriptions WHERE tenant = '" + planTenant + "'");
+      stmt.executeUpdate("DELETE FROM tapis_ntf.events WHERE tenant = '" + planTenant + "'");
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package edu.utexas.tacc.tapis.notifications.dao;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for SubscriptionCountCache.
+ */
+@Test
+public class SubscriptionCountCacheTest
+{
+  private static final String PREDICATE1 = "\"tapis_ntf\".\"subscriptions\".\"tenant\" = 'dev'";
+  private static final String PREDICATE2 = "\"tapis_ntf\".\"subscriptions\".\"tenant\" = 'admin'";
+
+  @Test
+  public void testGetPut()
+  {
+    var cache = new SubscriptionCountCache(100, 3600);
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE1));
+    cache.put("dev", "user1", PREDICATE1, 5, cache.generation());
+    Assert.assertEquals(cache.get("dev", "user1", PREDICATE1), Integer.valueOf(5));
+    // Owner and predicate are part of the key
+    Assert.assertNull(cache.get("dev", "user2", PREDICATE1));
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE2));
+  }
+
+  @Test
+  public void testTtl()
+  {
+    var cache = new SubscriptionCountCache(100, 0);
+    cache.put("dev", "user1", PREDICATE1, 5, cache.generation());
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE1));
+  }
+
+  @Test
+  public void testBounded()
+  {
+    var cache = new SubscriptionCountCache(2, 3600);
+    for (int i = 0; i < 5; i++) cache.put("dev", "user" + i, PREDICATE1, i, cache.generation());
+    Assert.assertEquals(cache.size(), 2);
+    // Disabled
+    cache = new SubscriptionCountCache(0, 3600);
+    cache.put("dev", "user1", PREDICATE1, 5, cache.generation());
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE1));
+  }
+
+  @Test
+  public void testInvalidate()
+  {
+    var cache = new SubscriptionCountCache(100, 3600);
+    cache.put("dev", "user1", PREDICATE1, 5, cache.generation());
+    cache.put("admin", "user1", PREDICATE2, 6, cache.generation());
+    cache.invalidate("dev");
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE1));
+    Assert.assertEquals(cache.get("admin", "user1", PREDICATE2), Integer.valueOf(6));
+    cache.invalidate(null);
+    Assert.assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void testStaleCountNotAdded()
+  {
+    var cache = new SubscriptionCountCache(100, 3600);
+    // Count started, then a subscription changed before it was added
+    long generation = cache.generation();
+    cache.invalidate("dev");
+    cache.put("dev", "user1", PREDICATE1, 5, generation);
+    Assert.assertNull(cache.get("dev", "user1", PREDICATE1));
+  }
+}
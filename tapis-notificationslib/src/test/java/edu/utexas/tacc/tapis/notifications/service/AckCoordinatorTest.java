@@ -0,0 +1,188 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.rabbitmq.client.Channel;
+
+import edu.utexas.tacc.tapis.notifications.utils.NtfMetrics;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for AckCoordinator.
+ * Uses a stand-in for the channel that records acks and nacks, so no external services are needed.
+ */
+@Test
+public class AckCoordinatorTest
+{
+  // Acks and nacks sent to the channel, e.g. "ack 5 true", "nack 3"
+  private final List<String> sent = new ArrayList<>();
+  private final Channel channel = fakeChannel();
+
+  @BeforeMethod
+  public void setUp() { sent.clear(); }
+
+  @Test
+  public void testContiguousMultipleAck()
+  {
+    // Flush only when asked to
+    var ac = new AckCoordinator(channel, 100, 60000);
+    for (long tag = 1; tag <= 5; tag++) ac.register(tag, (int) tag);
+    ac.complete(2);
+    ac.complete(3);
+    ac.complete(5);
+    // Tag 1 still pending so nothing can be acked
+    ac.flush();
+    Assert.assertTrue(sent.isEmpty());
+    ac.complete(1);
+    ac.flush();
+    // 1-3 are contiguous, 4 is pending
+    Assert.assertEquals(sent, List.of("ack 3 true"));
+    ac.complete(4);
+    ac.flush();
+    Assert.assertEquals(sent, List.of("ack 3 true", "ack 5 true"));
+    Assert.assertEquals(ac.numPending(), 0);
+    Assert.assertEquals(ac.numWaiting(), 0);
+    ac.close();
+  }
+
+  @Test
+  public void testFlushOnBatchSize()
+  {
+    var ac = new AckCoordinator(channel, 3, 60000);
+    for (long tag = 1; tag <= 3; tag++) ac.register(tag, (int) tag);
+    ac.complete(1);
+    ac.complete(2);
+    Assert.assertTrue(sent.isEmpty());
+    ac.complete(3);
+    Assert.assertEquals(sent, List.of("ack 3 true"));
+    ac.close();
+  }
+
+  @Test
+  public void testOneWaitingPerBucket()
+  {
+    var ac = new AckCoordinator(channel, 100, 60000);
+    // Tag 1 in bucket 0 is slow. Bucket 7 processes tags 2 and 3.
+    ac.register(1, 0);
+    ac.register(2, 7);
+    ac.register(3, 7);
+    ac.complete(2);
+    Assert.assertTrue(sent.isEmpty());
+    // Second completion for bucket 7 forces its earlier event to be acked on its own
+    ac.complete(3);
+    Assert.assertEquals(sent, List.of("ack 2 false"));
+    ac.complete(1);
+    ac.flush();
+    Assert.assertEquals(sent, List.of("ack 2 false", "ack 3 true"));
+    ac.close();
+  }
+
+  @Test
+  public void testFailAndUnregistered()
+  {
+    var ac = new AckCoordinator(channel, 100, 60000);
+    ac.register(1, 0);
+    ac.register(2, 1);
+    ac.complete(2);
+    // Failing a pending tag returns it to the queue and lets later tags be acked
+    ac.fail(1);
+    ac.flush();
+    Assert.assertEquals(sent, List.of("nack 1", "ack 2 true"));
+    // Failing a completed tag is a no-op
+    ac.fail(2);
+    // Unregistered tag is acked on its own
+    ac.complete(9);
+    Assert.assertEquals(sent, List.of("nack 1", "ack 2 true", "ack 9 false"));
+    ac.close();
+  }
+
+  @Test
+  public void testFailBucket()
+  {
+    var ac = new AckCoordinator(channel, 100, 60000);
+    ac.register(1, 4);
+    ac.register(2, 0);
+    ac.register(3, 4);
+    ac.register(4, 4);
+    ac.complete(2);
+    ac.complete(3);
+    // Pending tags for bucket 4 are returned, completed ones are still acked
+    Assert.assertEquals(ac.failBucket(4), 2);
+    Assert.assertEquals(sent, List.of("nack 1", "nack 4", "ack 3 true"));
+    Assert.assertEquals(ac.failBucket(4), 0);
+    Assert.assertEquals(ac.numPending(), 0);
+    ac.close();
+  }
+
+  @Test
+  public void testAckBucket()
+  {
+    var ac = new AckCoordinator(channel, 100, 60000);
+    ac.register(1, 0);
+    ac.register(2, 5);
+    ac.complete(2);
+    // Completed event for bucket 5 is acked even though tag 1 is still pending
+    ac.ackBucket(5);
+    Assert.assertEquals(sent, List.of("ack 2 false"));
+    ac.ackBucket(5);
+    Assert.assertEquals(ac.numWaiting(), 0);
+    Assert.assertEquals(sent.size(), 1);
+    ac.close();
+  }
+
+  @Test
+  public void testBucketChannelGauges()
+  {
+    // Coordinators for two bucket channels are tracked separately and each acks only its own channel's tags
+    var ac1 = new AckCoordinator(channel, 100, 60000, "test.bucket.1.ack.pending", "test.bucket.1.ack.waiting");
+    var ac2 = new AckCoordinator(channel, 100, 60000, "test.bucket.2.ack.pending", "test.bucket.2.ack.waiting");
+    ac1.register(1, 1);
+    ac1.register(2, 1);
+    ac2.register(1, 2);
+    ac1.complete(2);
+    Map<String, Object> metrics = NtfMetrics.snapshot();
+    Assert.assertEquals(metrics.get("test.bucket.1.ack.pending"), 1);
+    Assert.assertEquals(metrics.get("test.bucket.1.ack.waiting"), 1);
+    Assert.assertEquals(metrics.get("test.bucket.2.ack.pending"), 1);
+    Assert.assertEquals(metrics.get("test.bucket.2.ack.waiting"), 0);
+    ac2.complete(1);
+    ac2.flush();
+    Assert.assertEquals(sent, List.of("ack 1 true"));
+    ac1.close();
+    ac2.close();
+    Assert.assertFalse(NtfMetrics.snapshot().containsKey("test.bucket.1.ack.pending"));
+  }
+
+  @Test
+  public void testNoCoalescing()
+  {
+    var ac = new AckCoordinator(channel, 1, 0);
+    ac.register(1, 0);
+    ac.register(2, 1);
+    ac.complete(2);
+    ac.complete(1);
+    Assert.assertEquals(sent, List.of("ack 2 true"));
+    ac.close();
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Channel that supports only basicAck and basicNack
+   */
+  private Channel fakeChannel()
+  {
+    return makeStub(Channel.class, Map.of(
+      "basicAck", args -> sent.add("ack " + args[0] + " " + args[1]),
+      "basicNack", args -> sent.add("nack " + args[0])));
+  }
+}
@@ -0,0 +1,143 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+
+/**
+ * Tests for AdminRoleCache.
+ * Uses a stand-in for SK that counts lookups, so no external services are needed.
+ */
+@Test
+public class AdminRoleCacheTest
+{
+  @Test
+  public void testHitsAndTtl() throws Exception
+  {
+    var calls = new AtomicInteger();
+    // Admins cached for an hour, non-admins not at all
+    var cache = new AdminRoleCache(100, 3600, 0);
+    AdminRoleCache.RoleLoader loader = (tenant, user) -> { calls.incrementAndGet(); return user.startsWith("admin"); };
+    Assert.assertTrue(cache.isAdmin("dev", "admin1", loader));
+    Assert.assertTrue(cache.isAdmin("dev", "admin1", loader));
+    Assert.assertEquals(calls.get(), 1);
+    // Same user in another tenant is a different entry
+    Assert.assertTrue(cache.isAdmin("admin", "admin1", loader));
+    Assert.assertEquals(calls.get(), 2);
+    // Negative results expire right away
+    Assert.assertFalse(cache.isAdmin("dev", "user1", loader));
+    Assert.assertFalse(cache.isAdmin("dev", "user1", loader));
+    Assert.assertEquals(calls.get(), 4);
+  }
+
+  @Test
+  public void testBounded() throws Exception
+  {
+    var cache = new AdminRoleCache(2, 3600, 3600);
+    for (int i = 0; i < 5; i++) cache.isAdmin("dev", "user" + i, (tenant, user) -> false);
+    Assert.assertEquals(cache.size(), 2);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception
+  {
+    var calls = new AtomicInteger();
+    var cache = new AdminRoleCache(100, 3600, 3600);
+    AdminRoleCache.RoleLoader loader = (tenant, user) -> { calls.incrementAndGet(); return true; };
+    cache.isAdmin("dev", "user1", loader);
+    cache.isAdmin("dev", "user2", loader);
+    cache.isAdmin("admin", "user1", loader);
+    Assert.assertEquals(cache.invalidate("dev", "user1"), 1);
+    Assert.assertEquals(cache.invalidate("dev", null), 1);
+    Assert.assertEquals(cache.size(), 1);
+    Assert.assertEquals(cache.invalidate(null, null), 1);
+    cache.isAdmin("dev", "user1", loader);
+    Assert.assertEquals(calls.get(), 4);
+  }
+
+  @Test
+  public void testErrorsNotCached() throws Exception
+  {
+    var cache = new AdminRoleCache(100, 3600, 3600);
+    Assert.assertThrows(TapisException.class,
+                        () -> cache.isAdmin("dev", "user1", (tenant, user) -> { throw new TapisException("SK down"); }));
+    Assert.assertTrue(cache.isAdmin("dev", "user1", (tenant, user) -> true));
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception
+  {
+    var calls = new AtomicInteger();
+    var loading = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var cache = new AdminRoleCache(100, 3600, 3600);
+    AdminRoleCache.RoleLoader loader = (tenant, user) ->
+    {
+      calls.incrementAndGet();
+      loading.countDown();
+      try { release.await(); } catch (InterruptedException e) { throw new TapisException("interrupted", e); }
+      return true;
+    };
+    var first = CompletableFuture.supplyAsync(() -> isAdmin(cache, loader));
+    Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+    // Second request misses while the first is loading and waits for it
+    var second = CompletableFuture.supplyAsync(() -> isAdmin(cache, loader));
+    Thread.sleep(100);
+    Assert.assertFalse(second.isDone());
+    release.countDown();
+    Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+    Assert.assertTrue(second.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(calls.get(), 1);
+  }
+
+  @Test
+  public void testInvalidateDuringLoad() throws Exception
+  {
+    var calls = new AtomicInteger();
+    var loading = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var cache = new AdminRoleCache(100, 3600, 3600);
+    // First lookup sees the role before it was revoked and is held up until released
+    AdminRoleCache.RoleLoader staleLoader = (tenant, user) ->
+    {
+      calls.incrementAndGet();
+      loading.countDown();
+      try { release.await(); } catch (InterruptedException e) { throw new TapisException("interrupted", e); }
+      return true;
+    };
+    AdminRoleCache.RoleLoader loader = (tenant, user) -> { calls.incrementAndGet(); return false; };
+    var first = CompletableFuture.supplyAsync(() -> isAdmin(cache, staleLoader));
+    Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+    cache.invalidate("dev", "user1");
+    try
+    {
+      // Request after the invalidation does its own load rather than wait for the one in progress
+      Assert.assertFalse(CompletableFuture.supplyAsync(() -> isAdmin(cache, loader)).get(5, TimeUnit.SECONDS));
+      Assert.assertEquals(calls.get(), 2);
+    }
+    finally
+    {
+      release.countDown();
+    }
+    Assert.assertTrue(first.get(5, TimeUnit.SECONDS));
+    // Result of the stale load is not cached
+    Assert.assertFalse(cache.isAdmin("dev", "user1", loader));
+    Assert.assertEquals(calls.get(), 2);
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static boolean isAdmin(AdminRoleCache cache, AdminRoleCache.RoleLoader loader)
+  {
+    try { return cache.isAdmin("dev", "user1", loader); }
+    catch (Exception e) { throw new RuntimeException(e); }
+  }
+}
@@ -0,0 +1,231 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.IntegrationUtils.StubMethod;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for BucketLeaseManager.
+ * Uses a stand-in for the dao that keeps leases in memory with a clock controlled by the test, so no external
+ *   services are needed.
+ */
+@Test
+public class BucketLeaseManagerTest
+{
+  private static final int NUM_BUCKETS = 23;
+  private static final int TTL = 30;
+
+  // Lease name to owner and expiry time in seconds
+  private final Map<String, Lease> leases = new HashMap<>();
+  private long nowSeconds;
+  private boolean daoFails;
+
+  @BeforeMethod
+  public void setUp()
+  {
+    leases.clear();
+    nowSeconds = 0;
+    daoFails = false;
+  }
+
+  @Test
+  public void testSingleDispatcherTakesAll()
+  {
+    var listener = new RecordingListener();
+    var mgr = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, TTL, 5, listener);
+    mgr.heartbeat();
+    Assert.assertEquals(mgr.numOwnedBuckets(), NUM_BUCKETS);
+    Assert.assertEquals(listener.running.size(), NUM_BUCKETS);
+    Assert.assertTrue(mgr.isRouter());
+    Assert.assertTrue(listener.router);
+  }
+
+  @Test
+  public void testSharedEvenly()
+  {
+    var listenerA = new RecordingListener();
+    var listenerB = new RecordingListener();
+    var mgrA = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, TTL, 5, listenerA);
+    var mgrB = new BucketLeaseManager(fakeDao(), "b", NUM_BUCKETS, TTL, 5, listenerB);
+    mgrA.heartbeat();
+    // B joins. Nothing is free yet.
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrB.numOwnedBuckets(), 0);
+    // A gives up buckets above its share, then B takes them
+    mgrA.heartbeat();
+    Assert.assertEquals(mgrA.numOwnedBuckets(), 12);
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrB.numOwnedBuckets(), 11);
+    // Each bucket is processed by exactly one dispatcher
+    Set<Integer> overlap = new HashSet<>(listenerA.running);
+    overlap.retainAll(listenerB.running);
+    Assert.assertTrue(overlap.isEmpty());
+    Assert.assertEquals(listenerA.running.size() + listenerB.running.size(), NUM_BUCKETS);
+    // Only one router
+    Assert.assertTrue(mgrA.isRouter());
+    Assert.assertFalse(mgrB.isRouter());
+    // Stable from here on
+    mgrA.heartbeat();
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrA.numOwnedBuckets() + mgrB.numOwnedBuckets(), NUM_BUCKETS);
+  }
+
+  @Test
+  public void testTakeoverOnExpiry()
+  {
+    var listenerA = new RecordingListener();
+    var listenerB = new RecordingListener();
+    var mgrA = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, TTL, 5, listenerA);
+    var mgrB = new BucketLeaseManager(fakeDao(), "b", NUM_BUCKETS, TTL, 5, listenerB);
+    mgrA.heartbeat();
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrB.numOwnedBuckets(), 0);
+    // A dies. Once its leases expire B takes everything over, including the router.
+    nowSeconds += TTL - 1;
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrB.numOwnedBuckets(), 0);
+    nowSeconds += 1;
+    mgrB.heartbeat();
+    Assert.assertEquals(mgrB.numOwnedBuckets(), NUM_BUCKETS);
+    Assert.assertTrue(mgrB.isRouter());
+  }
+
+  @Test
+  public void testLostLease()
+  {
+    var listener = new RecordingListener();
+    var mgr = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, TTL, 5, listener);
+    mgr.heartbeat();
+    // Another dispatcher took bucket 7, e.g. after our lease expired during a long pause
+    leases.put(BucketLeaseManager.bucketLeaseName(7), new Lease("b", nowSeconds + TTL));
+    mgr.heartbeat();
+    Assert.assertFalse(mgr.getOwnedBuckets().contains(7));
+    Assert.assertFalse(listener.running.contains(7));
+  }
+
+  @Test
+  public void testFenceWhenRenewalFails() throws Exception
+  {
+    var listener = new RecordingListener();
+    // Fence after 1 second without a renewal
+    var mgr = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, 2, 1, listener);
+    mgr.heartbeat();
+    mgr.checkFence();
+    Assert.assertEquals(listener.running.size(), NUM_BUCKETS);
+    daoFails = true;
+    mgr.heartbeat();
+    Thread.sleep(1100);
+    mgr.checkFence();
+    Assert.assertEquals(mgr.numOwnedBuckets(), 0);
+    Assert.assertTrue(listener.running.isEmpty());
+    Assert.assertFalse(listener.router);
+  }
+
+  @Test
+  public void testCloseReleases()
+  {
+    var listener = new RecordingListener();
+    var mgr = new BucketLeaseManager(fakeDao(), "a", NUM_BUCKETS, TTL, 5, listener);
+    mgr.heartbeat();
+    mgr.close();
+    Assert.assertTrue(listener.running.isEmpty());
+    Assert.assertTrue(leases.isEmpty());
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Dao that supports only the lease methods
+   */
+  @SuppressWarnings("unchecked")
+  private NotificationsDao fakeDao()
+  {
+    return makeStub(NotificationsDao.class, Map.of(
+      "acquireLeases", unlessDaoFails(args ->
+      {
+        String owner = (String) args[0];
+        var held = new HashSet<String>();
+        for (String name : new TreeSet<>((Collection<String>) args[1]))
+        {
+          Lease lease = leases.get(name);
+          if (lease != null && !lease.owner().equals(owner) && lease.expires() > nowSeconds) continue;
+          leases.put(name, new Lease(owner, nowSeconds + (Integer) args[2]));
+          held.add(name);
+        }
+        return held;
+      }),
+      "releaseLeases", unlessDaoFails(args ->
+      {
+        String owner = (String) args[0];
+        int n = 0;
+        for (String name : (Collection<String>) args[1])
+        {
+          Lease lease = leases.get(name);
+          if (lease != null && lease.owner().equals(owner) && leases.remove(name) != null) n++;
+        }
+        return n;
+      }),
+      "getLeaseOwners", unlessDaoFails(args ->
+      {
+        var owners = new HashMap<String, String>();
+        leases.forEach((name, lease) -> { if (lease.expires() > nowSeconds) owners.put(name, lease.owner()); });
+        return owners;
+      }),
+      "deleteExpiredLeases", unlessDaoFails(args ->
+      {
+        int size = leases.size();
+        leases.values().removeIf(lease -> lease.expires() <= nowSeconds);
+        return size - leases.size();
+      })));
+  }
+
+  /*
+   * Dao method that throws instead of running while the dao is failing
+   */
+  private StubMethod unlessDaoFails(StubMethod method)
+  {
+    return args ->
+    {
+      if (daoFails) throw new TapisException("DB unavailable");
+      return method.call(args);
+    };
+  }
+
+  private record Lease(String owner, long expires) {}
+
+  /*
+   * Listener that records what is running
+   */
+  private static final class RecordingListener implements BucketLeaseManager.Listener
+  {
+    private final Set<Integer> running = new TreeSet<>();
+    private boolean router;
+
+    @Override
+    public void startBucket(int bucketNum)
+    {
+      Assert.assertTrue(running.add(bucketNum), "Bucket started twice: " + bucketNum);
+    }
+    @Override
+    public void stopBucket(int bucketNum) { running.remove(bucketNum); }
+    @Override
+    public void startRouter() { router = true; }
+    @Override
+    public void stopRouter() { router = false; }
+  }
+}
@@ -0,0 +1,161 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
+import edu.utexas.tacc.tapis.notifications.model.Notification;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for DeliveredNotificationDeleter.
+ * Uses a stand-in for the dao that records the batches deleted, so no external services are needed.
+ */
+@Test
+public class DeliveredNotificationDeleterTest
+{
+  // Batches passed to the dao, uuids keyed by tenant
+  private final List<Map<String, Set<UUID>>> batches = new ArrayList<>();
+  private volatile boolean failDeletes;
+  private final NotificationsDao dao = fakeDao();
+
+  @BeforeMethod
+  public void setUp()
+  {
+    synchronized (batches) { batches.clear(); }
+    failDeletes = false;
+  }
+
+  @Test
+  public void testFlushOnBatchSize() throws Exception
+  {
+    // Interval long enough that only the batch size triggers a flush
+    var deleter = new DeliveredNotificationDeleter(dao, 3, 60000);
+    var ntf1 = makeNotification("dev");
+    var ntf2 = makeNotification("dev");
+    var ntf3 = makeNotification("admin");
+    var f1 = deleter.submit(ntf1, Runnable::run);
+    var f2 = deleter.submit(ntf2, Runnable::run);
+    Assert.assertFalse(f1.isDone());
+    Assert.assertEquals(deleter.numQueued(), 2);
+    var f3 = deleter.submit(ntf3, Runnable::run);
+    CompletableFuture.allOf(f1, f2, f3).get(5, TimeUnit.SECONDS);
+    // One batch, grouped by tenant
+    synchronized (batches)
+    {
+      Assert.assertEquals(batches.size(), 1);
+      Assert.assertEquals(batches.get(0), Map.of("dev", Set.of(ntf1.getUuid(), ntf2.getUuid()),
+                                                 "admin", Set.of(ntf3.getUuid())));
+    }
+    Assert.assertEquals(deleter.numQueued(), 0);
+    deleter.close(1000);
+  }
+
+  @Test
+  public void testFlushOnInterval() throws Exception
+  {
+    var deleter = new DeliveredNotificationDeleter(dao, 100, 10);
+    var ntf = makeNotification("dev");
+    deleter.submit(ntf, Runnable::run).get(5, TimeUnit.SECONDS);
+    synchronized (batches) { Assert.assertEquals(batches, List.of(Map.of("dev", Set.of(ntf.getUuid())))); }
+    deleter.close(1000);
+  }
+
+  @Test
+  public void testFailedBatch() throws Exception
+  {
+    failDeletes = true;
+    var deleter = new DeliveredNotificationDeleter(dao, 2, 60000);
+    var f1 = deleter.submit(makeNotification("dev"), Runnable::run);
+    var f2 = deleter.submit(makeNotification("dev"), Runnable::run);
+    for (var f : List.of(f1, f2))
+    {
+      try
+      {
+        f.get(5, TimeUnit.SECONDS);
+        Assert.fail("Expected delete to fail");
+      }
+      catch (ExecutionException e)
+      {
+        Assert.assertTrue(e.getCause() instanceof TapisException);
+      }
+    }
+    deleter.close(1000);
+  }
+
+  @Test
+  public void testCloseFlushes()
+  {
+    var deleter = new DeliveredNotificationDeleter(dao, 100, 60000);
+    var ntf = makeNotification("dev");
+    var f = deleter.submit(ntf, Runnable::run);
+    Assert.assertFalse(f.isDone());
+    deleter.close(1000);
+    Assert.assertTrue(f.isDone() && !f.isCompletedExceptionally());
+    // After close each delete is made on its own
+    deleter.submit(makeNotification("dev"), Runnable::run).join();
+    synchronized (batches) { Assert.assertEquals(batches.size(), 2); }
+  }
+
+  @Test
+  public void testNoBatching()
+  {
+    var deleter = new DeliveredNotificationDeleter(dao, 1, 0);
+    deleter.submit(makeNotification("dev"), Runnable::run).join();
+    deleter.submit(makeNotification("dev"), Runnable::run).join();
+    synchronized (batches) { Assert.assertEquals(batches.size(), 2); }
+    failDeletes = true;
+    Assert.assertThrows(CompletionException.class,
+                        () -> deleter.submit(makeNotification("dev"), Runnable::run).join());
+    deleter.close(1000);
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static Notification makeNotification(String tenant)
+  {
+    var target = new DeliveryTarget(DeliveryMethod.WEBHOOK, "https://example.org/hook");
+    return new Notification(null, 1, tenant, "sub1", 0, UUID.randomUUID(), null, target, null);
+  }
+
+  /*
+   * Dao that supports only deleteNotificationsByUuid
+   */
+  @SuppressWarnings("unchecked")
+  private NotificationsDao fakeDao()
+  {
+    return makeStub(NotificationsDao.class, Map.of("deleteNotificationsByUuid",
+      args ->
+      {
+        if (failDeletes) throw new TapisException("delete failed");
+        var batch = new HashMap<String, Set<UUID>>();
+        int n = 0;
+        for (var entry : ((Map<String, Collection<UUID>>) args[0]).entrySet())
+        {
+          batch.put(entry.getKey(), Set.copyOf(entry.getValue()));
+          n += entry.getValue().size();
+        }
+        synchronized (batches) { batches.add(batch); }
+        return n;
+      }));
+  }
+}
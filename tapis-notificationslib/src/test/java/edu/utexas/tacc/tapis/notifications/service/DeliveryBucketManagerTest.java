@@ -0,0 +1,353 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.Delivery;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.Notification;
+import edu.utexas.tacc.tapis.notifications.model.Subscription;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for DeliveryBucketManager.
+ * Uses stand-ins for the dao and the message broker acks, so no external services are needed.
+ * The bucket manager is driven one step at a time using resume() and processNext() rather than call().
+ * Series lanes are checked using events that end their series, since the lanes then call the dao. The executor
+ *   for delivery tasks is shut down, so each delivery fails right away and the lane goes on to end the series.
+ *   Delivery tasks read the runtime parameters, so these tests need the same environment as the integration tests.
+ */
+@Test
+public class DeliveryBucketManagerTest
+{
+  private static final String tenant = "dev";
+  private static final int bucketNum = 3;
+
+  // State kept by the fake dao: uuids of events persisted, in order, and of the events in the last batch
+  private final List<UUID> persisted = new ArrayList<>();
+  private final Set<UUID> lastBatch = new HashSet<>();
+  // Acks sent, e.g. "ack 5", "nack 3"
+  private final List<String> acked = new ArrayList<>();
+  // Subscriptions matched by every event
+  private List<Subscription> matching;
+  // Dao calls made from the series lanes, e.g. "start series1", "end series1", "delsubj subj1"
+  private final List<String> laneCalls = Collections.synchronizedList(new ArrayList<>());
+  // Lane calls for this series wait for the gate to open
+  private volatile String gatedSeries;
+  private volatile CountDownLatch gate;
+
+  private final Subscription sub = makeSubscription();
+  private final NotificationsDao dao = fakeDao();
+  private final ExecutorService deliveryExecService = stoppedExecutor();
+
+  @BeforeMethod
+  public void setUp()
+  {
+    persisted.clear();
+    lastBatch.clear();
+    acked.clear();
+    matching = List.of(sub);
+    laneCalls.clear();
+    gatedSeries = null;
+    gate = new CountDownLatch(0);
+  }
+
+  @Test
+  public void testCrashAfterCommit() throws Exception
+  {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 4; i++) events.add(makeEvent("series1"));
+
+    // First run persists the first three events in one batch, then stops before any of them is acked
+    var queue = new LinkedBlockingQueue<Delivery>();
+    for (int i = 0; i < 3; i++) queue.add(new Delivery(events.get(i), i + 1));
+    var bm = newBucketManager(queue, crashingAcks());
+    bm.resume();
+    // Deliveries are not needed here, the notifications simply stay persisted
+    bm.stopLanes();
+    Assert.assertThrows(IOException.class, bm::processNext);
+    Assert.assertEquals(persisted, uuids(events.subList(0, 3)));
+    Assert.assertEquals(lastBatch, new HashSet<>(uuids(events.subList(0, 3))));
+
+    // After the restart all three are redelivered, oldest first, followed by a new event
+    acked.clear();
+    queue = new LinkedBlockingQueue<>();
+    for (int i = 0; i < 4; i++) queue.add(new Delivery(events.get(i), i + 11));
+    bm = newBucketManager(queue, recordingAcks());
+    bm.resume();
+    bm.stopLanes();
+    for (int i = 0; i < 4; i++) bm.processNext();
+    // Each redelivered event is acked without being persisted again, not only the first
+    Assert.assertEquals(persisted, uuids(events));
+    Assert.assertEquals(acked, List.of("ack 11", "ack 12", "ack 13", "ack 14"));
+    Assert.assertEquals(lastBatch, Set.of(events.get(3).getUuid()));
+  }
+
+  @Test
+  public void testFenceReleasesDirectEvents() throws Exception
+  {
+    // Virtual bucket just moved here from bucket 5. The publisher sent e1 straight to this queue, and it arrived
+    //   before e0, which went through the main queue while the virtual bucket was unbound.
+    Event e0 = makeEvent("series1");
+    Event e1 = makeEvent("series1");
+    int vbucket = EventSeriesKey.of(e0).virtualBucket();
+    var queue = new LinkedBlockingQueue<Delivery>();
+    queue.add(new Delivery(e1, 1, true));
+    queue.add(new Delivery(e0, 2));
+    queue.add(new Delivery(new VirtualBucket(vbucket, 5, bucketNum), 3));
+    var bm = new DeliveryBucketManager(dao, queue, bucketNum, null, deliveryExecService, true, 2, 10, 10, 0,
+                                       recordingAcks());
+    bm.resume();
+    bm.stopLanes();
+
+    // e1 is held, e0 is processed
+    bm.processNext();
+    Assert.assertEquals(persisted, List.of(e0.getUuid()));
+    // Fence releases e1
+    bm.processNext();
+    Assert.assertTrue(acked.contains("ack 3"));
+    Assert.assertEquals(persisted, List.of(e0.getUuid()));
+    bm.processNext();
+    Assert.assertEquals(persisted, uuids(List.of(e0, e1)));
+  }
+
+  @Test
+  public void testSeriesLanes() throws Exception
+  {
+    // Events that end their series, so the lanes call the dao once delivery is done
+    var queue = new LinkedBlockingQueue<Delivery>();
+    for (int i = 0; i < 3; i++) queue.add(new Delivery(makeEvent("series1", true, false), i + 1));
+    queue.add(new Delivery(makeEvent("series2", true, false), 4));
+    var bm = newBucketManager(queue, recordingAcks());
+    gatedSeries = "series1";
+    gate = new CountDownLatch(1);
+    try
+    {
+      bm.resume();
+      bm.processNext();
+      // series2 is not held up by series1, and the later events of series1 wait for the first one
+      awaitLaneCall("end series2");
+      Assert.assertEquals(new HashSet<>(laneCalls), Set.of("start series1", "start series2", "end series2"));
+      Assert.assertEquals(laneCalls.size(), 3);
+
+      // Once released the events of series1 are handled one at a time
+      gate.countDown();
+      awaitLaneCall("end series1", 3);
+      var series1Calls = new ArrayList<String>();
+      synchronized (laneCalls) { for (String c : laneCalls) if (c.endsWith("series1")) series1Calls.add(c); }
+      Assert.assertEquals(series1Calls, List.of("start series1", "end series1", "start series1", "end series1",
+                                                "start series1", "end series1"));
+    }
+    finally
+    {
+      gate.countDown();
+      bm.stopLanes();
+    }
+  }
+
+  @Test
+  public void testDeleteSubscriptionsWaitsForLanes() throws Exception
+  {
+    var queue = new LinkedBlockingQueue<Delivery>();
+    queue.add(new Delivery(makeEvent("series1", true, false), 1));
+    queue.add(new Delivery(makeEvent("series2", false, true), 2));
+    queue.add(new Delivery(makeEvent("series3", true, false), 3));
+    var bm = newBucketManager(queue, recordingAcks());
+    gatedSeries = "series1";
+    gate = new CountDownLatch(1);
+    ExecutorService bucketExecService = Executors.newSingleThreadExecutor();
+    try
+    {
+      bm.resume();
+      Future<?> first = bucketExecService.submit(() -> { bm.processNext(); return null; });
+      // Subscriptions are deleted in the lane for series2, but processing waits for series1 to finish as well
+      awaitLaneCall("delsubj subj1");
+      Assert.assertThrows(TimeoutException.class, () -> first.get(200, TimeUnit.MILLISECONDS));
+      Assert.assertFalse(laneCalls.contains("start series3"));
+
+      gate.countDown();
+      first.get(5, TimeUnit.SECONDS);
+      Assert.assertTrue(laneCalls.contains("end series1"));
+      Assert.assertEquals(queue.size(), 1);
+
+      // Next event is processed only now
+      bm.processNext();
+      awaitLaneCall("end series3");
+    }
+    finally
+    {
+      gate.countDown();
+      bucketExecService.shutdownNow();
+      bm.stopLanes();
+    }
+  }
+
+  @Test
+  public void testNoNotifications() throws Exception
+  {
+    // An event with no notifications is acked and nothing else is done for it, even if it ends its series
+    matching = List.of();
+    var queue = new LinkedBlockingQueue<Delivery>();
+    queue.add(new Delivery(makeEvent("series1", true, true), 1));
+    var bm = newBucketManager(queue, recordingAcks());
+    try
+    {
+      bm.resume();
+      bm.processNext();
+      Assert.assertEquals(acked, List.of("ack 1"));
+      Assert.assertTrue(persisted.isEmpty());
+      Assert.assertTrue(laneCalls.isEmpty());
+    }
+    finally
+    {
+      bm.stopLanes();
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private DeliveryBucketManager newBucketManager(BlockingQueue<Delivery> queue, DeliveryBucketManager.EventAcks acks)
+  {
+    return new DeliveryBucketManager(dao, queue, bucketNum, null, deliveryExecService, false, 2, 10, 10, 0, acks);
+  }
+
+  private static ExecutorService stoppedExecutor()
+  {
+    ExecutorService execService = Executors.newSingleThreadExecutor();
+    execService.shutdown();
+    return execService;
+  }
+
+  /*
+   * Acks that record what is sent
+   */
+  private DeliveryBucketManager.EventAcks recordingAcks()
+  {
+    return new DeliveryBucketManager.EventAcks()
+    {
+      @Override
+      public void ack(int bucketNum, long deliveryTag) { acked.add("ack " + deliveryTag); }
+      @Override
+      public void nack(int bucketNum, long deliveryTag) { acked.add("nack " + deliveryTag); }
+      @Override
+      public void ackBucket(int bucketNum) { }
+    };
+  }
+
+  /*
+   * Acks that fail as if the dispatcher stopped before acking
+   */
+  private DeliveryBucketManager.EventAcks crashingAcks()
+  {
+    return new DeliveryBucketManager.EventAcks()
+    {
+      @Override
+      public void ack(int bucketNum, long deliveryTag) throws IOException { throw new IOException("crash"); }
+      @Override
+      public void nack(int bucketNum, long deliveryTag) { }
+      @Override
+      public void ackBucket(int bucketNum) { }
+    };
+  }
+
+  /*
+   * Wait for a lane call to have been made a number of times
+   */
+  private void awaitLaneCall(String call) throws InterruptedException { awaitLaneCall(call, 1); }
+
+  private void awaitLaneCall(String call, int count) throws InterruptedException
+  {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline)
+    {
+      synchronized (laneCalls) { if (Collections.frequency(laneCalls, call) >= count) return; }
+      Thread.sleep(10);
+    }
+    Assert.fail("Lane call not made: " + call + " Lane calls: " + laneCalls);
+  }
+
+  /*
+   * Dao that matches every event to the subscriptions in matching and keeps track of persisted events.
+   * Calls made when a lane ends a series or deletes subscriptions are recorded in laneCalls.
+   */
+  private NotificationsDao fakeDao()
+  {
+    return makeStub(NotificationsDao.class, Map.of(
+      "getSubscriptionsForEvent", args -> matching,
+      "getNotifications", args -> List.<Notification>of(),
+      "getLastBatchEventUUIDs", args -> new HashSet<>(lastBatch),
+      "getVirtualBuckets", args -> List.<VirtualBucket>of(),
+      "getVirtualBucket", args -> new VirtualBucket((Integer) args[0], bucketNum, null),
+      "persistNotificationsAndUpdateLastEvent", args ->
+      {
+        @SuppressWarnings("unchecked")
+        List<Event> events = (List<Event>) args[1];
+        persisted.addAll(uuids(events));
+        lastBatch.clear();
+        lastBatch.addAll(uuids(events));
+        return true;
+      },
+      "deleteEventSeries", args ->
+      {
+        String seriesId = (String) args[2];
+        laneCalls.add("start " + seriesId);
+        if (seriesId.equals(gatedSeries)) gate.await();
+        laneCalls.add("end " + seriesId);
+        return 1;
+      },
+      "deleteSubscriptionsBySubject", args ->
+      {
+        laneCalls.add("delsubj " + args[2]);
+        return 0;
+      }));
+  }
+
+  private static Subscription makeSubscription()
+  {
+    var dt = new DeliveryTarget(DeliveryMethod.EMAIL, "test@example.com");
+    return new Subscription(1, tenant, "testuser", "sub1", null, true, "*.*.*", null, List.of(dt), 60,
+                            UUID.randomUUID(), null, Instant.now(), Instant.now());
+  }
+
+  private static Event makeEvent(String seriesId) { return makeEvent(seriesId, false, false); }
+
+  private static Event makeEvent(String seriesId, boolean endSeries, boolean deleteSubscriptionsMatchingSubject)
+  {
+    return new Event("tapis://test", "jobs.job.complete", "subj1", null, seriesId, 0L, Instant.now().toString(),
+                     deleteSubscriptionsMatchingSubject, endSeries, tenant, "testuser", null, UUID.randomUUID());
+  }
+
+  private static List<UUID> uuids(List<Event> events)
+  {
+    var uuids = new ArrayList<UUID>();
+    for (Event e : events) uuids.add(e.getUuid());
+    return uuids;
+  }
+}
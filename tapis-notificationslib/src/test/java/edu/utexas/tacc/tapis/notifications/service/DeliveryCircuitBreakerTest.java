@@ -0,0 +1,89 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.service.DeliveryCircuitBreaker.State;
+
+/**
+ * Tests for DeliveryCircuitBreaker.
+ * Uses a fake clock, so no waiting and no external services are needed.
+ */
+@Test
+public class DeliveryCircuitBreakerTest
+{
+  private static final String URL1 = "https://example.org/hook1";
+  private static final String URL2 = "https://example.org/hook2";
+  private static final String URL3 = "https://other.example.org/hook";
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  @Test
+  public void testOpenHalfOpenClose()
+  {
+    var breaker = new DeliveryCircuitBreaker(3, 60000, WebhookRateLimiter.KeyMode.HOST, nanos::get);
+    // Failures below the threshold, or broken up by a success, do not open the breaker
+    breaker.recordResult(URL1, false);
+    breaker.recordResult(URL1, false);
+    breaker.recordResult(URL1, true);
+    breaker.recordResult(URL1, false);
+    breaker.recordResult(URL1, false);
+    Assert.assertEquals(breaker.getState(URL1), State.CLOSED);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+    // Third consecutive failure opens it for the whole host
+    breaker.recordResult(URL2, false);
+    Assert.assertEquals(breaker.getState(URL1), State.OPEN);
+    Assert.assertFalse(breaker.allowAttempt(URL1));
+    Assert.assertFalse(breaker.allowAttempt(URL2));
+    Assert.assertTrue(breaker.allowAttempt(URL3));
+
+    // After the open interval a single probe is allowed
+    advance(60);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+    Assert.assertEquals(breaker.getState(URL1), State.HALF_OPEN);
+    Assert.assertFalse(breaker.allowAttempt(URL1));
+    // Failed probe opens it again
+    breaker.recordResult(URL1, false);
+    Assert.assertEquals(breaker.getState(URL1), State.OPEN);
+    Assert.assertFalse(breaker.allowAttempt(URL1));
+
+    // Successful probe closes it
+    advance(60);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+    breaker.recordResult(URL1, true);
+    Assert.assertEquals(breaker.getState(URL1), State.CLOSED);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+  }
+
+  @Test
+  public void testLostProbe()
+  {
+    var breaker = new DeliveryCircuitBreaker(1, 10000, WebhookRateLimiter.KeyMode.URL, nanos::get);
+    breaker.recordResult(URL1, false);
+    Assert.assertEquals(breaker.getState(URL1), State.OPEN);
+    // Keyed by url, so another url on the same host is not affected
+    Assert.assertTrue(breaker.allowAttempt(URL2));
+    advance(10);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+    // Probe never reports back. Another probe is allowed after the interval.
+    advance(5);
+    Assert.assertFalse(breaker.allowAttempt(URL1));
+    advance(5);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    var breaker = new DeliveryCircuitBreaker(0, 10000, WebhookRateLimiter.KeyMode.URL, nanos::get);
+    for (int i = 0; i < 10; i++) breaker.recordResult(URL1, false);
+    Assert.assertEquals(breaker.getState(URL1), State.CLOSED);
+    Assert.assertTrue(breaker.allowAttempt(URL1));
+  }
+
+  private void advance(long seconds) { nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds)); }
+}
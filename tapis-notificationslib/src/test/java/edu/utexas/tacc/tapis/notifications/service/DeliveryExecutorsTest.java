@@ -0,0 +1,186 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for DeliveryExecutors.
+ * Tests need no external services.
+ * Benchmark tests are in group "benchmark" which is excluded in testng.xml. To run them remove the exclusion
+ *   or run this class directly from the IDE.
+ * The benchmark sends webhook calls to a local stand-in that takes 200 ms to respond and reports throughput,
+ *   peak thread count and resident memory for each delivery executor mode. Modes to run may be set using
+ *   system property ntf.benchmark.modes, e.g. -Dntf.benchmark.modes=SHARED. Run one mode per JVM for a clean
+ *   memory comparison. VIRTUAL is only run on a JVM that supports virtual threads.
+ */
+@Test
+public class DeliveryExecutorsTest
+{
+  private static final int BENCH_NUM_CALLS = 5000;
+  private static final int BENCH_WEBHOOK_DELAY_MS = 200;
+  private static final int BENCH_FIXED_THREADS_PER_BUCKET = DispatchService.DEFAULT_NUM_DELIVERY_WORKERS;
+  private static final int BENCH_SHARED_MAX_THREADS = DispatchService.DEFAULT_DELIVERY_MAX_THREADS;
+
+  @Test
+  public void testModes() throws Exception
+  {
+    Assert.assertEquals(DeliveryExecutors.effectiveMode(null), DeliveryExecutors.Mode.FIXED);
+    Assert.assertEquals(DeliveryExecutors.effectiveMode(DeliveryExecutors.Mode.SHARED), DeliveryExecutors.Mode.SHARED);
+    var expectedVirtual = DeliveryExecutors.isVirtualThreadSupported() ? DeliveryExecutors.Mode.VIRTUAL
+                                                                       : DeliveryExecutors.Mode.SHARED;
+    Assert.assertEquals(DeliveryExecutors.effectiveMode(DeliveryExecutors.Mode.VIRTUAL), expectedVirtual);
+
+    // Blocking tasks on a shared executor should run concurrently
+    for (DeliveryExecutors.Mode mode : new DeliveryExecutors.Mode[] {DeliveryExecutors.Mode.SHARED,
+                                                                      DeliveryExecutors.Mode.VIRTUAL})
+    {
+      ExecutorService execService = DeliveryExecutors.newShared(mode, 100);
+      int numTasks = 100;
+      var latch = new CountDownLatch(numTasks);
+      long start = System.nanoTime();
+      for (int i = 0; i < numTasks; i++)
+      {
+        execService.submit(() -> { sleep(100); latch.countDown(); });
+      }
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS), "Tasks did not complete for mode: " + mode);
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      Assert.assertTrue(elapsedMs < 2000, "Tasks not run concurrently. Mode: " + mode + " Elapsed ms: " + elapsedMs);
+      execService.shutdownNow();
+    }
+  }
+
+  @Test(groups={"benchmark"})
+  public void benchmarkSlowWebhook() throws Exception
+  {
+    // Local stand-in for a slow webhook receiver
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 8192);
+    server.createContext("/webhook", exchange ->
+    {
+      exchange.getRequestBody().readAllBytes();
+      sleep(BENCH_WEBHOOK_DELAY_MS);
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    String url = "http://localhost:" + server.getAddress().getPort() + "/webhook";
+    var httpClient = new OkHttpClient();
+    try
+    {
+      String modesStr = System.getProperty("ntf.benchmark.modes", "FIXED,SHARED,VIRTUAL");
+      for (String modeStr : modesStr.split(","))
+      {
+        var mode = DeliveryExecutors.Mode.valueOf(modeStr.trim());
+        if (DeliveryExecutors.effectiveMode(mode) != mode)
+        {
+          System.out.printf("DeliveryExecutors mode: %s not supported by this JVM, skipping%n", mode);
+          continue;
+        }
+        runBenchmark(mode, httpClient, url);
+      }
+    }
+    finally
+    {
+      server.stop(0);
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Send webhook calls using executors as the dispatcher would for the mode, i.e. one pool per bucket for FIXED
+   *   and one executor for all buckets otherwise.
+   */
+  private static void runBenchmark(DeliveryExecutors.Mode mode, OkHttpClient httpClient, String url) throws Exception
+  {
+    List<ExecutorService> execServices = new ArrayList<>();
+    if (mode == DeliveryExecutors.Mode.FIXED)
+    {
+      for (int i = 0; i < DispatchService.DEFAULT_NUM_BUCKETS; i++)
+        execServices.add(DeliveryExecutors.newFixed(BENCH_FIXED_THREADS_PER_BUCKET));
+    }
+    else
+    {
+      execServices.add(DeliveryExecutors.newShared(mode, BENCH_SHARED_MAX_THREADS));
+    }
+    var threadBean = ManagementFactory.getThreadMXBean();
+    threadBean.resetPeakThreadCount();
+    long rssBeforeKb = getRssKb();
+    var latch = new CountDownLatch(BENCH_NUM_CALLS);
+    var numFailed = new AtomicInteger();
+    long start = System.nanoTime();
+    for (int i = 0; i < BENCH_NUM_CALLS; i++)
+    {
+      execServices.get(i % execServices.size()).submit(() ->
+      {
+        try { if (!postWebhook(httpClient, url)) numFailed.incrementAndGet(); }
+        catch (IOException e) { numFailed.incrementAndGet(); }
+        finally { latch.countDown(); }
+      });
+    }
+    Assert.assertTrue(latch.await(10, TimeUnit.MINUTES));
+    long elapsedNs = System.nanoTime() - start;
+    long rssAfterKb = getRssKb();
+    System.out.printf("DeliveryExecutors mode: %s calls: %,d failed: %,d elapsed: %.1f s throughput: %.1f calls/s " +
+                      "peak threads: %,d RSS before: %,d KB after: %,d KB%n", mode, BENCH_NUM_CALLS, numFailed.get(),
+                      elapsedNs / 1.0e9, BENCH_NUM_CALLS / (elapsedNs / 1.0e9), threadBean.getPeakThreadCount(),
+                      rssBeforeKb, rssAfterKb);
+    for (ExecutorService execService : execServices) execService.shutdownNow();
+  }
+
+  /*
+   * Post a small notification body in the same way as DeliveryTask
+   */
+  private static boolean postWebhook(OkHttpClient httpClient, String url) throws IOException
+  {
+    RequestBody body = RequestBody.create("{\"event\":{\"type\":\"bench.webhook.test\"}}",
+                                          MediaType.parse("application/json"));
+    Request request = new Request.Builder().url(url).post(body).build();
+    try (Response response = httpClient.newCall(request).execute())
+    {
+      return response.isSuccessful();
+    }
+  }
+
+  /*
+   * Resident set size of this process in KB. Only available on Linux, else -1.
+   */
+  private static long getRssKb()
+  {
+    try
+    {
+      for (String line : Files.readAllLines(Path.of("/proc/self/status")))
+      {
+        if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+      }
+    }
+    catch (IOException | RuntimeException e) { /* Not available */ }
+    return -1L;
+  }
+
+  private static void sleep(long ms)
+  {
+    try { Thread.sleep(ms); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+  }
+}
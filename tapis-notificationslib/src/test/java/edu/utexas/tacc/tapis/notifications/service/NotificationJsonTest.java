@@ -0,0 +1,132 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.utils.TapisGsonUtils;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
+import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.Notification;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.*;
+
+/**
+ * Tests for NotificationJson.
+ * Tests need no external services.
+ * Benchmark tests are in group "benchmark" which is excluded in testng.xml. To run them remove the exclusion
+ *   or run this class directly from the IDE.
+ * The benchmark reports time and bytes allocated to build webhook bodies for a fan-out of 500 notifications,
+ *   serializing each notification in full versus encoding the event once and sharing it.
+ */
+@Test
+public class NotificationJsonTest
+{
+  private static final int FAN_OUT = 500;
+
+  @Test
+  public void testSameAsGson()
+  {
+    // Data with characters that need escaping and a multi-line value
+    Event event = makeEvent("{\"status\": \"done\",\n \"note\": \"tab\\there \u00e9\"}");
+    var encodedEvent = NotificationJson.encodeEvent(event);
+    for (Notification ntf : makeNotifications(event, 3))
+    {
+      for (boolean pretty : new boolean[] {false, true})
+      {
+        String expected = TapisGsonUtils.getGson(pretty).toJson(ntf);
+        Assert.assertEquals(NotificationJson.toJson(ntf, encodedEvent, pretty), expected);
+        Assert.assertEquals(NotificationJson.toJson(ntf, null, pretty), expected);
+        Assert.assertEquals(join(NotificationJson.toWebhookBody(ntf, encodedEvent, pretty)),
+                            expected.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    // Null data is left out as it is by Gson
+    event = makeEvent(null);
+    Notification ntf = makeNotifications(event, 1).get(0);
+    Assert.assertEquals(join(NotificationJson.toWebhookBody(ntf, NotificationJson.encodeEvent(event), false)),
+                        TapisGsonUtils.getGson(false).toJson(ntf).getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(groups={"benchmark"})
+  public void benchmarkFanOut()
+  {
+    Event event = makeEvent("{\"result\": \"" + "x".repeat(2000) + "\"}");
+    List<Notification> notifications = makeNotifications(event, FAN_OUT);
+    int numRounds = 200;
+    long total = 0;
+    // Warm up
+    for (int i = 0; i < numRounds; i++) total += fanOutGson(notifications) + fanOutShared(event, notifications);
+    var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long tid = Thread.currentThread().getId();
+    for (boolean shared : new boolean[] {false, true})
+    {
+      long startBytes = threadBean.getThreadAllocatedBytes(tid);
+      long start = System.nanoTime();
+      for (int i = 0; i < numRounds; i++)
+        total += shared ? fanOutShared(event, notifications) : fanOutGson(notifications);
+      long elapsedNs = System.nanoTime() - start;
+      long allocBytes = threadBean.getThreadAllocatedBytes(tid) - startBytes;
+      System.out.printf("NotificationJson %s fan-out: %d avg: %.2f ms allocated: %,d KB%n",
+                        shared ? "shared event" : "gson per notification", FAN_OUT,
+                        elapsedNs / 1.0e6 / numRounds, allocBytes / 1024 / numRounds);
+    }
+    Assert.assertTrue(total > 0);
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Bodies as built before the event was shared, one full pretty printed serialization per notification
+   */
+  private static long fanOutGson(List<Notification> notifications)
+  {
+    long n = 0;
+    for (Notification ntf : notifications)
+      n += TapisGsonUtils.getGson(true).toJson(ntf).getBytes(StandardCharsets.UTF_8).length;
+    return n;
+  }
+
+  private static long fanOutShared(Event event, List<Notification> notifications)
+  {
+    long n = 0;
+    var encodedEvent = NotificationJson.encodeEvent(event);
+    for (Notification ntf : notifications)
+      for (byte[] part : NotificationJson.toWebhookBody(ntf, encodedEvent, false)) n += part.length;
+    return n;
+  }
+
+  private static Event makeEvent(String data)
+  {
+    return new Event(eventSource1, eventType1, eventSubject1, data, seriesId1, seriesSeqCount1, eventTime,
+                     false, false, tenantName, testUser1, Instant.now(), UUID.randomUUID());
+  }
+
+  private static List<Notification> makeNotifications(Event event, int n)
+  {
+    List<Notification> notifications = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+    {
+      var target = new DeliveryTarget(DeliveryMethod.WEBHOOK, "https://example.org/hook" + i);
+      notifications.add(new Notification(null, i, tenantName, "sub" + i, 0, event.getUuid(), event, target, null));
+    }
+    return notifications;
+  }
+
+  private static byte[] join(List<byte[]> parts)
+  {
+    var out = new ByteArrayOutputStream();
+    for (byte[] part : parts) out.writeBytes(part);
+    return out.toByteArray();
+  }
+}
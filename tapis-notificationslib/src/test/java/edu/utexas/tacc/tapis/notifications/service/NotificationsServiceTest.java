@@ -6,6 +6,7 @@ import edu.utexas.tacc.tapis.notifications.dao.NotificationsDaoImpl;
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget;
 import edu.utexas.tacc.tapis.notifications.model.DeliveryTarget.DeliveryMethod;
 import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventPublishResult;
 import edu.utexas.tacc.tapis.notifications.model.PatchSubscription;
 import edu.utexas.tacc.tapis.notifications.model.Subscription;
 import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
@@ -533,6 +534,55 @@ public class NotificationsServiceTest
   // ------------------------- Events --------------------------------------
   // -----------------------------------------------------------------------
 
+  // Test publishing a batch of events in two series with an endSeries event in the middle of one of them.
+  // Within a series counts follow the order of the request. The endSeries event does not restart the counts
+  //   for the events after it, the series is only ended when the dispatcher processes the event.
+  @Test
+  public void testPublishEventsSeriesSeqCounts() throws Exception
+  {
+    String series1 = UUID.randomUUID().toString();
+    String series2 = UUID.randomUUID().toString();
+    var events = new ArrayList<Event>();
+    events.add(makeBatchEvent(eventSubject1, series1, eventEndSeriesFalse));
+    events.add(makeBatchEvent(eventSubject1, series2, eventEndSeriesFalse));
+    events.add(makeBatchEvent(eventSubject1, series1, true));
+    events.add(makeBatchEvent(eventSubject1, null, eventEndSeriesFalse));
+    events.add(makeBatchEvent(eventSubject1, series1, eventEndSeriesFalse));
+    events.add(makeBatchEvent(eventSubject1, series2, eventEndSeriesFalse));
+    try
+    {
+      List<EventPublishResult> results = svcImpl.publishEvents(rJobsSvc1, events, tenantName);
+      Assert.assertEquals(results.size(), events.size());
+      var uuids = new HashSet<UUID>();
+      for (int i = 0; i < results.size(); i++)
+      {
+        Assert.assertTrue(results.get(i).isPublished(), "Event not published: " + results.get(i).getMessage());
+        Assert.assertEquals(results.get(i).getIndex(), i);
+        uuids.add(results.get(i).getUuid());
+      }
+      Assert.assertEquals(uuids.size(), events.size());
+      long[] expected = {1, 1, 2, Event.DEFAULT_SERIES_SEQ_COUNT, 3, 2};
+      for (int i = 0; i < results.size(); i++) Assert.assertEquals(results.get(i).getSeriesSeqCount(), expected[i]);
+    }
+    finally
+    {
+      svcImpl.endEventSeries(rJobsSvc1, eventSource1, eventSubject1, series1, tenantName);
+      svcImpl.endEventSeries(rJobsSvc1, eventSource1, eventSubject1, series2, tenantName);
+    }
+  }
+
+  // Test that a series event without a subject is rejected by batch publish
+  @Test
+  public void testPublishSeriesEventNoSubject() throws Exception
+  {
+    String series1 = UUID.randomUUID().toString();
+    List<EventPublishResult> results =
+            svcImpl.publishEvents(rJobsSvc1, List.of(makeBatchEvent(null, series1, eventEndSeriesFalse)), tenantName);
+    Assert.assertFalse(results.get(0).isPublished());
+    String msg = results.get(0).getMessage();
+    Assert.assertTrue(msg.startsWith("NTFLIB_EVENT_SERIES_NO_SUBJ"), msg);
+  }
+
   // Test posting an event to the queue
   // NOTE: Event is left on the queue, so it can be processed later.
   //       This method is useful for manually testing the processing of an event when the
@@ -605,6 +655,15 @@ public class NotificationsServiceTest
   // **************************  Private Methods  ***************************
   // ************************************************************************
 
+  /*
+   * Event as passed in to publishEvents, with only the attributes that may be set in a request
+   */
+  private static Event makeBatchEvent(String subject, String seriesId, boolean endSeries)
+  {
+    return new Event(eventSource1, eventType1, subject, eventDataNull, seriesId, Event.DEFAULT_SERIES_SEQ_COUNT,
+                     eventTime, eventDeleteSubscriptionsMatchingSubjectFalse, endSeries, null, null, null, null);
+  }
+
   /**
    * Check common attributes after creating and retrieving a resource
    * @param origSub - Original test resource
@@ -0,0 +1,120 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for PublisherChannelPool.
+ * Uses stand-ins for the broker connection and channels, so no external services are needed.
+ * A publish can be held inside basicPublish so the test can close the pool while a channel is borrowed.
+ */
+@Test
+public class PublisherChannelPoolTest
+{
+  // Numbers of the channels created and not yet closed
+  private final Set<Integer> openChannels = new HashSet<>();
+  private final AtomicInteger nextChannelNum = new AtomicInteger();
+  private CountDownLatch publishing;
+  private CountDownLatch finishPublish;
+
+  @BeforeMethod
+  public void setUp()
+  {
+    synchronized (openChannels) { openChannels.clear(); }
+    publishing = new CountDownLatch(1);
+    finishPublish = new CountDownLatch(1);
+  }
+
+  @Test
+  public void testCloseIdleChannels() throws Exception
+  {
+    finishPublish.countDown();
+    var pool = new PublisherChannelPool(fakeConnection(), 3, 1000);
+    Assert.assertEquals(numOpenChannels(), 3);
+    pool.publish("exchange1", List.of("key1"), null, List.of(new byte[0]));
+    pool.close();
+    Assert.assertEquals(numOpenChannels(), 0);
+  }
+
+  @Test
+  public void testCloseWithBorrowedChannel() throws Exception
+  {
+    var pool = new PublisherChannelPool(fakeConnection(), 2, 1000);
+    Future<List<CompletableFuture<Void>>> publish = CompletableFuture.supplyAsync(() ->
+    {
+      try { return pool.publish("exchange1", List.of("key1"), null, List.of(new byte[0])); }
+      catch (IOException e) { throw new RuntimeException(e); }
+    });
+    Assert.assertTrue(publishing.await(5, TimeUnit.SECONDS), "Publish not started");
+
+    // Only the idle channel can be closed right away
+    pool.close();
+    Assert.assertEquals(numOpenChannels(), 1);
+
+    // Borrowed channel is closed when it is returned
+    finishPublish.countDown();
+    publish.get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(numOpenChannels(), 0);
+
+    // No channels are handed out once the pool is closed
+    Assert.assertThrows(IOException.class,
+                        () -> pool.publish("exchange1", List.of("key1"), null, List.of(new byte[0])));
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private int numOpenChannels()
+  {
+    synchronized (openChannels) { return openChannels.size(); }
+  }
+
+  /*
+   * Connection that supports only createChannel
+   */
+  private Connection fakeConnection()
+  {
+    return makeStub(Connection.class, Map.of("createChannel", args -> fakeChannel(nextChannelNum.incrementAndGet())));
+  }
+
+  /*
+   * Channel that supports only what the pool uses. basicPublish waits until the test lets it finish.
+   */
+  private Channel fakeChannel(int channelNum)
+  {
+    synchronized (openChannels) { openChannels.add(channelNum); }
+    var seqNo = new AtomicInteger();
+    return makeStub(Channel.class, Map.of(
+      "confirmSelect", args -> null,
+      "addConfirmListener", args -> null,
+      "addShutdownListener", args -> null,
+      "getChannelNumber", args -> channelNum,
+      "getNextPublishSeqNo", args -> (long) seqNo.incrementAndGet(),
+      "isOpen", args -> { synchronized (openChannels) { return openChannels.contains(channelNum); } },
+      "close", args -> { synchronized (openChannels) { return openChannels.remove(channelNum); } },
+      "basicPublish", args ->
+      {
+        publishing.countDown();
+        finishPublish.await();
+        return null;
+      }));
+  }
+}
@@ -0,0 +1,85 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for RetryScheduler and RetryPolicy.
+ * Tests need no external services.
+ */
+@Test
+public class RetrySchedulerTest
+{
+  @Test
+  public void testDelaysFireInOrder() throws Exception
+  {
+    // Small wheel so that some delays take more than one round
+    var scheduler = new RetryScheduler(10, 8);
+    List<Integer> fired = Collections.synchronizedList(new ArrayList<>());
+    var futures = new ArrayList<CompletableFuture<Void>>();
+    long start = System.nanoTime();
+    for (int delayMs : new int[] {300, 0, 150, 50})
+    {
+      futures.add(scheduler.delay(delayMs).thenRun(() -> fired.add(delayMs)));
+    }
+    Assert.assertEquals(scheduler.numPending(), 4);
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertEquals(fired, List.of(0, 50, 150, 300));
+    Assert.assertTrue(elapsedMs >= 300, "Fired early. Elapsed ms: " + elapsedMs);
+    Assert.assertEquals(scheduler.numPending(), 0);
+    scheduler.stop();
+  }
+
+  @Test
+  public void testStopCancelsPending() throws Exception
+  {
+    var scheduler = new RetryScheduler(10, 8);
+    CompletableFuture<Void> future = scheduler.delay(60000);
+    scheduler.stop();
+    try
+    {
+      future.get(1, TimeUnit.SECONDS);
+      Assert.fail("Delay should have been cancelled");
+    }
+    catch (ExecutionException e)
+    {
+      Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+    Assert.assertEquals(scheduler.numPending(), 0);
+    Assert.assertTrue(scheduler.delay(0).isCompletedExceptionally());
+  }
+
+  @Test
+  public void testBackoff()
+  {
+    var fixed = new RetryPolicy(RetryPolicy.Backoff.FIXED, 1000, 5000, 0);
+    var linear = new RetryPolicy(RetryPolicy.Backoff.LINEAR, 1000, 5000, 0);
+    var exponential = new RetryPolicy(RetryPolicy.Backoff.EXPONENTIAL, 1000, 5000, 0);
+    Assert.assertEquals(fixed.delayMs(1), 1000);
+    Assert.assertEquals(fixed.delayMs(4), 1000);
+    Assert.assertEquals(linear.delayMs(1), 1000);
+    Assert.assertEquals(linear.delayMs(3), 3000);
+    Assert.assertEquals(linear.delayMs(9), 5000);
+    Assert.assertEquals(exponential.delayMs(1), 1000);
+    Assert.assertEquals(exponential.delayMs(3), 4000);
+    Assert.assertEquals(exponential.delayMs(4), 5000);
+    Assert.assertEquals(exponential.delayMs(100), 5000);
+
+    // Jitter stays within the range
+    var jittered = new RetryPolicy(RetryPolicy.Backoff.FIXED, 1000, 1000, 20);
+    for (int i = 0; i < 1000; i++)
+    {
+      long delay = jittered.delayMs(1);
+      Assert.assertTrue(delay >= 800 && delay <= 1200, "Delay out of range: " + delay);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.SeriesSeqLease;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.*;
+
+/**
+ * Tests for SeriesSeqAllocator.
+ * Uses an in-memory stand-in for the event_series table, so no external services are needed.
+ */
+@Test
+public class SeriesSeqAllocatorTest
+{
+  private static final int blockSize = 32;
+  private final EventSeriesKey key1 = new EventSeriesKey(tenantName, "src1", subjectFilter1, "series1");
+  private final EventSeriesKey key2 = new EventSeriesKey(tenantName, "src1", subjectFilter2, "series1");
+
+  // Stand-in for event_series: series to last count allocated and to epoch of the row
+  private final Map<EventSeriesKey, Long> seriesTable = new HashMap<>();
+  private final Map<EventSeriesKey, Long> epochTable = new HashMap<>();
+  private final AtomicLong nextEpoch = new AtomicLong(1);
+  private final AtomicInteger numDbCalls = new AtomicInteger();
+  private final NotificationsDao dao = fakeDao();
+
+  @Test
+  public void testBlocksReduceDbCalls() throws Exception
+  {
+    seriesTable.clear();
+    numDbCalls.set(0);
+    var alloc = new SeriesSeqAllocator(dao, blockSize);
+    alloc.setReady(true);
+    for (long i = 1; i <= 100; i++) Assert.assertEquals(next(alloc, key1), i);
+    Assert.assertEquals(numDbCalls.get(), 4);
+
+    // Not ready means one DB call per request and no gaps
+    alloc.setReady(false);
+    numDbCalls.set(0);
+    long first = next(alloc, key2);
+    Assert.assertEquals(next(alloc, key2), first + 1);
+    Assert.assertEquals(numDbCalls.get(), 2);
+  }
+
+  @Test
+  public void testMultipleInstancesAreUnique() throws Exception
+  {
+    seriesTable.clear();
+    var alloc1 = new SeriesSeqAllocator(dao, blockSize);
+    var alloc2 = new SeriesSeqAllocator(dao, blockSize);
+    alloc1.setReady(true);
+    alloc2.setReady(true);
+    Set<Long> seen = new HashSet<>();
+    long prev1 = 0, prev2 = 0;
+    for (int i = 0; i < 200; i++)
+    {
+      long c1 = next(alloc1, key1);
+      long c2 = next(alloc2, key1);
+      Assert.assertTrue(seen.add(c1), "Duplicate count: " + c1);
+      Assert.assertTrue(seen.add(c2), "Duplicate count: " + c2);
+      // Increasing within an instance
+      Assert.assertTrue(c1 > prev1);
+      Assert.assertTrue(c2 > prev2);
+      prev1 = c1;
+      prev2 = c2;
+    }
+  }
+
+  @Test
+  public void testBatchAndReset() throws Exception
+  {
+    seriesTable.clear();
+    numDbCalls.set(0);
+    var alloc = new SeriesSeqAllocator(dao, blockSize);
+    alloc.setReady(true);
+    Map<EventSeriesKey, long[]> counts = alloc.allocate(null, Map.of(key1, 40, key2, 3));
+    Assert.assertEquals(numDbCalls.get(), 1);
+    for (int i = 0; i < 40; i++) Assert.assertEquals(counts.get(key1)[i], i + 1L);
+    Assert.assertEquals(counts.get(key2), new long[] {1L, 2L, 3L});
+
+    // Reset the series as endEventSeries would, then confirm it restarts at 1.
+    resetSeries(key1);
+    alloc.invalidate(key1);
+    Assert.assertEquals(next(alloc, key1), 1L);
+    // Other series keeps its block
+    Assert.assertEquals(next(alloc, key2), 4L);
+  }
+
+  @Test
+  public void testDefaultBlockSize() throws Exception
+  {
+    seriesTable.clear();
+    numDbCalls.set(0);
+    var alloc1 = new SeriesSeqAllocator(dao, SeriesSeqAllocator.DEFAULT_BLOCK_SIZE);
+    var alloc2 = new SeriesSeqAllocator(dao, SeriesSeqAllocator.DEFAULT_BLOCK_SIZE);
+    alloc1.setReady(true);
+    alloc2.setReady(true);
+    // Counts follow publish order across instances, with no gaps
+    for (long i = 1; i <= 10; i += 2)
+    {
+      Assert.assertEquals(next(alloc1, key1), i);
+      Assert.assertEquals(next(alloc2, key1), i + 1);
+    }
+    Assert.assertEquals(numDbCalls.get(), 10);
+
+    // Reset is seen by the next publish without waiting for the reset notification
+    resetSeries(key1);
+    Assert.assertEquals(next(alloc1, key1), 1L);
+    Assert.assertEquals(next(alloc2, key1), 2L);
+    Assert.assertEquals(alloc1.size(), 0);
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  private static long next(SeriesSeqAllocator alloc, EventSeriesKey key) throws Exception
+  {
+    return alloc.allocate(null, Map.of(key, 1)).get(key)[0];
+  }
+
+  // Delete the tracking row for a series
+  private void resetSeries(EventSeriesKey key)
+  {
+    synchronized (seriesTable)
+    {
+      seriesTable.remove(key);
+      epochTable.remove(key);
+    }
+  }
+
+  /*
+   * Dao that supports only getNextSeriesSeqCounts, using the in-memory series table.
+   */
+  @SuppressWarnings("unchecked")
+  private NotificationsDao fakeDao()
+  {
+    return makeStub(NotificationsDao.class, Map.of(
+      "getNextSeriesSeqCounts", args ->
+      {
+        synchronized (seriesTable)
+        {
+          numDbCalls.incrementAndGet();
+          var retMap = new HashMap<EventSeriesKey, SeriesSeqLease>();
+          for (Map.Entry<EventSeriesKey, Integer> e : ((Map<EventSeriesKey, Integer>) args[1]).entrySet())
+          {
+            long last = seriesTable.merge(e.getKey(), e.getValue().longValue(), Long::sum);
+            long epoch = epochTable.computeIfAbsent(e.getKey(), k -> nextEpoch.getAndIncrement());
+            retMap.put(e.getKey(), new SeriesSeqLease(last - e.getValue() + 1, epoch));
+          }
+          return retMap;
+        }
+      }));
+  }
+}
@@ -0,0 +1,189 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.config.RuntimeParameters;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDaoImpl;
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.Subscription;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.*;
+
+/**
+ * Tests for the dispatcher in-memory SubscriptionMatchIndex.
+ * Matching tests need no external services.
+ * Benchmark tests are in group "benchmark" which is excluded in testng.xml. To run them remove the exclusion
+ *   or run this class directly from the IDE. The benchmark also needs a DB running locally.
+ * The benchmark reports average match time at 10k, 100k and 1M subscriptions, both for the index and for the DB
+ *   query it replaces (NotificationsDao.getSubscriptionsForEvent). The DB is seeded with the same subscriptions in
+ *   a dedicated tenant. With the index the time should stay roughly flat as the number of subscriptions grows,
+ *   since a match is at most 16 hash lookups.
+ */
+@Test
+public class SubscriptionMatchIndexTest
+{
+  private static final String tenant2 = "tenant2";
+  private static final String benchTenant = "matchBenchTenant";
+  private static final String wc = Subscription.FILTER_WILDCARD;
+
+  @Test
+  public void testMatchSemantics()
+  {
+    var index = new SubscriptionMatchIndex();
+    List<Subscription> subs = new ArrayList<>();
+    subs.add(makeSubscription(1, tenantName, true, typeFilter1, subjectFilter1)); // exact
+    subs.add(makeSubscription(2, tenantName, true, "jobs.*.complete", wc));       // wildcards
+    subs.add(makeSubscription(3, tenantName, true, "*.*.*", wc));                 // match all
+    subs.add(makeSubscription(4, tenantName, false, typeFilter1, subjectFilter1)); // disabled
+    subs.add(makeSubscription(5, tenant2, true, typeFilter1, subjectFilter1));    // other tenant
+    subs.add(makeSubscription(6, tenantName, true, typeFilter2, subjectFilter1)); // other type
+    subs.add(makeSubscription(7, tenantName, true, typeFilter1, subjectFilter2)); // other subject
+    Assert.assertFalse(index.isReady());
+    index.replaceAll(subs);
+    Assert.assertTrue(index.isReady());
+    Assert.assertEquals(index.size(), 6);
+
+    Assert.assertEquals(matchIds(index, makeEvent(tenantName, typeFilter1, subjectFilter1)), Set.of(1, 2, 3));
+    // Null subject only matches the wildcard
+    Assert.assertEquals(matchIds(index, makeEvent(tenantName, typeFilter1, null)), Set.of(2, 3));
+    Assert.assertEquals(matchIds(index, makeEvent(tenant2, typeFilter1, subjectFilter1)), Set.of(5));
+    Assert.assertTrue(index.match(makeEvent("noSuchTenant", typeFilter1, subjectFilter1)).isEmpty());
+
+    // Disable, re-enable with a new filter and remove
+    index.upsert(makeSubscription(1, tenantName, false, typeFilter1, subjectFilter1));
+    Assert.assertEquals(matchIds(index, makeEvent(tenantName, typeFilter1, subjectFilter1)), Set.of(2, 3));
+    index.upsert(makeSubscription(6, tenantName, true, typeFilter1, wc));
+    Assert.assertEquals(matchIds(index, makeEvent(tenantName, typeFilter1, subjectFilter1)), Set.of(2, 3, 6));
+    index.remove(3);
+    index.remove(999);
+    Assert.assertEquals(matchIds(index, makeEvent(tenantName, typeFilter1, subjectFilter1)), Set.of(2, 6));
+    Assert.assertEquals(index.size(), 4);
+
+    index.invalidate();
+    Assert.assertFalse(index.isReady());
+  }
+
+  @Test(groups={"benchmark"})
+  public void benchmarkMatch() throws Exception
+  {
+    int numEvents = 100_000;
+    int numDbEvents = 1000;
+    var dao = new NotificationsDaoImpl();
+    dao.migrateDB();
+    RuntimeParameters parms = RuntimeParameters.getInstance();
+    try (Connection conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword()))
+    {
+      for (int numSubscriptions : new int[] {10_000, 100_000, 1_000_000})
+      {
+        var index = new SubscriptionMatchIndex();
+        index.replaceAll(makeSyntheticSubscriptions(numSubscriptions));
+        Event[] events = new Event[1000];
+        for (int i = 0; i < events.length; i++)
+        {
+          events[i] = makeEvent(benchTenant, "svc" + (i % 50) + ".res.action" + (i % 20), "subj" + (i % 1000));
+        }
+        // Warm up
+        long totalMatches = 0;
+        for (int i = 0; i < numEvents; i++) totalMatches += index.match(events[i % events.length]).size();
+        long start = System.nanoTime();
+        for (int i = 0; i < numEvents; i++) totalMatches += index.match(events[i % events.length]).size();
+        double indexUs = (System.nanoTime() - start) / 1000.0 / numEvents;
+
+        // Same subscriptions in the DB
+        seedSubscriptions(conn, numSubscriptions);
+        long totalDbMatches = 0;
+        for (int i = 0; i < numDbEvents / 10; i++) totalDbMatches += dao.getSubscriptionsForEvent(events[i]).size();
+        start = System.nanoTime();
+        for (int i = 0; i < numDbEvents; i++)
+        {
+          totalDbMatches += dao.getSubscriptionsForEvent(events[i % events.length]).size();
+        }
+        double dbUs = (System.nanoTime() - start) / 1000.0 / numDbEvents;
+        System.out.printf("SubscriptionMatchIndex subscriptions: %,d avg match index: %.2f us DB: %.2f us " +
+                          "total matches index: %,d DB: %,d%n",
+                          numSubscriptions, indexUs, dbUs, totalMatches, totalDbMatches);
+        Assert.assertTrue(totalMatches > 0);
+        Assert.assertTrue(totalDbMatches > 0);
+      }
+    }
+    finally
+    {
+      try (Connection conn = DriverManager.getConnection(parms.getJdbcURL(), parms.getDbUser(), parms.getDbPassword());
+           Statement stmt = conn.createStatement())
+      {
+        stmt.executeUpdate("DELETE FROM tapis_ntf.subscriptions WHERE tenant = '" + benchTenant + "'");
+      }
+    }
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Spread subscriptions over 50 services, 20 actions and 10k subjects, with a small fraction using wildcards.
+   */
+  private static List<Subscription> makeSyntheticSubscriptions(int n)
+  {
+    List<Subscription> subs = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+    {
+      String action = (i % 97 == 0) ? wc : "action" + (i % 20);
+      String subject = (i % 89 == 0) ? wc : "subj" + (i % 10_000);
+      subs.add(makeSubscription(i, benchTenant, true, "svc" + (i % 50) + ".res." + action, subject));
+    }
+    return subs;
+  }
+
+  /*
+   * Replace the subscriptions in the benchmark tenant with the same ones makeSyntheticSubscriptions() creates
+   */
+  private static void seedSubscriptions(Connection conn, int n) throws Exception
+  {
+    try (Statement stmt = conn.createStatement())
+    {
+      stmt.executeUpdate("DELETE FROM tapis_ntf.subscriptions WHERE tenant = '" + benchTenant + "'");
+      stmt.executeUpdate("""
+        INSERT INTO tapis_ntf.subscriptions (tenant, owner, name, type_filter, type_filter1, type_filter2, type_filter3,
+                                             subject_filter, delivery_targets, uuid, enabled)
+          SELECT '%s', '%s', '%s' || g, 'svc' || (g %% 50) || '.res.' || a.action, 'svc' || (g %% 50), 'res',
+                 a.action, CASE WHEN g %% 89 = 0 THEN '%s' ELSE 'subj' || (g %% 10000) END, '[]'::jsonb,
+                 md5('bench' || g)::uuid, true
+          FROM generate_series(0, %d) g,
+               LATERAL (SELECT CASE WHEN g %% 97 = 0 THEN '%s' ELSE 'action' || (g %% 20) END AS action) a
+        """.formatted(benchTenant, testUser1, subscrIdPrefix, wc, n - 1, wc));
+      stmt.execute("ANALYZE tapis_ntf.subscriptions");
+    }
+  }
+
+  private static Subscription makeSubscription(int seqId, String tenant, boolean enabled, String typeFilter,
+                                               String subjectFilter)
+  {
+    return new Subscription(seqId, tenant, testUser1, subscrIdPrefix + seqId, description1, enabled, typeFilter,
+                            subjectFilter, dtList1, 60, UUID.randomUUID(), null, Instant.now(), Instant.now());
+  }
+
+  private static Event makeEvent(String tenant, String type, String subject)
+  {
+    return new Event("tapis://test", type, subject, null, null, 0L, Instant.now().toString(), false, false,
+                     tenant, testUser1, null, UUID.randomUUID());
+  }
+
+  private static Set<Integer> matchIds(SubscriptionMatchIndex index, Event event)
+  {
+    Set<Integer> ids = new HashSet<>();
+    for (Subscription s : index.match(event)) ids.add(s.getSeqId());
+    return ids;
+  }
+}
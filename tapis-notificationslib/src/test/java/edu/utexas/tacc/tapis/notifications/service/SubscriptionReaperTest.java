@@ -0,0 +1,71 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.shared.exceptions.TapisException;
+import edu.utexas.tacc.tapis.notifications.dao.NotificationsDao;
+
+import static edu.utexas.tacc.tapis.notifications.IntegrationUtils.makeStub;
+
+/**
+ * Tests for SubscriptionReaper.
+ * Uses a stand-in for the dao that reports a given number of expired subscriptions, so no external services are needed.
+ */
+@Test
+public class SubscriptionReaperTest
+{
+  @Test
+  public void testChunks()
+  {
+    // 25 expired in chunks of 10. Full chunks are followed by another chunk.
+    var limits = new ArrayList<Integer>();
+    SubscriptionReaper.cleanup(fakeDao(25, limits, false), 10);
+    Assert.assertEquals(limits, List.of(10, 10, 10));
+
+    // Exactly one full chunk needs a second, empty, chunk to know we are done
+    limits.clear();
+    SubscriptionReaper.cleanup(fakeDao(10, limits, false), 10);
+    Assert.assertEquals(limits, List.of(10, 10));
+
+    // Nothing expired
+    limits.clear();
+    SubscriptionReaper.cleanup(fakeDao(0, limits, false), 10);
+    Assert.assertEquals(limits, List.of(10));
+  }
+
+  @Test
+  public void testErrorStopsRun()
+  {
+    var limits = new ArrayList<Integer>();
+    // Errors are logged, not thrown, so the scheduled reaper keeps running
+    SubscriptionReaper.cleanup(fakeDao(25, limits, true), 10);
+    Assert.assertEquals(limits, List.of(10));
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Dao that supports only deleteExpiredSubscriptions, recording the limit passed in
+   */
+  private NotificationsDao fakeDao(int numExpired, List<Integer> limits, boolean fail)
+  {
+    int[] remaining = {numExpired};
+    return makeStub(NotificationsDao.class, Map.of("deleteExpiredSubscriptions",
+      args ->
+      {
+        int limit = (Integer) args[0];
+        limits.add(limit);
+        if (fail) throw new TapisException("delete failed");
+        int n = Math.min(limit, remaining[0]);
+        remaining[0] -= n;
+        return n;
+      }));
+  }
+}
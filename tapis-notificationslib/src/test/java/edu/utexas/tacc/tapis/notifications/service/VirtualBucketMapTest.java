@@ -0,0 +1,139 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import edu.utexas.tacc.tapis.notifications.model.Event;
+import edu.utexas.tacc.tapis.notifications.model.EventSeriesKey;
+import edu.utexas.tacc.tapis.notifications.model.VirtualBucket;
+
+import static edu.utexas.tacc.tapis.notifications.model.EventSeriesKey.NUM_VIRTUAL_BUCKETS;
+
+/**
+ * Tests for VirtualBucketMap. No external services are needed.
+ */
+@Test
+public class VirtualBucketMapTest
+{
+  @Test
+  public void testInitialAssignmentKeepsBucket()
+  {
+    // Bucket was previously computed as the hash modulo the number of buckets
+    for (int i = 0; i < 1000; i++)
+    {
+      var key = new EventSeriesKey("dev", "tapis/jobs", "subject" + i, "series" + i);
+      Object[] hashObjects = {key.tenant(), key.source(), key.subject(), key.seriesId()};
+      int oldBucket = (Arrays.hashCode(hashObjects) & 0xfffffff) % DispatchService.DEFAULT_NUM_BUCKETS;
+      Assert.assertEquals(key.virtualBucket() % DispatchService.DEFAULT_NUM_BUCKETS, oldBucket);
+    }
+    var map = new VirtualBucketMap(List.of());
+    Assert.assertEquals(map.getAssignment()[100], 100 % DispatchService.DEFAULT_NUM_BUCKETS);
+    Assert.assertTrue(VirtualBucketMap.planMoves(map.getAssignment(), DispatchService.DEFAULT_NUM_BUCKETS).isEmpty());
+  }
+
+  @Test
+  public void testPlanGrow()
+  {
+    int[] assignment = new VirtualBucketMap(List.of()).getAssignment();
+    List<VirtualBucket> plan = VirtualBucketMap.planMoves(assignment, 32);
+    // 1472 = 32 * 46, each of the 23 old buckets keeps 46 of its 64
+    Assert.assertEquals(plan.size(), 23 * (64 - 46));
+    int[] counts = apply(assignment, plan, 32);
+    for (int n : counts) Assert.assertEquals(n, 46);
+  }
+
+  @Test
+  public void testPlanShrink()
+  {
+    int[] assignment = new VirtualBucketMap(List.of()).getAssignment();
+    List<VirtualBucket> plan = VirtualBucketMap.planMoves(assignment, 16);
+    // Buckets 16-22 are emptied, 1472 = 16 * 92
+    Assert.assertEquals(plan.size(), 7 * 64);
+    int[] counts = apply(assignment, plan, DispatchService.DEFAULT_NUM_BUCKETS);
+    for (int b = 0; b < counts.length; b++) Assert.assertEquals(counts[b], b < 16 ? 92 : 0);
+    // Planning again from the result needs no moves
+    Assert.assertTrue(VirtualBucketMap.planMoves(assignment, 16).isEmpty());
+  }
+
+  @Test
+  public void testRouteHoldRelease() throws Exception
+  {
+    Event event = newEvent("series1");
+    int vbucket = EventSeriesKey.of(event).virtualBucket();
+    int from = vbucket % DispatchService.DEFAULT_NUM_BUCKETS;
+    int to = (from + 1) % DispatchService.DEFAULT_NUM_BUCKETS;
+    var map = new VirtualBucketMap(List.of());
+    var dispatched = new ArrayList<String>();
+
+    Assert.assertTrue(map.route(event, b -> dispatched.add("e0 " + b), b -> Assert.fail("held")));
+    Assert.assertEquals(dispatched, List.of("e0 " + from));
+
+    // Pausing sends the marker, later events are held for the target bucket
+    var markers = new ArrayList<VirtualBucket>();
+    var move = new VirtualBucket(vbucket, from, to);
+    map.pause(move, markers::add);
+    Assert.assertEquals(markers, List.of(move));
+    var onHold = new ArrayList<Integer>();
+    Assert.assertFalse(map.route(event, b -> dispatched.add("e1 " + b), onHold::add));
+    Assert.assertFalse(map.route(event, b -> dispatched.add("e2 " + b), onHold::add));
+    Assert.assertEquals(onHold, List.of(to, to));
+    Assert.assertEquals(map.numHeld(), 2);
+    Assert.assertEquals(map.getMoves(), List.of(move));
+
+    // Held events go to the new bucket in order
+    Assert.assertEquals(map.release(vbucket, to), 2);
+    Assert.assertEquals(dispatched, List.of("e0 " + from, "e1 " + to, "e2 " + to));
+    Assert.assertTrue(map.route(event, b -> dispatched.add("e3 " + b), b -> Assert.fail("held")));
+    Assert.assertEquals(dispatched.get(3), "e3 " + to);
+    Assert.assertEquals(map.numHeld(), 0);
+    Assert.assertTrue(map.getMoves().isEmpty());
+  }
+
+  @Test
+  public void testMoveInProgressStartsPaused()
+  {
+    Event event = newEvent("series2");
+    int vbucket = EventSeriesKey.of(event).virtualBucket();
+    var map = new VirtualBucketMap(List.of(new VirtualBucket(vbucket, 3, 30)));
+    var onHold = new ArrayList<Integer>();
+    Assert.assertFalse(map.route(event, b -> Assert.fail("dispatched"), onHold::add));
+    Assert.assertEquals(onHold, List.of(30));
+    Assert.assertEquals(map.getAssignment()[vbucket], 3);
+  }
+
+  /* ********************************************************************** */
+  /*                             Private Methods                            */
+  /* ********************************************************************** */
+
+  /*
+   * Apply a plan to the assignment, checking no virtual bucket moves twice and every move starts where it should.
+   * Return the number of virtual buckets in each bucket.
+   */
+  private static int[] apply(int[] assignment, List<VirtualBucket> plan, int numBuckets)
+  {
+    Set<Integer> moved = new HashSet<>();
+    for (VirtualBucket move : plan)
+    {
+      Assert.assertTrue(moved.add(move.vbucket()), "moved twice: " + move);
+      Assert.assertEquals(assignment[move.vbucket()], move.bucketNum());
+      assignment[move.vbucket()] = move.targetBucket();
+    }
+    int[] counts = new int[numBuckets];
+    for (int v = 0; v < NUM_VIRTUAL_BUCKETS; v++) counts[assignment[v]]++;
+    return counts;
+  }
+
+  private static Event newEvent(String seriesId)
+  {
+    return new Event("tapis/jobs", "jobs.JOB_NEW_STATUS", "subject1", null, seriesId, 1, Instant.now().toString(),
+                     false, false, "dev", "testuser", Instant.now(), UUID.randomUUID());
+  }
+}
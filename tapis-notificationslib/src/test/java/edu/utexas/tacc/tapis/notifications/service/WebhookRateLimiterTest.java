@@ -0,0 +1,81 @@
+package edu.utexas.tacc.tapis.notifications.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for WebhookRateLimiter.
+ * Tests need no external services.
+ */
+@Test
+public class WebhookRateLimiterTest
+{
+  private static final String URL1 = "https://example.org/hook1";
+  private static final String URL2 = "https://example.org/hook2";
+
+  private final RetryScheduler retryScheduler = new RetryScheduler(10, 64);
+
+  @AfterClass
+  public void tearDown() { retryScheduler.stop(); }
+
+  @Test
+  public void testBurstThenRate() throws Exception
+  {
+    var limiter = new WebhookRateLimiter(retryScheduler, WebhookRateLimiter.KeyMode.URL,
+                                         new WebhookRateLimiter.Limit(20, 5), null);
+    // Burst is allowed right away
+    for (int i = 0; i < 5; i++) Assert.assertTrue(limiter.acquire("dev", URL1).isDone());
+    // After that calls wait, in order
+    List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    for (int i = 0; i < 10; i++) waiting.add(limiter.acquire("dev", URL1));
+    Assert.assertFalse(waiting.get(0).isDone());
+    Assert.assertEquals(limiter.getQueueDepths(), Map.of("dev|" + URL1, 10));
+    Assert.assertEquals(limiter.numWaiting(), 10);
+    // A different destination is not affected
+    Assert.assertTrue(limiter.acquire("dev", URL2).isDone());
+    // 10 calls at 20 per second take about half a second
+    long start = System.nanoTime();
+    CompletableFuture.allOf(waiting.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue(elapsedMs >= 400, "Rate not enforced. Elapsed ms: " + elapsedMs);
+    Assert.assertEquals(limiter.numWaiting(), 0);
+    Assert.assertTrue(limiter.getQueueDepths().isEmpty());
+  }
+
+  @Test
+  public void testTenantLimitsAndKeys()
+  {
+    var tenantLimits = WebhookRateLimiter.parseTenantLimits(" admin=0:0, dev = 1:2 ");
+    Assert.assertEquals(tenantLimits, Map.of("admin", new WebhookRateLimiter.Limit(0, 0),
+                                             "dev", new WebhookRateLimiter.Limit(1, 2)));
+    var limiter = new WebhookRateLimiter(retryScheduler, WebhookRateLimiter.KeyMode.HOST,
+                                         new WebhookRateLimiter.Limit(100, 100), tenantLimits);
+    // No limit for admin
+    for (int i = 0; i < 10; i++) Assert.assertTrue(limiter.acquire("admin", URL1).isDone());
+    // Both urls are on the same host so share a bucket of 2 for tenant dev
+    Assert.assertTrue(limiter.acquire("dev", URL1).isDone());
+    Assert.assertTrue(limiter.acquire("dev", URL2).isDone());
+    Assert.assertFalse(limiter.acquire("dev", URL1).isDone());
+    // Other tenants use the default
+    Assert.assertTrue(limiter.acquire("test", URL1).isDone());
+    Assert.assertEquals(limiter.getKey("dev", "https://Example.org:8443/x"), "dev|example.org");
+    Assert.assertEquals(limiter.getKey("dev", "not a url"), "dev|not a url");
+
+    for (String bad : new String[] {"dev", "dev=1", "dev=a:b", "=1:2"})
+    {
+      try
+      {
+        WebhookRateLimiter.parseTenantLimits(bad);
+        Assert.fail("Parse should have failed for: " + bad);
+      }
+      catch (IllegalArgumentException e) { /* expected */ }
+    }
+  }
+}